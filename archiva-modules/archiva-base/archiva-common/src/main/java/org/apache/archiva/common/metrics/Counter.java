@@ -0,0 +1,48 @@
+package org.apache.archiva.common.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing count. Increments are striped, so that concurrent updates do not contend.
+ */
+public class Counter
+{
+    private final LongAdder count = new LongAdder( );
+
+    public void increment( )
+    {
+        count.increment( );
+    }
+
+    public void add( long value )
+    {
+        if ( value > 0 )
+        {
+            count.add( value );
+        }
+    }
+
+    public long getCount( )
+    {
+        return count.sum( );
+    }
+}
@@ -0,0 +1,266 @@
+package org.apache.archiva.common.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds the counters, timers and gauges of the Archiva components in memory.
+ * <p>
+ * A metric is identified by its name and an optional list of label name and value pairs, e.g.
+ * <code>counter( "archiva_proxy_requests_total", "result", "hit" )</code>. The returned instances are
+ * thread safe and can be kept by the caller, so that the lookup is done only once for fixed labels.
+ * <p>
+ * Components that are not managed by the container use the {@link #getDefault() default registry}. Tests can set
+ * their own instance to check the recorded values.
+ * <p>
+ * {@link #write(Writer)} writes all readings in the Prometheus text exposition format. Timers are written as
+ * summaries in seconds with an additional gauge for the maximum.
+ */
+public class MetricsRegistry
+{
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry( );
+
+    private enum Type
+    {
+        COUNTER( "counter" ), GAUGE( "gauge" ), SUMMARY( "summary" );
+
+        private final String label;
+
+        Type( String label )
+        {
+            this.label = label;
+        }
+    }
+
+    private static class Family
+    {
+        private final Type type;
+
+        private final ConcurrentMap<String, Object> series = new ConcurrentHashMap<>( );
+
+        private Family( Type type )
+        {
+            this.type = type;
+        }
+    }
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>( );
+
+    /**
+     * @return the registry that is shared by all components of the application
+     */
+    public static MetricsRegistry getDefault( )
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the counter with the given name and labels and creates it, if it does not exist.
+     *
+     * @param name   the metric name
+     * @param labels pairs of label name and value
+     * @return the counter
+     * @throws IllegalArgumentException if the name is registered with a different type or the labels are not pairs
+     */
+    public Counter counter( String name, String... labels )
+    {
+        return (Counter) family( name, Type.COUNTER ).series.computeIfAbsent( labelKey( labels ),
+            k -> new Counter( ) );
+    }
+
+    /**
+     * Returns the timer with the given name and labels and creates it, if it does not exist.
+     *
+     * @param name   the metric name, by convention with the suffix <code>_seconds</code>
+     * @param labels pairs of label name and value
+     * @return the timer
+     * @throws IllegalArgumentException if the name is registered with a different type or the labels are not pairs
+     */
+    public Timer timer( String name, String... labels )
+    {
+        return (Timer) family( name, Type.SUMMARY ).series.computeIfAbsent( labelKey( labels ), k -> new Timer( ) );
+    }
+
+    /**
+     * Registers a gauge that is read, when the metrics are written. A gauge registered again with the same name and
+     * labels replaces the former one.
+     *
+     * @param name     the metric name
+     * @param supplier the supplier of the current value
+     * @param labels   pairs of label name and value
+     * @throws IllegalArgumentException if the name is registered with a different type or the labels are not pairs
+     */
+    public void gauge( String name, LongSupplier supplier, String... labels )
+    {
+        family( name, Type.GAUGE ).series.put( labelKey( labels ), supplier );
+    }
+
+    /**
+     * Removes the metric with the given name and all its labels.
+     *
+     * @param name the metric name
+     */
+    public void remove( String name )
+    {
+        families.remove( name );
+    }
+
+    private Family family( String name, Type type )
+    {
+        Family family = families.computeIfAbsent( name, k -> new Family( type ) );
+        if ( family.type != type )
+        {
+            throw new IllegalArgumentException(
+                "Metric " + name + " is already registered as " + family.type.label );
+        }
+        return family;
+    }
+
+    private static String labelKey( String... labels )
+    {
+        if ( labels == null || labels.length == 0 )
+        {
+            return "";
+        }
+        if ( labels.length % 2 != 0 )
+        {
+            throw new IllegalArgumentException( "Labels must be given as name and value pairs" );
+        }
+        StringBuilder key = new StringBuilder( "{" );
+        for ( int i = 0; i < labels.length; i += 2 )
+        {
+            if ( i > 0 )
+            {
+                key.append( ',' );
+            }
+            key.append( labels[i] ).append( "=\"" );
+            String value = labels[i + 1] == null ? "" : labels[i + 1];
+            for ( int j = 0; j < value.length( ); j++ )
+            {
+                char c = value.charAt( j );
+                if ( c == '\\' || c == '"' )
+                {
+                    key.append( '\\' ).append( c );
+                }
+                else if ( c == '\n' )
+                {
+                    key.append( "\\n" );
+                }
+                else
+                {
+                    key.append( c );
+                }
+            }
+            key.append( '"' );
+        }
+        return key.append( '}' ).toString( );
+    }
+
+    /**
+     * Writes the current readings in the Prometheus text exposition format. Metrics and labels are sorted by name.
+     *
+     * @param writer the writer to write to
+     * @throws IOException if the writer fails
+     */
+    public void write( Writer writer )
+        throws IOException
+    {
+        for ( Map.Entry<String, Family> familyEntry : new TreeMap<>( families ).entrySet( ) )
+        {
+            String name = familyEntry.getKey( );
+            Family family = familyEntry.getValue( );
+            Map<String, Object> series = new TreeMap<>( family.series );
+            if ( series.isEmpty( ) )
+            {
+                continue;
+            }
+            writer.write( "# TYPE " + name + " " + family.type.label + "\n" );
+            for ( Map.Entry<String, Object> entry : series.entrySet( ) )
+            {
+                String labels = entry.getKey( );
+                switch ( family.type )
+                {
+                    case COUNTER:
+                        writeSample( writer, name, labels, Long.toString( ( (Counter) entry.getValue( ) ).getCount( ) ) );
+                        break;
+                    case GAUGE:
+                        writeSample( writer, name, labels,
+                            Long.toString( ( (LongSupplier) entry.getValue( ) ).getAsLong( ) ) );
+                        break;
+                    case SUMMARY:
+                        Timer timer = (Timer) entry.getValue( );
+                        writeSample( writer, name + "_count", labels, Long.toString( timer.getCount( ) ) );
+                        writeSample( writer, name + "_sum", labels, toSeconds( timer.getTotalNanos( ) ) );
+                        break;
+                }
+            }
+            if ( family.type == Type.SUMMARY )
+            {
+                writer.write( "# TYPE " + name + "_max gauge\n" );
+                for ( Map.Entry<String, Object> entry : series.entrySet( ) )
+                {
+                    writeSample( writer, name + "_max", entry.getKey( ),
+                        toSeconds( ( (Timer) entry.getValue( ) ).getMaxNanos( ) ) );
+                }
+            }
+        }
+    }
+
+    private static void writeSample( Writer writer, String name, String labels, String value )
+        throws IOException
+    {
+        writer.write( name );
+        writer.write( labels );
+        writer.write( ' ' );
+        writer.write( value );
+        writer.write( '\n' );
+    }
+
+    private static String toSeconds( long nanos )
+    {
+        return Double.toString( nanos / 1e9 );
+    }
+
+    /**
+     * @return the current readings in the Prometheus text exposition format
+     */
+    public String toText( )
+    {
+        StringWriter writer = new StringWriter( );
+        try
+        {
+            write( writer );
+        }
+        catch ( IOException e )
+        {
+            // not thrown by StringWriter
+            throw new IllegalStateException( e );
+        }
+        return writer.toString( );
+    }
+}
@@ -0,0 +1,80 @@
+package org.apache.archiva.common.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records the number, the total and the maximum duration of an operation. No samples are kept, so recording
+ * does not allocate.
+ * <p>
+ * Usage:
+ * <pre>
+ * long start = System.nanoTime( );
+ * ...
+ * timer.record( System.nanoTime( ) - start );
+ * </pre>
+ */
+public class Timer
+{
+    private final LongAdder count = new LongAdder( );
+
+    private final LongAdder totalNanos = new LongAdder( );
+
+    private final LongAccumulator maxNanos = new LongAccumulator( Long::max, 0 );
+
+    /**
+     * Records a single duration.
+     *
+     * @param nanos the duration in nanoseconds, negative values are ignored
+     */
+    public void record( long nanos )
+    {
+        if ( nanos < 0 )
+        {
+            return;
+        }
+        count.increment( );
+        totalNanos.add( nanos );
+        maxNanos.accumulate( nanos );
+    }
+
+    public void record( long duration, TimeUnit unit )
+    {
+        record( unit.toNanos( duration ) );
+    }
+
+    public long getCount( )
+    {
+        return count.sum( );
+    }
+
+    public long getTotalNanos( )
+    {
+        return totalNanos.sum( );
+    }
+
+    public long getMaxNanos( )
+    {
+        return maxNanos.get( );
+    }
+}
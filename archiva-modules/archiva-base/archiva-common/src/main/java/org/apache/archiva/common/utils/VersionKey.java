@@ -0,0 +1,231 @@
+package org.apache.archiva.common.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * A version string that is split into its parts once, so that it can be compared repeatedly without parsing and
+ * allocating. The order is the same as the order of the {@link VersionComparator}.
+ * <p>
+ * Numeric parts and words of the special word list are stored with their value, so that the comparison of two parts
+ * is a comparison of two numbers in most cases.
+ * </p>
+ */
+public final class VersionKey
+    implements Comparable<VersionKey>
+{
+    /**
+     * Qualifiers with a known order. The order of a qualifier is its index within this list.
+     */
+    static final List<String> SPECIAL_WORDS = Collections.unmodifiableList( Arrays.asList(
+        // ids that refer to LATEST
+        "final", "release", "current", "latest", "g", "gold", "fcs",
+        // ids that are for a release cycle.
+        "a", "alpha", "b", "beta", "pre", "rc", "m", "milestone",
+        // ids that are for dev / debug cycles.
+        "dev", "test", "debug", "unofficial", "nightly", "incubating", "incubator", "snapshot" ) );
+
+    /**
+     * The part that is used, if one of the versions has less parts than the other.
+     */
+    private static final String MISSING_PART = "0";
+
+    private final String version;
+
+    private final String[] parts;
+
+    private final boolean[] numeric;
+
+    /**
+     * The value of numeric parts, or the index within the special words for words. -1 for unknown words.
+     */
+    private final int[] values;
+
+    private VersionKey( String version )
+    {
+        this.version = version;
+        this.parts = VersionComparator.toParts( version );
+        this.numeric = new boolean[parts.length];
+        this.values = new int[parts.length];
+        for ( int i = 0; i < parts.length; i++ )
+        {
+            numeric[i] = NumberUtils.isCreatable( parts[i] );
+            values[i] = numeric[i] ? NumberUtils.toInt( parts[i] ) : SPECIAL_WORDS.indexOf( parts[i].toLowerCase() );
+        }
+    }
+
+    /**
+     * @param version the version string, may be <code>null</code>
+     * @return the parsed version
+     */
+    public static VersionKey of( String version )
+    {
+        return new VersionKey( version );
+    }
+
+    /**
+     * Sorts the given list of version strings from the oldest to the newest version. Each version is parsed only
+     * once.
+     *
+     * @param versions the versions to sort
+     */
+    public static void sort( List<String> versions )
+    {
+        if ( versions.size() < 2 )
+        {
+            return;
+        }
+        VersionKey[] keys = new VersionKey[versions.size()];
+        int i = 0;
+        for ( String version : versions )
+        {
+            keys[i++] = of( version );
+        }
+        Arrays.sort( keys );
+        ListIterator<String> it = versions.listIterator();
+        for ( VersionKey key : keys )
+        {
+            it.next();
+            it.set( key.version );
+        }
+    }
+
+    public String getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return the number of parts of the version
+     */
+    public int getPartCount()
+    {
+        return parts.length;
+    }
+
+    @Override
+    public int compareTo( VersionKey other )
+    {
+        if ( version == null && other.version == null )
+        {
+            return 0;
+        }
+
+        if ( version == null )
+        {
+            return 1;
+        }
+
+        if ( other.version == null )
+        {
+            return -1;
+        }
+
+        int partLen = Math.max( parts.length, other.parts.length );
+        for ( int i = 0; i < partLen; i++ )
+        {
+            int diff = comparePart( this, other, i );
+            if ( diff != 0 )
+            {
+                return diff;
+            }
+        }
+
+        int diff = other.parts.length - parts.length;
+        if ( diff != 0 )
+        {
+            return diff;
+        }
+
+        return version.compareToIgnoreCase( other.version );
+    }
+
+    private static int comparePart( VersionKey key1, VersionKey key2, int idx )
+    {
+        boolean present1 = idx < key1.parts.length;
+        boolean present2 = idx < key2.parts.length;
+        // missing parts are compared as "0"
+        boolean is1Num = !present1 || key1.numeric[idx];
+        boolean is2Num = !present2 || key2.numeric[idx];
+        int value1 = present1 ? key1.values[idx] : 0;
+        int value2 = present2 ? key2.values[idx] : 0;
+
+        // (Special Case) Test for numbers both first.
+        if ( is1Num && is2Num )
+        {
+            return value1 - value2;
+        }
+
+        // Only perform index based operation, if both words are found in the special words.
+        if ( !is1Num && !is2Num && value1 >= 0 && value2 >= 0 )
+        {
+            return value1 - value2;
+        }
+
+        // Comparing text to num
+        if ( !is1Num && is2Num )
+        {
+            return -1;
+        }
+
+        // Comparing num to text
+        if ( is1Num && !is2Num )
+        {
+            return 1;
+        }
+
+        // Return comparison of strings themselves.
+        return ( present1 ? key1.parts[idx] : MISSING_PART ).compareToIgnoreCase(
+            present2 ? key2.parts[idx] : MISSING_PART );
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+        VersionKey that = (VersionKey) o;
+        return version == null ? that.version == null : version.equals( that.version );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return version == null ? 0 : version.hashCode();
+    }
+
+    @Override
+    public String toString()
+    {
+        return version;
+    }
+}
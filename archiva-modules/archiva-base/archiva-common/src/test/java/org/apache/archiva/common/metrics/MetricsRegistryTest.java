@@ -0,0 +1,95 @@
+package org.apache.archiva.common.metrics;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest
+{
+    @Test
+    public void testCounter()
+    {
+        MetricsRegistry registry = new MetricsRegistry( );
+        Counter counter = registry.counter( "test_total", "result", "hit" );
+        counter.increment( );
+        counter.add( 2 );
+        counter.add( -1 );
+
+        assertSame( counter, registry.counter( "test_total", "result", "hit" ) );
+        assertEquals( 3, registry.counter( "test_total", "result", "hit" ).getCount( ) );
+        assertEquals( 0, registry.counter( "test_total", "result", "miss" ).getCount( ) );
+    }
+
+    @Test
+    public void testTimer()
+    {
+        MetricsRegistry registry = new MetricsRegistry( );
+        Timer timer = registry.timer( "test_seconds" );
+        timer.record( 200, TimeUnit.MILLISECONDS );
+        timer.record( 1, TimeUnit.SECONDS );
+        timer.record( -5 );
+
+        assertEquals( 2, timer.getCount( ) );
+        assertEquals( TimeUnit.MILLISECONDS.toNanos( 1200 ), timer.getTotalNanos( ) );
+        assertEquals( TimeUnit.SECONDS.toNanos( 1 ), timer.getMaxNanos( ) );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testTypeMismatch()
+    {
+        MetricsRegistry registry = new MetricsRegistry( );
+        registry.counter( "test" );
+        registry.timer( "test" );
+    }
+
+    @Test( expected = IllegalArgumentException.class )
+    public void testUnpairedLabels()
+    {
+        new MetricsRegistry( ).counter( "test_total", "result" );
+    }
+
+    @Test
+    public void testWrite()
+    {
+        MetricsRegistry registry = new MetricsRegistry( );
+        registry.counter( "b_total", "repository", "internal" ).add( 5 );
+        registry.counter( "b_total", "repository", "say \"hi\"" ).increment( );
+        registry.timer( "a_seconds" ).record( 1500, TimeUnit.MILLISECONDS );
+        registry.gauge( "c_entries", ( ) -> 42 );
+        registry.gauge( "c_entries", ( ) -> 43 );
+        registry.counter( "d_total" );
+        registry.remove( "d_total" );
+
+        assertEquals( "# TYPE a_seconds summary\n" //
+                          + "a_seconds_count 1\n" //
+                          + "a_seconds_sum 1.5\n" //
+                          + "# TYPE a_seconds_max gauge\n" //
+                          + "a_seconds_max 1.5\n" //
+                          + "# TYPE b_total counter\n" //
+                          + "b_total{repository=\"internal\"} 5\n" //
+                          + "b_total{repository=\"say \\\"hi\\\"\"} 1\n" //
+                          + "# TYPE c_entries gauge\n" //
+                          + "c_entries 43\n", registry.toText( ) );
+    }
+}
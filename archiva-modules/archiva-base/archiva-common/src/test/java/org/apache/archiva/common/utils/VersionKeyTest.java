@@ -0,0 +1,107 @@
+package org.apache.archiva.common.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link VersionKey} orders like the former string based comparison. The sort times are measured by
+ * the <code>VersionComparatorBenchmark</code> of the archiva-benchmarks module.
+ */
+public class VersionKeyTest
+{
+    @Test
+    public void testCompare()
+    {
+        assertTrue( VersionKey.of( "1.0" ).compareTo( VersionKey.of( "1.0.1" ) ) < 0 );
+        assertTrue( VersionKey.of( "1.1-rc1" ).compareTo( VersionKey.of( "1.1-m6" ) ) < 0 );
+        assertTrue( VersionKey.of( "1.1-m6" ).compareTo( VersionKey.of( "1.1" ) ) < 0 );
+        assertTrue( VersionKey.of( "1.0-alpha-9" ).compareTo( VersionKey.of( "1.0-alpha-10" ) ) < 0 );
+        assertEquals( 0, VersionKey.of( "1.0-SNAPSHOT" ).compareTo( VersionKey.of( "1.0-snapshot" ) ) );
+        assertEquals( 0, VersionKey.of( "1.0" ).compareTo( VersionKey.of( "1.0" ) ) );
+        // null versions are sorted last
+        assertTrue( VersionKey.of( null ).compareTo( VersionKey.of( "1.0" ) ) > 0 );
+        assertEquals( 0, VersionKey.of( null ).compareTo( VersionKey.of( null ) ) );
+        assertEquals( 4, VersionKey.of( "1.0-alpha-1" ).getPartCount() );
+    }
+
+    @Test
+    public void testSort()
+    {
+        List<String> versions = new ArrayList<>( Arrays.asList( "2.0.5", "2.0.4-SNAPSHOT", "2.0", "2.0-rc1",
+            "1.0-alpha-22", "1.0-alpha-9", "1.0-20070821.213044-8", "1.0" ) );
+        VersionKey.sort( versions );
+        assertEquals( Arrays.asList( "1.0-alpha-9", "1.0-alpha-22", "1.0", "1.0-20070821.213044-8", "2.0-rc1",
+            "2.0", "2.0.4-SNAPSHOT", "2.0.5" ), versions );
+    }
+
+    @Test
+    public void testSameOrderAsComparator()
+    {
+        List<String> versions = createVersions( 2000, 42 );
+        for ( int i = 0; i < versions.size(); i++ )
+        {
+            String v1 = versions.get( i );
+            String v2 = versions.get( ( i * 31 + 7 ) % versions.size() );
+            assertEquals( v1 + " <> " + v2, Integer.signum( VersionComparator.getInstance().compare( v1, v2 ) ),
+                Integer.signum( VersionKey.of( v1 ).compareTo( VersionKey.of( v2 ) ) ) );
+        }
+        List<String> sorted = new ArrayList<>( versions );
+        Collections.sort( sorted, VersionComparator.getInstance() );
+        List<String> sortedByKey = new ArrayList<>( versions );
+        VersionKey.sort( sortedByKey );
+        assertEquals( sorted, sortedByKey );
+    }
+
+    /**
+     * Creates a list of release, milestone and timestamped snapshot versions as found in repositories.
+     */
+    private static List<String> createVersions( int size, long seed )
+    {
+        Random random = new Random( seed );
+        String[] qualifiers = { "", "", "", "-SNAPSHOT", "-alpha-", "-beta-", "-rc", "-M", "-20210315.134512-" };
+        List<String> versions = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ )
+        {
+            String qualifier = qualifiers[random.nextInt( qualifiers.length )];
+            StringBuilder version = new StringBuilder();
+            version.append( random.nextInt( 5 ) ).append( '.' ).append( random.nextInt( 30 ) );
+            if ( random.nextBoolean() )
+            {
+                version.append( '.' ).append( random.nextInt( 20 ) );
+            }
+            version.append( qualifier );
+            if ( qualifier.endsWith( "-" ) || qualifier.endsWith( "rc" ) || qualifier.endsWith( "M" ) )
+            {
+                version.append( 1 + random.nextInt( 20 ) );
+            }
+            versions.add( version.toString() );
+        }
+        return versions;
+    }
+}
@@ -40,6 +40,7 @@
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.SerializationUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -58,13 +59,13 @@
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * <p>
@@ -89,7 +90,9 @@
  * If the configuration is outdated, it will be upgraded when it is loaded. This is done by checking the version flag
  * before reading it from the registry.
  * <p>
- * FIXME: The synchronization must be improved, the current impl may lead to inconsistent data or multiple getConfiguration() calls (martin_s@apache.org)
+ * The converted configuration is published through a volatile reference. Readers get the current instance without
+ * locking, only loading, saving and reloading are serialized. A configuration is only published after it has been
+ * completely converted, so readers never see a partially initialized instance.
  * </p>
  */
 @Service("archivaConfiguration#default")
@@ -107,9 +110,9 @@
     private Registry registry;
 
     /**
-     * The configuration that has been converted.
+     * The configuration that has been converted. It is only replaced as a whole by loading, saving or reloading.
      */
-    private Configuration configuration;
+    private volatile Configuration configuration;
 
     /**
      * see #initialize
@@ -126,12 +129,12 @@
     /**
      * Configuration Listeners we've registered.
      */
-    private Set<ConfigurationListener> listeners = new HashSet<>();
+    private Set<ConfigurationListener> listeners = ConcurrentHashMap.newKeySet();
 
     /**
      * Registry Listeners we've registered.
      */
-    private Set<RegistryListener> registryListeners = new HashSet<>();
+    private Set<RegistryListener> registryListeners = ConcurrentHashMap.newKeySet();
 
     /**
      * Boolean to help determine if the configuration exists as a result of pulling in
@@ -161,19 +164,21 @@ private void init() {
 
     @Override
     public Configuration getConfiguration() {
-        return loadConfiguration();
+        Configuration current = configuration;
+        return current != null ? current : loadConfiguration();
     }
 
     private synchronized Configuration loadConfiguration() {
-        if (configuration == null) {
-            configuration = load();
-            configuration = unescapeExpressions(configuration);
+        Configuration current = configuration;
+        if (current == null) {
+            current = unescapeExpressions(load());
             if (isConfigurationDefaulted) {
-                configuration = checkRepositoryLocations(configuration);
+                current = checkRepositoryLocations(current);
             }
+            configuration = current;
         }
 
-        return configuration;
+        return current;
     }
 
     private boolean hasConfigVersionChanged(Configuration current, Registry defaultOnlyConfiguration) {
@@ -474,8 +479,10 @@ public synchronized void save(Configuration configuration, String eventTag)
             }
         }
 
-        // escape all cron expressions to handle ','
-        escapeCronExpressions(configuration);
+        // escape all cron expressions to handle ','. The escaping is done on a copy, because the given instance may
+        // be the published one, which is read without locking.
+        Configuration escapedConfiguration = SerializationUtils.clone(configuration);
+        escapeCronExpressions(escapedConfiguration);
 
         // [MRM-661] Due to a bug in the modello registry writer, we need to take these out by hand. They'll be put back by the writer.
         if (section != null) {
@@ -510,12 +517,13 @@ public synchronized void save(Configuration configuration, String eventTag)
                 section.removeSubset("archivaRuntimeConfiguration.defaultCheckPaths");
             }
 
-            new ConfigurationRegistryWriter().write(configuration, section);
+            new ConfigurationRegistryWriter().write(escapedConfiguration, section);
             section.save();
         }
 
 
-        this.configuration = unescapeExpressions(configuration);
+        // publish a copy, so later changes to the given instance are only visible after the next save
+        this.configuration = unescapeExpressions(SerializationUtils.clone(configuration));
         isConfigurationDefaulted = false;
 
         triggerEvent(ConfigurationEvent.SAVED, eventTag);
@@ -687,8 +695,7 @@ public void initialize() {
                 }
             }
             altConfigFilename = expressionEvaluator.expand(altConfigFilename);
-            loadConfiguration();
-            handleUpgradeConfiguration();
+            handleUpgradeConfiguration(loadConfiguration());
         } catch (IndeterminateConfigurationException | RegistryException e) {
             throw new RuntimeException("failed during upgrade from previous version" + e.getMessage(), e);
         } catch (EvaluatorException e) {
@@ -701,7 +708,7 @@ public void initialize() {
     /**
      * Handle upgrade to newer version
      */
-    private void handleUpgradeConfiguration()
+    private void handleUpgradeConfiguration(Configuration configuration)
             throws RegistryException, IndeterminateConfigurationException {
 
         List<String> dbConsumers = Arrays.asList("update-db-artifact", "update-db-repository-metadata");
@@ -759,7 +766,7 @@ private void handleUpgradeConfiguration()
     }
 
     @Override
-    public void reload() {
+    public synchronized void reload() {
         this.configuration = null;
         try {
             this.registry.initialize();
@@ -47,6 +47,8 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.mock;
@@ -248,6 +250,80 @@ public void testStoreConfiguration()
         assertFalse( "check value", configuration.getWebapp().getUi().isAppletFindEnabled() );
     }
 
+    @Test
+    public void testConcurrentReadsDuringSave()
+        throws Exception
+    {
+        Path file = getTestFile( "target/test/test-file.xml" );
+        Files.deleteIfExists( file );
+
+        DefaultArchivaConfiguration archivaConfiguration =
+            (DefaultArchivaConfiguration) lookup( ArchivaConfiguration.class, "test-save" );
+        archivaConfiguration.reload();
+        archivaConfiguration.save( createUiConfiguration( true ) );
+
+        AtomicBoolean running = new AtomicBoolean( true );
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread[] readers = new Thread[4];
+        for ( int i = 0; i < readers.length; i++ )
+        {
+            readers[i] = new Thread( () -> {
+                while ( running.get() )
+                {
+                    // a reader must always get a completely converted configuration
+                    Configuration current = archivaConfiguration.getConfiguration();
+                    if ( current == null || current.getWebapp() == null || current.getWebapp().getUi() == null )
+                    {
+                        failure.set( "Incomplete configuration published" );
+                    }
+                    else if ( current.getManagedRepositories().get( 0 ).getRefreshCronExpression().contains( "\\" ) )
+                    {
+                        failure.set( "Escaped cron expression published" );
+                    }
+                }
+            } );
+            readers[i].start();
+        }
+        try
+        {
+            for ( int i = 0; i < 10; i++ )
+            {
+                Configuration configuration = createUiConfiguration( i % 2 == 0 );
+                archivaConfiguration.save( configuration );
+                assertNotSame( configuration, archivaConfiguration.getConfiguration() );
+
+                // saving the published instance must not change it while it is written
+                configuration = archivaConfiguration.getConfiguration();
+                archivaConfiguration.save( configuration );
+                assertEquals( "0 0,30 * * * ?", configuration.getManagedRepositories().get( 0 ).getRefreshCronExpression() );
+            }
+        }
+        finally
+        {
+            running.set( false );
+            for ( Thread reader : readers )
+            {
+                reader.join();
+            }
+        }
+        assertNull( failure.get() );
+        assertFalse( archivaConfiguration.getConfiguration().getWebapp().getUi().isAppletFindEnabled() );
+    }
+
+    private static Configuration createUiConfiguration( boolean appletFindEnabled )
+    {
+        Configuration configuration = new Configuration();
+        configuration.setVersion( "1" );
+        configuration.setWebapp( new WebappConfiguration() );
+        configuration.getWebapp().setUi( new UserInterfaceOptions() );
+        configuration.getWebapp().getUi().setAppletFindEnabled( appletFindEnabled );
+        ManagedRepositoryConfiguration repository = new ManagedRepositoryConfiguration();
+        repository.setId( "internal" );
+        repository.setRefreshCronExpression( "0 0,30 * * * ?" );
+        configuration.addManagedRepository( repository );
+        return configuration;
+    }
+
     private static ConfigurationListener createConfigurationListenerMockControl()
     {
         return mock( ConfigurationListener.class );// MockControl.createControl( ConfigurationListener.class );
@@ -34,6 +34,7 @@
 import org.apache.archiva.repository.content.Project;
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
 import org.apache.archiva.repository.metadata.base.MetadataTools;
+import org.apache.archiva.repository.metadata.base.MetadataUpdateScheduler;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +76,9 @@
     @Inject
     private FileTypes filetypes;
 
+    @Inject
+    private MetadataUpdateScheduler metadataUpdateScheduler;
+
     private static final String TYPE_METADATA_BAD_INTERNAL_REF = "metadata-bad-internal-ref";
 
     private static final String TYPE_METADATA_WRITE_FAILURE = "metadata-write-failure";
@@ -89,6 +93,11 @@
 
     private long scanStartTimestamp = 0;
 
+    /**
+     * If only single files are processed, e.g. after a deployment, the metadata updates are coalesced.
+     */
+    private boolean deferUpdates = false;
+
     @Override
     public String getDescription( )
     {
@@ -122,6 +131,7 @@ public void beginScan( ManagedRepository repoConfig, Date whenGathered )
             }
             this.repositoryDir = repository.getRepository().getRoot();
             this.scanStartTimestamp = System.currentTimeMillis( );
+            this.deferUpdates = false;
         }
         catch ( RepositoryException e )
         {
@@ -134,6 +144,7 @@ public void beginScan( ManagedRepository repository, Date whenGathered, boolean
         throws ConsumerException
     {
         beginScan( repository, whenGathered );
+        this.deferUpdates = !executeOnEntireRepo;
     }
 
     @Override
@@ -204,8 +215,7 @@ private void updateProjectMetadata( Artifact artifact, String path )
                 log.debug( "Skipping uptodate metadata: {}", metadataPath );
                 return;
             }
-            metadataTools.updateMetadata( this.repository, metadataPath );
-            log.debug( "Updated metadata: {}", metadataPath );
+            updateMetadata( metadataPath );
         }
         catch ( RepositoryMetadataException e )
         {
@@ -231,8 +241,7 @@ private void updateVersionMetadata( Artifact artifact, String path )
                 return;
             }
 
-            metadataTools.updateMetadata( this.repository, metadataPath );
-            log.debug( "Updated metadata: {}", metadataPath );
+            updateMetadata( metadataPath );
         }
         catch ( RepositoryMetadataException e )
         {
@@ -242,6 +251,21 @@ private void updateVersionMetadata( Artifact artifact, String path )
         }
     }
 
+    private void updateMetadata( String metadataPath )
+        throws RepositoryMetadataException
+    {
+        if ( deferUpdates && metadataUpdateScheduler != null )
+        {
+            metadataUpdateScheduler.scheduleUpdate( this.repository, metadataPath );
+            log.debug( "Scheduled metadata update: {}", metadataPath );
+        }
+        else
+        {
+            metadataTools.updateMetadata( this.repository, metadataPath );
+            log.debug( "Updated metadata: {}", metadataPath );
+        }
+    }
+
     private void initIncludes( )
     {
         includes = new ArrayList<>( filetypes.getFileTypePatterns( FileTypes.ARTIFACTS ) );
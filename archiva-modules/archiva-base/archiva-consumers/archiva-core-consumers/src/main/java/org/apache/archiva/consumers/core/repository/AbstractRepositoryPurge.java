@@ -29,6 +29,7 @@
 import org.apache.archiva.repository.content.Artifact;
 import org.apache.archiva.repository.content.ContentAccessException;
 import org.apache.archiva.repository.content.ItemNotFoundException;
+import org.apache.archiva.repository.event.RepositoryContentEvent;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.repository.storage.util.StorageUtil;
 import org.apache.commons.lang3.StringUtils;
@@ -384,6 +385,7 @@ private void deleteSilently( StorageAsset path )
         try
         {
             path.getStorage().removeAsset(path);
+            RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_REMOVED, this, repository.getRepository( ), path.getPath( ) );
             triggerAuditEvent( repository.getRepository( ).getId( ), path.toString( ), AuditEvent.PURGE_FILE );
         }
         catch ( IOException e )
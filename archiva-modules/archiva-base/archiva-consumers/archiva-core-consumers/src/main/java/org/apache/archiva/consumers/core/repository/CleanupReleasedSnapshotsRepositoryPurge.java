@@ -19,7 +19,7 @@
  * under the License.
  */
 
-import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.common.utils.VersionKey;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.metadata.audit.RepositoryListener;
 import org.apache.archiva.metadata.repository.MetadataRepository;
@@ -45,7 +45,6 @@
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -136,7 +135,7 @@ public void process( String path )
                 }
             }
 
-            Collections.sort( releasedVersions, VersionComparator.getInstance( ) );
+            VersionKey.sort( releasedVersions );
 
             // Now clean out any version that is earlier than the highest released version.
             boolean needsMetadataUpdate = false;
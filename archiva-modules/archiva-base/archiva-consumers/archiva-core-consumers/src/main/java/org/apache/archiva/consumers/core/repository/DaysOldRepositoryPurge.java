@@ -19,7 +19,7 @@
  * under the License.
  */
 
-import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.common.utils.VersionKey;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.metadata.audit.RepositoryListener;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -35,7 +35,6 @@
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -104,7 +103,7 @@ public void process( String path )
                     .collect( Collectors.toList( ) );
             }
 
-            Collections.sort( artifactVersions, VersionComparator.getInstance( ) );
+            VersionKey.sort( artifactVersions );
 
             if ( retentionCount > artifactVersions.size( ) )
             {
@@ -19,7 +19,7 @@
  * under the License.
  */
 
-import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.common.utils.VersionKey;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.metadata.audit.RepositoryListener;
 import org.apache.archiva.metadata.repository.RepositorySession;
@@ -32,7 +32,6 @@
 import org.apache.archiva.repository.content.base.ArchivaItemSelector;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -89,7 +88,7 @@ public void process( String path )
                         .collect( Collectors.toList( ) );
                 }
 
-                Collections.sort( versions, VersionComparator.getInstance( ) );
+                VersionKey.sort( versions );
 
                 if ( retentionCount > versions.size( ) )
                 {
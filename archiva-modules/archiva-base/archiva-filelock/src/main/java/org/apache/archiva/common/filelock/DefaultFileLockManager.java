@@ -19,6 +19,9 @@
  * under the License.
  */
 
+import org.apache.archiva.common.metrics.Counter;
+import org.apache.archiva.common.metrics.MetricsRegistry;
+import org.apache.archiva.common.metrics.Timer;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -52,6 +55,28 @@
 
     private int timeout = 0;
 
+    private Timer readLockTimer;
+
+    private Timer writeLockTimer;
+
+    private Counter timeouts;
+
+    public DefaultFileLockManager()
+    {
+        setMetricsRegistry( MetricsRegistry.getDefault() );
+    }
+
+    /**
+     * Sets the registry, that records the time to acquire locks and the number of timeouts.
+     *
+     * @param metricsRegistry the registry
+     */
+    public void setMetricsRegistry( MetricsRegistry metricsRegistry )
+    {
+        this.readLockTimer = metricsRegistry.timer( "archiva_filelock_acquire_seconds", "mode", "read" );
+        this.writeLockTimer = metricsRegistry.timer( "archiva_filelock_acquire_seconds", "mode", "write" );
+        this.timeouts = metricsRegistry.counter( "archiva_filelock_timeouts_total" );
+    }
 
     @Override
     public Lock readFileLock( Path file )
@@ -87,6 +112,7 @@ public Lock readFileLock( Path file )
                 {
                     log.warn( "Cannot acquire read lock within {} millis. Will skip the file: {}", timeout, file );
                     // we could not get the lock within the timeout period, so  throw  FileLockTimeoutException
+                    timeouts.increment();
                     throw new FileLockTimeoutException();
                 }
             }
@@ -136,6 +162,7 @@ public Lock readFileLock( Path file )
                 log.trace( "openLock {}:{}", e.getClass(), e.getMessage() );
             }
         }
+        readLockTimer.record( stopWatch.getNanoTime() );
 
         return lock;
 
@@ -176,6 +203,7 @@ public Lock writeFileLock( Path file )
                 {
                     log.warn( "Cannot acquire read lock within {} millis. Will skip the file: {}", timeout, file );
                     // we could not get the lock within the timeout period, so throw FileLockTimeoutException
+                    timeouts.increment();
                     throw new FileLockTimeoutException();
                 }
             }
@@ -226,6 +254,7 @@ public Lock writeFileLock( Path file )
                 log.trace( "openLock {}:{}", e.getClass(), e.getMessage() );
             }
         }
+        writeLockTimer.record( stopWatch.getNanoTime() );
 
         return lock;
 
@@ -21,6 +21,7 @@
 
 import edu.umd.cs.mtc.MultithreadedTestCase;
 import edu.umd.cs.mtc.TestFramework;
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -331,5 +332,32 @@ public void testWrite()
         Assert.assertEquals(100, concurrentFileWrite.success.intValue());
     }
 
+    @Test
+    public void testMetrics()
+            throws Throwable {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        DefaultFileLockManager lockManager = new DefaultFileLockManager();
+        lockManager.setSkipLocking(false);
+        lockManager.setTimeout(100);
+        lockManager.setMetricsRegistry(metricsRegistry);
+        Path file = Files.createTempDirectory("filelock-metrics").resolve("foo.txt");
+
+        lockManager.release(lockManager.readFileLock(file));
+        Lock lock = lockManager.writeFileLock(file);
+        try {
+            // the file is locked by the write lock
+            lockManager.readFileLock(file);
+            Assert.fail("The read lock should not be acquired");
+        } catch (FileLockTimeoutException e) {
+            // expected
+        } finally {
+            lockManager.release(lock);
+        }
+
+        Assert.assertEquals(1, metricsRegistry.timer("archiva_filelock_acquire_seconds", "mode", "read").getCount());
+        Assert.assertEquals(1, metricsRegistry.timer("archiva_filelock_acquire_seconds", "mode", "write").getCount());
+        Assert.assertEquals(1, metricsRegistry.counter("archiva_filelock_timeouts_total").getCount());
+    }
+
 
 }
@@ -19,6 +19,8 @@
  * under the License.
  */
 
+import org.apache.archiva.common.utils.VersionKey;
+
 /**
  * Class ArchivaRepositoryMetadata.
  * 
@@ -295,6 +297,14 @@ public int hashCode()
         return result;
     } //-- int hashCode()
 
+    /**
+     * Sorts the available version ids from the oldest to the newest version. Each version is parsed once per sort.
+     */
+    public void sortAvailableVersions()
+    {
+        VersionKey.sort( getAvailableVersions() );
+    } //-- void sortAvailableVersions()
+
     /**
      * Method removeAvailableVersion.
      * 
@@ -0,0 +1,145 @@
+package org.apache.archiva.policies.urlcache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in memory {@link NotFoundCache}. The entries of the least recently requested resources are evicted first.
+ * Unlike the {@link UrlFailureCache}, a lookup does not extend the lifetime of an entry.
+ */
+@Service( "notFoundCache" )
+public class DefaultNotFoundCache
+    implements NotFoundCache
+{
+    private int maxSize = Integer.getInteger( "archiva.proxy.notFoundCacheSize", 10000 );
+
+    /**
+     * Entries by managed repository and path, holding the expiry time per remote repository.
+     */
+    private final Map<String, Map<String, Long>> entries = new LinkedHashMap<String, Map<String, Long>>( 16, 0.75f, true )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Map<String, Long>> eldest )
+        {
+            return size() > maxSize;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private static String getKey( String managedRepositoryId, String path )
+    {
+        return managedRepositoryId + ":" + StringUtils.removeStart( path, "/" );
+    }
+
+    @Override
+    public void cacheNotFound( String managedRepositoryId, String remoteRepositoryId, String path, long timeToLive )
+    {
+        if ( timeToLive <= 0 )
+        {
+            return;
+        }
+        String key = getKey( managedRepositoryId, path );
+        synchronized ( entries )
+        {
+            entries.computeIfAbsent( key, k -> new HashMap<>( 4 ) ).put( remoteRepositoryId,
+                System.currentTimeMillis() + timeToLive );
+        }
+    }
+
+    @Override
+    public boolean isNotFound( String managedRepositoryId, String remoteRepositoryId, String path )
+    {
+        String key = getKey( managedRepositoryId, path );
+        synchronized ( entries )
+        {
+            Map<String, Long> remotes = entries.get( key );
+            Long expires = remotes == null ? null : remotes.get( remoteRepositoryId );
+            if ( expires != null )
+            {
+                if ( expires > System.currentTimeMillis() )
+                {
+                    hits.incrementAndGet();
+                    return true;
+                }
+                remotes.remove( remoteRepositoryId );
+                if ( remotes.isEmpty() )
+                {
+                    entries.remove( key );
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void invalidate( String managedRepositoryId, String path )
+    {
+        synchronized ( entries )
+        {
+            entries.remove( getKey( managedRepositoryId, path ) );
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        synchronized ( entries )
+        {
+            entries.clear();
+        }
+    }
+
+    @Override
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    @Override
+    public int getSize()
+    {
+        synchronized ( entries )
+        {
+            return entries.size();
+        }
+    }
+
+    public void setMaxSize( int maxSize )
+    {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,56 @@
+package org.apache.archiva.policies.urlcache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Cache for resources that the remote repository of a proxy connector reported as not existing.
+ * Entries expire after the time to live given for the connector and are removed, if the resource
+ * is deployed to the managed repository.
+ */
+public interface NotFoundCache
+{
+    /**
+     * Stores a resource as not found on the remote repository.
+     *
+     * @param managedRepositoryId the id of the managed repository that proxies the remote repository
+     * @param remoteRepositoryId  the id of the remote repository
+     * @param path                the path of the resource
+     * @param timeToLive          the time in ms the entry is valid. Nothing is stored, if it is <code>0</code>.
+     */
+    void cacheNotFound( String managedRepositoryId, String remoteRepositoryId, String path, long timeToLive );
+
+    /**
+     * Tests, if the remote repository reported the resource as not found before and the entry did not expire.
+     */
+    boolean isNotFound( String managedRepositoryId, String remoteRepositoryId, String path );
+
+    /**
+     * Removes the entries of the resource for all remote repositories of the managed repository.
+     */
+    void invalidate( String managedRepositoryId, String path );
+
+    void clear();
+
+    long getHits();
+
+    long getMisses();
+
+    int getSize();
+}
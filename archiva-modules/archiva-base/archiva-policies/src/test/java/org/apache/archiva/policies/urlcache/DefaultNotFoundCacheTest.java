@@ -0,0 +1,102 @@
+package org.apache.archiva.policies.urlcache;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class DefaultNotFoundCacheTest
+{
+    private DefaultNotFoundCache cache;
+
+    @Before
+    public void setUp()
+    {
+        cache = new DefaultNotFoundCache();
+    }
+
+    @Test
+    public void testNotFoundCached()
+    {
+        cache.cacheNotFound( "internal", "central", "/org/apache/foo/1.0/foo-1.0.jar", 60000 );
+
+        assertTrue( cache.isNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.jar" ) );
+        assertFalse( cache.isNotFound( "internal", "snapshots", "org/apache/foo/1.0/foo-1.0.jar" ) );
+        assertFalse( cache.isNotFound( "releases", "central", "org/apache/foo/1.0/foo-1.0.jar" ) );
+        assertEquals( 1, cache.getHits() );
+        assertEquals( 2, cache.getMisses() );
+    }
+
+    @Test
+    public void testDisabledTimeToLive()
+    {
+        cache.cacheNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.jar", 0 );
+
+        assertFalse( cache.isNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.jar" ) );
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testExpiry()
+        throws Exception
+    {
+        cache.cacheNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.jar", 50 );
+        Thread.sleep( 100 );
+
+        assertFalse( cache.isNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.jar" ) );
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        cache.cacheNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.jar", 60000 );
+        cache.cacheNotFound( "internal", "snapshots", "org/apache/foo/1.0/foo-1.0.jar", 60000 );
+        cache.cacheNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.pom", 60000 );
+
+        // a deploy of the artifact drops the entries of all remote repositories
+        cache.invalidate( "internal", "/org/apache/foo/1.0/foo-1.0.jar" );
+        assertFalse( cache.isNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.jar" ) );
+        assertFalse( cache.isNotFound( "internal", "snapshots", "org/apache/foo/1.0/foo-1.0.jar" ) );
+        assertTrue( cache.isNotFound( "internal", "central", "org/apache/foo/1.0/foo-1.0.pom" ) );
+
+        cache.clear();
+        assertEquals( 0, cache.getSize() );
+    }
+
+    @Test
+    public void testBounded()
+    {
+        cache.setMaxSize( 10 );
+        for ( int i = 0; i < 20; i++ )
+        {
+            cache.cacheNotFound( "internal", "central", "org/apache/foo/" + i + "/foo-" + i + ".jar", 60000 );
+        }
+
+        assertEquals( 10, cache.getSize() );
+        assertFalse( cache.isNotFound( "internal", "central", "org/apache/foo/0/foo-0.jar" ) );
+        assertTrue( cache.isNotFound( "internal", "central", "org/apache/foo/19/foo-19.jar" ) );
+    }
+}
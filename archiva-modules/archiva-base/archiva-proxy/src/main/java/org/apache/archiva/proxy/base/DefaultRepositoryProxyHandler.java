@@ -21,6 +21,9 @@
 import org.apache.archiva.checksum.ChecksumAlgorithm;
 import org.apache.archiva.checksum.ChecksumUtil;
 import org.apache.archiva.common.filelock.FileLockManager;
+import org.apache.archiva.common.metrics.Counter;
+import org.apache.archiva.common.metrics.MetricsRegistry;
+import org.apache.archiva.common.metrics.Timer;
 import org.apache.archiva.common.utils.PathUtil;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
 import org.apache.archiva.configuration.provider.ArchivaConfiguration;
@@ -35,6 +38,7 @@
 import org.apache.archiva.policies.PostDownloadPolicy;
 import org.apache.archiva.policies.PreDownloadPolicy;
 import org.apache.archiva.policies.ProxyDownloadException;
+import org.apache.archiva.policies.urlcache.NotFoundCache;
 import org.apache.archiva.policies.urlcache.UrlFailureCache;
 import org.apache.archiva.proxy.model.NetworkProxy;
 import org.apache.archiva.proxy.model.ProxyConnector;
@@ -47,6 +51,7 @@
 import org.apache.archiva.repository.content.Artifact;
 import org.apache.archiva.repository.content.ContentItem;
 import org.apache.archiva.repository.content.ItemSelector;
+import org.apache.archiva.repository.event.RepositoryContentEvent;
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
 import org.apache.archiva.repository.metadata.base.MetadataTools;
 import org.apache.archiva.repository.storage.StorageAsset;
@@ -61,6 +66,7 @@
 import org.slf4j.MarkerFactory;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.io.IOException;
@@ -75,8 +81,15 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class DefaultRepositoryProxyHandler implements RepositoryProxyHandler {
 
@@ -84,6 +97,9 @@ public abstract class DefaultRepositoryProxyHandler implements RepositoryProxyHa
     @Inject
     protected UrlFailureCache urlFailureCache;
 
+    @Inject
+    protected NotFoundCache notFoundCache;
+
     @Inject
     @Named(value = "metadataTools#default")
     private MetadataTools metadataTools;
@@ -105,12 +121,83 @@ public abstract class DefaultRepositoryProxyHandler implements RepositoryProxyHa
     private FileLockManager fileLockManager;
 
     private Map<String, NetworkProxy> networkProxyMap = new ConcurrentHashMap<>();
+
+    private MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+    private ConcurrentMap<String, RemoteMetrics> remoteMetrics = new ConcurrentHashMap<>();
     private List<ChecksumAlgorithm> checksumAlgorithms;
 
+    private static final int MAX_METADATA_REFRESH_ENTRIES = 10000;
+
+    /**
+     * Connector property with the time in seconds, for which a resource that was not found on the remote repository
+     * is not requested again.
+     */
+    public static final String NOT_FOUND_CACHE_TTL_PROPERTY = "notFoundCacheTtl";
+
+    private static final long DEFAULT_NOT_FOUND_CACHE_TTL = Long.getLong( "archiva.proxy.notFoundCacheTtl", 0 );
+
+    private int metadataFetchThreads = Integer.getInteger( "archiva.proxy.metadataFetchThreads", 4 );
+
+    private ExecutorService metadataFetchExecutor;
+
+    private long metadataMaxStaleness = Long.getLong( "archiva.proxy.metadataMaxStaleness", 0 ) * 1000;
+
+    private ExecutorService metadataRefreshExecutor;
+
+    private final ConcurrentMap<String, Boolean> metadataRefreshes = new ConcurrentHashMap<>( );
+
+    private final Map<String, Long> lastMetadataRefresh = new LinkedHashMap<String, Long>( 16, 0.75f, true )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Long> eldest )
+        {
+            return size( ) > MAX_METADATA_REFRESH_ENTRIES;
+        }
+    };
+
     @PostConstruct
     public void initialize()
     {
         checksumAlgorithms = ChecksumUtil.getAlgorithms(archivaConfiguration.getConfiguration().getArchivaRuntimeConfiguration().getChecksumTypes());
+        if ( metadataFetchThreads > 0 && metadataFetchExecutor == null )
+        {
+            final AtomicInteger count = new AtomicInteger();
+            metadataFetchExecutor = Executors.newFixedThreadPool( metadataFetchThreads, r -> {
+                Thread thread = new Thread( r, "archiva-proxy-metadata-fetch-" + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+    }
+
+    private synchronized ExecutorService getMetadataRefreshExecutor()
+    {
+        if ( metadataRefreshExecutor == null )
+        {
+            // refreshes wait for the fetch pool, so they must not run on it
+            final AtomicInteger count = new AtomicInteger();
+            metadataRefreshExecutor = Executors.newFixedThreadPool( 2, r -> {
+                Thread thread = new Thread( r, "archiva-proxy-metadata-refresh-" + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            } );
+        }
+        return metadataRefreshExecutor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown()
+    {
+        if ( metadataFetchExecutor != null )
+        {
+            metadataFetchExecutor.shutdownNow();
+            metadataFetchExecutor = null;
+        }
+        if ( metadataRefreshExecutor != null )
+        {
+            metadataRefreshExecutor.shutdownNow();
+            metadataRefreshExecutor = null;
+        }
     }
 
     private List<ProxyConnectorRuleConfiguration> findProxyConnectorRules(String sourceRepository,
@@ -346,54 +433,67 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
         }
         StorageAsset localFile = repository.getAsset( logicalPath );
 
-        Properties requestProperties = new Properties();
-        requestProperties.setProperty( "filetype", "metadata" );
+        if ( metadataMaxStaleness > 0 && fileExists( localFile ) )
+        {
+            long age = System.currentTimeMillis() - Math.max( getLastModified( localFile ),
+                getLastMetadataRefresh( getMetadataKey( repository, logicalPath ) ) );
+            if ( age <= metadataMaxStaleness )
+            {
+                // stale-while-revalidate: serve the local copy and let the policies decide in the background
+                // whether the remote repositories have to be asked
+                refreshMetadataInBackground( repository, logicalPath );
+                return new ProxyFetchResult( localFile, false );
+            }
+        }
+        return refreshMetadata( repository, logicalPath, localFile );
+    }
+
+    /**
+     * Fetches the metadata from all remote repositories and merges it into the local metadata file.
+     */
+    private ProxyFetchResult refreshMetadata( ManagedRepository repository, String logicalPath, StorageAsset localFile )
+    {
         boolean metadataNeedsUpdating = false;
         long originalTimestamp = getLastModified( localFile );
 
-        List<ProxyConnector> connectors = new ArrayList<>( getProxyConnectors( repository ) );
-        for ( ProxyConnector connector : connectors )
+        List<ProxyConnector> connectors = new ArrayList<>( );
+        for ( ProxyConnector connector : getProxyConnectors( repository ) )
         {
-            if ( !connector.isEnabled() )
+            if ( connector.isEnabled() )
             {
-                continue;
+                connectors.add( connector );
             }
+        }
 
-            RemoteRepository targetRepository = connector.getTargetRepository();
-
-            StorageAsset localRepoFile = toLocalRepoFile( repository, targetRepository.getContent(), logicalPath );
-            long originalMetadataTimestamp = getLastModified( localRepoFile );
-
+        // Every connector writes its own copy of the metadata, so the remote repositories are asked in parallel.
+        // The first one is fetched by the requesting thread.
+        List<Future<Boolean>> results = new ArrayList<>( );
+        for ( ProxyConnector connector : connectors.subList( Math.min( 1, connectors.size() ), connectors.size() ) )
+        {
+            results.add( submitMetadataFetch( repository, connector, logicalPath ) );
+        }
+        if ( !connectors.isEmpty() && fetchMetadataFromConnector( repository, connectors.get( 0 ), logicalPath ) )
+        {
+            metadataNeedsUpdating = true;
+        }
+        for ( Future<Boolean> result : results )
+        {
             try
             {
-                transferFile( connector, targetRepository, logicalPath, repository, localRepoFile, requestProperties,
-                              true );
-
-                if ( hasBeenUpdated( localRepoFile, originalMetadataTimestamp ) )
+                if ( result.get() )
                 {
                     metadataNeedsUpdating = true;
                 }
             }
-            catch ( NotFoundException e )
+            catch ( InterruptedException e )
             {
-
-                log.debug( "Metadata {} not found on remote repository '{}'.", logicalPath,
-                           targetRepository.getId(), e );
-
+                Thread.currentThread().interrupt();
+                log.warn( "Interrupted while waiting for the metadata {} of the remote repositories", logicalPath );
+                break;
             }
-            catch ( NotModifiedException e )
-            {
-
-                log.debug( "Metadata {} not updated on remote repository '{}'.", logicalPath,
-                           targetRepository.getId(), e );
-
-            }
-            catch ( ProxyException e )
+            catch ( ExecutionException e )
             {
-                log.warn(
-                    "Transfer error from repository {} for versioned Metadata {}, continuing to next repository. Error message: {}",
-                    targetRepository.getId(), logicalPath, e.getMessage() );
-                log.debug( "Full stack trace", e );
+                log.warn( "Could not fetch metadata {}: {}", logicalPath, e.getCause().getMessage(), e.getCause() );
             }
         }
 
@@ -407,6 +507,7 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
             try
             {
                 metadataTools.updateMetadata( repository.getContent(), logicalPath );
+                RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this, repository, localFile.getPath() );
             }
             catch ( RepositoryMetadataException e )
             {
@@ -415,6 +516,8 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
 
         }
 
+        setLastMetadataRefresh( getMetadataKey( repository, logicalPath ) );
+
         if ( fileExists( localFile ) )
         {
             return new ProxyFetchResult( localFile, metadataNeedsUpdating );
@@ -423,6 +526,117 @@ public ProxyFetchResult fetchMetadataFromProxies( ManagedRepository repository,
         return new ProxyFetchResult( null, false );
     }
 
+    /**
+     * Queues a refresh of the metadata, unless a refresh of the same file is already queued or running.
+     */
+    private void refreshMetadataInBackground( ManagedRepository repository, String logicalPath )
+    {
+        String key = getMetadataKey( repository, logicalPath );
+        if ( metadataRefreshes.putIfAbsent( key, Boolean.TRUE ) != null )
+        {
+            return;
+        }
+        try
+        {
+            getMetadataRefreshExecutor().execute( ( ) -> {
+                try
+                {
+                    refreshMetadata( repository, logicalPath, repository.getAsset( logicalPath ) );
+                }
+                catch ( RuntimeException e )
+                {
+                    log.warn( "Background refresh of metadata {} failed: {}", logicalPath, e.getMessage(), e );
+                }
+                finally
+                {
+                    metadataRefreshes.remove( key );
+                }
+            } );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            metadataRefreshes.remove( key );
+            log.debug( "Background refresh of metadata {} rejected", logicalPath );
+        }
+    }
+
+    private static String getMetadataKey( ManagedRepository repository, String logicalPath )
+    {
+        return repository.getId() + ":" + logicalPath;
+    }
+
+    private long getLastMetadataRefresh( String key )
+    {
+        synchronized ( lastMetadataRefresh )
+        {
+            Long time = lastMetadataRefresh.get( key );
+            return time == null ? 0 : time;
+        }
+    }
+
+    private void setLastMetadataRefresh( String key )
+    {
+        synchronized ( lastMetadataRefresh )
+        {
+            lastMetadataRefresh.put( key, System.currentTimeMillis() );
+        }
+    }
+
+    private Future<Boolean> submitMetadataFetch( ManagedRepository repository, ProxyConnector connector, String logicalPath )
+    {
+        if ( metadataFetchExecutor == null )
+        {
+            return CompletableFuture.completedFuture( fetchMetadataFromConnector( repository, connector, logicalPath ) );
+        }
+        return metadataFetchExecutor.submit( ( ) -> fetchMetadataFromConnector( repository, connector, logicalPath ) );
+    }
+
+    /**
+     * Fetches the metadata from the remote repository of the connector into the repository specific metadata file.
+     *
+     * @return <code>true</code>, if the metadata was updated
+     */
+    private boolean fetchMetadataFromConnector( ManagedRepository repository, ProxyConnector connector, String logicalPath )
+    {
+        Properties requestProperties = new Properties();
+        requestProperties.setProperty( "filetype", "metadata" );
+
+        RemoteRepository targetRepository = connector.getTargetRepository();
+
+        StorageAsset localRepoFile = toLocalRepoFile( repository, targetRepository.getContent(), logicalPath );
+        long originalMetadataTimestamp = getLastModified( localRepoFile );
+
+        try
+        {
+            transferFile( connector, targetRepository, logicalPath, repository, localRepoFile, requestProperties,
+                          true );
+
+            return hasBeenUpdated( localRepoFile, originalMetadataTimestamp );
+        }
+        catch ( NotFoundException e )
+        {
+
+            log.debug( "Metadata {} not found on remote repository '{}'.", logicalPath,
+                       targetRepository.getId(), e );
+
+        }
+        catch ( NotModifiedException e )
+        {
+
+            log.debug( "Metadata {} not updated on remote repository '{}'.", logicalPath,
+                       targetRepository.getId(), e );
+
+        }
+        catch ( ProxyException e )
+        {
+            log.warn(
+                "Transfer error from repository {} for versioned Metadata {}, continuing to next repository. Error message: {}",
+                targetRepository.getId(), logicalPath, e.getMessage() );
+            log.debug( "Full stack trace", e );
+        }
+        return false;
+    }
+
     private long getLastModified(StorageAsset file )
     {
         if ( !file.exists() || file.isContainer() )
@@ -546,6 +760,13 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
             return null;
         }
 
+        if ( notFoundCache != null && !resource.exists()
+            && notFoundCache.isNotFound( repository.getId(), remoteRepository.getId(), remotePath ) )
+        {
+            countRequest( remoteRepository, "cached_not_found" );
+            throw new NotFoundException( "Resource " + url + " was not found on the last request" );
+        }
+
         // Handle pre-download policy
         try
         {
@@ -557,10 +778,12 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
             if ( resource.exists() )
             {
                 log.debug( "{} : using already present local file.", emsg );
+                countRequest( remoteRepository, "local" );
                 return resource;
             }
 
             log.debug( emsg );
+            countRequest( remoteRepository, "skipped" );
             return null;
         }
 
@@ -584,8 +807,34 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
         try
         {
 
-            transferResources( connector, remoteRepository, tmpResource,tmpChecksumFiles , url, remotePath,
-                resource, workingDirectory, repository );
+            long start = System.nanoTime();
+            String result = "error";
+            try
+            {
+                transferResources( connector, remoteRepository, tmpResource, tmpChecksumFiles, url, remotePath,
+                    resource, workingDirectory, repository );
+                result = "downloaded";
+            }
+            catch ( NotFoundException e )
+            {
+                result = "not_found";
+                if ( notFoundCache != null )
+                {
+                    notFoundCache.cacheNotFound( repository.getId(), remoteRepository.getId(), remotePath,
+                        getNotFoundTimeToLive( connector ) );
+                }
+                throw e;
+            }
+            catch ( NotModifiedException e )
+            {
+                result = "not_modified";
+                throw e;
+            }
+            finally
+            {
+                getRemoteMetrics( remoteRepository ).upstreamTimer.record( System.nanoTime() - start );
+                countRequest( remoteRepository, result );
+            }
 
             // Handle post-download policies.
             try
@@ -608,9 +857,11 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
                 {
                     StorageAsset directory = resource.getParent();
                     for (int i=0; i<tmpChecksumFiles.length; i++) {
-                        moveFileIfExists( tmpChecksumFiles[i], directory );
+                        moveFileIfExists( repository, tmpChecksumFiles[i], directory );
                     }
-                    moveFileIfExists( tmpResource, directory );
+                    moveFileIfExists( repository, tmpResource, directory );
+                    // the validators are moved last, so they are never older than the file they belong to
+                    moveFileIfExists( repository, tmpStorage.getAsset( UpstreamValidators.getFileName( resource.getName() ) ), directory );
                 }
             }
         }
@@ -629,6 +880,73 @@ protected StorageAsset transferFile( ProxyConnector connector, RemoteRepository
         return resource;
     }
 
+    private void countRequest( RemoteRepository remoteRepository, String result )
+    {
+        getRemoteMetrics( remoteRepository ).getRequestCounter( result ).increment();
+    }
+
+    private RemoteMetrics getRemoteMetrics( RemoteRepository remoteRepository )
+    {
+        RemoteMetrics metrics = remoteMetrics.get( remoteRepository.getId() );
+        if ( metrics == null )
+        {
+            MetricsRegistry registry = metricsRegistry;
+            metrics = remoteMetrics.computeIfAbsent( remoteRepository.getId(), id -> new RemoteMetrics( registry, id ) );
+        }
+        return metrics;
+    }
+
+    /**
+     * The metrics of a single remote repository. The labeled instances are looked up only once per remote and result.
+     */
+    private static class RemoteMetrics
+    {
+        private final MetricsRegistry registry;
+        private final String remoteId;
+        private final Timer upstreamTimer;
+        private final ConcurrentMap<String, Counter> requestCounters = new ConcurrentHashMap<>();
+
+        private RemoteMetrics( MetricsRegistry registry, String remoteId )
+        {
+            this.registry = registry;
+            this.remoteId = remoteId;
+            this.upstreamTimer = registry.timer( "archiva_proxy_upstream_seconds", "remote", remoteId );
+        }
+
+        private Counter getRequestCounter( String result )
+        {
+            Counter counter = requestCounters.get( result );
+            if ( counter == null )
+            {
+                counter = requestCounters.computeIfAbsent( result,
+                    r -> registry.counter( "archiva_proxy_requests_total", "remote", remoteId, "result", r ) );
+            }
+            return counter;
+        }
+    }
+
+    /**
+     * @return the time in ms a not found resource is cached for the connector
+     */
+    private long getNotFoundTimeToLive( ProxyConnector connector )
+    {
+        Map<String, String> properties = connector.getProperties();
+        String ttl = properties == null ? null : properties.get( NOT_FOUND_CACHE_TTL_PROPERTY );
+        if ( StringUtils.isNotBlank( ttl ) )
+        {
+            try
+            {
+                return Long.parseLong( ttl.trim() ) * 1000;
+            }
+            catch ( NumberFormatException e )
+            {
+                log.warn( "Invalid value of {} for proxy connector {}: {}", NOT_FOUND_CACHE_TTL_PROPERTY, connector,
+                    ttl );
+            }
+        }
+        return DEFAULT_NOT_FOUND_CACHE_TTL * 1000;
+    }
+
     protected abstract void transferResources( ProxyConnector connector, RemoteRepository remoteRepository,
                                                StorageAsset tmpResource, StorageAsset[] checksumFiles, String url, String remotePath, StorageAsset resource, Path workingDirectory,
                                                ManagedRepository repository ) throws ProxyException;
@@ -655,16 +973,18 @@ private void queueRepositoryTask(String repositoryId, StorageAsset localFile )
     /**
      * Moves the file into repository location if it exists
      *
+     * @param repository the repository, that is informed about the new file
      * @param fileToMove this could be either the main artifact, sha1 or md5 checksum file.
      * @param directory  directory to write files to
      */
-    private void moveFileIfExists( StorageAsset fileToMove, StorageAsset directory )
+    private void moveFileIfExists( ManagedRepository repository, StorageAsset fileToMove, StorageAsset directory )
         throws ProxyException
     {
         if ( fileToMove != null && fileToMove.exists() )
         {
             StorageAsset newLocation = directory.getStorage().getAsset( directory.getPath()+ "/" + fileToMove.getName());
             moveTempToTarget( fileToMove, newLocation );
+            RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this, repository, newLocation.getPath() );
         }
     }
 
@@ -891,6 +1211,37 @@ public void setArchivaConfiguration(ArchivaConfiguration archivaConfiguration )
         this.archivaConfiguration = archivaConfiguration;
     }
 
+    public int getMetadataFetchThreads()
+    {
+        return metadataFetchThreads;
+    }
+
+    /**
+     * @param metadataFetchThreads the number of threads that fetch metadata from the remote repositories in
+     *                             parallel, <code>0</code> fetches them one after another. Must be set before
+     *                             initialization.
+     */
+    public void setMetadataFetchThreads( int metadataFetchThreads )
+    {
+        this.metadataFetchThreads = metadataFetchThreads;
+    }
+
+    public long getMetadataMaxStaleness()
+    {
+        return metadataMaxStaleness;
+    }
+
+    /**
+     * Enables serving stale metadata while it is refreshed in the background.
+     *
+     * @param metadataMaxStaleness the maximum time in ms since the last refresh, for which the local metadata is
+     *                             served without waiting for the remote repositories. <code>0</code> disables it.
+     */
+    public void setMetadataMaxStaleness( long metadataMaxStaleness )
+    {
+        this.metadataMaxStaleness = metadataMaxStaleness;
+    }
+
     public MetadataTools getMetadataTools()
     {
         return metadataTools;
@@ -911,6 +1262,27 @@ public void setUrlFailureCache(UrlFailureCache urlFailureCache )
         this.urlFailureCache = urlFailureCache;
     }
 
+    public MetricsRegistry getMetricsRegistry()
+    {
+        return metricsRegistry;
+    }
+
+    public void setMetricsRegistry( MetricsRegistry metricsRegistry )
+    {
+        this.metricsRegistry = metricsRegistry;
+        this.remoteMetrics.clear();
+    }
+
+    public NotFoundCache getNotFoundCache()
+    {
+        return notFoundCache;
+    }
+
+    public void setNotFoundCache( NotFoundCache notFoundCache )
+    {
+        this.notFoundCache = notFoundCache;
+    }
+
     public Map<String, PreDownloadPolicy> getPreDownloadPolicies()
     {
         return preDownloadPolicies;
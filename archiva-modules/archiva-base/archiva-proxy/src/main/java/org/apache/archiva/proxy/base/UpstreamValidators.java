@@ -0,0 +1,112 @@
+package org.apache.archiva.proxy.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * The cache validators the remote repository sent with a proxied file. They are stored in a hidden file next to the
+ * proxied file and used to send a conditional request the next time the file is checked for updates, so that an
+ * unchanged file costs one round trip without a body.
+ * <p>
+ * The validators are only used as long as the proxied file was not modified after them.
+ */
+public class UpstreamValidators
+{
+    private static final String SUFFIX = ".upstream";
+
+    private static final String LAST_MODIFIED = "lastModified";
+
+    private final long lastModified;
+
+    public UpstreamValidators( long lastModified )
+    {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param name the name of the proxied file
+     * @return the name of the file that holds the validators
+     */
+    public static String getFileName( String name )
+    {
+        return "." + name + SUFFIX;
+    }
+
+    /**
+     * Reads the validators of the given file.
+     *
+     * @param file the proxied file
+     * @return the validators or <code>null</code>, if there are none or the file was modified after they were stored
+     */
+    public static UpstreamValidators read( Path file )
+    {
+        Path validatorFile = file.resolveSibling( getFileName( file.getFileName( ).toString( ) ) );
+        try
+        {
+            if ( !Files.exists( file ) || !Files.exists( validatorFile ) || Files.getLastModifiedTime( validatorFile ).compareTo(
+                Files.getLastModifiedTime( file ) ) < 0 )
+            {
+                return null;
+            }
+            Properties properties = new Properties( );
+            try ( InputStream is = Files.newInputStream( validatorFile ) )
+            {
+                properties.load( is );
+            }
+            long lastModified = Long.parseLong( properties.getProperty( LAST_MODIFIED, "0" ) );
+            return lastModified > 0 ? new UpstreamValidators( lastModified ) : null;
+        }
+        catch ( IOException | NumberFormatException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the validators next to the given file.
+     *
+     * @param file the proxied file
+     */
+    public void write( Path file )
+        throws IOException
+    {
+        Properties properties = new Properties( );
+        properties.setProperty( LAST_MODIFIED, Long.toString( lastModified ) );
+        try ( OutputStream os = Files.newOutputStream(
+            file.resolveSibling( getFileName( file.getFileName( ).toString( ) ) ) ) )
+        {
+            properties.store( os, null );
+        }
+    }
+
+    /**
+     * @return the value of the <code>Last-Modified</code> header of the remote repository in ms
+     */
+    public long getLastModified( )
+    {
+        return lastModified;
+    }
+}
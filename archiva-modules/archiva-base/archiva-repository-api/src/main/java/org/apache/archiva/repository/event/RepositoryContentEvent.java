@@ -0,0 +1,84 @@
+package org.apache.archiva.repository.event;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.event.EventHandler;
+import org.apache.archiva.event.EventType;
+import org.apache.archiva.repository.Repository;
+
+/**
+ * Event that is fired, if the content of a repository was changed. The path is the path of the
+ * added, modified or removed asset relative to the repository root. For containers all assets below
+ * the path are affected too.
+ */
+public class RepositoryContentEvent extends RepositoryEvent {
+
+    private static final long serialVersionUID = -3349260328429816374L;
+
+    public static final EventType<RepositoryContentEvent> ANY = new EventType<>(RepositoryEvent.ANY, "REPOSITORY.CONTENT");
+    public static final EventType<RepositoryContentEvent> ITEM_ADDED = new EventType<>(ANY, "REPOSITORY.CONTENT.ITEM_ADDED");
+    public static final EventType<RepositoryContentEvent> ITEM_REMOVED = new EventType<>(ANY, "REPOSITORY.CONTENT.ITEM_REMOVED");
+    public static final EventType<RepositoryContentEvent> ITEM_MOVED = new EventType<>(ANY, "REPOSITORY.CONTENT.ITEM_MOVED");
+
+    private final String path;
+
+    public RepositoryContentEvent(EventType<? extends RepositoryContentEvent> type, Object origin, Repository repository, String path) {
+        super(type, origin, repository);
+        this.path = path;
+    }
+
+    public static <O> RepositoryContentEvent itemAdded(O origin, Repository repository, String path) {
+        return new RepositoryContentEvent(ITEM_ADDED, origin, repository, path);
+    }
+
+    public static <O> RepositoryContentEvent itemRemoved(O origin, Repository repository, String path) {
+        return new RepositoryContentEvent(ITEM_REMOVED, origin, repository, path);
+    }
+
+    /**
+     * @param path the source path of the move. The destination gets its own {@link #ITEM_ADDED} event.
+     */
+    public static <O> RepositoryContentEvent itemMoved(O origin, Repository repository, String path) {
+        return new RepositoryContentEvent(ITEM_MOVED, origin, repository, path);
+    }
+
+    /**
+     * Informs the repository about the changed asset, e.g. to invalidate cached content items. Nothing happens,
+     * if the repository does not handle repository events.
+     *
+     * @param type the type of the change
+     * @param origin the component that changed the content
+     * @param repository the repository, may be <code>null</code>
+     * @param path the path of the changed asset relative to the repository root
+     */
+    @SuppressWarnings("unchecked")
+    public static void fire(EventType<RepositoryContentEvent> type, Object origin, Repository repository, String path) {
+        if (repository instanceof EventHandler) {
+            ((EventHandler<RepositoryEvent>) repository).handle(new RepositoryContentEvent(type, origin, repository, path));
+        }
+    }
+
+    /**
+     * @return the path of the changed asset relative to the repository root
+     */
+    public String getPath() {
+        return path;
+    }
+}
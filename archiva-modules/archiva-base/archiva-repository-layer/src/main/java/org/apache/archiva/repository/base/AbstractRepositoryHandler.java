@@ -23,6 +23,8 @@
 import org.apache.archiva.configuration.provider.IndeterminateConfigurationException;
 import org.apache.archiva.event.Event;
 import org.apache.archiva.event.BasicEventManager;
+import org.apache.archiva.event.EventHandler;
+import org.apache.archiva.event.EventSource;
 import org.apache.archiva.event.EventType;
 import org.apache.archiva.repository.EditableRepository;
 import org.apache.archiva.repository.Repository;
@@ -52,7 +54,7 @@
  *
  * @author Martin Stockhammer <martin_s@apache.org>
  */
-public abstract class AbstractRepositoryHandler<R extends Repository, C extends AbstractRepositoryConfiguration> implements RepositoryHandler<R, C>
+public abstract class AbstractRepositoryHandler<R extends Repository, C extends AbstractRepositoryConfiguration> implements RepositoryHandler<R, C>, EventSource
 {
 
     private static final Logger log = LoggerFactory.getLogger( AbstractRepositoryHandler.class );
@@ -168,6 +170,18 @@ protected void pushEvent(EventType<? extends LifecycleEvent> event, R repo) {
         pushEvent( new LifecycleEvent( event, this, repo ) );
     }
 
+    @Override
+    public <T extends Event> void registerEventHandler( EventType<T> type, EventHandler<? super T> eventHandler )
+    {
+        eventManager.registerEventHandler( type, eventHandler );
+    }
+
+    @Override
+    public <T extends Event> void unregisterEventHandler( EventType<T> type, EventHandler<? super T> eventHandler )
+    {
+        eventManager.unregisterEventHandler( type, eventHandler );
+    }
+
     protected Map<String, R> getRepositories() {
         return repositoryMap;
     }
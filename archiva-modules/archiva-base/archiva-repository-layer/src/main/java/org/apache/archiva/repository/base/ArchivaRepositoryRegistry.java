@@ -51,6 +51,7 @@
 import org.apache.archiva.repository.RepositoryRegistry;
 import org.apache.archiva.repository.RepositoryType;
 import org.apache.archiva.repository.UnsupportedRepositoryTypeException;
+import org.apache.archiva.repository.event.LifecycleEvent;
 import org.apache.archiva.repository.event.RepositoryIndexEvent;
 import org.apache.archiva.repository.event.RepositoryRegistryEvent;
 import org.apache.archiva.repository.metadata.MetadataReader;
@@ -69,16 +70,14 @@
 import javax.inject.Inject;
 import javax.inject.Named;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Registry for repositories. This is the central entry point for repositories. It provides methods for
@@ -123,7 +122,17 @@ public class ArchivaRepositoryRegistry implements ConfigurationListener, EventHa
     private final BasicEventManager eventManager;
 
 
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock( );
+    /**
+     * Serializes the modifications. Readers do not lock, they use the current snapshot.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock( );
+
+    private volatile RepositoryRegistrySnapshot snapshot = RepositoryRegistrySnapshot.EMPTY;
+
+    /**
+     * Set, if a handler was modified directly, without the registry methods. The next reader rebuilds the snapshot.
+     */
+    private volatile boolean snapshotStale = false;
 
     private RepositoryHandler<RepositoryGroup, RepositoryGroupConfiguration> groupHandler;
     private RepositoryHandler<ManagedRepository, ManagedRepositoryConfiguration> managedRepositoryHandler;
@@ -166,7 +175,7 @@ public void setArchivaConfiguration( ArchivaConfiguration archivaConfiguration )
     @PostConstruct
     private void initialize( )
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             log.debug( "Initializing repository registry" );
@@ -183,7 +192,8 @@ private void initialize( )
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
         pushEvent( new RepositoryRegistryEvent( RepositoryRegistryEvent.RELOADED, this ) );
         if ( managed_initialized.get( ) && remote_initialized.get( ) && groups_initalized.get( ) )
@@ -225,7 +235,16 @@ public void registerGroupHandler( RepositoryHandler<RepositoryGroup, RepositoryG
     {
         this.groupHandler = groupHandler;
         doRegister( groupHandler );
-        initializeRepositoryGroups( );
+        writeLock.lock( );
+        try
+        {
+            initializeRepositoryGroups( );
+        }
+        finally
+        {
+            publishSnapshot( );
+            writeLock.unlock( );
+        }
         if ( managed_initialized.get( ) && remote_initialized.get( ) && groups_initalized.get( ) )
         {
             pushEvent( new RepositoryRegistryEvent( RepositoryRegistryEvent.INITIALIZED, this ) );
@@ -236,7 +255,16 @@ public void registerManagedRepositoryHandler( RepositoryHandler<ManagedRepositor
     {
         this.managedRepositoryHandler = managedRepositoryHandler;
         doRegister( managedRepositoryHandler );
-        initializeManagedRepositories();
+        writeLock.lock( );
+        try
+        {
+            initializeManagedRepositories();
+        }
+        finally
+        {
+            publishSnapshot( );
+            writeLock.unlock( );
+        }
         if ( managed_initialized.get( ) && remote_initialized.get( ) && groups_initalized.get( ) )
         {
             pushEvent( new RepositoryRegistryEvent( RepositoryRegistryEvent.INITIALIZED, this ) );
@@ -247,7 +275,16 @@ public void registerRemoteRepositoryHandler( RepositoryHandler<RemoteRepository,
     {
         this.remoteRepositoryHandler = remoteRepositoryHandler;
         doRegister( remoteRepositoryHandler );
-        initializeRemoteRepositories();
+        writeLock.lock( );
+        try
+        {
+            initializeRemoteRepositories();
+        }
+        finally
+        {
+            publishSnapshot( );
+            writeLock.unlock( );
+        }
         if ( managed_initialized.get( ) && remote_initialized.get( ) && groups_initalized.get( ) )
         {
             pushEvent( new RepositoryRegistryEvent( RepositoryRegistryEvent.INITIALIZED, this ) );
@@ -314,15 +351,7 @@ public MetadataReader getMetadataReader( final RepositoryType type ) throws Unsu
     @Override
     public Collection<Repository> getRepositories( )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            return Stream.concat( managedRepositoryHandler.getAll().stream( ), remoteRepositoryHandler.getAll().stream( ) ).collect( Collectors.toList( ) );
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        return currentView( ).getRepositories( );
     }
 
     /**
@@ -333,15 +362,7 @@ public Collection<Repository> getRepositories( )
     @Override
     public Collection<ManagedRepository> getManagedRepositories( )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            return managed_initialized.get() ? managedRepositoryHandler.getAll( ) : Collections.emptyList();
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        return currentView( ).getManagedRepositories( );
     }
 
     /**
@@ -352,29 +373,13 @@ public Collection<ManagedRepository> getManagedRepositories( )
     @Override
     public Collection<RemoteRepository> getRemoteRepositories( )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            return remote_initialized.get() ? remoteRepositoryHandler.getAll( ) : Collections.emptyList();
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        return currentView( ).getRemoteRepositories( );
     }
 
     @Override
     public Collection<RepositoryGroup> getRepositoryGroups( )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            return groupHandler.getAll( );
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        return currentView( ).getRepositoryGroups( );
     }
 
     /**
@@ -387,33 +392,8 @@ public Collection<RepositoryGroup> getRepositoryGroups( )
     @Override
     public Repository getRepository( String repoId )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            log.debug( "getRepository {}", repoId );
-            if ( managedRepositoryHandler.hasRepository( repoId ) )
-            {
-                log.debug( "Managed repo" );
-                return managedRepositoryHandler.get( repoId );
-            }
-            else if ( remoteRepositoryHandler.hasRepository( repoId ) )
-            {
-                log.debug( "Remote repo" );
-                return remoteRepositoryHandler.get( repoId );
-            }
-            else if ( groupHandler.hasRepository( repoId ) )
-            {
-                return groupHandler.get( repoId );
-            }
-            else
-            {
-                return null;
-            }
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        log.debug( "getRepository {}", repoId );
+        return currentView( ).getRepository( repoId );
     }
 
     /**
@@ -426,15 +406,7 @@ else if ( groupHandler.hasRepository( repoId ) )
     @Override
     public ManagedRepository getManagedRepository( String repoId )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            return managed_initialized.get() ? managedRepositoryHandler.get( repoId ) : null;
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        return currentView( ).getManagedRepository( repoId );
     }
 
     /**
@@ -447,55 +419,87 @@ public ManagedRepository getManagedRepository( String repoId )
     @Override
     public RemoteRepository getRemoteRepository( String repoId )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            return remote_initialized.get() ? remoteRepositoryHandler.get( repoId ) : null;
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        return currentView( ).getRemoteRepository( repoId );
     }
 
     @Override
     public RepositoryGroup getRepositoryGroup( String groupId )
     {
-        rwLock.readLock( ).lock( );
-        try
-        {
-            return groupHandler.get( groupId );
-        }
-        finally
-        {
-            rwLock.readLock( ).unlock( );
-        }
+        return currentView( ).getRepositoryGroup( groupId );
     }
 
     @Override
     public boolean hasRepository( String repoId )
     {
-        return ( managedRepositoryHandler != null && managedRepositoryHandler.hasRepository( repoId ) )
-            || ( remoteRepositoryHandler != null && remoteRepositoryHandler.hasRepository( repoId ) )
-            || ( this.groupHandler != null && groupHandler.hasRepository( repoId ) );
+        final RepositoryRegistrySnapshot current = currentView( );
+        return current.hasManagedRepository( repoId ) || current.hasRemoteRepository( repoId )
+            || current.hasRepositoryGroup( repoId );
     }
 
     @Override
     public boolean hasManagedRepository( String repoId )
     {
-        return managedRepositoryHandler!=null && managedRepositoryHandler.hasRepository( repoId );
+        return currentView( ).hasManagedRepository( repoId );
     }
 
     @Override
     public boolean hasRemoteRepository( String repoId )
     {
-        return remoteRepositoryHandler!=null && remoteRepositoryHandler.hasRepository( repoId );
+        return currentView( ).hasRemoteRepository( repoId );
     }
 
     @Override
     public boolean hasRepositoryGroup( String groupId )
     {
-        return this.groupHandler != null && groupHandler.hasRepository( groupId );
+        return currentView( ).hasRepositoryGroup( groupId );
+    }
+
+    /**
+     * Returns the view used by the lookup methods. The thread that currently modifies the registry must see its own
+     * changes, that are not yet published. All other threads use the last published snapshot without locking.
+     */
+    private RepositoryRegistrySnapshot currentView( )
+    {
+        if ( writeLock.isHeldByCurrentThread( ) )
+        {
+            return createSnapshot( );
+        }
+        // The handler may fire the change event, while it holds the configuration lock. So we do not wait here.
+        // If the lock is held by another thread, that thread publishes the snapshot after its modification.
+        if ( snapshotStale && writeLock.tryLock( ) )
+        {
+            try
+            {
+                if ( snapshotStale )
+                {
+                    publishSnapshot( );
+                }
+            }
+            finally
+            {
+                writeLock.unlock( );
+            }
+        }
+        return this.snapshot;
+    }
+
+    private RepositoryRegistrySnapshot createSnapshot( )
+    {
+        return new RepositoryRegistrySnapshot(
+            managedRepositoryHandler != null && managed_initialized.get( ) ? managedRepositoryHandler.getAll( ) : null,
+            remoteRepositoryHandler != null && remote_initialized.get( ) ? remoteRepositoryHandler.getAll( ) : null,
+            groupHandler != null ? groupHandler.getAll( ) : null );
+    }
+
+    /**
+     * Builds a new snapshot from the current state of the repository handlers and publishes it to the readers.
+     * Must be called after each modification of the handlers by the thread that holds the write lock.
+     */
+    private void publishSnapshot( )
+    {
+        // Reset before reading the handlers, so that a concurrent direct change marks it stale again
+        this.snapshotStale = false;
+        this.snapshot = createSnapshot( );
     }
 
     protected void saveConfiguration( Configuration configuration ) throws IndeterminateConfigurationException, RegistryException
@@ -514,14 +518,15 @@ protected void saveConfiguration( Configuration configuration ) throws Indetermi
     @Override
     public ManagedRepository putRepository( ManagedRepository managedRepository ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return managed_initialized.get() ? managedRepositoryHandler.put( managedRepository ) : null;
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -536,14 +541,15 @@ public ManagedRepository putRepository( ManagedRepository managedRepository ) th
     @Override
     public ManagedRepository putRepository( ManagedRepositoryConfiguration managedRepositoryConfiguration ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return managedRepositoryHandler.put( managedRepositoryConfiguration );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
 
     }
@@ -560,26 +566,28 @@ public ManagedRepository putRepository( ManagedRepositoryConfiguration managedRe
     @Override
     public ManagedRepository putRepository( ManagedRepositoryConfiguration managedRepositoryConfiguration, Configuration configuration ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return managedRepositoryHandler.put( managedRepositoryConfiguration, configuration );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
     @Override
     public CheckedResult<ManagedRepository, Map<String, List<ValidationError>>> putRepositoryAndValidate( ManagedRepositoryConfiguration configuration ) throws RepositoryException
     {
-        rwLock.writeLock().lock();
+        writeLock.lock( );
         try {
             return managedRepositoryHandler.putWithCheck( configuration );
         } finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -594,7 +602,7 @@ public CheckedResult<ManagedRepository, Map<String, List<ValidationError>>> putR
     @Override
     public RepositoryGroup putRepositoryGroup( RepositoryGroup repositoryGroup ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             if ( this.groupHandler == null )
@@ -605,7 +613,8 @@ public RepositoryGroup putRepositoryGroup( RepositoryGroup repositoryGroup ) thr
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -620,14 +629,15 @@ public RepositoryGroup putRepositoryGroup( RepositoryGroup repositoryGroup ) thr
     @Override
     public RepositoryGroup putRepositoryGroup( RepositoryGroupConfiguration repositoryGroupConfiguration ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return groupHandler.put( repositoryGroupConfiguration );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
 
     }
@@ -636,14 +646,15 @@ public RepositoryGroup putRepositoryGroup( RepositoryGroupConfiguration reposito
     public CheckedResult<RepositoryGroup, Map<String, List<ValidationError>>> putRepositoryGroupAndValidate( RepositoryGroupConfiguration repositoryGroupConfiguration )
         throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return groupHandler.putWithCheck( repositoryGroupConfiguration );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -659,14 +670,15 @@ public CheckedResult<RepositoryGroup, Map<String, List<ValidationError>>> putRep
     @Override
     public RepositoryGroup putRepositoryGroup( RepositoryGroupConfiguration repositoryGroupConfiguration, Configuration configuration ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return groupHandler.put( repositoryGroupConfiguration, configuration );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -681,14 +693,15 @@ public RepositoryGroup putRepositoryGroup( RepositoryGroupConfiguration reposito
     @Override
     public RemoteRepository putRepository( RemoteRepository remoteRepository ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return remoteRepositoryHandler.put( remoteRepository );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -703,26 +716,28 @@ public RemoteRepository putRepository( RemoteRepository remoteRepository ) throw
     @Override
     public RemoteRepository putRepository( RemoteRepositoryConfiguration remoteRepositoryConfiguration ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return remoteRepositoryHandler.put( remoteRepositoryConfiguration );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
     @Override
     public CheckedResult<RemoteRepository, Map<String, List<ValidationError>>> putRepositoryAndValidate( RemoteRepositoryConfiguration remoteRepositoryConfiguration ) throws RepositoryException
     {
-        rwLock.writeLock().lock();
+        writeLock.lock( );
         try {
             return remoteRepositoryHandler.putWithCheck( remoteRepositoryConfiguration );
         } finally
         {
-            rwLock.writeLock().unlock();
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -738,14 +753,15 @@ public CheckedResult<RemoteRepository, Map<String, List<ValidationError>>> putRe
     @Override
     public RemoteRepository putRepository( RemoteRepositoryConfiguration remoteRepositoryConfiguration, Configuration configuration ) throws RepositoryException
     {
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             return remoteRepositoryHandler.put( remoteRepositoryConfiguration, configuration );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -799,14 +815,15 @@ public void removeRepository( ManagedRepository managedRepository ) throws Repos
         {
             return;
         }
-        rwLock.writeLock( ).lock( );
+        writeLock.lock( );
         try
         {
             if (managed_initialized.get() ) managedRepositoryHandler.remove( managedRepository.getId( ) );
         }
         finally
         {
-            rwLock.writeLock( ).unlock( );
+            publishSnapshot( );
+            writeLock.unlock( );
         }
     }
 
@@ -818,14 +835,15 @@ public void removeRepository( ManagedRepository managedRepository, Configuration
         {
             return;
         }
-            rwLock.writeLock( ).lock( );
+            writeLock.lock( );
             try
             {
                 if (managed_initialized.get()) managedRepositoryHandler.remove( managedRepository.getId( ), configuration );
             }
             finally
             {
-                rwLock.writeLock( ).unlock( );
+                publishSnapshot( );
+                writeLock.unlock( );
             }
 
     }
@@ -848,14 +866,15 @@ public void removeRepositoryGroup( RepositoryGroup repositoryGroup ) throws Repo
         final String id = repositoryGroup.getId( );
         if ( groupHandler.hasRepository( id ) )
         {
-            rwLock.writeLock( ).lock( );
+            writeLock.lock( );
             try
             {
                 groupHandler.remove( id );
             }
             finally
             {
-                rwLock.writeLock( ).unlock( );
+                publishSnapshot( );
+                writeLock.unlock( );
             }
         }
     }
@@ -870,14 +889,15 @@ public void removeRepositoryGroup( RepositoryGroup repositoryGroup, Configuratio
         final String id = repositoryGroup.getId( );
         if ( groupHandler.hasRepository( id ) )
         {
-            rwLock.writeLock( ).lock( );
+            writeLock.lock( );
             try
             {
                 groupHandler.remove( id, configuration );
             }
             finally
             {
-                rwLock.writeLock( ).unlock( );
+                publishSnapshot( );
+                writeLock.unlock( );
             }
         }
     }
@@ -899,14 +919,15 @@ public void removeRepository( RemoteRepository remoteRepository ) throws Reposit
         final String id = remoteRepository.getId( );
         if ( remoteRepositoryHandler.hasRepository( id ) )
         {
-            rwLock.writeLock( ).lock( );
+            writeLock.lock( );
             try
             {
                 remoteRepositoryHandler.remove( id );
             }
             finally
             {
-                rwLock.writeLock( ).unlock( );
+                publishSnapshot( );
+                writeLock.unlock( );
             }
         }
     }
@@ -921,14 +942,15 @@ public void removeRepository( RemoteRepository remoteRepository, Configuration c
         final String id = remoteRepository.getId( );
         if ( remoteRepositoryHandler.hasRepository( id ) )
         {
-            rwLock.writeLock( ).lock( );
+            writeLock.lock( );
             try
             {
                 remoteRepositoryHandler.remove( id, configuration );
             }
             finally
             {
-                rwLock.writeLock( ).unlock( );
+                publishSnapshot( );
+                writeLock.unlock( );
             }
         }
     }
@@ -1164,6 +1186,22 @@ private <R extends Repository, C extends AbstractRepositoryConfiguration> void d
     {
         repositoryHandler.setRepositoryProviders( this.repositoryProviders );
         repositoryHandler.setRepositoryValidator( this.repositoryValidatorList );
+        if ( repositoryHandler instanceof EventSource )
+        {
+            ( (EventSource) repositoryHandler ).registerEventHandler( LifecycleEvent.ANY, this::handlerChanged );
+        }
+    }
+
+    /**
+     * Called for changes of the handlers. The changes made by the registry methods are published, when the write lock
+     * is released. Changes made directly on the handler mark the snapshot as stale.
+     */
+    private void handlerChanged( LifecycleEvent event )
+    {
+        if ( !writeLock.isHeldByCurrentThread( ) )
+        {
+            snapshotStale = true;
+        }
     }
 
     @SuppressWarnings( "unchecked" )
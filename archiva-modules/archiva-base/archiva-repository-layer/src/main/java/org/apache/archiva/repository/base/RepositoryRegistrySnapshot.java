@@ -0,0 +1,163 @@
+package org.apache.archiva.repository.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.ManagedRepository;
+import org.apache.archiva.repository.RemoteRepository;
+import org.apache.archiva.repository.Repository;
+import org.apache.archiva.repository.RepositoryGroup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of all repositories registered at a certain point in time.
+ * <p>
+ * The registry builds a new snapshot after each modification and publishes it by a single volatile write.
+ * Readers work on the snapshot they got and never see a partially modified state, so lookups need no lock.
+ *
+ * @since 3.0
+ */
+final class RepositoryRegistrySnapshot
+{
+
+    static final RepositoryRegistrySnapshot EMPTY = new RepositoryRegistrySnapshot( Collections.emptyList( ),
+        Collections.emptyList( ), Collections.emptyList( ) );
+
+    private final Map<String, ManagedRepository> managedRepositories;
+    private final Map<String, RemoteRepository> remoteRepositories;
+    private final Map<String, RepositoryGroup> repositoryGroups;
+
+    private final Collection<ManagedRepository> managedList;
+    private final Collection<RemoteRepository> remoteList;
+    private final Collection<RepositoryGroup> groupList;
+    private final Collection<Repository> repositoryList;
+
+    RepositoryRegistrySnapshot( Collection<ManagedRepository> managed, Collection<RemoteRepository> remote,
+                                Collection<RepositoryGroup> groups )
+    {
+        this.managedRepositories = toMap( managed );
+        this.remoteRepositories = toMap( remote );
+        this.repositoryGroups = toMap( groups );
+        this.managedList = Collections.unmodifiableList( new ArrayList<>( managedRepositories.values( ) ) );
+        this.remoteList = Collections.unmodifiableList( new ArrayList<>( remoteRepositories.values( ) ) );
+        this.groupList = Collections.unmodifiableList( new ArrayList<>( repositoryGroups.values( ) ) );
+        List<Repository> all = new ArrayList<>( managedList.size( ) + remoteList.size( ) );
+        all.addAll( managedList );
+        all.addAll( remoteList );
+        this.repositoryList = Collections.unmodifiableList( all );
+    }
+
+    private static <R extends Repository> Map<String, R> toMap( Collection<R> repositories )
+    {
+        if ( repositories == null || repositories.isEmpty( ) )
+        {
+            return Collections.emptyMap( );
+        }
+        Map<String, R> map = new HashMap<>( repositories.size( ) * 2 );
+        for ( R repository : repositories )
+        {
+            map.put( repository.getId( ), repository );
+        }
+        return Collections.unmodifiableMap( map );
+    }
+
+    ManagedRepository getManagedRepository( String id )
+    {
+        return id == null ? null : managedRepositories.get( id );
+    }
+
+    RemoteRepository getRemoteRepository( String id )
+    {
+        return id == null ? null : remoteRepositories.get( id );
+    }
+
+    RepositoryGroup getRepositoryGroup( String id )
+    {
+        return id == null ? null : repositoryGroups.get( id );
+    }
+
+    /**
+     * Returns the repository with the given id. Managed repositories are found first, then remote repositories
+     * and at last repository groups.
+     *
+     * @param id the repository id
+     * @return the repository or <code>null</code>, if no repository with the given id exists
+     */
+    Repository getRepository( String id )
+    {
+        if ( id == null )
+        {
+            return null;
+        }
+        Repository repository = managedRepositories.get( id );
+        if ( repository == null )
+        {
+            repository = remoteRepositories.get( id );
+        }
+        if ( repository == null )
+        {
+            repository = repositoryGroups.get( id );
+        }
+        return repository;
+    }
+
+    boolean hasManagedRepository( String id )
+    {
+        return id != null && managedRepositories.containsKey( id );
+    }
+
+    boolean hasRemoteRepository( String id )
+    {
+        return id != null && remoteRepositories.containsKey( id );
+    }
+
+    boolean hasRepositoryGroup( String id )
+    {
+        return id != null && repositoryGroups.containsKey( id );
+    }
+
+    Collection<ManagedRepository> getManagedRepositories( )
+    {
+        return managedList;
+    }
+
+    Collection<RemoteRepository> getRemoteRepositories( )
+    {
+        return remoteList;
+    }
+
+    Collection<RepositoryGroup> getRepositoryGroups( )
+    {
+        return groupList;
+    }
+
+    /**
+     * @return all managed and remote repositories. Repository groups are not part of this collection.
+     */
+    Collection<Repository> getRepositories( )
+    {
+        return repositoryList;
+    }
+}
@@ -54,6 +54,11 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -67,12 +72,19 @@
     implements RepositoryHandler<ManagedRepository, ManagedRepositoryConfiguration>
 {
     private static final Logger log = LoggerFactory.getLogger( ManagedRepositoryHandler.class );
+    private static final int INDEX_INIT_THREADS = Integer.getInteger( "archiva.repository.indexInitThreads",
+        Math.min( 8, Runtime.getRuntime( ).availableProcessors( ) ) );
     private final RepositoryHandlerManager repositoryHandlerManager;
     private final RepositoryContentFactory repositoryContentFactory;
 
 
     IndexManagerFactory indexManagerFactory;
 
+    /**
+     * Collects the repositories of the initialization, their indexing contexts are created afterwards in parallel.
+     */
+    private final ThreadLocal<List<EditableRepository>> deferredIndexCreation = new ThreadLocal<>( );
+
 
     public ManagedRepositoryHandler( RepositoryHandlerManager repositoryHandlerManager,
                                      ConfigurationHandler configurationHandler, IndexManagerFactory indexManagerFactory,
@@ -106,7 +118,17 @@ public void initializeFromConfig( )
     {
         Map<String, ManagedRepository> currentInstances = new HashMap<>( getRepositories( ) );
         getRepositories().clear();
-        getRepositories( ).putAll( newOrUpdateInstancesFromConfig( currentInstances ) );
+        List<EditableRepository> indexRepositories = new ArrayList<>( );
+        deferredIndexCreation.set( indexRepositories );
+        try
+        {
+            getRepositories( ).putAll( newOrUpdateInstancesFromConfig( currentInstances ) );
+        }
+        finally
+        {
+            deferredIndexCreation.remove( );
+        }
+        createIndexingContexts( indexRepositories );
         for ( ManagedRepository managedRepository : getRepositories( ).values( ) )
         {
             activateRepository( managedRepository );
@@ -286,6 +308,63 @@ public ArchivaIndexManager getIndexManager( RepositoryType type )
         return indexManagerFactory.getIndexManager( type );
     }
 
+    /**
+     * Opens the indexing contexts of the given repositories in parallel. Opening a context reads the index from disk,
+     * which is the most expensive part of the repository initialization. A failure is logged and does not stop the
+     * other repositories.
+     */
+    private void createIndexingContexts( List<EditableRepository> repositories )
+    {
+        if ( repositories.isEmpty( ) )
+        {
+            return;
+        }
+        long startTime = System.currentTimeMillis( );
+        int threads = Math.max( 1, Math.min( INDEX_INIT_THREADS, repositories.size( ) ) );
+        AtomicInteger threadNumber = new AtomicInteger( );
+        ExecutorService executor = Executors.newFixedThreadPool( threads, runnable -> {
+            Thread thread = new Thread( runnable, "archiva-index-init-" + threadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>( repositories.size( ) );
+            for ( EditableRepository repository : repositories )
+            {
+                futures.add( executor.submit( ( ) -> {
+                    try
+                    {
+                        createIndexingContext( repository );
+                    }
+                    catch ( RepositoryException e )
+                    {
+                        log.error( "Could not create indexing context for repository {}: {}", repository.getId( ), e.getMessage( ), e );
+                    }
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get( );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            log.error( "Interrupted while creating the indexing contexts" );
+        }
+        catch ( ExecutionException e )
+        {
+            log.error( "Error while creating the indexing contexts: {}", e.getMessage( ), e );
+        }
+        finally
+        {
+            executor.shutdown( );
+        }
+        log.info( "Created {} indexing contexts with {} threads in {} ms", repositories.size( ), threads,
+            System.currentTimeMillis( ) - startTime );
+    }
+
     private void createIndexingContext( EditableRepository editableRepo ) throws RepositoryException
     {
         if ( editableRepo.supportsFeature( IndexCreationFeature.class ) )
@@ -539,8 +618,16 @@ public void updateReferences( ManagedRepository repo, ManagedRepositoryConfigura
             log.debug( "Index repo: " + repo.hasIndex( ) );
             if ( repo.hasIndex( ) && ( repo.getIndexingContext( ) == null || !repo.getIndexingContext( ).isOpen( ) ) )
             {
-                log.debug( "Creating indexing context for {}", repo.getId( ) );
-                createIndexingContext( editableRepo );
+                List<EditableRepository> deferred = deferredIndexCreation.get( );
+                if ( deferred != null )
+                {
+                    deferred.add( editableRepo );
+                }
+                else
+                {
+                    log.debug( "Creating indexing context for {}", repo.getId( ) );
+                    createIndexingContext( editableRepo );
+                }
             }
         }
         repo.registerEventHandler( RepositoryEvent.ANY, repositoryHandlerManager );
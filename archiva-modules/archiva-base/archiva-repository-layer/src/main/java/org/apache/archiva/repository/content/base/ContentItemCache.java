@@ -0,0 +1,421 @@
+package org.apache.archiva.repository.content.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.storage.StorageAsset;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Concurrent, size bounded cache for content items, keyed by the path of the item asset.
+ * <p>
+ * The eviction follows the W-TinyLFU scheme: new entries are added to a small admission window. Entries leaving
+ * the window compete with the eviction candidate of the main area and the one with the higher estimated access
+ * frequency is kept. The frequencies are tracked by a count-min sketch, that is aged periodically, so one time
+ * scans do not displace the frequently used items. The main area evicts by a clock (second chance) algorithm.
+ * <p>
+ * Lookups do not lock. Insertions and invalidations are serialized. Loading of missing values happens outside of
+ * any lock, so the loader may use the cache recursively. If two threads load the same item concurrently, the first
+ * stored value wins. A value, whose loading overlapped with an invalidation, is returned but not stored, as it may
+ * have been created from the state before the change.
+ *
+ * @param <V> the type of the cached items
+ */
+public class ContentItemCache<V>
+{
+    public static final int DEFAULT_MAXIMUM_SIZE = Integer.getInteger( "archiva.content.itemCacheSize", 10000 );
+
+    private static final class Node<V>
+    {
+        final String key;
+        final V value;
+        volatile boolean referenced = false;
+        // guarded by the cache
+        boolean removed = false;
+        boolean inMain = false;
+
+        Node( String key, V value )
+        {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Node<V>> map = new ConcurrentHashMap<>( );
+    private final int maximumSize;
+    private final int windowMaximum;
+    private final int mainMaximum;
+    private final FrequencySketch sketch;
+
+    // guarded by this
+    private final ArrayDeque<Node<V>> window = new ArrayDeque<>( );
+    private final ArrayDeque<Node<V>> main = new ArrayDeque<>( );
+    private int windowSize = 0;
+    private int mainSize = 0;
+
+    /**
+     * Counts the invalidations, so that values loaded before an invalidation are not stored after it.
+     */
+    private volatile long invalidations = 0;
+
+    private final LongAdder hits = new LongAdder( );
+    private final LongAdder misses = new LongAdder( );
+    private final LongAdder evictions = new LongAdder( );
+
+    public ContentItemCache( )
+    {
+        this( DEFAULT_MAXIMUM_SIZE );
+    }
+
+    /**
+     * @param maximumSize the maximum number of cached items. If the value is not greater than 0, nothing is cached.
+     */
+    public ContentItemCache( int maximumSize )
+    {
+        this.maximumSize = Math.max( maximumSize, 0 );
+        this.windowMaximum = Math.max( 1, this.maximumSize / 100 );
+        this.mainMaximum = Math.max( 1, this.maximumSize - windowMaximum );
+        this.sketch = new FrequencySketch( Math.max( this.maximumSize, 16 ) );
+    }
+
+    /**
+     * Returns the cached item for the given asset.
+     *
+     * @param asset the asset of the item
+     * @return the cached item, or <code>null</code>, if there is no item for the asset path
+     */
+    public V get( StorageAsset asset )
+    {
+        return get( asset.getPath( ) );
+    }
+
+    public V get( String path )
+    {
+        sketch.increment( path );
+        Node<V> node = map.get( path );
+        if ( node == null )
+        {
+            misses.increment( );
+            return null;
+        }
+        node.referenced = true;
+        hits.increment( );
+        return node.value;
+    }
+
+    /**
+     * Returns the cached item for the given asset or creates a new one with the given loader.
+     * Exceptions of the loader are passed to the caller and nothing is cached.
+     *
+     * @param asset  the asset of the item
+     * @param loader creates the item from the asset
+     * @return the cached or newly created item
+     */
+    public V computeIfAbsent( StorageAsset asset, Function<? super StorageAsset, ? extends V> loader )
+    {
+        final String path = asset.getPath( );
+        V value = get( path );
+        if ( value == null )
+        {
+            final long generation = invalidations;
+            value = loader.apply( asset );
+            if ( value != null )
+            {
+                value = put( path, value, generation );
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Stores the item, if there is no item for the path yet and no invalidation happened since the loading started.
+     *
+     * @param generation the number of invalidations before the value was loaded
+     * @return the item that is stored for the path after the call, or the given item, if it was not stored
+     */
+    private synchronized V put( String path, V value, long generation )
+    {
+        if ( maximumSize == 0 || generation != invalidations )
+        {
+            return value;
+        }
+        Node<V> existing = map.get( path );
+        if ( existing != null )
+        {
+            return existing.value;
+        }
+        Node<V> node = new Node<>( path, value );
+        map.put( path, node );
+        window.addLast( node );
+        windowSize++;
+        evict( );
+        return value;
+    }
+
+    // guarded by this
+    private void evict( )
+    {
+        while ( windowSize > windowMaximum )
+        {
+            Node<V> candidate = pollLive( window );
+            windowSize--;
+            candidate.inMain = true;
+            if ( mainSize < mainMaximum )
+            {
+                main.addLast( candidate );
+                mainSize++;
+                continue;
+            }
+            Node<V> victim = nextVictim( );
+            if ( sketch.frequency( candidate.key ) > sketch.frequency( victim.key ) )
+            {
+                remove( victim );
+                mainSize--;
+                main.addLast( candidate );
+                mainSize++;
+            }
+            else
+            {
+                // the clock hand moves on, so the next candidate competes with another item
+                main.addLast( victim );
+                remove( candidate );
+            }
+            evictions.increment( );
+        }
+    }
+
+    // guarded by this
+    private Node<V> pollLive( ArrayDeque<Node<V>> queue )
+    {
+        Node<V> node;
+        do
+        {
+            node = queue.pollFirst( );
+        }
+        while ( node.removed );
+        return node;
+    }
+
+    /**
+     * Clock sweep over the main area: recently referenced items get a second chance.
+     */
+    // guarded by this
+    private Node<V> nextVictim( )
+    {
+        while ( true )
+        {
+            Node<V> node = pollLive( main );
+            if ( node.referenced )
+            {
+                node.referenced = false;
+                main.addLast( node );
+            }
+            else
+            {
+                return node;
+            }
+        }
+    }
+
+    // guarded by this
+    private void remove( Node<V> node )
+    {
+        node.removed = true;
+        map.remove( node.key, node );
+    }
+
+    /**
+     * Removes the item of the given path and all items below it.
+     *
+     * @param path the path of the changed asset
+     */
+    public synchronized void invalidate( String path )
+    {
+        invalidations++;
+        String key = path;
+        while ( key.length( ) > 1 && key.endsWith( "/" ) )
+        {
+            key = key.substring( 0, key.length( ) - 1 );
+        }
+        if ( key.isEmpty( ) || "/".equals( key ) )
+        {
+            invalidateAll( );
+            return;
+        }
+        final String prefix = key + "/";
+        Iterator<Node<V>> it = map.values( ).iterator( );
+        while ( it.hasNext( ) )
+        {
+            Node<V> node = it.next( );
+            if ( node.key.equals( key ) || node.key.startsWith( prefix ) )
+            {
+                it.remove( );
+                node.removed = true;
+                if ( node.inMain )
+                {
+                    mainSize--;
+                }
+                else
+                {
+                    windowSize--;
+                }
+            }
+        }
+        // drop the removed nodes from the queues, if they make up the most part
+        if ( window.size( ) + main.size( ) > 2 * ( windowSize + mainSize ) + 16 )
+        {
+            window.removeIf( n -> n.removed );
+            main.removeIf( n -> n.removed );
+        }
+    }
+
+    public synchronized void invalidateAll( )
+    {
+        invalidations++;
+        map.clear( );
+        window.forEach( n -> n.removed = true );
+        main.forEach( n -> n.removed = true );
+        window.clear( );
+        main.clear( );
+        windowSize = 0;
+        mainSize = 0;
+    }
+
+    public int size( )
+    {
+        return map.size( );
+    }
+
+    public int getMaximumSize( )
+    {
+        return maximumSize;
+    }
+
+    public long getHitCount( )
+    {
+        return hits.sum( );
+    }
+
+    public long getMissCount( )
+    {
+        return misses.sum( );
+    }
+
+    public long getEvictionCount( )
+    {
+        return evictions.sum( );
+    }
+
+    /**
+     * @return the ratio of hits to all lookups, or 0, if there were no lookups yet
+     */
+    public double getHitRate( )
+    {
+        long hitCount = hits.sum( );
+        long total = hitCount + misses.sum( );
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    /**
+     * Count-min sketch with 4 bit counters and 4 hash functions. The counters are halved after
+     * 10 times the table width increments, so the frequencies reflect the recent history.
+     * Concurrent increments may get lost, which does not matter for the estimation.
+     */
+    static final class FrequencySketch
+    {
+        private static final int[] SEEDS = { 0x97cb3127, 0xc2b2ae35, 0x85ebca6b, 0x27d4eb2f };
+        private final byte[] table;
+        private final int width;
+        private final int mask;
+        private final int sampleSize;
+        private final AtomicInteger additions = new AtomicInteger( );
+
+        FrequencySketch( int expectedSize )
+        {
+            int w = Integer.highestOneBit( expectedSize - 1 ) << 1;
+            this.width = Math.max( w, 16 );
+            this.mask = width - 1;
+            this.table = new byte[width * SEEDS.length];
+            this.sampleSize = 10 * width;
+        }
+
+        private static int spread( int x )
+        {
+            x ^= x >>> 17;
+            x *= 0xed5ad4bb;
+            x ^= x >>> 11;
+            x *= 0xac4c1b51;
+            x ^= x >>> 15;
+            return x;
+        }
+
+        private int index( int hash, int row )
+        {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 17;
+            return row * width + ( h & mask );
+        }
+
+        void increment( String key )
+        {
+            int hash = spread( key.hashCode( ) );
+            for ( int i = 0; i < SEEDS.length; i++ )
+            {
+                int idx = index( hash, i );
+                if ( table[idx] < 15 )
+                {
+                    table[idx]++;
+                }
+            }
+            if ( additions.incrementAndGet( ) >= sampleSize )
+            {
+                reset( );
+            }
+        }
+
+        int frequency( String key )
+        {
+            int hash = spread( key.hashCode( ) );
+            int frequency = Integer.MAX_VALUE;
+            for ( int i = 0; i < SEEDS.length; i++ )
+            {
+                frequency = Math.min( frequency, table[index( hash, i )] );
+            }
+            return frequency;
+        }
+
+        private synchronized void reset( )
+        {
+            if ( additions.get( ) >= sampleSize )
+            {
+                for ( int i = 0; i < table.length; i++ )
+                {
+                    table[i] = (byte) ( table[i] >>> 1 );
+                }
+                additions.set( 0 );
+            }
+        }
+    }
+}
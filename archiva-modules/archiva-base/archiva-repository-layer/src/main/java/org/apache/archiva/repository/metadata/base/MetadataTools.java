@@ -21,7 +21,7 @@
 
 import org.apache.archiva.checksum.ChecksumAlgorithm;
 import org.apache.archiva.checksum.ChecksummedFile;
-import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.common.utils.VersionKey;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.components.registry.Registry;
 import org.apache.archiva.components.registry.RegistryListener;
@@ -67,7 +67,6 @@
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -462,9 +461,9 @@ private Set<String> findPossibleVersions( Set<String> versions, StorageAsset met
 
         Set<String> result = new HashSet<String>( versions );
 
-        metadataParentDirectory.list().stream().filter(asset ->
+        metadataParentDirectory.listWithAttributes().stream().filter(asset ->
                 asset.isContainer()).filter(asset -> {
-                    return asset.list().stream().anyMatch(f -> !f.isContainer() && f.getName().endsWith(".pom"));
+                    return asset.listWithAttributes().stream().anyMatch(f -> !f.isContainer() && f.getName().endsWith(".pom"));
                 }
                 ).forEach( p -> result.add(p.getName()));
 
@@ -628,9 +627,9 @@ private void updateMetadataVersions( Collection<String> allVersions, ArchivaRepo
     {
         // Sort the versions
         List<String> sortedVersions = new ArrayList<>( allVersions );
-        Collections.sort( sortedVersions, VersionComparator.getInstance() );
+        VersionKey.sort( sortedVersions );
 
-        // Split the versions into released and snapshots.
+        // Split the versions into released and snapshots, both stay sorted.
         List<String> releasedVersions = new ArrayList<>();
         List<String> snapshotVersions = new ArrayList<>();
 
@@ -646,9 +645,6 @@ private void updateMetadataVersions( Collection<String> allVersions, ArchivaRepo
             }
         }
 
-        Collections.sort( releasedVersions, VersionComparator.getInstance() );
-        Collections.sort( snapshotVersions, VersionComparator.getInstance() );
-
         String latestVersion = sortedVersions.get( sortedVersions.size() - 1 );
         String releaseVersion = null;
 
@@ -791,7 +787,7 @@ public void updateVersionMetadata( ManagedRepositoryContent managedRepository, I
             // sort the list to determine to aide in determining the Latest version.
             List<String> sortedVersions = new ArrayList<>();
             sortedVersions.addAll( snapshotVersions );
-            Collections.sort( sortedVersions, new VersionComparator() );
+            VersionKey.sort( sortedVersions );
 
             String latestVersion = sortedVersions.get( sortedVersions.size() - 1 );
 
@@ -0,0 +1,254 @@
+package org.apache.archiva.repository.metadata.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.ManagedRepositoryContent;
+import org.apache.archiva.repository.metadata.RepositoryMetadataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Regenerates <code>maven-metadata.xml</code> files after deployments. A deployment stores several files
+ * (artifact, pom, sources, checksums) into the same version directory and each of them requests an update of the
+ * same metadata files. The requests for a metadata file are coalesced until no further request arrived for the
+ * update delay, and the file is written once afterwards.
+ * <p>
+ * Requests that arrive while a file is regenerated, schedule a new update. All updates run on a single thread, so
+ * that a metadata file is never written concurrently by this scheduler.
+ */
+@Service( "metadataUpdateScheduler#default" )
+public class MetadataUpdateScheduler
+{
+    private static final Logger log = LoggerFactory.getLogger( MetadataUpdateScheduler.class );
+
+    /**
+     * Factor of the update delay, after which a metadata file is updated, even if requests still arrive.
+     */
+    private static final int MAX_DELAY_FACTOR = 10;
+
+    @Inject
+    @Named( value = "metadataTools#default" )
+    private MetadataTools metadataTools;
+
+    private long updateDelay = Long.getLong( "archiva.metadata.updateDelay", 500 );
+
+    private final ConcurrentMap<String, PendingUpdate> pendingUpdates = new ConcurrentHashMap<>( );
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor( r -> {
+        Thread thread = new Thread( r, "archiva-metadata-update" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    private final AtomicLong requests = new AtomicLong( );
+
+    private final AtomicLong updates = new AtomicLong( );
+
+    private static class PendingUpdate
+    {
+        final ManagedRepositoryContent repository;
+
+        final String metadataPath;
+
+        final long firstRequest;
+
+        volatile long lastRequest;
+
+        PendingUpdate( ManagedRepositoryContent repository, String metadataPath, long now )
+        {
+            this.repository = repository;
+            this.metadataPath = metadataPath;
+            this.firstRequest = now;
+            this.lastRequest = now;
+        }
+    }
+
+    /**
+     * Requests the update of the given metadata file. The file is updated after the update delay, or immediately,
+     * if the delay is 0.
+     *
+     * @param repository   the repository the metadata file belongs to
+     * @param metadataPath the path of the metadata file relative to the repository root
+     */
+    public void scheduleUpdate( ManagedRepositoryContent repository, String metadataPath )
+    {
+        requests.incrementAndGet( );
+        if ( updateDelay <= 0 )
+        {
+            update( repository, metadataPath );
+            return;
+        }
+        String key = repository.getId( ) + ":" + metadataPath;
+        long now = System.currentTimeMillis( );
+        PendingUpdate pending = pendingUpdates.putIfAbsent( key, new PendingUpdate( repository, metadataPath, now ) );
+        if ( pending != null )
+        {
+            pending.lastRequest = now;
+            return;
+        }
+        try
+        {
+            executor.schedule( ( ) -> runUpdate( key ), updateDelay, TimeUnit.MILLISECONDS );
+        }
+        catch ( RejectedExecutionException e )
+        {
+            pendingUpdates.remove( key );
+            update( repository, metadataPath );
+        }
+    }
+
+    private void runUpdate( String key )
+    {
+        PendingUpdate pending = pendingUpdates.get( key );
+        if ( pending == null )
+        {
+            return;
+        }
+        long now = System.currentTimeMillis( );
+        long due = Math.min( pending.lastRequest + updateDelay, pending.firstRequest + MAX_DELAY_FACTOR * updateDelay );
+        if ( due > now && !executor.isShutdown( ) )
+        {
+            executor.schedule( ( ) -> runUpdate( key ), due - now, TimeUnit.MILLISECONDS );
+            return;
+        }
+        // Removed before the update, so that requests for files stored during the update trigger a new one
+        pendingUpdates.remove( key );
+        update( pending.repository, pending.metadataPath );
+    }
+
+    private void update( ManagedRepositoryContent repository, String metadataPath )
+    {
+        try
+        {
+            metadataTools.updateMetadata( repository, metadataPath );
+            updates.incrementAndGet( );
+            log.debug( "Updated metadata: {}", metadataPath );
+        }
+        catch ( RepositoryMetadataException | RuntimeException e )
+        {
+            log.error( "Unable to update metadata {} of repository {}: {}", metadataPath, repository.getId( ),
+                e.getMessage( ), e );
+        }
+    }
+
+    /**
+     * Runs all pending updates and waits until they are finished.
+     */
+    public void flush( )
+    {
+        List<Future<?>> futures = new ArrayList<>( );
+        for ( String key : pendingUpdates.keySet( ) )
+        {
+            futures.add( executor.submit( ( ) -> {
+                PendingUpdate pending = pendingUpdates.remove( key );
+                if ( pending != null )
+                {
+                    update( pending.repository, pending.metadataPath );
+                }
+            } ) );
+        }
+        for ( Future<?> future : futures )
+        {
+            try
+            {
+                future.get( );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+                return;
+            }
+            catch ( ExecutionException e )
+            {
+                log.error( "Metadata update failed: {}", e.getMessage( ), e );
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        flush( );
+        executor.shutdownNow( );
+    }
+
+    /**
+     * @return the number of metadata files with pending updates
+     */
+    public int getPendingUpdates( )
+    {
+        return pendingUpdates.size( );
+    }
+
+    /**
+     * @return the number of update requests
+     */
+    public long getRequests( )
+    {
+        return requests.get( );
+    }
+
+    /**
+     * @return the number of metadata files written
+     */
+    public long getUpdates( )
+    {
+        return updates.get( );
+    }
+
+    public long getUpdateDelay( )
+    {
+        return updateDelay;
+    }
+
+    /**
+     * @param updateDelay the time in ms without further requests, after which a metadata file is updated
+     */
+    public void setUpdateDelay( long updateDelay )
+    {
+        this.updateDelay = updateDelay;
+    }
+
+    public MetadataTools getMetadataTools( )
+    {
+        return metadataTools;
+    }
+
+    public void setMetadataTools( MetadataTools metadataTools )
+    {
+        this.metadataTools = metadataTools;
+    }
+}
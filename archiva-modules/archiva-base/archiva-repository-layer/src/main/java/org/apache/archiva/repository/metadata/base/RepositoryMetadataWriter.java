@@ -37,10 +37,13 @@
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * RepositoryMetadataWriter
@@ -49,14 +52,36 @@
 {
     private static final Logger log = LoggerFactory.getLogger(RepositoryMetadataWriter.class);
 
+    /**
+     * Writes the metadata to the given file. The metadata is written to a temporary file first, that is renamed
+     * afterwards, so that readers see either the previous or the new content of the file.
+     */
     public static void write( ArchivaRepositoryMetadata metadata, StorageAsset outputFile )
         throws RepositoryMetadataException
     {
+        StorageAsset parent = outputFile.getParent( );
+        StorageAsset tmpFile = parent == null ? outputFile : parent.resolve(
+            "." + outputFile.getName( ) + "." + ThreadLocalRandom.current( ).nextInt( Integer.MAX_VALUE ) + ".tmp" );
         boolean thrown = false;
-        try (OutputStreamWriter writer = new OutputStreamWriter( outputFile.getWriteStream(true)))
+        try
         {
-            write( metadata, writer );
-            writer.flush();
+            try ( OutputStreamWriter writer = new OutputStreamWriter( tmpFile.getWriteStream( true ) ) )
+            {
+                write( metadata, writer );
+                writer.flush( );
+            }
+            if ( tmpFile != outputFile )
+            {
+                try
+                {
+                    outputFile.getStorage( ).moveAsset( tmpFile, outputFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE );
+                }
+                catch ( AtomicMoveNotSupportedException e )
+                {
+                    outputFile.getStorage( ).moveAsset( tmpFile, outputFile, StandardCopyOption.REPLACE_EXISTING );
+                }
+            }
         }
         catch ( IOException e )
         {
@@ -69,9 +94,12 @@ public static void write( ArchivaRepositoryMetadata metadata, StorageAsset outpu
             if ( thrown )
             {
                 try {
-                    outputFile.getStorage().removeAsset(outputFile);
+                    if ( tmpFile.exists( ) )
+                    {
+                        tmpFile.getStorage( ).removeAsset( tmpFile );
+                    }
                 } catch (IOException e) {
-                    log.error("Could not remove asset {}", outputFile);
+                    log.error("Could not remove asset {}", tmpFile);
                 }
             }
         }
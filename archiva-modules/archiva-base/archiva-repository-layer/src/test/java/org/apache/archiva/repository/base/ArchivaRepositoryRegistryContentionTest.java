@@ -0,0 +1,220 @@
+package org.apache.archiva.repository.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.configuration.model.ManagedRepositoryConfiguration;
+import org.apache.archiva.configuration.provider.ArchivaConfiguration;
+import org.apache.archiva.repository.ManagedRepository;
+import org.apache.archiva.repository.RepositoryHandler;
+import org.apache.archiva.repository.RepositoryRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Contention benchmark for the repository lookups. A high number of reader threads resolve repositories while
+ * a writer modifies and saves the configuration. The lookups must never block or fail during the writes.
+ */
+@ExtendWith( SpringExtension.class )
+@ContextConfiguration( locations = {"classpath*:/META-INF/spring-context.xml", "classpath:/spring-context.xml"} )
+public class ArchivaRepositoryRegistryContentionTest
+{
+    private static final Logger log = LoggerFactory.getLogger( ArchivaRepositoryRegistryContentionTest.class );
+
+    private static final int READER_THREADS = 64;
+
+    private static final long DURATION_MS = 2000;
+
+    private static final String WRITER_REPO_ID = "contention-test";
+
+    @Inject
+    RepositoryRegistry repositoryRegistry;
+
+    @Inject
+    ArchivaConfiguration archivaConfiguration;
+
+    private static final Path userCfg = Paths.get( System.getProperty( "user.home" ), ".m2/archiva.xml" );
+
+    private static Path cfgCopy;
+    private static Path archivaCfg;
+
+    @BeforeAll
+    public static void classSetup( ) throws IOException, URISyntaxException
+    {
+        URL archivaCfgUri = Thread.currentThread( ).getContextClassLoader( ).getResource( "archiva.xml" );
+        if ( archivaCfgUri != null )
+        {
+            archivaCfg = Paths.get( archivaCfgUri.toURI( ) );
+            cfgCopy = Files.createTempFile( "archiva-backup", ".xml" );
+            Files.copy( archivaCfg, cfgCopy, StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    @AfterAll
+    public static void classTearDown( ) throws IOException
+    {
+        if ( cfgCopy != null )
+        {
+            Files.deleteIfExists( cfgCopy );
+        }
+    }
+
+    @BeforeEach
+    public void setUp( ) throws Exception
+    {
+        Files.deleteIfExists( userCfg );
+        archivaConfiguration.reload( );
+        repositoryRegistry.reload( );
+    }
+
+    @AfterEach
+    public void tearDown( ) throws Exception
+    {
+        Files.deleteIfExists( userCfg );
+        if ( cfgCopy != null && Files.exists( cfgCopy ) )
+        {
+            Files.copy( cfgCopy, archivaCfg, StandardCopyOption.REPLACE_EXISTING );
+        }
+        archivaConfiguration.reload( );
+        repositoryRegistry.reload( );
+    }
+
+    @Test
+    public void readersWithConcurrentWriter( ) throws Exception
+    {
+        assertNotNull( repositoryRegistry.getManagedRepository( "internal" ) );
+        assertNotNull( repositoryRegistry.getRemoteRepository( "central" ) );
+
+        final AtomicBoolean running = new AtomicBoolean( true );
+        final AtomicLong lookups = new AtomicLong( );
+        final AtomicLong misses = new AtomicLong( );
+        final AtomicLong writes = new AtomicLong( );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        ExecutorService executor = Executors.newFixedThreadPool( READER_THREADS + 1 );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>( );
+            for ( int i = 0; i < READER_THREADS; i++ )
+            {
+                futures.add( executor.submit( ( ) -> {
+                    start.await( );
+                    long count = 0;
+                    while ( running.get( ) )
+                    {
+                        if ( repositoryRegistry.getManagedRepository( "internal" ) == null )
+                        {
+                            misses.incrementAndGet( );
+                        }
+                        if ( repositoryRegistry.getRemoteRepository( "central" ) == null )
+                        {
+                            misses.incrementAndGet( );
+                        }
+                        repositoryRegistry.getManagedRepository( WRITER_REPO_ID );
+                        count += 3;
+                    }
+                    lookups.addAndGet( count );
+                    return null;
+                } ) );
+            }
+            futures.add( executor.submit( ( ) -> {
+                start.await( );
+                int i = 0;
+                while ( running.get( ) )
+                {
+                    ManagedRepositoryConfiguration cfg = new ManagedRepositoryConfiguration( );
+                    cfg.setId( WRITER_REPO_ID );
+                    cfg.setName( "Contention test " + i++ );
+                    repositoryRegistry.putRepository( cfg );
+                    repositoryRegistry.removeRepository( WRITER_REPO_ID );
+                    writes.incrementAndGet( );
+                }
+                return null;
+            } ) );
+
+            long startTime = System.nanoTime( );
+            start.countDown( );
+            Thread.sleep( DURATION_MS );
+            running.set( false );
+            for ( Future<?> future : futures )
+            {
+                future.get( 30, TimeUnit.SECONDS );
+            }
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis( System.nanoTime( ) - startTime );
+            log.info( "Repository registry contention: {} readers, {} lookups, {} config writes in {} ms ({} lookups/s)",
+                READER_THREADS, lookups.get( ), writes.get( ), elapsedMs, lookups.get( ) * 1000 / Math.max( 1, elapsedMs ) );
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+
+        assertEquals( 0, misses.get( ), "Stable repositories must be visible during concurrent writes" );
+        assertTrue( writes.get( ) > 0 );
+        assertTrue( lookups.get( ) > 0 );
+        assertNull( repositoryRegistry.getManagedRepository( WRITER_REPO_ID ) );
+    }
+
+    @Test
+    public void directHandlerChangesArePublished( ) throws Exception
+    {
+        RepositoryHandler<ManagedRepository, ManagedRepositoryConfiguration> handler =
+            repositoryRegistry.getHandler( ManagedRepository.class, ManagedRepositoryConfiguration.class );
+        assertNull( repositoryRegistry.getManagedRepository( WRITER_REPO_ID ) );
+
+        ManagedRepositoryConfiguration cfg = new ManagedRepositoryConfiguration( );
+        cfg.setId( WRITER_REPO_ID );
+        cfg.setName( "Direct handler change" );
+        handler.put( cfg );
+        assertNotNull( repositoryRegistry.getManagedRepository( WRITER_REPO_ID ) );
+        assertTrue( repositoryRegistry.hasRepository( WRITER_REPO_ID ) );
+
+        handler.remove( WRITER_REPO_ID );
+        assertNull( repositoryRegistry.getManagedRepository( WRITER_REPO_ID ) );
+        assertFalse( repositoryRegistry.hasRepository( WRITER_REPO_ID ) );
+    }
+
+}
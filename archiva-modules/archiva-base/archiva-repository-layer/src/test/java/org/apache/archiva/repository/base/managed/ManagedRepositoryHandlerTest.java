@@ -24,6 +24,9 @@
 import org.apache.archiva.configuration.provider.ArchivaConfiguration;
 import org.apache.archiva.configuration.model.Configuration;
 import org.apache.archiva.configuration.model.ManagedRepositoryConfiguration;
+import org.apache.archiva.indexer.ArchivaIndexManager;
+import org.apache.archiva.indexer.ArchivaIndexingContext;
+import org.apache.archiva.indexer.IndexCreationFailedException;
 import org.apache.archiva.indexer.IndexManagerFactory;
 import org.apache.archiva.repository.EditableManagedRepository;
 import org.apache.archiva.repository.ManagedRepository;
@@ -56,6 +59,9 @@
 
 import static org.apache.archiva.repository.validation.ErrorKeys.ISEMPTY;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 /**
  * @author Martin Stockhammer <martin_s@apache.org>
@@ -142,6 +148,35 @@ private ManagedRepositoryHandler createHandler( )
         return repositoryHandler;
     }
 
+    private ManagedRepositoryHandler createHandler( ArchivaIndexManager indexManager )
+    {
+        ManagedRepositoryHandler repositoryHandler = new ManagedRepositoryHandler( repositoryRegistry, configurationHandler, indexManagerFactory, repositoryContentFactory )
+        {
+            @Override
+            public ArchivaIndexManager getIndexManager( RepositoryType type )
+            {
+                return indexManager;
+            }
+        };
+        repositoryHandler.init( );
+        return repositoryHandler;
+    }
+
+    // Helper method that returns an index manager, that fails to open the index of the given repository
+    private ArchivaIndexManager createIndexManager( String failingId ) throws IndexCreationFailedException
+    {
+        ArchivaIndexManager indexManager = mock( ArchivaIndexManager.class );
+        when( indexManager.createContext( any( Repository.class ) ) ).thenAnswer( invocation -> {
+            Repository repository = invocation.getArgument( 0 );
+            if ( repository.getId( ).equals( failingId ) )
+            {
+                throw new IndexCreationFailedException( "Could not open index of " + failingId );
+            }
+            return mock( ArchivaIndexingContext.class );
+        } );
+        return indexManager;
+    }
+
     private Path getRepoBaseDir() throws IOException
     {
         if (repoBaseDir==null) {
@@ -171,13 +206,72 @@ protected EditableManagedRepository createRepository( String id, String name) th
 
 
     @Test
-    void initializeFromConfig( )
+    void initializeFromConfig( ) throws IndexCreationFailedException
     {
-        ManagedRepositoryHandler repoHandler = createHandler( );
+        ManagedRepositoryHandler repoHandler = createHandler( createIndexManager( null ) );
         repoHandler.initializeFromConfig( );
         assertEquals( 5, repoHandler.getAll( ).size( ) );
         assertNotNull( repoHandler.get( "test-repo-01" ) );
         assertEquals( "n-test-repo-01", repoHandler.get( "test-repo-01" ).getName() );
+        // the indexing contexts are opened in parallel after the instances are created
+        for ( ManagedRepository repo : repoHandler.getAll( ) )
+        {
+            if ( repo.hasIndex( ) )
+            {
+                assertNotNull( repo.getIndexingContext( ), "Indexing context of " + repo.getId( ) );
+            }
+        }
+    }
+
+    @Test
+    void initializeFromConfigWithFailingIndex( ) throws IndexCreationFailedException
+    {
+        ManagedRepositoryHandler repoHandler = createHandler( createIndexManager( "test-repo-01" ) );
+        repoHandler.initializeFromConfig( );
+        assertEquals( 5, repoHandler.getAll( ).size( ) );
+        assertNotNull( repoHandler.get( "test-repo-01" ) );
+        assertNull( repoHandler.get( "test-repo-01" ).getIndexingContext( ) );
+        for ( ManagedRepository repo : repoHandler.getAll( ) )
+        {
+            if ( repo.hasIndex( ) && !"test-repo-01".equals( repo.getId( ) ) )
+            {
+                assertNotNull( repo.getIndexingContext( ), "Indexing context of " + repo.getId( ) );
+            }
+        }
+    }
+
+    @Test
+    void initializeFromConfigWithException( ) throws IOException, RepositoryException
+    {
+        final String id = "test-repo-10";
+        ArchivaIndexManager indexManager = createIndexManager( null );
+        ManagedRepositoryHandler repoHandler = new ManagedRepositoryHandler( repositoryRegistry, configurationHandler, indexManagerFactory, repositoryContentFactory )
+        {
+            @Override
+            public ArchivaIndexManager getIndexManager( RepositoryType type )
+            {
+                return indexManager;
+            }
+
+            @Override
+            public Map<String, ManagedRepository> newOrUpdateInstancesFromConfig( Map<String, ManagedRepository> currentInstances )
+            {
+                throw new IllegalStateException( "Could not read the configuration" );
+            }
+        };
+        repoHandler.init( );
+        assertThrows( IllegalStateException.class, repoHandler::initializeFromConfig );
+        try
+        {
+            // a repository added later on the same thread must not be deferred to the failed initialization
+            EditableManagedRepository repository = createRepository( id, "n-" + id );
+            repoHandler.put( repository );
+            assertNotNull( repoHandler.get( id ).getIndexingContext( ) );
+        }
+        finally
+        {
+            removeRepositoryFromConfig( id );
+        }
     }
 
     @Test
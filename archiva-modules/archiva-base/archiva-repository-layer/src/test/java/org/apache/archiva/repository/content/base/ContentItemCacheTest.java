@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.archiva.repository.content.base;
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the ContentItemCache class
+ */
+class ContentItemCacheTest
+{
+    private Path baseDir;
+
+    private FilesystemStorage storage;
+
+    @BeforeEach
+    void setUp( ) throws IOException
+    {
+        baseDir = Files.createTempDirectory( "item-cache" );
+        storage = new FilesystemStorage( baseDir, new DefaultFileLockManager( ) );
+    }
+
+    @AfterEach
+    void tearDown( )
+    {
+        FileUtils.deleteQuietly( baseDir.toFile( ) );
+    }
+
+    private StorageAsset asset( String path )
+    {
+        return storage.getAsset( path );
+    }
+
+    @Test
+    void computeIfAbsent( )
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 100 );
+        AtomicInteger loads = new AtomicInteger( );
+        assertEquals( "/org/apache", cache.computeIfAbsent( asset( "/org/apache" ), a -> { loads.incrementAndGet( ); return a.getPath( ); } ) );
+        assertEquals( "/org/apache", cache.computeIfAbsent( asset( "/org/apache" ), a -> { loads.incrementAndGet( ); return "other"; } ) );
+        assertEquals( 1, loads.get( ) );
+        assertEquals( "/org/apache", cache.get( asset( "/org/apache" ) ) );
+        assertNull( cache.get( asset( "/org/codehaus" ) ) );
+        assertEquals( 2, cache.getHitCount( ) );
+        assertEquals( 2, cache.getMissCount( ) );
+        assertEquals( 0.5, cache.getHitRate( ), 0.001 );
+    }
+
+    @Test
+    void loaderExceptionIsPassed( )
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 100 );
+        assertThrows( IllegalStateException.class, ( ) -> cache.computeIfAbsent( asset( "/org" ), a -> {
+            throw new IllegalStateException( "bad path" );
+        } ) );
+        assertEquals( 0, cache.size( ) );
+    }
+
+    @Test
+    void recursiveLoad( )
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 100 );
+        String result = cache.computeIfAbsent( asset( "/org/apache/archiva" ),
+            a -> cache.computeIfAbsent( a.getParent( ), p -> p.getPath( ) ) + "/archiva" );
+        assertEquals( "/org/apache/archiva", result );
+        assertEquals( 2, cache.size( ) );
+    }
+
+    @Test
+    void invalidate( )
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 100 );
+        for ( String path : new String[]{ "/org/apache", "/org/apache/archiva", "/org/apache/archiva/1.0/archiva-1.0.jar",
+            "/org/apache-commons", "/org/codehaus" } )
+        {
+            cache.computeIfAbsent( asset( path ), StorageAsset::getPath );
+        }
+        cache.invalidate( "/org/apache/" );
+        assertEquals( 2, cache.size( ) );
+        assertNull( cache.get( "/org/apache/archiva/1.0/archiva-1.0.jar" ) );
+        assertNotNull( cache.get( "/org/apache-commons" ) );
+
+        cache.invalidate( "/" );
+        assertEquals( 0, cache.size( ) );
+        // invalidated entries do not count for the size
+        for ( int i = 0; i < 100; i++ )
+        {
+            cache.computeIfAbsent( asset( "/org/item" + i ), StorageAsset::getPath );
+        }
+        assertEquals( 100, cache.size( ) );
+        assertEquals( 0, cache.getEvictionCount( ) );
+    }
+
+    @Test
+    void invalidateDuringLoad( )
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 100 );
+        // the item changes while it is loaded
+        assertEquals( "old", cache.computeIfAbsent( asset( "/org/apache" ), a -> {
+            cache.invalidate( a.getPath( ) );
+            return "old";
+        } ) );
+        assertNull( cache.get( "/org/apache" ) );
+        assertEquals( "new", cache.computeIfAbsent( asset( "/org/apache" ), a -> "new" ) );
+        assertEquals( "new", cache.get( "/org/apache" ) );
+    }
+
+    @Test
+    void bounded( )
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 100 );
+        for ( int i = 0; i < 1000; i++ )
+        {
+            cache.computeIfAbsent( asset( "/org/item" + i ), StorageAsset::getPath );
+            assertTrue( cache.size( ) <= 100 );
+        }
+        assertEquals( 900, cache.getEvictionCount( ) );
+    }
+
+    @Test
+    void frequentItemsSurviveScan( )
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 100 );
+        for ( int round = 0; round < 5; round++ )
+        {
+            for ( int i = 0; i < 50; i++ )
+            {
+                cache.computeIfAbsent( asset( "/hot/item" + i ), StorageAsset::getPath );
+            }
+        }
+        // a one time scan over more items than the cache holds
+        for ( int i = 0; i < 300; i++ )
+        {
+            cache.computeIfAbsent( asset( "/scan/item" + i ), StorageAsset::getPath );
+        }
+        int hot = 0;
+        for ( int i = 0; i < 50; i++ )
+        {
+            if ( cache.get( "/hot/item" + i ) != null )
+            {
+                hot++;
+            }
+        }
+        assertTrue( hot >= 45, "Frequently used items were evicted: " + hot );
+    }
+
+    @Test
+    void concurrentAccess( ) throws Exception
+    {
+        ContentItemCache<String> cache = new ContentItemCache<>( 500 );
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>( );
+            for ( int t = 0; t < 8; t++ )
+            {
+                futures.add( executor.submit( ( ) -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current( );
+                    for ( int i = 0; i < 20000; i++ )
+                    {
+                        // skewed access: a few items are requested most of the time
+                        int item = random.nextInt( 10 ) < 8 ? random.nextInt( 200 ) : random.nextInt( 5000 );
+                        String path = "/org/item" + item;
+                        assertEquals( path, cache.computeIfAbsent( asset( path ), StorageAsset::getPath ) );
+                        if ( i % 1000 == 0 )
+                        {
+                            cache.invalidate( "/org/item" + random.nextInt( 5000 ) );
+                        }
+                    }
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get( );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+        assertTrue( cache.size( ) <= 500 );
+        assertTrue( cache.getHitRate( ) > 0.5, "Hit rate " + cache.getHitRate( ) );
+    }
+}
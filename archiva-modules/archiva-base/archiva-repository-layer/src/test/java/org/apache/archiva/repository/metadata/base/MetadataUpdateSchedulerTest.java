@@ -0,0 +1,111 @@
+package org.apache.archiva.repository.metadata.base;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.ManagedRepositoryContent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MetadataUpdateSchedulerTest
+{
+    private static final String VERSION_METADATA = "org/apache/archiva/test/1.0-SNAPSHOT/maven-metadata.xml";
+
+    private static final String PROJECT_METADATA = "org/apache/archiva/test/maven-metadata.xml";
+
+    private MetadataUpdateScheduler scheduler;
+
+    private MetadataTools metadataTools;
+
+    private ManagedRepositoryContent repository;
+
+    @BeforeEach
+    void setUp( )
+    {
+        metadataTools = mock( MetadataTools.class );
+        repository = mock( ManagedRepositoryContent.class );
+        when( repository.getId( ) ).thenReturn( "internal" );
+        scheduler = new MetadataUpdateScheduler( );
+        scheduler.setMetadataTools( metadataTools );
+        scheduler.setUpdateDelay( 200 );
+    }
+
+    @AfterEach
+    void tearDown( )
+    {
+        scheduler.shutdown( );
+    }
+
+    @Test
+    void updatesAreCoalesced( ) throws Exception
+    {
+        // jar, pom, sources and javadoc of one deployment
+        for ( int i = 0; i < 4; i++ )
+        {
+            scheduler.scheduleUpdate( repository, VERSION_METADATA );
+            scheduler.scheduleUpdate( repository, PROJECT_METADATA );
+        }
+        verify( metadataTools, never( ) ).updateMetadata( any( ), anyString( ) );
+        assertEquals( 2, scheduler.getPendingUpdates( ) );
+
+        verify( metadataTools, timeout( 5000 ) ).updateMetadata( repository, VERSION_METADATA );
+        verify( metadataTools, timeout( 5000 ) ).updateMetadata( repository, PROJECT_METADATA );
+        Thread.sleep( 300 );
+        verifyNoMoreInteractions( metadataTools );
+        assertEquals( 8, scheduler.getRequests( ) );
+        assertEquals( 2, scheduler.getUpdates( ) );
+    }
+
+    @Test
+    void requestAfterUpdateSchedulesNewUpdate( ) throws Exception
+    {
+        scheduler.scheduleUpdate( repository, VERSION_METADATA );
+        scheduler.flush( );
+        verify( metadataTools ).updateMetadata( repository, VERSION_METADATA );
+        assertEquals( 0, scheduler.getPendingUpdates( ) );
+
+        scheduler.scheduleUpdate( repository, VERSION_METADATA );
+        verify( metadataTools, timeout( 5000 ).times( 2 ) ).updateMetadata( repository, VERSION_METADATA );
+    }
+
+    @Test
+    void repositoriesAreSeparated( ) throws Exception
+    {
+        ManagedRepositoryContent other = mock( ManagedRepositoryContent.class );
+        when( other.getId( ) ).thenReturn( "snapshots" );
+        scheduler.scheduleUpdate( repository, VERSION_METADATA );
+        scheduler.scheduleUpdate( other, VERSION_METADATA );
+        scheduler.flush( );
+
+        verify( metadataTools ).updateMetadata( repository, VERSION_METADATA );
+        verify( metadataTools ).updateMetadata( other, VERSION_METADATA );
+    }
+
+    @Test
+    void noDelayUpdatesImmediately( ) throws Exception
+    {
+        scheduler.setUpdateDelay( 0 );
+        scheduler.scheduleUpdate( repository, VERSION_METADATA );
+        verify( metadataTools ).updateMetadata( repository, VERSION_METADATA );
+    }
+}
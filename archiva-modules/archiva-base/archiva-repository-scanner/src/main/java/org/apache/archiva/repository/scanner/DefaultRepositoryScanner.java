@@ -19,6 +19,7 @@
  * under the License.
  */
 
+import org.apache.archiva.configuration.provider.ArchivaConfiguration;
 import org.apache.archiva.configuration.provider.FileTypes;
 import org.apache.archiva.consumers.ConsumerException;
 import org.apache.archiva.consumers.InvalidRepositoryContentConsumer;
@@ -33,9 +34,12 @@
 
 import javax.inject.Inject;
 import java.io.IOException;
-import java.nio.file.FileVisitOption;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 
 /**
  * DefaultRepositoryScanner
@@ -55,7 +59,28 @@
     @Inject
     private RepositoryContentConsumers repositoryContentConsumers;
 
-    private Set<RepositoryScannerInstance> inProgressScans = new LinkedHashSet<>();
+    /**
+     * Checkpoints older than this are not resumed, the scan starts from the beginning.
+     */
+    private static final long CHECKPOINT_MAX_AGE = TimeUnit.DAYS.toMillis( 7 );
+
+    @Inject
+    private ArchivaConfiguration archivaConfiguration;
+
+    private Set<RepositoryScannerInstance> inProgressScans = new CopyOnWriteArraySet<>();
+
+    private final Set<String> pausedRepositories = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The repositories, whose checkpoint has been read for a paused state, that was persisted before a restart.
+     */
+    private final Set<String> loadedPausedStates = ConcurrentHashMap.newKeySet();
+
+    private Path checkpointDirectory;
+
+    private int checkpointFileInterval = 10000;
+
+    private long checkpointInterval = TimeUnit.MINUTES.toMillis( 1 );
 
     @Override
     public RepositoryScanStatistics scan( ManagedRepository repository, long changesSince )
@@ -80,12 +105,232 @@ public RepositoryScanStatistics scan( ManagedRepository repository, long changes
         }
     }
 
+    @Override
+    public RepositoryScanStatistics scan( ManagedRepository repository, Collection<String> changedPaths )
+        throws RepositoryScannerException
+    {
+        List<KnownRepositoryContentConsumer> knownContentConsumers = null;
+        try
+        {
+            knownContentConsumers = repositoryContentConsumers.getSelectedKnownConsumers();
+            List<InvalidRepositoryContentConsumer> invalidContentConsumers = repositoryContentConsumers.getSelectedInvalidConsumers();
+            List<String> ignoredPatterns = filetypes.getFileTypePatterns( FileTypes.IGNORED );
+
+            return scan( repository, knownContentConsumers, invalidContentConsumers, ignoredPatterns, changedPaths );
+        }
+        catch ( ConsumerException e )
+        {
+            throw new RepositoryScannerException( e.getMessage( ), e );
+        }
+        finally
+        {
+            repositoryContentConsumers.releaseSelectedKnownConsumers( knownContentConsumers );
+        }
+    }
+
     @Override
     public RepositoryScanStatistics scan( ManagedRepository repository,
                                           List<KnownRepositoryContentConsumer> knownContentConsumers,
                                           List<InvalidRepositoryContentConsumer> invalidContentConsumers,
                                           List<String> ignoredContentPatterns, long changesSince )
         throws RepositoryScannerException
+    {
+        StorageAsset repositoryBase = getRepositoryBase( repository );
+        if ( isPaused( repository.getId() ) )
+        {
+            throw new RepositoryScannerException( "Scan of repository " + repository.getId() + " is paused." );
+        }
+
+        Path checkpointFile = getCheckpointFile( repository.getId() );
+        List<String> consumerIds = new ArrayList<>( gatherIds( knownContentConsumers ) );
+        consumerIds.addAll( gatherIds( invalidContentConsumers ) );
+        ScanCheckpoint checkpoint = loadCheckpoint( checkpointFile, repository.getId(), consumerIds, changesSince );
+        if ( checkpoint != null )
+        {
+            // The resumed part must use the same threshold as the part before the interruption
+            changesSince = checkpoint.getChangesSince();
+        }
+
+        RepositoryScannerInstance scannerInstance =
+            createScannerInstance( repository, knownContentConsumers, invalidContentConsumers, ignoredContentPatterns,
+                                   changesSince );
+        scannerInstance.setCheckpointFile( checkpointFile );
+        scannerInstance.setCheckpointFileInterval( checkpointFileInterval );
+        scannerInstance.setCheckpointInterval( checkpointInterval );
+        if ( checkpoint != null )
+        {
+            log.info( "Resuming scan of repository {} after {}", repository.getId(), checkpoint.getLastPath() );
+            scannerInstance.resume( checkpoint );
+        }
+
+        RepositoryScanStatistics stats = null;
+        try
+        {
+            scannerInstance.walk( repositoryBase.getFilePath() );
+
+            stats = scannerInstance.getStatistics();
+
+            stats.setKnownConsumers( gatherIds( knownContentConsumers ) );
+            stats.setInvalidConsumers( gatherIds( invalidContentConsumers ) );
+
+            if ( !stats.isPaused() && checkpointFile != null )
+            {
+                Files.deleteIfExists( checkpointFile );
+            }
+        } catch (IOException e) {
+            log.error("Could not scan directory {}: {}", repositoryBase, e.getMessage(), e);
+            throw new RepositoryScannerException( "Could not scan directory " + repositoryBase + ": " + e.getMessage(), e );
+        } finally
+        {
+            inProgressScans.remove( scannerInstance );
+        }
+
+        return stats;
+    }
+
+    @Override
+    public RepositoryScanStatistics scan( ManagedRepository repository,
+                                          List<KnownRepositoryContentConsumer> knownContentConsumers,
+                                          List<InvalidRepositoryContentConsumer> invalidContentConsumers,
+                                          List<String> ignoredContentPatterns, Collection<String> changedPaths )
+        throws RepositoryScannerException
+    {
+        StorageAsset repositoryBase = getRepositoryBase( repository );
+        // The paths are known to be changed, so the consumers must not filter them by timestamp
+        RepositoryScannerInstance scannerInstance =
+            createScannerInstance( repository, knownContentConsumers, invalidContentConsumers, ignoredContentPatterns,
+                                   FRESH_SCAN );
+
+        RepositoryScanStatistics stats = null;
+        try
+        {
+            scannerInstance.scanPaths( repositoryBase.getFilePath( ), changedPaths );
+
+            stats = scannerInstance.getStatistics();
+
+            stats.setKnownConsumers( gatherIds( knownContentConsumers ) );
+            stats.setInvalidConsumers( gatherIds( invalidContentConsumers ) );
+        } catch (IOException e) {
+            log.error("Could not scan changed paths of {}: {}", repositoryBase, e.getMessage(), e);
+            throw new RepositoryScannerException( "Could not scan changed paths of " + repositoryBase + ": " + e.getMessage(), e );
+        } finally
+        {
+            inProgressScans.remove( scannerInstance );
+        }
+
+        return stats;
+    }
+
+    @Override
+    public boolean pauseScan( String repositoryId )
+    {
+        boolean running = false;
+        pausedRepositories.add( repositoryId );
+        for ( RepositoryScannerInstance scan : inProgressScans )
+        {
+            if ( repositoryId.equals( scan.getRepository().getId() ) )
+            {
+                scan.pause();
+                running = true;
+            }
+        }
+        log.info( "Paused scans of repository {}", repositoryId );
+        return running;
+    }
+
+    @Override
+    public boolean resumeScan( String repositoryId )
+    {
+        boolean paused = pausedRepositories.remove( repositoryId );
+        Path checkpointFile = getCheckpointFile( repositoryId );
+        if ( checkpointFile != null && Files.exists( checkpointFile ) )
+        {
+            try
+            {
+                ScanCheckpoint checkpoint = ScanCheckpoint.load( checkpointFile );
+                if ( checkpoint.isPaused() )
+                {
+                    checkpoint.setPaused( false );
+                    checkpoint.store( checkpointFile );
+                    paused = true;
+                }
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Could not update scan checkpoint {}: {}", checkpointFile, e.getMessage() );
+            }
+        }
+        log.info( "Resumed scans of repository {}", repositoryId );
+        return paused;
+    }
+
+    @Override
+    public boolean isPaused( String repositoryId )
+    {
+        // The checkpoint is read only once, after that the paused state is kept in memory
+        if ( loadedPausedStates.add( repositoryId ) )
+        {
+            Path checkpointFile = getCheckpointFile( repositoryId );
+            if ( checkpointFile != null && Files.exists( checkpointFile ) )
+            {
+                try
+                {
+                    if ( ScanCheckpoint.load( checkpointFile ).isPaused() )
+                    {
+                        pausedRepositories.add( repositoryId );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    log.warn( "Could not read scan checkpoint {}: {}", checkpointFile, e.getMessage() );
+                }
+            }
+        }
+        return pausedRepositories.contains( repositoryId );
+    }
+
+    @Override
+    public boolean hasCheckpoint( String repositoryId )
+    {
+        Path checkpointFile = getCheckpointFile( repositoryId );
+        return checkpointFile != null && Files.exists( checkpointFile );
+    }
+
+    private Path getCheckpointFile( String repositoryId )
+    {
+        if ( checkpointDirectory == null && archivaConfiguration != null )
+        {
+            checkpointDirectory = archivaConfiguration.getDataDirectory().resolve( "scanner-checkpoints" );
+        }
+        return checkpointDirectory == null ? null : checkpointDirectory.resolve( repositoryId + ".properties" );
+    }
+
+    private ScanCheckpoint loadCheckpoint( Path checkpointFile, String repositoryId, List<String> consumerIds,
+                                           long changesSince )
+    {
+        if ( checkpointFile == null || !Files.exists( checkpointFile ) )
+        {
+            return null;
+        }
+        try
+        {
+            ScanCheckpoint checkpoint = ScanCheckpoint.load( checkpointFile );
+            if ( repositoryId.equals( checkpoint.getRepositoryId() ) && consumerIds.equals( checkpoint.getConsumers() )
+                && checkpoint.getChangesSince() <= changesSince
+                && System.currentTimeMillis() - checkpoint.getUpdated() < CHECKPOINT_MAX_AGE )
+            {
+                return checkpoint;
+            }
+            log.info( "Ignoring outdated scan checkpoint of repository {}", repositoryId );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not read scan checkpoint {}: {}", checkpointFile, e.getMessage() );
+        }
+        return null;
+    }
+
+    private StorageAsset getRepositoryBase( ManagedRepository repository )
     {
         if ( repository == null )
         {
@@ -111,6 +356,14 @@ public RepositoryScanStatistics scan( ManagedRepository repository,
                 "Unable to scan a repository, path " + repositoryBase+ " is not a directory." );
         }
 
+        return repositoryBase;
+    }
+
+    private RepositoryScannerInstance createScannerInstance( ManagedRepository repository,
+                                                             List<KnownRepositoryContentConsumer> knownContentConsumers,
+                                                             List<InvalidRepositoryContentConsumer> invalidContentConsumers,
+                                                             List<String> ignoredContentPatterns, long changesSince )
+    {
         // Setup Includes / Excludes.
 
         List<String> allExcludes = new ArrayList<>();
@@ -131,24 +384,7 @@ public RepositoryScanStatistics scan( ManagedRepository repository,
         scannerInstance.setFileNameIncludePattern(allIncludes);
         scannerInstance.setFileNameExcludePattern(allExcludes);
         inProgressScans.add( scannerInstance );
-
-        RepositoryScanStatistics stats = null;
-        try
-        {
-            Files.walkFileTree(repositoryBase.getFilePath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, scannerInstance);
-
-            stats = scannerInstance.getStatistics();
-
-            stats.setKnownConsumers( gatherIds( knownContentConsumers ) );
-            stats.setInvalidConsumers( gatherIds( invalidContentConsumers ) );
-        } catch (IOException e) {
-            log.error("Could not scan directory {}: {}", repositoryBase, e.getMessage(), e);
-        } finally
-        {
-            inProgressScans.remove( scannerInstance );
-        }
-
-        return stats;
+        return scannerInstance;
     }
 
     private List<String> gatherIds( List<? extends RepositoryContentConsumer> consumers )
@@ -166,4 +402,42 @@ public Set<RepositoryScannerInstance> getInProgressScans()
     {
         return inProgressScans;
     }
+
+    public Path getCheckpointDirectory()
+    {
+        return checkpointDirectory;
+    }
+
+    public void setCheckpointDirectory( Path checkpointDirectory )
+    {
+        this.checkpointDirectory = checkpointDirectory;
+        // the paused states are read again from the new directory
+        this.loadedPausedStates.clear();
+    }
+
+    public int getCheckpointFileInterval()
+    {
+        return checkpointFileInterval;
+    }
+
+    /**
+     * Sets the number of processed files, after that the walk writes a checkpoint.
+     */
+    public void setCheckpointFileInterval( int checkpointFileInterval )
+    {
+        this.checkpointFileInterval = checkpointFileInterval;
+    }
+
+    public long getCheckpointInterval()
+    {
+        return checkpointInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds, after that the walk writes a checkpoint.
+     */
+    public void setCheckpointInterval( long checkpointInterval )
+    {
+        this.checkpointInterval = checkpointInterval;
+    }
 }
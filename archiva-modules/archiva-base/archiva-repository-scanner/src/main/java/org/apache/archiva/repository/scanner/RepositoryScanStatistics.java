@@ -42,6 +42,10 @@
 
     private transient long startTimestamp;
 
+    private transient long previousDuration;
+
+    private transient boolean paused;
+
     private SimpleDateFormat df = new SimpleDateFormat();
 
     /**
@@ -91,10 +95,44 @@ public java.util.Date getWhenGathered()
     public void triggerFinished()
     {
         long finished = System.currentTimeMillis();
-        this.duration = finished - startTimestamp;
+        this.duration = previousDuration + finished - startTimestamp;
         this.whenGathered = new java.util.Date( finished );
     }
 
+    /**
+     * Continues the statistics of an interrupted scan. The counts and the duration of the
+     * checkpoint are added to the values of this scan.
+     *
+     * @param checkpoint the checkpoint of the interrupted scan
+     */
+    public void resume( ScanCheckpoint checkpoint )
+    {
+        this.totalFileCount = checkpoint.getTotalFileCount();
+        this.newFileCount = checkpoint.getNewFileCount();
+        this.previousDuration = checkpoint.getDuration();
+    }
+
+    /**
+     * Returns the time the scan is running, including the time of the interrupted runs.
+     */
+    public long getElapsedTime()
+    {
+        return previousDuration + System.currentTimeMillis() - startTimestamp;
+    }
+
+    /**
+     * Returns <code>true</code>, if the scan has been paused before all files were processed.
+     */
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    public void setPaused( boolean paused )
+    {
+        this.paused = paused;
+    }
+
     public void increaseFileCount()
     {
         this.totalFileCount += 1;
@@ -23,6 +23,7 @@
 import org.apache.archiva.consumers.KnownRepositoryContentConsumer;
 import org.apache.archiva.repository.ManagedRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -96,5 +97,70 @@ RepositoryScanStatistics scan( ManagedRepository repository,
                                    List<String> ignoredContentPatterns, long changesSince )
         throws RepositoryScannerException;
 
+    /**
+     * Scan only the given changed paths of the repository, without walking the whole repository.
+     * Paths of directories are scanned recursively, paths that do not exist anymore are skipped.
+     * <p>
+     * Internally, this will use the as-configured known and invalid consumer lists.
+     *
+     * @param repository   the repository to change.
+     * @param changedPaths the changed paths, relative to the repository root.
+     * @return the statistics for this scan.
+     * @throws RepositoryScannerException if there was a fundamental problem with getting the discoverer started.
+     */
+    RepositoryScanStatistics scan( ManagedRepository repository, Collection<String> changedPaths )
+        throws RepositoryScannerException;
+
+    /**
+     * Scan only the given changed paths of the repository, without walking the whole repository.
+     *
+     * @param repository              the repository to change.
+     * @param knownContentConsumers   the list of consumers that follow the {@link KnownRepositoryContentConsumer}
+     *                                interface that should be used for this scan.
+     * @param invalidContentConsumers the list of consumers that follow the {@link InvalidRepositoryContentConsumer}
+     *                                interface that should be used for this scan.
+     * @param ignoredContentPatterns  list of patterns that should be ignored and not sent to any consumer.
+     * @param changedPaths            the changed paths, relative to the repository root.
+     * @return the statistics for this scan.
+     * @throws RepositoryScannerException if there was a fundamental problem with getting the discoverer started.
+     */
+    RepositoryScanStatistics scan( ManagedRepository repository,
+                                   List<KnownRepositoryContentConsumer> knownContentConsumers,
+                                   List<InvalidRepositoryContentConsumer> invalidContentConsumers,
+                                   List<String> ignoredContentPatterns, Collection<String> changedPaths )
+        throws RepositoryScannerException;
+
     Set<RepositoryScannerInstance> getInProgressScans();
+
+    /**
+     * Pauses the scans of the repository. A running scan writes a checkpoint and stops. No further
+     * scans of the repository are started, until {@link #resumeScan(String)} is called.
+     *
+     * @param repositoryId the repository id
+     * @return <code>true</code>, if a running scan has been interrupted
+     */
+    boolean pauseScan( String repositoryId );
+
+    /**
+     * Allows the scans of a paused repository again. The next scan continues at the checkpoint of the
+     * paused scan.
+     *
+     * @param repositoryId the repository id
+     * @return <code>true</code>, if the scans of the repository were paused
+     */
+    boolean resumeScan( String repositoryId );
+
+    /**
+     * Returns <code>true</code>, if the scans of the repository are paused.
+     *
+     * @param repositoryId the repository id
+     */
+    boolean isPaused( String repositoryId );
+
+    /**
+     * Returns <code>true</code>, if an interrupted scan of the repository can be resumed.
+     *
+     * @param repositoryId the repository id
+     */
+    boolean hasCheckpoint( String repositoryId );
 }
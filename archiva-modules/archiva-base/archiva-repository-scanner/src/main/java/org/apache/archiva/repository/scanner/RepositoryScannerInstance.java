@@ -19,6 +19,8 @@
  * under the License.
  */
 
+import org.apache.archiva.common.metrics.Counter;
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.apache.archiva.common.utils.BaseFile;
 import org.apache.archiva.common.utils.PathUtil;
 import org.apache.archiva.consumers.InvalidRepositoryContentConsumer;
@@ -39,19 +41,26 @@
 
 import java.io.IOException;
 import java.nio.file.FileSystem;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileSystemLoopException;
 import java.nio.file.FileSystems;
 import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * RepositoryScannerInstance
@@ -85,6 +94,8 @@
 
     private Map<String, Long> consumerCounts;
 
+    private Counter scannedFiles;
+
 
     private List<String> fileNameIncludePattern = new ArrayList<>();
     private List<String> fileNameExcludePattern = new ArrayList<>();
@@ -96,6 +107,36 @@
 
     Path basePath = null;
 
+    private List<String> consumerIds = new ArrayList<>();
+
+    /**
+     * The file the checkpoints of the walk are written to. No checkpoints are written, if <code>null</code>.
+     */
+    private Path checkpointFile;
+
+    private int checkpointFileInterval = 10000;
+
+    private long checkpointInterval = 60000;
+
+    private int filesSinceCheckpoint = 0;
+
+    private long lastCheckpointTime;
+
+    /**
+     * The relative path of the last processed file, with '/' as separator.
+     */
+    private String lastPath;
+
+    /**
+     * The path elements of the last file processed by the interrupted scan, or <code>null</code>
+     * if the walk has passed this position.
+     */
+    private String[] resumePosition;
+
+    private boolean walking = false;
+
+    private volatile boolean pauseRequested = false;
+
     public RepositoryScannerInstance( ManagedRepository repository,
                                       List<KnownRepositoryContentConsumer> knownConsumerList,
                                       List<InvalidRepositoryContentConsumer> invalidConsumerList )
@@ -113,6 +154,7 @@ public RepositoryScannerInstance( ManagedRepository repository,
         consumerProcessFile.setExecuteOnEntireRepo( true );
         consumerProcessFile.setConsumerTimings( consumerTimings );
         consumerProcessFile.setConsumerCounts( consumerCounts );
+        setMetricsRegistry( MetricsRegistry.getDefault() );
 
         this.consumerWantsFile = new ConsumerWantsFilePredicate( repository );
 
@@ -125,6 +167,9 @@ public RepositoryScannerInstance( ManagedRepository repository,
         IterableUtils.forEach( knownConsumerList, triggerBeginScan );
         IterableUtils.forEach( invalidConsumerList, triggerBeginScan );
 
+        IterableUtils.forEach( knownConsumerList, consumer -> consumerIds.add( consumer.getId() ) );
+        IterableUtils.forEach( invalidConsumerList, consumer -> consumerIds.add( consumer.getId() ) );
+
         if ( SystemUtils.IS_OS_WINDOWS )
         {
             consumerWantsFile.setCaseSensitive( false );
@@ -143,6 +188,15 @@ public RepositoryScannerInstance( ManagedRepository repository,
         this.changesSince = changesSince;
     }
 
+    /**
+     * Sets the registry, that records the number of scanned files and the processing time of the consumers.
+     */
+    public void setMetricsRegistry( MetricsRegistry metricsRegistry )
+    {
+        this.scannedFiles = metricsRegistry.counter( "archiva_scanner_files_total", "repository", repository.getId() );
+        consumerProcessFile.setMetricsRegistry( metricsRegistry );
+    }
+
     public RepositoryScanStatistics getStatistics()
     {
         return stats;
@@ -173,6 +227,69 @@ public long getChangesSince()
         return changesSince;
     }
 
+    /**
+     * Returns the ids of the known and invalid consumers of this scan.
+     */
+    public List<String> getConsumerIds()
+    {
+        return consumerIds;
+    }
+
+    public Path getCheckpointFile()
+    {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile( Path checkpointFile )
+    {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Sets the number of processed files, after that a checkpoint is written.
+     */
+    public void setCheckpointFileInterval( int checkpointFileInterval )
+    {
+        this.checkpointFileInterval = checkpointFileInterval;
+    }
+
+    /**
+     * Sets the time in milliseconds, after that a checkpoint is written.
+     */
+    public void setCheckpointInterval( long checkpointInterval )
+    {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Continues an interrupted scan. The files up to the position of the checkpoint are skipped
+     * by the walk, and the statistics and consumer counts of the checkpoint are taken over.
+     *
+     * @param checkpoint the checkpoint of the interrupted scan
+     */
+    public void resume( ScanCheckpoint checkpoint )
+    {
+        this.lastPath = checkpoint.getLastPath();
+        this.resumePosition = lastPath == null ? null : lastPath.split( "/" );
+        stats.resume( checkpoint );
+        consumerCounts.putAll( checkpoint.getConsumerCounts() );
+        consumerTimings.putAll( checkpoint.getConsumerTimings() );
+    }
+
+    /**
+     * Requests to pause the walk. The walk stops before the next file and writes a checkpoint,
+     * that is marked as paused.
+     */
+    public void pause()
+    {
+        this.pauseRequested = true;
+    }
+
+    public boolean isPauseRequested()
+    {
+        return pauseRequested;
+    }
+
     public List<String> getFileNameIncludePattern() {
         return fileNameIncludePattern;
     }
@@ -217,17 +334,43 @@ public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) th
             this.basePath = dir;
             log.info( "Walk Started: [{}] {}", this.repository.getId(), this.repository.getLocation() );
             stats.triggerStart();
+            lastCheckpointTime = System.currentTimeMillis();
+        }
+        else if ( resumePosition != null )
+        {
+            // Directories that are completely before the checkpoint have been processed already
+            Path relativeDir = basePath.relativize( dir );
+            if ( !isOnResumePath( relativeDir ) && compareToResumePosition( relativeDir ) < 0 )
+            {
+                return FileVisitResult.SKIP_SUBTREE;
+            }
         }
         return FileVisitResult.CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if ( pauseRequested && walking )
+        {
+            log.info( "Walk Paused: [{}] after {}", this.repository.getId(), lastPath );
+            stats.setPaused( true );
+            writeCheckpoint( true );
+            return FileVisitResult.TERMINATE;
+        }
         final Path relativeFile = basePath.relativize( file );
+        if ( resumePosition != null )
+        {
+            if ( compareToResumePosition( relativeFile ) <= 0 )
+            {
+                return FileVisitResult.CONTINUE;
+            }
+            resumePosition = null;
+        }
         if (excludeMatcher.stream().noneMatch(m -> m.matches(relativeFile)) && includeMatcher.stream().allMatch(m -> m.matches(relativeFile))) {
             log.debug( "Walk Step: {}, {}", file );
 
             stats.increaseFileCount();
+            scannedFiles.increment();
 
             // consume files regardless - the predicate will check the timestamp
             Path repoPath = PathUtil.getPathFromUri( repository.getLocation() );
@@ -252,6 +395,16 @@ public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IO
             }
 
         }
+        if ( walking )
+        {
+            lastPath = toPosition( relativeFile );
+            filesSinceCheckpoint++;
+            if ( checkpointFile != null && ( filesSinceCheckpoint >= checkpointFileInterval
+                || System.currentTimeMillis() - lastCheckpointTime >= checkpointInterval ) )
+            {
+                writeCheckpoint( false );
+            }
+        }
         return FileVisitResult.CONTINUE;
     }
 
@@ -279,6 +432,218 @@ public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOEx
         return FileVisitResult.CONTINUE;
     }
 
+    /**
+     * Walks the repository directory. Other than {@link Files#walkFileTree(Path, FileVisitor)} the entries of each
+     * directory are visited in the order of their names, so that the position of the walk is well defined and
+     * an interrupted walk can be resumed. Symbolic links are followed.
+     *
+     * @param base the repository base directory
+     * @throws IOException if the base directory could not be read
+     */
+    public void walk( Path base ) throws IOException
+    {
+        BasicFileAttributes attrs = Files.readAttributes( base, BasicFileAttributes.class );
+        walking = true;
+        try
+        {
+            walkDirectory( base, attrs, new ArrayList<>() );
+        }
+        finally
+        {
+            walking = false;
+            if ( isRunning )
+            {
+                // The walk has been terminated before the base directory was finished
+                finishWalk();
+            }
+        }
+    }
+
+    private FileVisitResult walkDirectory( Path dir, BasicFileAttributes attrs, List<Object> ancestors )
+        throws IOException
+    {
+        Object fileKey = attrs.fileKey();
+        if ( fileKey != null && ancestors.contains( fileKey ) )
+        {
+            return visitFileFailed( dir, new FileSystemLoopException( dir.toString() ) );
+        }
+        FileVisitResult result = preVisitDirectory( dir, attrs );
+        if ( result != FileVisitResult.CONTINUE )
+        {
+            return result == FileVisitResult.TERMINATE ? result : FileVisitResult.CONTINUE;
+        }
+        List<Path> entries;
+        try ( Stream<Path> list = Files.list( dir ) )
+        {
+            entries = list.sorted( Comparator.comparing( p -> p.getFileName().toString() ) ).collect( Collectors.toList() );
+        }
+        catch ( IOException e )
+        {
+            return postVisitDirectory( dir, e );
+        }
+        ancestors.add( fileKey );
+        try
+        {
+            for ( Path entry : entries )
+            {
+                BasicFileAttributes entryAttrs;
+                try
+                {
+                    entryAttrs = Files.readAttributes( entry, BasicFileAttributes.class );
+                }
+                catch ( IOException e )
+                {
+                    try
+                    {
+                        // Broken links are visited as files
+                        entryAttrs = Files.readAttributes( entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+                    }
+                    catch ( IOException e2 )
+                    {
+                        result = visitFileFailed( entry, e2 );
+                        if ( result == FileVisitResult.TERMINATE )
+                        {
+                            return result;
+                        }
+                        continue;
+                    }
+                }
+                result = entryAttrs.isDirectory() ? walkDirectory( entry, entryAttrs, ancestors ) : visitFile( entry, entryAttrs );
+                if ( result == FileVisitResult.TERMINATE )
+                {
+                    return result;
+                }
+                if ( result == FileVisitResult.SKIP_SIBLINGS )
+                {
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            ancestors.remove( ancestors.size() - 1 );
+        }
+        return postVisitDirectory( dir, null );
+    }
+
+    private static String toPosition( Path relativePath )
+    {
+        StringBuilder position = new StringBuilder();
+        for ( Path element : relativePath )
+        {
+            if ( position.length() > 0 )
+            {
+                position.append( '/' );
+            }
+            position.append( element.toString() );
+        }
+        return position.toString();
+    }
+
+    /**
+     * Compares the relative path to the resume position in the order of the walk.
+     */
+    private int compareToResumePosition( Path relativePath )
+    {
+        int count = Math.min( relativePath.getNameCount(), resumePosition.length );
+        for ( int i = 0; i < count; i++ )
+        {
+            int result = relativePath.getName( i ).toString().compareTo( resumePosition[i] );
+            if ( result != 0 )
+            {
+                return result;
+            }
+        }
+        return Integer.compare( relativePath.getNameCount(), resumePosition.length );
+    }
+
+    /**
+     * Returns <code>true</code>, if the directory is a parent of the resume position.
+     */
+    private boolean isOnResumePath( Path relativeDir )
+    {
+        if ( relativeDir.getNameCount() >= resumePosition.length )
+        {
+            return false;
+        }
+        for ( int i = 0; i < relativeDir.getNameCount(); i++ )
+        {
+            if ( !relativeDir.getName( i ).toString().equals( resumePosition[i] ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void writeCheckpoint( boolean paused )
+    {
+        filesSinceCheckpoint = 0;
+        lastCheckpointTime = System.currentTimeMillis();
+        if ( checkpointFile == null )
+        {
+            return;
+        }
+        ScanCheckpoint checkpoint = new ScanCheckpoint();
+        checkpoint.setRepositoryId( repository.getId() );
+        checkpoint.setChangesSince( changesSince );
+        checkpoint.setLastPath( lastPath );
+        checkpoint.setTotalFileCount( stats.getTotalFileCount() );
+        checkpoint.setNewFileCount( stats.getNewFileCount() );
+        checkpoint.setDuration( stats.getElapsedTime() );
+        checkpoint.setUpdated( lastCheckpointTime );
+        checkpoint.setPaused( paused );
+        checkpoint.setConsumers( consumerIds );
+        checkpoint.setConsumerCounts( new HashMap<>( consumerCounts ) );
+        checkpoint.setConsumerTimings( new HashMap<>( consumerTimings ) );
+        try
+        {
+            checkpoint.store( checkpointFile );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not write scan checkpoint {}: {}", checkpointFile, e.getMessage() );
+        }
+    }
+
+    /**
+     * Processes only the given paths instead of walking the whole repository. Directories are walked
+     * completely, paths that do not exist anymore are skipped.
+     *
+     * @param base  the repository base directory
+     * @param paths the paths relative to the base directory
+     * @throws IOException if a directory could not be walked
+     */
+    public void scanPaths( Path base, Collection<String> paths ) throws IOException
+    {
+        final Path normalizedBase = base.toAbsolutePath( ).normalize( );
+        preVisitDirectory( normalizedBase, null );
+        try
+        {
+            for ( String path : paths )
+            {
+                Path file = normalizedBase.resolve( path ).normalize( );
+                if ( !file.startsWith( normalizedBase ) || file.equals( normalizedBase ) )
+                {
+                    log.warn( "Skipping path outside of repository {}: {}", repository.getId( ), path );
+                    continue;
+                }
+                if ( Files.isDirectory( file ) )
+                {
+                    Files.walkFileTree( file, EnumSet.of( FileVisitOption.FOLLOW_LINKS ), Integer.MAX_VALUE, this );
+                }
+                else if ( Files.exists( file ) )
+                {
+                    visitFile( file, null );
+                }
+            }
+        }
+        finally
+        {
+            finishWalk( );
+        }
+    }
+
     private void finishWalk() {
         this.isRunning = false;
         TriggerScanCompletedClosure scanCompletedClosure = new TriggerScanCompletedClosure( repository, true );
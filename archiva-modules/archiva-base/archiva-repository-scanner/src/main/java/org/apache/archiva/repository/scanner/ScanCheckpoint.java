@@ -0,0 +1,267 @@
+package org.apache.archiva.repository.scanner;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * The persisted state of a repository scan, that allows to resume an interrupted or paused scan.
+ * <p>
+ * The scanner walks the directories in sorted order, so the position of the walk is given by the
+ * path of the last processed file. All files up to this path are skipped, when the scan is resumed.
+ */
+public class ScanCheckpoint
+{
+    private static final String CONSUMER_COUNT_PREFIX = "consumerCount.";
+
+    private static final String CONSUMER_TIMING_PREFIX = "consumerTiming.";
+
+    private String repositoryId;
+
+    private long changesSince;
+
+    private String lastPath;
+
+    private long totalFileCount;
+
+    private long newFileCount;
+
+    private long duration;
+
+    private long updated;
+
+    private boolean paused;
+
+    private List<String> consumers = new ArrayList<>( );
+
+    private Map<String, Long> consumerCounts = new HashMap<>( );
+
+    private Map<String, Long> consumerTimings = new HashMap<>( );
+
+    public static ScanCheckpoint load( Path file )
+        throws IOException
+    {
+        Properties properties = new Properties( );
+        try ( InputStream in = Files.newInputStream( file ) )
+        {
+            properties.load( in );
+        }
+        ScanCheckpoint checkpoint = new ScanCheckpoint( );
+        try
+        {
+            checkpoint.repositoryId = properties.getProperty( "repositoryId" );
+            checkpoint.changesSince = Long.parseLong( properties.getProperty( "changesSince", "0" ) );
+            checkpoint.lastPath = properties.getProperty( "lastPath" );
+            checkpoint.totalFileCount = Long.parseLong( properties.getProperty( "totalFileCount", "0" ) );
+            checkpoint.newFileCount = Long.parseLong( properties.getProperty( "newFileCount", "0" ) );
+            checkpoint.duration = Long.parseLong( properties.getProperty( "duration", "0" ) );
+            checkpoint.updated = Long.parseLong( properties.getProperty( "updated", "0" ) );
+            checkpoint.paused = Boolean.parseBoolean( properties.getProperty( "paused" ) );
+            String consumerIds = properties.getProperty( "consumers" );
+            if ( StringUtils.isNotEmpty( consumerIds ) )
+            {
+                checkpoint.consumers.addAll( Arrays.asList( consumerIds.split( "," ) ) );
+            }
+            for ( String key : properties.stringPropertyNames( ) )
+            {
+                if ( key.startsWith( CONSUMER_COUNT_PREFIX ) )
+                {
+                    checkpoint.consumerCounts.put( key.substring( CONSUMER_COUNT_PREFIX.length( ) ),
+                                                   Long.valueOf( properties.getProperty( key ) ) );
+                }
+                else if ( key.startsWith( CONSUMER_TIMING_PREFIX ) )
+                {
+                    checkpoint.consumerTimings.put( key.substring( CONSUMER_TIMING_PREFIX.length( ) ),
+                                                    Long.valueOf( properties.getProperty( key ) ) );
+                }
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            throw new IOException( "Invalid scan checkpoint " + file + ": " + e.getMessage( ), e );
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file, that replaces the given file, so that a crash
+     * never leaves a partially written checkpoint.
+     */
+    public void store( Path file )
+        throws IOException
+    {
+        Properties properties = new Properties( );
+        properties.setProperty( "repositoryId", repositoryId );
+        properties.setProperty( "changesSince", Long.toString( changesSince ) );
+        if ( lastPath != null )
+        {
+            properties.setProperty( "lastPath", lastPath );
+        }
+        properties.setProperty( "totalFileCount", Long.toString( totalFileCount ) );
+        properties.setProperty( "newFileCount", Long.toString( newFileCount ) );
+        properties.setProperty( "duration", Long.toString( duration ) );
+        properties.setProperty( "updated", Long.toString( updated ) );
+        properties.setProperty( "paused", Boolean.toString( paused ) );
+        properties.setProperty( "consumers", String.join( ",", consumers ) );
+        consumerCounts.forEach( ( id, count ) -> properties.setProperty( CONSUMER_COUNT_PREFIX + id, count.toString( ) ) );
+        consumerTimings.forEach( ( id, time ) -> properties.setProperty( CONSUMER_TIMING_PREFIX + id, time.toString( ) ) );
+
+        Files.createDirectories( file.getParent( ) );
+        Path tempFile = file.resolveSibling( file.getFileName( ) + ".tmp" );
+        try ( OutputStream out = Files.newOutputStream( tempFile ) )
+        {
+            properties.store( out, "Repository scan checkpoint" );
+        }
+        Files.move( tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    public String getRepositoryId( )
+    {
+        return repositoryId;
+    }
+
+    public void setRepositoryId( String repositoryId )
+    {
+        this.repositoryId = repositoryId;
+    }
+
+    public long getChangesSince( )
+    {
+        return changesSince;
+    }
+
+    public void setChangesSince( long changesSince )
+    {
+        this.changesSince = changesSince;
+    }
+
+    /**
+     * Returns the path of the last processed file relative to the repository root, or <code>null</code>,
+     * if no file has been processed.
+     */
+    public String getLastPath( )
+    {
+        return lastPath;
+    }
+
+    public void setLastPath( String lastPath )
+    {
+        this.lastPath = lastPath;
+    }
+
+    public long getTotalFileCount( )
+    {
+        return totalFileCount;
+    }
+
+    public void setTotalFileCount( long totalFileCount )
+    {
+        this.totalFileCount = totalFileCount;
+    }
+
+    public long getNewFileCount( )
+    {
+        return newFileCount;
+    }
+
+    public void setNewFileCount( long newFileCount )
+    {
+        this.newFileCount = newFileCount;
+    }
+
+    /**
+     * Returns the time in milliseconds the scan has been running until the checkpoint.
+     */
+    public long getDuration( )
+    {
+        return duration;
+    }
+
+    public void setDuration( long duration )
+    {
+        this.duration = duration;
+    }
+
+    public long getUpdated( )
+    {
+        return updated;
+    }
+
+    public void setUpdated( long updated )
+    {
+        this.updated = updated;
+    }
+
+    public boolean isPaused( )
+    {
+        return paused;
+    }
+
+    public void setPaused( boolean paused )
+    {
+        this.paused = paused;
+    }
+
+    /**
+     * Returns the ids of the consumers of the scan. A checkpoint is only resumed with the same consumers.
+     */
+    public List<String> getConsumers( )
+    {
+        return consumers;
+    }
+
+    public void setConsumers( List<String> consumers )
+    {
+        this.consumers = consumers;
+    }
+
+    public Map<String, Long> getConsumerCounts( )
+    {
+        return consumerCounts;
+    }
+
+    public void setConsumerCounts( Map<String, Long> consumerCounts )
+    {
+        this.consumerCounts = consumerCounts;
+    }
+
+    public Map<String, Long> getConsumerTimings( )
+    {
+        return consumerTimings;
+    }
+
+    public void setConsumerTimings( Map<String, Long> consumerTimings )
+    {
+        this.consumerTimings = consumerTimings;
+    }
+}
@@ -19,12 +19,16 @@
  * under the License.
  */
 
+import org.apache.archiva.common.metrics.Counter;
+import org.apache.archiva.common.metrics.MetricsRegistry;
+import org.apache.archiva.common.metrics.Timer;
 import org.apache.archiva.common.utils.BaseFile;
 import org.apache.archiva.consumers.RepositoryContentConsumer;
 import org.apache.commons.collections4.Closure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -43,6 +47,12 @@
 
     private Map<String, Long> consumerCounts;
 
+    private MetricsRegistry metricsRegistry;
+
+    private final Map<String, Timer> consumerTimers = new HashMap<>( );
+
+    private final Map<String, Counter> consumerErrors = new HashMap<>( );
+
     @Override
     public void execute( RepositoryContentConsumer input )
     {
@@ -53,10 +63,18 @@ public void execute( RepositoryContentConsumer input )
         {
             log.debug( "Sending to consumer: {}", id );
 
+            long startNanos = System.nanoTime( );
             long startTime = System.currentTimeMillis( );
             consumer.processFile( basefile.getRelativePath( ), executeOnEntireRepo );
             long endTime = System.currentTimeMillis( );
 
+            if ( metricsRegistry != null )
+            {
+                consumerTimers.computeIfAbsent( id,
+                    k -> metricsRegistry.timer( "archiva_scanner_consumer_seconds", "consumer", k ) ).record(
+                    System.nanoTime( ) - startNanos );
+            }
+
             if ( consumerTimings != null )
             {
                 Long value = consumerTimings.get( id );
@@ -76,6 +94,11 @@ public void execute( RepositoryContentConsumer input )
              */
             log.error( "Consumer [{}] had an error when processing file ["
                 + "{}]: {}", id, basefile.getAbsolutePath( ), e.getMessage( ), e );
+            if ( metricsRegistry != null )
+            {
+                consumerErrors.computeIfAbsent( id,
+                    k -> metricsRegistry.counter( "archiva_scanner_consumer_errors_total", "consumer", k ) ).increment( );
+            }
         }
 
     }
@@ -110,6 +133,16 @@ public void setConsumerCounts( Map<String, Long> consumerCounts )
         this.consumerCounts = consumerCounts;
     }
 
+    /**
+     * Sets the registry, that records the processing time of each consumer. Nothing is recorded, if not set.
+     */
+    public void setMetricsRegistry( MetricsRegistry metricsRegistry )
+    {
+        this.metricsRegistry = metricsRegistry;
+        this.consumerTimers.clear( );
+        this.consumerErrors.clear( );
+    }
+
     public Logger getLogger( )
     {
         return log;
@@ -22,6 +22,8 @@
 import junit.framework.TestCase;
 import org.apache.archiva.common.filelock.DefaultFileLockManager;
 import org.apache.archiva.common.filelock.FileLockManager;
+import org.apache.archiva.common.metrics.MetricsRegistry;
+import org.apache.archiva.consumers.ConsumerException;
 import org.apache.archiva.consumers.InvalidRepositoryContentConsumer;
 import org.apache.archiva.consumers.KnownRepositoryContentConsumer;
 import org.apache.archiva.repository.base.managed.BasicManagedRepository;
@@ -254,6 +256,114 @@ public void testTimestampRepositoryScannerProcessUnmodified()
         assertEquals( "Processed Count (of invalid items)", 1, badconsumer.getProcessCount() );
     }
 
+    @Test
+    public void testChangedPathsRepositoryScanner()
+        throws Exception
+    {
+        ManagedRepository repository = createSimpleRepository();
+
+        List<KnownRepositoryContentConsumer> knownConsumers = new ArrayList<>();
+        KnownScanConsumer consumer = new KnownScanConsumer();
+        consumer.setIncludes( ARTIFACT_PATTERNS );
+        knownConsumers.add( consumer );
+
+        List<InvalidRepositoryContentConsumer> invalidConsumers = new ArrayList<>();
+        InvalidScanConsumer badconsumer = new InvalidScanConsumer();
+        invalidConsumers.add( badconsumer );
+
+        // the old snapshot pom is processed regardless of its timestamp, the directory is scanned recursively
+        List<String> changedPaths = Arrays.asList(
+            "groupId/snapshot-artifact/1.0-alpha-1-SNAPSHOT/snapshot-artifact-1.0-alpha-1-20050611.202024-1.pom",
+            "groupId/artifactId/1.0-alpha-1", "groupId/removed/1.0/removed-1.0.jar", "../outside.jar" );
+
+        RepositoryScanner scanner = lookupRepositoryScanner();
+        RepositoryScanStatistics stats =
+            scanner.scan( repository, knownConsumers, invalidConsumers, getIgnoreList(), changedPaths );
+
+        assertNotNull( "Stats should not be null.", stats );
+        assertEquals( "Stats.totalFileCount", 3, stats.getTotalFileCount() );
+        assertEquals( "Stats.newFileCount", 3, stats.getNewFileCount() );
+        assertEquals( "Processed Count", 3, consumer.getProcessCount() );
+        assertEquals( "Processed Count (of invalid items)", 0, badconsumer.getProcessCount() );
+        assertTrue( scanner.getInProgressScans().isEmpty() );
+    }
+
+    @Test
+    public void testPauseAndResumeRepositoryScanner()
+        throws Exception
+    {
+        final ManagedRepository repository = createDefaultRepository();
+        final DefaultRepositoryScanner scanner = (DefaultRepositoryScanner) lookupRepositoryScanner();
+        Path checkpointDirectory = Files.createTempDirectory( "scan-checkpoints" );
+        Path previousDirectory = scanner.getCheckpointDirectory();
+        scanner.setCheckpointDirectory( checkpointDirectory );
+        try
+        {
+            KnownScanConsumer consumer = new KnownScanConsumer();
+            consumer.setIncludes( new String[]{ "**/*" } );
+            RepositoryScanStatistics fullStats =
+                scanner.scan( repository, Arrays.asList( consumer ), new ArrayList<>(), getIgnoreList(),
+                              RepositoryScanner.FRESH_SCAN );
+            assertMinimumHits( "Processed Count", 20, consumer.getProcessCount() );
+            assertFalse( scanner.hasCheckpoint( repository.getId() ) );
+
+            KnownScanConsumer pausingConsumer = new KnownScanConsumer()
+            {
+                @Override
+                public void processFile( String path )
+                    throws ConsumerException
+                {
+                    super.processFile( path );
+                    if ( getProcessCount() == 10 )
+                    {
+                        scanner.pauseScan( repository.getId() );
+                    }
+                }
+            };
+            pausingConsumer.setIncludes( new String[]{ "**/*" } );
+            RepositoryScanStatistics stats =
+                scanner.scan( repository, Arrays.asList( pausingConsumer ), new ArrayList<>(), getIgnoreList(),
+                              RepositoryScanner.FRESH_SCAN );
+            assertTrue( stats.isPaused() );
+            assertEquals( 10, pausingConsumer.getProcessCount() );
+            assertTrue( scanner.isPaused( repository.getId() ) );
+            assertTrue( scanner.hasCheckpoint( repository.getId() ) );
+
+            // the paused state is kept after a restart
+            DefaultRepositoryScanner restartedScanner = new DefaultRepositoryScanner();
+            restartedScanner.setCheckpointDirectory( checkpointDirectory );
+            assertTrue( restartedScanner.isPaused( repository.getId() ) );
+            try
+            {
+                scanner.scan( repository, Arrays.asList( pausingConsumer ), new ArrayList<>(), getIgnoreList(),
+                              RepositoryScanner.FRESH_SCAN );
+                fail( "The scan of a paused repository must fail" );
+            }
+            catch ( RepositoryScannerException e )
+            {
+                // expected
+            }
+
+            assertTrue( scanner.resumeScan( repository.getId() ) );
+            assertFalse( scanner.isPaused( repository.getId() ) );
+
+            KnownScanConsumer resumedConsumer = new KnownScanConsumer();
+            resumedConsumer.setIncludes( new String[]{ "**/*" } );
+            stats = scanner.scan( repository, Arrays.asList( resumedConsumer ), new ArrayList<>(), getIgnoreList(),
+                                  RepositoryScanner.FRESH_SCAN );
+            assertFalse( stats.isPaused() );
+            assertEquals( "Stats.totalFileCount", fullStats.getTotalFileCount(), stats.getTotalFileCount() );
+            assertEquals( "Processed Count", consumer.getProcessCount(),
+                          pausingConsumer.getProcessCount() + resumedConsumer.getProcessCount() );
+            assertFalse( scanner.hasCheckpoint( repository.getId() ) );
+        }
+        finally
+        {
+            scanner.setCheckpointDirectory( previousDirectory );
+            FileUtils.deleteQuietly( checkpointDirectory.toFile() );
+        }
+    }
+
     @Test
     public void testDefaultRepositoryScanner()
         throws Exception
@@ -292,6 +402,30 @@ public void testDefaultRepositoryScanner()
         assertThat( paths, is( expected ) );
     }
 
+    @Test
+    public void testScannerMetrics()
+        throws Exception
+    {
+        ManagedRepository repository = createDefaultRepository();
+
+        List<KnownRepositoryContentConsumer> knownConsumers = new ArrayList<>();
+        KnownScanConsumer consumer = new KnownScanConsumer();
+        consumer.setIncludes( new String[]{ "**/*.jar" } );
+        knownConsumers.add( consumer );
+
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        RepositoryScannerInstance scannerInstance =
+            new RepositoryScannerInstance( repository, knownConsumers, new ArrayList<>() );
+        scannerInstance.setMetricsRegistry( metricsRegistry );
+        scannerInstance.walk( repository.getRoot().getFilePath() );
+
+        assertTrue( consumer.getProcessCount() > 0 );
+        assertEquals( scannerInstance.getStatistics().getTotalFileCount(),
+            metricsRegistry.counter( "archiva_scanner_files_total", "repository", repository.getId() ).getCount() );
+        assertEquals( consumer.getProcessCount(),
+            metricsRegistry.timer( "archiva_scanner_consumer_seconds", "consumer", consumer.getId() ).getCount() );
+    }
+
     @Test
     public void testDefaultRepositoryArtifactScanner()
         throws Exception
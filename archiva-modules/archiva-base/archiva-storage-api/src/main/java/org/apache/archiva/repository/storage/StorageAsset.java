@@ -88,6 +88,28 @@
      */
     List<? extends StorageAsset> list();
 
+    /**
+     * List the child assets and reads their attributes in one pass. The returned children answer
+     * {@link #isContainer()}, {@link #isLeaf()}, {@link #getSize()} and {@link #getModificationTime()} from the
+     * attributes read during the listing, until {@link #refresh()} is called on them. The attributes are only
+     * meant for the traversal that listed them, implementations may read them again after a short time.
+     * Implementations that cannot read the attributes with the listing return the result of {@link #list()}.
+     *
+     * @return The list of children. If there are no children and if the asset is not a container, a empty list will be returned.
+     */
+    default List<? extends StorageAsset> listWithAttributes()
+    {
+        return list( );
+    }
+
+    /**
+     * Drops attributes that were read with the listing of the parent, so that they are read from the storage
+     * again with the next access.
+     */
+    default void refresh()
+    {
+    }
+
     /**
      * The size in bytes of the asset. If the asset does not have a size, -1 should be returned.
      *
@@ -21,16 +21,12 @@
 import org.apache.archiva.repository.storage.StorageAsset;
 
 import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.Spliterator;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
  *
@@ -39,6 +35,13 @@
  * parents. If the spliterator is used in a parallel stream, there is no guarantee for
  * the order of returned assets.
  *
+ * The spliterator keeps only the path from the start asset to the current asset on its stack. Each entry
+ * holds the listing of one container, so the memory usage depends on the depth of the tree and not on the
+ * number of visited containers.
+ * Splits hand over half of the not yet visited sibling containers at the lowest possible depth, which
+ * results in subtrees of similar size for the usual repository layouts. If there are no siblings left, the
+ * spliterator descends into the next container to find some.
+ *
  * The estimated size is not accurate, because the tree paths are scanned on demand (lazy loaded)
  *
  * The spliterator returns the status of the assets at the time of retrieval. If modifications occur
@@ -54,16 +57,52 @@ public class AssetSpliterator implements Spliterator<StorageAsset>, Closeable
 {
     public static final int DEFAULT_SPLIT_THRESHOLD = 2;
 
-    // the linked list is used as stack
-    private LinkedList<StorageAsset> workList = new LinkedList<>( );
-    private LinkedHashSet<StorageAsset> visitedContainers = new LinkedHashSet<>( );
-    private long visited = 0;
+    /**
+     * The number of assets that is assumed for the subtree of a container that is not listed yet.
+     */
+    static final long CONTAINER_SIZE_ESTIMATE = 1024;
+
+    // the path from the start assets to the current asset, the last entry is the deepest one
+    private ArrayDeque<Level> stack = new ArrayDeque<>( );
     private final int splitThreshold;
     private static final int CHARACTERISTICS =  Spliterator.DISTINCT|Spliterator.NONNULL|Spliterator.CONCURRENT;
 
+    /**
+     * One level of the traversal. The containers are visited before the files and the
+     * parent is returned after all of its children.
+     */
+    private static final class Level
+    {
+        // null for the start assets and for split siblings
+        final StorageAsset parent;
+        final List<StorageAsset> containers;
+        final List<StorageAsset> files;
+        int containerIndex = 0;
+        int containerEnd;
+        int fileIndex = 0;
+
+        Level( StorageAsset parent, List<StorageAsset> containers, List<StorageAsset> files )
+        {
+            this.parent = parent;
+            this.containers = containers;
+            this.files = files;
+            this.containerEnd = containers.size( );
+        }
+
+        int remainingContainers( )
+        {
+            return containerEnd - containerIndex;
+        }
+
+        long remaining( )
+        {
+            return remainingContainers( ) * CONTAINER_SIZE_ESTIMATE + files.size( ) - fileIndex + ( parent == null ? 0 : 1 );
+        }
+    }
+
 
     public AssetSpliterator( int splitThreshold, StorageAsset... assets) {
-        this.splitThreshold = splitThreshold;
+        this.splitThreshold = Math.max( splitThreshold, 2 );
         init( assets );
     }
 
@@ -72,155 +111,161 @@ private void init( StorageAsset[] assets )
         if (assets.length==0 || assets[0] == null) {
             throw new IllegalArgumentException( "There must be at least one non-null asset" );
         }
-        Collections.addAll( this.workList, assets );
-        retrieveNextPath( this.workList.get( 0 ) );
+        List<StorageAsset> containers = new ArrayList<>( );
+        List<StorageAsset> files = new ArrayList<>( );
+        for ( StorageAsset asset : assets )
+        {
+            if ( asset.isContainer( ) )
+            {
+                containers.add( asset );
+            }
+            else
+            {
+                files.add( asset );
+            }
+        }
+        stack.addLast( new Level( null, containers, files ) );
     }
 
     public AssetSpliterator( StorageAsset... assets) {
-        this.splitThreshold = DEFAULT_SPLIT_THRESHOLD;
-        init( assets );
-    }
-
-    protected AssetSpliterator() {
-        this.splitThreshold = DEFAULT_SPLIT_THRESHOLD;
+        this( DEFAULT_SPLIT_THRESHOLD, assets );
     }
 
-    protected AssetSpliterator( int splitThreshold) {
-        this.splitThreshold = splitThreshold;
-    }
-
-
-    protected AssetSpliterator( int splitThreshold, Set<StorageAsset> visitedContainers) {
-        this.visitedContainers.addAll( visitedContainers );
+    private AssetSpliterator( int splitThreshold, List<StorageAsset> siblingContainers )
+    {
         this.splitThreshold = splitThreshold;
+        stack.addLast( new Level( null, siblingContainers, Collections.emptyList( ) ) );
     }
 
-    protected AssetSpliterator( List<StorageAsset> baseList, Set<StorageAsset> visitedContainers) {
-        this.workList.addAll(baseList);
-        retrieveNextPath( this.workList.get( 0 ) );
-        this.visitedContainers.addAll( visitedContainers );
-        this.splitThreshold = DEFAULT_SPLIT_THRESHOLD;
-    }
-
-    private void add( StorageAsset asset) {
-        workList.addLast( asset );
+    private Level newLevel( StorageAsset parent )
+    {
+        // The directory is listed once, with the attributes needed to separate files from containers
+        List<? extends StorageAsset> children = parent.listWithAttributes( );
+        List<StorageAsset> containers = new ArrayList<>( );
+        List<StorageAsset> files = new ArrayList<>( );
+        for ( StorageAsset child : children )
+        {
+            if ( child.isContainer( ) )
+            {
+                containers.add( child );
+            }
+            else if ( child.isLeaf( ) )
+            {
+                files.add( child );
+            }
+        }
+        return new Level( parent, containers, files );
     }
 
 
     @Override
     public void close( )
     {
-        this.workList.clear();
-        this.workList=null;
-        this.visitedContainers.clear();
-        this.visitedContainers=null;
+        this.stack.clear();
     }
 
     @Override
     public boolean tryAdvance( Consumer<? super StorageAsset> action )
     {
-        try
+        StorageAsset asset = next( );
+        if ( asset == null )
         {
-            StorageAsset asset = workList.getLast( );
-            consumeAsset( action, asset );
-            return true;
-        } catch (NoSuchElementException e) {
             return false;
         }
+        action.accept( asset );
+        return true;
     }
 
-    private void consumeAsset( Consumer<? super StorageAsset> action, StorageAsset asset )
+    /**
+     * Traverses the path to the deepest descent (depth-first) and returns the next asset.
+     *
+     * @return the next asset or <code>null</code>, if all assets are visited
+     */
+    private StorageAsset next( )
     {
-        // Traverse the path to the deepest descent (depth-first)
-        while(retrieveNextPath( asset )) {
-            asset = workList.getLast( );
-        }
-        action.accept( workList.removeLast() );
-        visited++;
-    }
-
-    private boolean retrieveNextPath(StorageAsset parent) {
-        if (parent.isContainer() && !visitedContainers.contains( parent )) {
-            // Containers after files in stack guarantee the depth-first behaviour
-            workList.addAll( getChildFiles( parent ) );
-            workList.addAll( getChildContainers( parent ) );
-            visitedContainers.add( parent );
-            return true;
-        } else {
-            return false;
+        Level level;
+        while ( ( level = stack.peekLast( ) ) != null )
+        {
+            if ( level.containerIndex < level.containerEnd )
+            {
+                stack.addLast( newLevel( level.containers.get( level.containerIndex++ ) ) );
+            }
+            else if ( level.fileIndex < level.files.size( ) )
+            {
+                return level.files.get( level.fileIndex++ );
+            }
+            else
+            {
+                stack.removeLast( );
+                if ( level.parent != null )
+                {
+                    return level.parent;
+                }
+            }
         }
+        return null;
     }
 
     @Override
     public void forEachRemaining( Consumer<? super StorageAsset> action )
     {
-        try
+        StorageAsset asset;
+        while ( ( asset = next( ) ) != null )
         {
-            //noinspection InfiniteLoopStatement
-            while ( true )
-            {
-                consumeAsset( action, workList.getLast( ) );
-            }
-        } catch (NoSuchElementException e) {
-            // Should happen at the end.
+            action.accept( asset );
         }
     }
 
-    // Assets are returned in reverse order
-    List<? extends StorageAsset> getChildContainers( StorageAsset parent) {
-        final List<? extends StorageAsset> children = parent.list( );
-        final int len = children.size( );
-        return IntStream.range( 0, children.size( ) ).mapToObj( i ->
-            children.get(len - i - 1)).filter( StorageAsset::isContainer ).collect( Collectors.toList( ) );
-    }
-
-    // Assets are returned in reverse order
-    List<? extends StorageAsset> getChildFiles(StorageAsset parent) {
-        final List<? extends StorageAsset> children = parent.list( );
-        final int len = children.size( );
-        return IntStream.range( 0, children.size( ) ).mapToObj( i ->
-            children.get(len - i - 1)).filter( StorageAsset::isLeaf ).collect( Collectors.toList( ) );
-    }
-
 
     /**
-     * Splits by moving every second asset to the new spliterator. This allows to start both at similar
-     * tree depths. But it is not guaranteed that they start on the same depth.
-     * The split happens only, if the number of elements in the worklist is greater than 2.
+     * Splits by moving half of the remaining sibling containers on the lowest level to the new spliterator.
+     * If no level has at least <code>splitThreshold</code> remaining containers and the deepest level has exactly one,
+     * the spliterator descends into this container, which would be the next step of the traversal anyway.
      *
-     * @return the new spliterator if the work list size is greater than 2
+     * @return the new spliterator or <code>null</code>, if there are no containers left to split
      */
     @Override
     public Spliterator<StorageAsset> trySplit( )
     {
-        if (workList.size()>splitThreshold) {
-            // We use the elements alternately for the current and the new spliterator
-            // For the parallel scenario we cannot guarantee that children are visited
-            // before their parents
-            final LinkedList<StorageAsset> newWorkList = new LinkedList<>( );
-            final AssetSpliterator newSpliterator = new AssetSpliterator( this.splitThreshold, visitedContainers );
-            try {
-                //noinspection InfiniteLoopStatement
-                while (true)
+        while ( !stack.isEmpty( ) )
+        {
+            for ( Level level : stack )
+            {
+                int remaining = level.remainingContainers( );
+                if ( remaining >= splitThreshold )
                 {
-                    newWorkList.add( workList.removeFirst( ) );
-                    newSpliterator.add( workList.removeFirst( ) );
+                    // For the parallel scenario we cannot guarantee that children are visited
+                    // before their parents
+                    int mid = level.containerIndex + remaining / 2;
+                    List<StorageAsset> split = new ArrayList<>( level.containers.subList( mid, level.containerEnd ) );
+                    level.containerEnd = mid;
+                    return new AssetSpliterator( splitThreshold, split );
                 }
-            } catch (NoSuchElementException e) {
-                //
             }
-            // Swap the worklist
-            this.workList = newWorkList;
-            return newSpliterator;
-        } else {
-            return null;
+            Level deepest = stack.peekLast( );
+            if ( deepest.remainingContainers( ) != 1 )
+            {
+                return null;
+            }
+            stack.addLast( newLevel( deepest.containers.get( deepest.containerIndex++ ) ) );
         }
+        return null;
     }
 
+    /**
+     * Returns the number of assets that are known, but not visited yet. The subtrees of the containers
+     * are not listed in advance, they are counted with {@link #CONTAINER_SIZE_ESTIMATE} assets each. This keeps
+     * the stream splitting as long as there are containers left.
+     */
     @Override
     public long estimateSize( )
     {
-        return workList.size()+visited;
+        long size = 0;
+        for ( Level level : stack )
+        {
+            size += level.remaining( );
+        }
+        return size;
     }
 
     @Override
@@ -22,10 +22,14 @@
 import org.apache.archiva.repository.storage.mock.MockAsset;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.Spliterator;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  * Test the AssetSpliterator class
@@ -148,6 +152,53 @@ void trySplit( )
 
     }
 
+    @Test
+    void trySplitRecursive( )
+    {
+        StorageAsset root = createTree( );
+        final ConsumeVisitStatus status = new ConsumeVisitStatus( );
+        Deque<Spliterator<StorageAsset>> work = new ArrayDeque<>( );
+        work.add( new AssetSpliterator( root ) );
+        int parts = 0;
+        while ( !work.isEmpty( ) )
+        {
+            Spliterator<StorageAsset> spliterator = work.removeFirst( );
+            Spliterator<StorageAsset> newSpliterator = spliterator.trySplit( );
+            if ( newSpliterator != null )
+            {
+                work.add( spliterator );
+                work.add( newSpliterator );
+            }
+            else
+            {
+                spliterator.forEachRemaining( status );
+                parts++;
+            }
+        }
+        int sum = LEVEL1 * LEVEL2 * LEVEL3 + LEVEL1 * LEVEL2 + LEVEL1 + 1;
+        assertEquals( sum, status.size( ) );
+        assertEquals( sum, new HashSet<>( status.getVisited( ) ).size( ) );
+        // Splits down to the level 2 containers, that contain no further containers
+        assertEquals( LEVEL1 * LEVEL2, parts );
+    }
+
+    @Test
+    void trySplitDescends( )
+    {
+        StorageAsset root = createTree( 1, 1, 4, 2 );
+        AssetSpliterator spliterator = new AssetSpliterator( root );
+        Spliterator<StorageAsset> newSpliterator = spliterator.trySplit( );
+        assertNotNull( newSpliterator );
+        final ConsumeVisitStatus status1 = new ConsumeVisitStatus( );
+        final ConsumeVisitStatus status2 = new ConsumeVisitStatus( );
+        newSpliterator.forEachRemaining( status1 );
+        spliterator.forEachRemaining( status2 );
+        assertEquals( 2 * 3, status1.size( ) );
+        assertEquals( 2 * 3 + 3, status2.size( ) );
+        assertEquals( root, status2.getLast( ) );
+        assertNull( spliterator.trySplit( ) );
+    }
+
     @Test
     void checkCharacteristics() {
         StorageAsset root = createTree( );
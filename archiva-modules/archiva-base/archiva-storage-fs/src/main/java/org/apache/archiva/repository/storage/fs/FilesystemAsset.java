@@ -37,8 +37,10 @@
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -95,6 +97,25 @@ public class FilesystemAsset implements StorageAsset, Comparable {
 
     boolean directoryHint = false;
 
+    /**
+     * The time in milliseconds, the attributes read while listing the parent directory are used. Older attributes
+     * are read again from the filesystem, so that assets, that are kept longer than a traversal, do not report
+     * outdated sizes and modification times.
+     */
+    static final long PREFETCHED_ATTRIBUTES_MAX_AGE = Long.getLong( "archiva.storage.prefetchedAttributesMaxAge", 1000L );
+
+    /**
+     * The attributes read while listing the parent directory. If set, they are used instead of reading the
+     * attributes from the filesystem, until {@link #refresh()} is called or they are older than
+     * {@link #PREFETCHED_ATTRIBUTES_MAX_AGE}.
+     */
+    private volatile BasicFileAttributes attributes;
+
+    /**
+     * The value of {@link System#nanoTime()} when the attributes were read.
+     */
+    private long attributesReadTime;
+
     private static final OpenOption[] REPLACE_OPTIONS = new OpenOption[]{StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.CREATE};
     private static final OpenOption[] APPEND_OPTIONS = new OpenOption[]{StandardOpenOption.APPEND};
 
@@ -108,6 +129,13 @@ public class FilesystemAsset implements StorageAsset, Comparable {
         init();
     }
 
+    FilesystemAsset(FilesystemStorage storage, String path, Path assetPath, Path basePath, BasicFileAttributes attributes) {
+        this(storage, path, assetPath, basePath);
+        this.attributesReadTime = System.nanoTime();
+        this.attributes = attributes;
+        this.directoryHint = attributes.isDirectory();
+    }
+
     /**
      * Creates an asset for the given path. The given paths are not checked.
      * The base path should be an absolute path.
@@ -238,6 +266,10 @@ public String getName() {
 
     @Override
     public Instant getModificationTime() {
+        BasicFileAttributes attrs = getPrefetchedAttributes();
+        if (attrs != null) {
+            return attrs.lastModifiedTime().toInstant();
+        }
         try {
             return Files.getLastModifiedTime(assetPath).toInstant();
         } catch (IOException e) {
@@ -253,6 +285,10 @@ public Instant getModificationTime() {
      */
     @Override
     public boolean isContainer() {
+        BasicFileAttributes attrs = getPrefetchedAttributes();
+        if (attrs != null) {
+            return attrs.isDirectory();
+        }
         if (Files.exists(assetPath)) {
             return Files.isDirectory(assetPath);
         } else {
@@ -263,6 +299,10 @@ public boolean isContainer() {
     @Override
     public boolean isLeaf( )
     {
+        BasicFileAttributes attrs = getPrefetchedAttributes();
+        if (attrs != null) {
+            return attrs.isRegularFile();
+        }
         if (Files.exists( assetPath )) {
             return Files.isRegularFile( assetPath );
         } else {
@@ -288,6 +328,59 @@ public List<StorageAsset> list() {
         }
     }
 
+    /**
+     * Returns the sorted list of directory entries with their attributes. The directory is read in one pass and
+     * the attributes of each entry are read once, so that the returned assets answer {@link #isContainer()},
+     * {@link #isLeaf()}, {@link #getSize()} and {@link #getModificationTime()} without further filesystem access
+     * until {@link #refresh()} is called or {@link #PREFETCHED_ATTRIBUTES_MAX_AGE} has passed.
+     *
+     * @return The list of entries in the directory, if it exists.
+     */
+    @Override
+    public List<StorageAsset> listWithAttributes() {
+        List<FilesystemAsset> children = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(assetPath)) {
+            for (Path child : stream) {
+                String childPath = relativePath + "/" + child.getFileName().toString();
+                BasicFileAttributes childAttributes;
+                try {
+                    childAttributes = Files.readAttributes(child, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // Removed or not accessible, the attributes are read on demand
+                    children.add(new FilesystemAsset(storage, childPath, child, this.basePath));
+                    continue;
+                }
+                children.add(new FilesystemAsset(storage, childPath, child, this.basePath, childAttributes));
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            return Collections.EMPTY_LIST;
+        }
+        children.sort(Comparator.comparing(a -> a.assetPath));
+        return new ArrayList<>(children);
+    }
+
+    /**
+     * Returns the attributes read while listing the parent directory, if they are not outdated.
+     *
+     * @return the attributes, or <code>null</code>, if they must be read from the filesystem
+     */
+    private BasicFileAttributes getPrefetchedAttributes() {
+        BasicFileAttributes attrs = attributes;
+        if (attrs != null && System.nanoTime() - attributesReadTime > TimeUnit.MILLISECONDS.toNanos(PREFETCHED_ATTRIBUTES_MAX_AGE)) {
+            attributes = null;
+            return null;
+        }
+        return attrs;
+    }
+
+    /**
+     * Drops the attributes, that were read while listing the parent directory.
+     */
+    @Override
+    public void refresh() {
+        attributes = null;
+    }
+
     /**
      * Returns the size of the represented file. If it cannot be determined, -1 is returned.
      *
@@ -295,6 +388,10 @@ public List<StorageAsset> list() {
      */
     @Override
     public long getSize() {
+        BasicFileAttributes attrs = getPrefetchedAttributes();
+        if (attrs != null) {
+            return attrs.size();
+        }
         try {
             return Files.size(assetPath);
         } catch (IOException e) {
@@ -329,6 +426,7 @@ private OpenOption[] getOpenOptions(boolean replace) {
 
     @Override
     public OutputStream getWriteStream( boolean replace) throws IOException {
+        refresh();
         OpenOption[] options = getOpenOptions( replace );
         if (!Files.exists( assetPath )) {
             create();
@@ -339,12 +437,14 @@ public OutputStream getWriteStream( boolean replace) throws IOException {
     @Override
     public WritableByteChannel getWriteChannel( boolean replace ) throws IOException
     {
+        refresh();
         OpenOption[] options = getOpenOptions( replace );
         return FileChannel.open( assetPath, options );
     }
 
     @Override
     public boolean replaceDataFromFile( Path newData) throws IOException {
+        refresh();
         final boolean createNew = !Files.exists(assetPath);
         Path backup = null;
         if (!createNew) {
@@ -494,6 +594,7 @@ public Set<PosixFilePermission> getDefaultPosixDirectoryPermissions() {
 
     @Override
     public void create() throws IOException {
+        refresh();
         if (!Files.exists(assetPath)) {
             if (directoryHint) {
                 Files.createDirectories(assetPath);
@@ -511,6 +612,7 @@ public void create() throws IOException {
 
     @Override
     public void create( AssetType type ) throws IOException {
+        refresh();
         if (!Files.exists(assetPath)) {
             if (type.equals( AssetType.CONTAINER ) || directoryHint) {
                 Files.createDirectories(assetPath);
@@ -0,0 +1,124 @@
+package org.apache.archiva.repository.storage.fs;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.repository.storage.util.StorageUtil;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the sequential and the parallel asset stream return the same assets of a generated maven repository
+ * layout. The time of both is measured by the <code>AssetStreamBenchmark</code> of the archiva-benchmarks module.
+ */
+public class FilesystemAssetStreamTest
+{
+    private Path baseDirectory;
+
+    private FilesystemStorage storage;
+
+    @BeforeEach
+    void setUp( ) throws IOException
+    {
+        baseDirectory = Files.createTempDirectory( "asset-stream" );
+        storage = new FilesystemStorage( baseDirectory, new DefaultFileLockManager( ) );
+    }
+
+    @AfterEach
+    void tearDown( )
+    {
+        FileUtils.deleteQuietly( baseDirectory.toFile( ) );
+    }
+
+    /**
+     * Creates groups/artifacts/versions with a jar, a pom and their checksums in each version directory.
+     *
+     * @return the number of created files and directories
+     */
+    private long createLayout( int groups, int artifacts, int versions ) throws IOException
+    {
+        long count = 0;
+        for ( int g = 0; g < groups; g++ )
+        {
+            Path groupDir = baseDirectory.resolve( "org" ).resolve( "group" + g );
+            for ( int a = 0; a < artifacts; a++ )
+            {
+                for ( int v = 0; v < versions; v++ )
+                {
+                    Path versionDir = Files.createDirectories( groupDir.resolve( "artifact" + a ).resolve( "1." + v ) );
+                    String prefix = "artifact" + a + "-1." + v;
+                    for ( String extension : new String[]{ ".jar", ".jar.sha1", ".pom", ".pom.sha1" } )
+                    {
+                        Files.createFile( versionDir.resolve( prefix + extension ) );
+                        count++;
+                    }
+                    count++;
+                }
+                count++;
+            }
+            count++;
+        }
+        // org and the root
+        return count + 2;
+    }
+
+    @Test
+    void parallelStream( ) throws IOException
+    {
+        long expected = createLayout( 5, 10, 10 );
+        StorageAsset root = storage.getRoot( );
+        assertEquals( expected, count( root, false ) );
+
+        Set<String> sequential;
+        try ( Stream<StorageAsset> stream = StorageUtil.newAssetStream( root, false ) )
+        {
+            sequential = stream.map( StorageAsset::getPath ).collect( Collectors.toSet( ) );
+        }
+        List<String> parallel;
+        try ( Stream<StorageAsset> stream = StorageUtil.newAssetStream( root, true ) )
+        {
+            parallel = stream.map( StorageAsset::getPath ).collect( Collectors.toList( ) );
+        }
+
+        assertEquals( expected, sequential.size( ) );
+        assertEquals( expected, parallel.size( ) );
+        assertEquals( sequential, parallel.stream( ).collect( Collectors.toSet( ) ) );
+    }
+
+    private long count( StorageAsset root, boolean parallel )
+    {
+        try ( Stream<StorageAsset> stream = StorageUtil.newAssetStream( root, parallel ) )
+        {
+            return stream.count( );
+        }
+    }
+}
@@ -19,6 +19,7 @@
  */
 
 import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.repository.storage.fs.FilesystemAsset;
 import org.apache.archiva.repository.storage.fs.FilesystemStorage;
 import org.apache.commons.io.FileUtils;
@@ -35,6 +36,8 @@
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class FilesystemAssetTest {
 
@@ -201,4 +204,91 @@ public void getFilePath() {
         FilesystemAsset asset = new FilesystemAsset(filesystemStorage, "/test1234", assetPathFile);
         Assert.assertEquals(assetPathFile, asset.getFilePath());
     }
+
+    @Test
+    public void listWithAttributes() throws IOException {
+        Files.createDirectories(assetPathDir.resolve("subdir"));
+        Files.write(assetPathDir.resolve("data.txt"), "abc".getBytes());
+        FilesystemAsset dir = new FilesystemAsset(filesystemStorage, "/", assetPathDir);
+
+        List<? extends StorageAsset> children = dir.listWithAttributes();
+        Assert.assertEquals(dir.list().stream().map(StorageAsset::getPath).collect(Collectors.toList()),
+            children.stream().map(StorageAsset::getPath).collect(Collectors.toList()));
+        for (StorageAsset child : children) {
+            Assert.assertEquals(Files.isDirectory(child.getFilePath()), child.isContainer());
+            Assert.assertEquals(Files.isRegularFile(child.getFilePath()), child.isLeaf());
+            if (child.isLeaf()) {
+                Assert.assertEquals(Files.size(child.getFilePath()), child.getSize());
+            }
+        }
+    }
+
+    @Test
+    public void refresh() throws IOException {
+        Files.write(assetPathDir.resolve("data.txt"), "abc".getBytes());
+        FilesystemAsset dir = new FilesystemAsset(filesystemStorage, "/", assetPathDir);
+        StorageAsset data = dir.listWithAttributes().stream().filter(a -> a.getName().equals("data.txt")).findFirst().get();
+        Assert.assertEquals(3, data.getSize());
+
+        // Changes outside of the asset are visible after the refresh
+        Files.write(assetPathDir.resolve("data.txt"), "abcdef".getBytes());
+        Assert.assertEquals(3, data.getSize());
+        data.refresh();
+        Assert.assertEquals(6, data.getSize());
+
+        // Changes through the asset refresh the attributes
+        data = dir.listWithAttributes().stream().filter(a -> a.getName().equals("data.txt")).findFirst().get();
+        try (OutputStream os = data.getWriteStream(true)) {
+            os.write("a".getBytes());
+        }
+        Assert.assertEquals(1, data.getSize());
+    }
+
+    @Test
+    public void prefetchedAttributesExpire() throws IOException, InterruptedException {
+        Files.write(assetPathDir.resolve("data.txt"), "abc".getBytes());
+        FilesystemAsset dir = new FilesystemAsset(filesystemStorage, "/", assetPathDir);
+        StorageAsset data = dir.listWithAttributes().stream().filter(a -> a.getName().equals("data.txt")).findFirst().get();
+        Files.write(assetPathDir.resolve("data.txt"), "abcdef".getBytes());
+        Assert.assertEquals(3, data.getSize());
+
+        // Assets kept after the traversal read the attributes again
+        Thread.sleep(FilesystemAsset.PREFETCHED_ATTRIBUTES_MAX_AGE + 100);
+        Assert.assertEquals(6, data.getSize());
+    }
+
+    /**
+     * Checks that a walk over the prefetched attributes finds the same files as a walk that reads the attributes
+     * of each entry separately. The time of both walks is measured by the <code>FilesystemAssetListBenchmark</code>
+     * of the archiva-benchmarks module.
+     */
+    @Test
+    public void walkWithAttributes() throws IOException {
+        Path base = Files.createTempDirectory(assetPathDir, "walk");
+        for (int g = 0; g < 10; g++) {
+            for (int a = 0; a < 10; a++) {
+                Path versionDir = Files.createDirectories(base.resolve("group" + g).resolve("artifact" + a).resolve("1.0"));
+                for (int f = 0; f < 5; f++) {
+                    Files.createFile(versionDir.resolve("artifact" + a + "-1.0-" + f + ".jar"));
+                }
+            }
+        }
+        FilesystemAsset root = new FilesystemAsset(filesystemStorage, "/" + base.getFileName().toString(), base);
+        long listed = walk(root, false);
+        long prefetched = walk(root, true);
+        Assert.assertEquals(500, listed);
+        Assert.assertEquals(listed, prefetched);
+    }
+
+    private long walk(StorageAsset dir, boolean prefetch) {
+        long count = 0;
+        for (StorageAsset child : prefetch ? dir.listWithAttributes() : dir.list()) {
+            if (child.isContainer()) {
+                count += walk(child, prefetch);
+            } else if (child.getSize() >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
\ No newline at end of file
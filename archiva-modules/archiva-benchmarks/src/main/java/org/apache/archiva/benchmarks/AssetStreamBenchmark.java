@@ -0,0 +1,100 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.archiva.repository.storage.util.StorageUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Streams all assets of a generated repository tree with the sequential and the parallel asset stream of
+ * {@link StorageUtil}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class AssetStreamBenchmark
+{
+    @Param( { "5", "50" } )
+    public int groups;
+
+    private Path directory;
+
+    private StorageAsset root;
+
+    @Setup( Level.Trial )
+    public void setUp( )
+        throws IOException
+    {
+        directory = Fixtures.createTempDirectory( "asset-stream" );
+        Fixtures.writeRepositoryLayout( directory, groups, 100, 20 );
+        root = new FilesystemStorage( directory, new DefaultFileLockManager( ) ).getRoot( );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown( )
+    {
+        FileUtils.deleteQuietly( directory );
+    }
+
+    @Benchmark
+    public void sequential( Blackhole blackhole )
+    {
+        stream( root, false, blackhole );
+    }
+
+    @Benchmark
+    public void parallel( Blackhole blackhole )
+    {
+        stream( root, true, blackhole );
+    }
+
+    private static void stream( StorageAsset root, boolean parallel, Blackhole blackhole )
+    {
+        try ( Stream<StorageAsset> stream = StorageUtil.newAssetStream( root, parallel ) )
+        {
+            stream.map( StorageAsset::getPath ).forEach( blackhole::consume );
+        }
+    }
+}
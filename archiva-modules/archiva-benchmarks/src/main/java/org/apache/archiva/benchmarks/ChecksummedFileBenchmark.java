@@ -0,0 +1,92 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.checksum.ChecksumAlgorithm;
+import org.apache.archiva.checksum.ChecksummedFile;
+import org.apache.archiva.common.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates and verifies the checksum of artifacts of different sizes.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ChecksummedFileBenchmark
+{
+    @Param( { "4096", "1048576", "16777216" } )
+    public int size;
+
+    @Param( { "SHA1", "SHA256" } )
+    public ChecksumAlgorithm algorithm;
+
+    private Path directory;
+
+    private ChecksummedFile checksummedFile;
+
+    @Setup( Level.Trial )
+    public void setUp( )
+        throws IOException
+    {
+        directory = Fixtures.createTempDirectory( "checksum" );
+        Path artifact = Fixtures.writeRandomFile( directory.resolve( "artifact-1.0.jar" ), size );
+        checksummedFile = new ChecksummedFile( artifact );
+        checksummedFile.writeFile( algorithm );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown( )
+    {
+        FileUtils.deleteQuietly( directory );
+    }
+
+    @Benchmark
+    public String calculateChecksum( )
+    {
+        return checksummedFile.calculateChecksum( algorithm );
+    }
+
+    @Benchmark
+    public boolean isValidChecksum( )
+        throws Exception
+    {
+        return checksummedFile.isValidChecksum( algorithm );
+    }
+}
@@ -0,0 +1,108 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.archiva.components.registry.RegistryException;
+import org.apache.archiva.components.registry.commons.CommonsConfigurationRegistry;
+import org.apache.archiva.configuration.model.Configuration;
+import org.apache.archiva.configuration.provider.DefaultArchivaConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the configuration from a growing number of threads, as the request handling components do. The
+ * throughput per thread should stay constant, as long as reads do not contend.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ConfigurationReadBenchmark
+{
+    private Path directory;
+
+    private DefaultArchivaConfiguration archivaConfiguration;
+
+    @Setup( Level.Trial )
+    public void setUp( )
+        throws IOException, RegistryException
+    {
+        directory = Fixtures.createTempDirectory( "configuration" );
+        System.setProperty( "appserver.base", directory.toString( ) );
+
+        // the default configuration is read and saved to the file, as on the first start
+        CommonsConfigurationRegistry registry = new CommonsConfigurationRegistry( );
+        registry.setInitialConfiguration( "<configuration><system/><xml fileName=\""
+                                              + directory.resolve( "archiva.xml" )
+                                              + "\" config-optional=\"true\" config-forceCreate=\"true\""
+                                              + " config-name=\"org.apache.archiva.base\" config-at=\"org.apache.archiva\"/>"
+                                              + "</configuration>" );
+        registry.initialize( );
+
+        archivaConfiguration = new DefaultArchivaConfiguration( );
+        archivaConfiguration.setRegistry( registry );
+        archivaConfiguration.initialize( );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown( )
+    {
+        FileUtils.deleteQuietly( directory );
+    }
+
+    @Benchmark
+    @Threads( 1 )
+    public Configuration read1Thread( )
+    {
+        return archivaConfiguration.getConfiguration( );
+    }
+
+    @Benchmark
+    @Threads( 4 )
+    public Configuration read4Threads( )
+    {
+        return archivaConfiguration.getConfiguration( );
+    }
+
+    @Benchmark
+    @Threads( 16 )
+    public Configuration read16Threads( )
+    {
+        return archivaConfiguration.getConfiguration( );
+    }
+}
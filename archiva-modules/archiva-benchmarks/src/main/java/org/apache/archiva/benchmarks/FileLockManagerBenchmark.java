@@ -0,0 +1,132 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.common.filelock.FileLockException;
+import org.apache.archiva.common.filelock.FileLockTimeoutException;
+import org.apache.archiva.common.filelock.Lock;
+import org.apache.archiva.common.utils.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Acquires and releases file locks. The uncontended benchmarks lock a file per thread, the contended ones let
+ * four threads compete for the same file.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class FileLockManagerBenchmark
+{
+    @State( Scope.Benchmark )
+    public static class Manager
+    {
+        DefaultFileLockManager lockManager;
+
+        Path directory;
+
+        Path sharedFile;
+
+        final AtomicInteger threadCount = new AtomicInteger( );
+
+        @Setup( Level.Trial )
+        public void setUp( )
+            throws IOException
+        {
+            directory = Fixtures.createTempDirectory( "filelock" );
+            sharedFile = directory.resolve( "shared.jar" );
+            lockManager = new DefaultFileLockManager( );
+            lockManager.setSkipLocking( false );
+            lockManager.setTimeout( 0 );
+        }
+
+        @TearDown( Level.Trial )
+        public void tearDown( )
+        {
+            lockManager.clearLockFiles( );
+            FileUtils.deleteQuietly( directory );
+        }
+    }
+
+    @State( Scope.Thread )
+    public static class ThreadFile
+    {
+        Path file;
+
+        @Setup( Level.Trial )
+        public void setUp( Manager manager )
+        {
+            file = manager.directory.resolve( "thread-" + manager.threadCount.incrementAndGet( ) + ".jar" );
+        }
+    }
+
+    @Benchmark
+    public void readLockUncontended( Manager manager, ThreadFile threadFile )
+        throws FileLockException, FileLockTimeoutException
+    {
+        Lock lock = manager.lockManager.readFileLock( threadFile.file );
+        manager.lockManager.release( lock );
+    }
+
+    @Benchmark
+    public void writeLockUncontended( Manager manager, ThreadFile threadFile )
+        throws FileLockException, FileLockTimeoutException
+    {
+        Lock lock = manager.lockManager.writeFileLock( threadFile.file );
+        manager.lockManager.release( lock );
+    }
+
+    @Benchmark
+    @Threads( 4 )
+    public void writeLockContended( Manager manager )
+        throws FileLockException, FileLockTimeoutException
+    {
+        Lock lock = manager.lockManager.writeFileLock( manager.sharedFile );
+        manager.lockManager.release( lock );
+    }
+
+    @Benchmark
+    @Threads( 4 )
+    public void readLockContended( Manager manager )
+        throws FileLockException, FileLockTimeoutException
+    {
+        Lock lock = manager.lockManager.readFileLock( manager.sharedFile );
+        manager.lockManager.release( lock );
+    }
+}
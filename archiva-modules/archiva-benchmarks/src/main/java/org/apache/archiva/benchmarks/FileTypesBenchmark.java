@@ -0,0 +1,116 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.configuration.model.Configuration;
+import org.apache.archiva.configuration.model.FileType;
+import org.apache.archiva.configuration.model.RepositoryScanningConfiguration;
+import org.apache.archiva.configuration.provider.ArchivaConfiguration;
+import org.apache.archiva.configuration.provider.FileTypes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches repository paths against the default artifact patterns, as the repository scanner and the consumers do
+ * for every file. Every second path is a checksum or metadata file, that does not match.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class FileTypesBenchmark
+{
+    private static final List<String> ARTIFACT_PATTERNS =
+        Arrays.asList( "**/*.pom", "**/*.jar", "**/*.ear", "**/*.war", "**/*.car", "**/*.sar", "**/*.mar",
+                       "**/*.rar", "**/*.dtd", "**/*.tld", "**/*.tar.gz", "**/*.tar.bz2", "**/*.zip" );
+
+    private static final int PATH_COUNT = 1024;
+
+    private FileTypes fileTypes;
+
+    private String[] paths;
+
+    private int index;
+
+    @Setup
+    public void setUp( )
+    {
+        FileType artifacts = new FileType( );
+        artifacts.setId( FileTypes.ARTIFACTS );
+        artifacts.setPatterns( new ArrayList<>( ARTIFACT_PATTERNS ) );
+        RepositoryScanningConfiguration scanning = new RepositoryScanningConfiguration( );
+        scanning.addFileType( artifacts );
+        Configuration configuration = new Configuration( );
+        configuration.setRepositoryScanning( scanning );
+
+        fileTypes = new FileTypes( );
+        fileTypes.setArchivaConfiguration( createArchivaConfiguration( configuration ) );
+        fileTypes.initialize( );
+
+        paths = new String[PATH_COUNT];
+        List<String> artifactPaths = Fixtures.artifactPaths( PATH_COUNT / 2 );
+        for ( int i = 0; i < artifactPaths.size( ); i++ )
+        {
+            String path = artifactPaths.get( i );
+            paths[2 * i] = path;
+            paths[2 * i + 1] = i % 2 == 0
+                ? path + ".sha1"
+                : path.substring( 0, path.lastIndexOf( '/' ) + 1 ) + "maven-metadata.xml";
+        }
+    }
+
+    /**
+     * Only the configuration is read by {@link FileTypes}, so a proxy serves it without a registry.
+     */
+    private static ArchivaConfiguration createArchivaConfiguration( Configuration configuration )
+    {
+        return (ArchivaConfiguration) Proxy.newProxyInstance( ArchivaConfiguration.class.getClassLoader( ),
+            new Class<?>[]{ ArchivaConfiguration.class }, ( proxy, method, args ) -> {
+                if ( "getConfiguration".equals( method.getName( ) ) )
+                {
+                    return configuration;
+                }
+                return method.getReturnType( ) == boolean.class ? Boolean.FALSE : null;
+            } );
+    }
+
+    @Benchmark
+    public boolean matchesArtifactPattern( )
+    {
+        String path = paths[index++ & ( PATH_COUNT - 1 )];
+        return fileTypes.matchesArtifactPattern( path );
+    }
+}
@@ -0,0 +1,100 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks a repository tree and reads the size of each file. The walk with {@link StorageAsset#list()} reads the
+ * attributes of each entry separately, the walk with {@link StorageAsset#listWithAttributes()} uses the attributes
+ * that are prefetched while listing the directory.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class FilesystemAssetListBenchmark
+{
+    @Param( { "10", "100" } )
+    public int groups;
+
+    private Path directory;
+
+    private StorageAsset root;
+
+    @Setup( Level.Trial )
+    public void setUp( )
+        throws IOException
+    {
+        directory = Fixtures.createTempDirectory( "asset-list" );
+        Fixtures.writeRepositoryLayout( directory, groups, 50, 10 );
+        root = new FilesystemStorage( directory, new DefaultFileLockManager( ) ).getRoot( );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown( )
+    {
+        FileUtils.deleteQuietly( directory );
+    }
+
+    @Benchmark
+    public long list( )
+    {
+        return walk( root, false );
+    }
+
+    @Benchmark
+    public long listWithAttributes( )
+    {
+        return walk( root, true );
+    }
+
+    private static long walk( StorageAsset directory, boolean prefetch )
+    {
+        long size = 0;
+        for ( StorageAsset child : prefetch ? directory.listWithAttributes( ) : directory.list( ) )
+        {
+            size += child.isContainer( ) ? walk( child, prefetch ) : child.getSize( );
+        }
+        return size;
+    }
+}
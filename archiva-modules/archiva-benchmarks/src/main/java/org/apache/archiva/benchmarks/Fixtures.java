@@ -0,0 +1,186 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Creates the synthetic local fixtures of the benchmarks. All data is derived from a fixed seed, so every run
+ * measures the same input.
+ */
+final class Fixtures
+{
+    static final long SEED = 4711;
+
+    private static final String[] QUALIFIERS =
+        { "alpha-1", "alpha-12", "beta-2", "m3", "rc1", "RC2", "SNAPSHOT", "20210315.134512-3" };
+
+    private static final String[] GROUPS =
+        { "org/apache/archiva", "org/apache/maven/plugins", "com/example/foo/bar", "io/netty", "junit" };
+
+    private static final String[] CLASSIFIERS = { "sources", "javadoc", "tests", "jdk8" };
+
+    private Fixtures( )
+    {
+    }
+
+    static Path createTempDirectory( String prefix )
+        throws IOException
+    {
+        return Files.createTempDirectory( "archiva-benchmark-" + prefix );
+    }
+
+    /**
+     * Writes a file of the given size with pseudo random content.
+     */
+    static Path writeRandomFile( Path file, int size )
+        throws IOException
+    {
+        Random random = new Random( SEED );
+        byte[] buffer = new byte[8192];
+        try ( OutputStream os = Files.newOutputStream( file ) )
+        {
+            int remaining = size;
+            while ( remaining > 0 )
+            {
+                random.nextBytes( buffer );
+                int length = Math.min( remaining, buffer.length );
+                os.write( buffer, 0, length );
+                remaining -= length;
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Creates the directories of a Maven 2 repository with a jar, a pom and their checksums in each version
+     * directory.
+     *
+     * @return the number of created files
+     */
+    static long writeRepositoryLayout( Path base, int groups, int artifacts, int versions )
+        throws IOException
+    {
+        long count = 0;
+        for ( int g = 0; g < groups; g++ )
+        {
+            Path groupDir = base.resolve( "org" ).resolve( "group" + g );
+            for ( int a = 0; a < artifacts; a++ )
+            {
+                for ( int v = 0; v < versions; v++ )
+                {
+                    Path versionDir = Files.createDirectories( groupDir.resolve( "artifact" + a ).resolve( "1." + v ) );
+                    String prefix = "artifact" + a + "-1." + v;
+                    for ( String extension : new String[]{ ".jar", ".jar.sha1", ".pom", ".pom.sha1" } )
+                    {
+                        Files.createFile( versionDir.resolve( prefix + extension ) );
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return version strings with numeric parts, qualifiers and snapshot timestamps, as they are found in repositories
+     */
+    static List<String> versions( int count )
+    {
+        Random random = new Random( SEED );
+        List<String> versions = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            StringBuilder version = new StringBuilder( );
+            version.append( random.nextInt( 5 ) ).append( '.' ).append( random.nextInt( 20 ) );
+            if ( random.nextBoolean( ) )
+            {
+                version.append( '.' ).append( random.nextInt( 30 ) );
+            }
+            if ( random.nextInt( 3 ) == 0 )
+            {
+                version.append( '-' ).append( QUALIFIERS[random.nextInt( QUALIFIERS.length )] );
+            }
+            versions.add( version.toString( ) );
+        }
+        return versions;
+    }
+
+    /**
+     * @return relative artifact paths in the Maven 2 layout, including classifiers and timestamped snapshots
+     */
+    static List<String> artifactPaths( int count )
+    {
+        Random random = new Random( SEED );
+        List<String> paths = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ )
+        {
+            String group = GROUPS[random.nextInt( GROUPS.length )];
+            String artifactId = "artifact" + random.nextInt( 100 );
+            String version = random.nextInt( 5 ) + "." + random.nextInt( 20 );
+            String fileVersion = version;
+            if ( random.nextInt( 4 ) == 0 )
+            {
+                fileVersion = version + "-20200101." + String.format( "%06d", random.nextInt( 240000 ) ) + "-"
+                    + ( random.nextInt( 20 ) + 1 );
+                version = version + "-SNAPSHOT";
+            }
+            String classifier = random.nextInt( 3 ) == 0 ? "-" + CLASSIFIERS[random.nextInt( CLASSIFIERS.length )] : "";
+            String extension = random.nextBoolean( ) ? ".jar" : ".pom";
+            paths.add( group + "/" + artifactId + "/" + version + "/" + artifactId + "-" + fileVersion + classifier
+                           + extension );
+        }
+        return paths;
+    }
+
+    /**
+     * Writes a <code>maven-metadata.xml</code> of the artifact level with the given number of versions.
+     */
+    static Path writeMetadata( Path file, int versionCount )
+        throws IOException
+    {
+        StringBuilder xml = new StringBuilder( );
+        xml.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        xml.append( "<metadata modelVersion=\"1.1.0\">\n" );
+        xml.append( "  <groupId>org.apache.archiva</groupId>\n" );
+        xml.append( "  <artifactId>archiva-benchmark</artifactId>\n" );
+        xml.append( "  <versioning>\n" );
+        xml.append( "    <latest>1." ).append( versionCount - 1 ).append( ".0</latest>\n" );
+        xml.append( "    <release>1." ).append( versionCount - 1 ).append( ".0</release>\n" );
+        xml.append( "    <versions>\n" );
+        for ( int i = 0; i < versionCount; i++ )
+        {
+            xml.append( "      <version>1." ).append( i ).append( ".0</version>\n" );
+        }
+        xml.append( "    </versions>\n" );
+        xml.append( "    <lastUpdated>20200101120000</lastUpdated>\n" );
+        xml.append( "  </versioning>\n" );
+        xml.append( "</metadata>\n" );
+        Files.write( file, xml.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+        return file;
+    }
+}
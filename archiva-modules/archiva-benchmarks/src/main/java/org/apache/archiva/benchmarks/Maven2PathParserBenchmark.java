@@ -0,0 +1,72 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.maven.repository.metadata.storage.DefaultArtifactMappingProvider;
+import org.apache.archiva.maven.repository.metadata.storage.Maven2RepositoryPathTranslator;
+import org.apache.archiva.metadata.model.ArtifactMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses relative paths of the Maven 2 layout into artifact metadata. A quarter of the paths are timestamped
+ * snapshots, a third has a classifier.
+ */
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class Maven2PathParserBenchmark
+{
+    private static final int PATH_COUNT = 1024;
+
+    private Maven2RepositoryPathTranslator pathTranslator;
+
+    private String[] paths;
+
+    private int index;
+
+    @Setup
+    public void setUp( )
+    {
+        pathTranslator =
+            new Maven2RepositoryPathTranslator( Collections.singletonList( new DefaultArtifactMappingProvider( ) ) );
+        paths = Fixtures.artifactPaths( PATH_COUNT ).toArray( new String[0] );
+    }
+
+    @Benchmark
+    public ArtifactMetadata getArtifactForPath( )
+    {
+        return pathTranslator.getArtifactForPath( "internal", paths[index++ & ( PATH_COUNT - 1 )] );
+    }
+}
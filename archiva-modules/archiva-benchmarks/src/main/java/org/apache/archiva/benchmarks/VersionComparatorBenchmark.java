@@ -0,0 +1,88 @@
+package org.apache.archiva.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.common.utils.VersionKey;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares and sorts version strings with the string based {@link VersionComparator} and the pre-parsed
+ * {@link VersionKey}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class VersionComparatorBenchmark
+{
+    @Param( { "100", "10000", "100000" } )
+    public int count;
+
+    private List<String> versions;
+
+    @Setup
+    public void setUp( )
+    {
+        versions = Fixtures.versions( count );
+    }
+
+    @Benchmark
+    public void compare( Blackhole blackhole )
+    {
+        for ( int i = 1; i < versions.size( ); i++ )
+        {
+            blackhole.consume( VersionComparator.getInstance( ).compare( versions.get( i - 1 ), versions.get( i ) ) );
+        }
+    }
+
+    @Benchmark
+    public List<String> sortWithComparator( )
+    {
+        List<String> copy = new ArrayList<>( versions );
+        copy.sort( VersionComparator.getInstance( ) );
+        return copy;
+    }
+
+    @Benchmark
+    public List<String> sortWithVersionKey( )
+    {
+        List<String> copy = new ArrayList<>( versions );
+        VersionKey.sort( copy );
+        return copy;
+    }
+}
@@ -63,6 +63,8 @@
 import org.apache.maven.index.updater.IndexUpdater;
 import org.apache.maven.index.updater.ResourceFetcher;
 import org.apache.maven.index_shaded.lucene.index.IndexFormatTooOldException;
+import org.apache.maven.index_shaded.lucene.index.IndexReader;
+import org.apache.maven.index_shaded.lucene.search.IndexSearcher;
 import org.apache.maven.wagon.ConnectionException;
 import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.StreamWagon;
@@ -85,15 +87,21 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.stream.Collectors;
 
@@ -142,6 +150,12 @@ public class MavenIndexManager implements ArchivaIndexManager {
 
     private ConcurrentSkipListSet<StorageAsset> activeContexts = new ConcurrentSkipListSet<>( );
 
+    private static final String MERGED_DIRECTORY_SUFFIX = ".merged";
+
+    private static final String MEMBER_GENERATIONS_FILE = "member-generations.properties";
+
+    private final Map<String, MergedIndexState> mergedIndexes = new ConcurrentHashMap<>( );
+
     private static final int WAIT_TIME = 100;
     private static final int MAX_WAIT = 10;
 
@@ -545,6 +559,15 @@ public void updateLocalIndexPath(Repository repo) {
         }
     }
 
+    /**
+     * Merges the given contexts into the index of the destination repository.
+     * <p>
+     * The merged context is kept between the calls and stored in a directory next to the index path of the
+     * destination. The generation of each member index is recorded, if no member changed since the last merge,
+     * the packed index is not written again. If members changed, the packer adds a incremental chunk with the
+     * documents that were modified since the last pack. If the members of the group change, a new
+     * incremental chain is started.
+     */
     @Override
     public ArchivaIndexingContext mergeContexts(Repository destinationRepo, List<ArchivaIndexingContext> contexts,
                                                 boolean packIndex) throws UnsupportedOperationException,
@@ -552,52 +575,150 @@ public ArchivaIndexingContext mergeContexts(Repository destinationRepo, List<Arc
         if (!destinationRepo.supportsFeature(IndexCreationFeature.class)) {
             throw new IllegalArgumentException("The given repository does not support the indexcreation feature");
         }
-        Path mergedIndexDirectory = null;
-        try {
-            mergedIndexDirectory = Files.createTempDirectory("archivaMergedIndex");
-        } catch (IOException e) {
-            log.error("Could not create temporary directory for merged index: {}", e.getMessage(), e);
-            throw new IndexCreationFailedException("IO error while creating temporary directory for merged index: "+e.getMessage(), e);
-        }
         IndexCreationFeature indexCreationFeature = destinationRepo.getFeature( IndexCreationFeature.class );
         if (indexCreationFeature.getLocalIndexPath()== null) {
             throw new IllegalArgumentException("The given repository does not have a local index path");
         }
         StorageAsset destinationPath = indexCreationFeature.getLocalIndexPath();
 
-        String tempRepoId = mergedIndexDirectory.getFileName().toString();
-
-        try
+        MergedIndexState state = mergedIndexes.computeIfAbsent( destinationRepo.getId( ), id -> new MergedIndexState( ) );
+        synchronized ( state )
         {
-            Path indexLocation = destinationPath.getFilePath();
-
-            List<IndexingContext> members = contexts.stream( ).filter(ctx -> ctx.supports(IndexingContext.class)).map( ctx ->
+            try
             {
-                try {
-                    return ctx.getBaseContext(IndexingContext.class);
-                } catch (UnsupportedBaseContextException e) {
-                    // does not happen here
-                    return null;
+                Path indexLocation = destinationPath.getFilePath();
+                Path mergedIndexDirectory = indexLocation.resolveSibling( indexLocation.getFileName( ) + MERGED_DIRECTORY_SUFFIX );
+
+                List<IndexingContext> members = contexts.stream( ).filter(ctx -> ctx.supports(IndexingContext.class)).map( ctx ->
+                {
+                    try {
+                        return ctx.getBaseContext(IndexingContext.class);
+                    } catch (UnsupportedBaseContextException e) {
+                        // does not happen here
+                        return null;
+                    }
+                }).filter( Objects::nonNull ).collect( Collectors.toList() );
+                Map<String, String> generations = new TreeMap<>( );
+                for ( IndexingContext member : members )
+                {
+                    generations.put( member.getId( ), getGeneration( member ) );
+                }
+
+                if ( state.context != null && !Files.exists( mergedIndexDirectory ) )
+                {
+                    // the context was closed and removed
+                    state.context = null;
+                }
+                if ( state.context == null )
+                {
+                    Files.createDirectories( mergedIndexDirectory );
+                    state.generations = readGenerations( mergedIndexDirectory );
+                }
+                else if ( !state.members.equals( members ) )
+                {
+                    // the member contexts are recreated, if a repository is reloaded
+                    state.context.close( false );
+                    state.context = null;
+                }
+                if ( !state.generations.keySet( ).equals( generations.keySet( ) ) )
+                {
+                    // members were added or removed, the clients have to start with a full download
+                    log.debug( "Members of merged index {} changed, starting a new incremental chain", destinationRepo.getId( ) );
+                    Files.deleteIfExists( mergedIndexDirectory.resolve( IndexingContext.INDEX_PACKER_PROPERTIES_FILE ) );
+                    Files.deleteIfExists( indexLocation.resolve( IndexingContext.INDEX_REMOTE_PROPERTIES_FILE ) );
+                    state.generations = Collections.emptyMap( );
+                }
+                if ( state.context == null )
+                {
+                    String mergedId = mergedIndexDirectory.getFileName( ).toString( );
+                    ContextMemberProvider memberProvider = new StaticContextMemberProvider( members );
+                    state.members = members;
+                    state.context = indexer.createMergedIndexingContext( mergedId, mergedId, mergedIndexDirectory.toFile( ),
+                        indexLocation.toFile( ), true, memberProvider );
+                    state.context.optimize( );
+                }
+                IndexingContext mergedCtx = state.context;
+
+                if ( packIndex )
+                {
+                    if ( generations.equals( state.generations ) && Files.exists(
+                        indexLocation.resolve( IndexingContext.INDEX_REMOTE_PROPERTIES_FILE ) ) )
+                    {
+                        log.debug( "Members of merged index {} did not change, skipping the packing", destinationRepo.getId( ) );
+                    }
+                    else
+                    {
+                        IndexSearcher searcher = mergedCtx.acquireIndexSearcher( );
+                        try
+                        {
+                            IndexPackingRequest request = new IndexPackingRequest( mergedCtx, //
+                                searcher.getIndexReader( ), //
+                                indexLocation.toFile( ) );
+                            request.setCreateIncrementalChunks( true );
+                            indexPacker.packIndex( request );
+                        }
+                        finally
+                        {
+                            mergedCtx.releaseIndexSearcher( searcher );
+                        }
+                        writeGenerations( mergedIndexDirectory, generations );
+                        state.generations = generations;
+                    }
                 }
-            }).filter( Objects::nonNull ).collect( Collectors.toList() );
-            ContextMemberProvider memberProvider = new StaticContextMemberProvider(members);
-            IndexingContext mergedCtx = indexer.createMergedIndexingContext( tempRepoId, tempRepoId, mergedIndexDirectory.toFile(),
-                    indexLocation.toFile(), true, memberProvider);
-            mergedCtx.optimize();
 
-            if ( packIndex )
+                return new MavenIndexContext( destinationRepo, mergedCtx );
+            }
+            catch ( IOException e )
             {
-                IndexPackingRequest request = new IndexPackingRequest( mergedCtx, //
-                        mergedCtx.acquireIndexSearcher().getIndexReader(), //
-                        indexLocation.toFile() );
-                indexPacker.packIndex( request );
+                throw new IndexCreationFailedException( "IO Error during index merge: " + e.getMessage( ), e );
             }
+        }
+    }
+
+    /*
+     * The generation changes with every modification of the member index.
+     */
+    private String getGeneration( IndexingContext member ) throws IOException
+    {
+        IndexSearcher searcher = member.acquireIndexSearcher( );
+        try
+        {
+            Date timestamp = member.getTimestamp( );
+            IndexReader reader = searcher.getIndexReader( );
+            return ( timestamp == null ? 0 : timestamp.getTime( ) ) + ":" + reader.maxDoc( ) + ":" + reader.numDocs( );
+        }
+        finally
+        {
+            member.releaseIndexSearcher( searcher );
+        }
+    }
 
-            return new MavenIndexContext(destinationRepo, mergedCtx);
+    private Map<String, String> readGenerations( Path mergedIndexDirectory ) throws IOException
+    {
+        Path file = mergedIndexDirectory.resolve( MEMBER_GENERATIONS_FILE );
+        Map<String, String> generations = new TreeMap<>( );
+        if ( Files.exists( file ) )
+        {
+            Properties properties = new Properties( );
+            try ( InputStream is = Files.newInputStream( file ) )
+            {
+                properties.load( is );
+            }
+            for ( String key : properties.stringPropertyNames( ) )
+            {
+                generations.put( key, properties.getProperty( key ) );
+            }
         }
-        catch ( IOException e)
+        return generations;
+    }
+
+    private void writeGenerations( Path mergedIndexDirectory, Map<String, String> generations ) throws IOException
+    {
+        Properties properties = new Properties( );
+        properties.putAll( generations );
+        try ( OutputStream os = Files.newOutputStream( mergedIndexDirectory.resolve( MEMBER_GENERATIONS_FILE ) ) )
         {
-            throw new IndexCreationFailedException( "IO Error during index merge: "+ e.getMessage(), e );
+            properties.store( os, "Generations of the merged member indexes" );
         }
     }
 
@@ -786,6 +907,15 @@ private String calculateIndexRemoteUrl( URI baseUri, RemoteIndexFeature rif )
         }
     }
 
+    private static final class MergedIndexState
+    {
+        private IndexingContext context;
+
+        private List<IndexingContext> members = Collections.emptyList( );
+
+        private Map<String, String> generations = Collections.emptyMap( );
+    }
+
     private static final class DownloadListener
         implements TransferListener
     {
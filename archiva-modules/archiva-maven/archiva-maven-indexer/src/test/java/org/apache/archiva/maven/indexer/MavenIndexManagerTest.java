@@ -48,7 +48,9 @@
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -185,6 +187,43 @@ public void removeArtifactsFromIndex() throws Exception {
         assertEquals(1, mvnCtx.acquireIndexSearcher().count(q));
     }
 
+    @Test
+    public void mergeContexts() throws Exception {
+        createTestContext();
+        Path destDir = repository.getRoot().getFilePath().resolve("org/apache/archiva/archiva-webapp/1.0");
+        Path srcDir = Paths.get("src/test/maven-search-test-repo/org/apache/archiva/archiva-webapp/1.0");
+        org.apache.commons.io.FileUtils.copyDirectory(srcDir.toFile(),destDir.toFile());
+        mavenIndexManager.scan(ctx);
+
+        MavenManagedRepository mergedRepository = MavenManagedRepository.newLocalInstance("merged-repo", "Merged Repo", Paths.get("target/repositories"));
+        IndexCreationFeature icf = mergedRepository.getFeature( IndexCreationFeature.class );
+        icf.setIndexPath(new URI(".index-merged." + System.nanoTime()));
+        mavenIndexManager.updateLocalIndexPath(mergedRepository);
+        Path mergedIndexPath = icf.getLocalIndexPath().getFilePath();
+        Path mergedDirectory = mergedIndexPath.resolveSibling(mergedIndexPath.getFileName() + ".merged");
+        try {
+            ArchivaIndexingContext mergedCtx = mavenIndexManager.mergeContexts(mergedRepository, Collections.singletonList(ctx), true);
+            assertNotNull(mergedCtx);
+            Path packed = mergedIndexPath.resolve("nexus-maven-repository-index.gz");
+            assertTrue(Files.exists(packed));
+            FileTime packTime = Files.getLastModifiedTime(packed);
+
+            // nothing changed, the packed index is not written again
+            Thread.sleep(1100);
+            mavenIndexManager.mergeContexts(mergedRepository, Collections.singletonList(ctx), true);
+            assertEquals(packTime, Files.getLastModifiedTime(packed));
+
+            Path searchDir = repository.getRoot().getFilePath().resolve("org/apache/archiva/archiva-search/1.0");
+            org.apache.commons.io.FileUtils.copyDirectory(Paths.get("src/test/maven-search-test-repo/org/apache/archiva/archiva-search/1.0").toFile(), searchDir.toFile());
+            mavenIndexManager.addArtifactsToIndex(ctx, Collections.singletonList(searchDir.resolve("archiva-search-1.0.jar").toUri()));
+            mavenIndexManager.mergeContexts(mergedRepository, Collections.singletonList(ctx), true);
+            assertNotEquals(packTime, Files.getLastModifiedTime(packed));
+        } finally {
+            FileUtils.deleteQuietly(mergedIndexPath);
+            FileUtils.deleteQuietly(mergedDirectory);
+        }
+    }
+
     @Test
     public void supportsRepository() throws Exception {
         assertTrue(mavenIndexManager.supportsRepository(RepositoryType.MAVEN));
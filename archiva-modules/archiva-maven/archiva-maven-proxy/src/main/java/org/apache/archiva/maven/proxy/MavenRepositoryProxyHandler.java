@@ -25,6 +25,7 @@
 import org.apache.archiva.proxy.base.NotFoundException;
 import org.apache.archiva.proxy.base.NotModifiedException;
 import org.apache.archiva.proxy.base.ProxyException;
+import org.apache.archiva.proxy.base.UpstreamValidators;
 import org.apache.archiva.proxy.model.NetworkProxy;
 import org.apache.archiva.proxy.model.ProxyConnector;
 import org.apache.archiva.proxy.model.RepositoryProxyHandler;
@@ -41,6 +42,8 @@
 import org.apache.maven.wagon.WagonException;
 import org.apache.maven.wagon.authentication.AuthenticationException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
+import org.apache.maven.wagon.events.TransferEvent;
+import org.apache.maven.wagon.events.TransferListener;
 import org.apache.maven.wagon.proxy.ProxyInfo;
 import org.apache.maven.wagon.repository.Repository;
 import org.slf4j.Logger;
@@ -187,11 +190,31 @@ protected void transferResources( ProxyConnector connector, RemoteRepository rem
         }
     }
 
+    /**
+     * Transfers the artifact. If the remote repository sent a <code>Last-Modified</code> header with the last
+     * download, it is used for the conditional request instead of the modification time of the local file, and the
+     * header of this response is stored with the downloaded file.
+     */
     protected void transferArtifact( Wagon wagon, RemoteRepository remoteRepository, String remotePath,
                                      Path resource,
                                      StorageAsset destFile )
             throws ProxyException {
-        transferSimpleFile(wagon, remoteRepository, remotePath, resource, destFile.getFilePath());
+        UpstreamValidators validators = UpstreamValidators.read(resource);
+        LastModifiedListener listener = new LastModifiedListener();
+        wagon.addTransferListener(listener);
+        try {
+            transferSimpleFile(wagon, remoteRepository, remotePath, resource, destFile.getFilePath(),
+                    validators == null ? 0 : validators.getLastModified());
+        } finally {
+            wagon.removeTransferListener(listener);
+        }
+        if (listener.lastModified > 0 && Files.exists(destFile.getFilePath())) {
+            try {
+                new UpstreamValidators(listener.lastModified).write(destFile.getFilePath());
+            } catch (IOException e) {
+                log.warn("Could not store the validators of {}: {}", remotePath, e.getMessage());
+            }
+        }
     }
 
     /**
@@ -247,6 +270,23 @@ protected void transferChecksum( Wagon wagon, RemoteRepository remoteRepository,
     protected void transferSimpleFile( Wagon wagon, RemoteRepository remoteRepository, String remotePath,
                                        Path origFile, Path destFile )
             throws ProxyException {
+        transferSimpleFile(wagon, remoteRepository, remotePath, origFile, destFile, 0);
+    }
+
+    /**
+     * Perform the transfer of the remote file to the local file specified.
+     *
+     * @param wagon              the wagon instance to use.
+     * @param remoteRepository   the remote repository to use
+     * @param remotePath         the remote path to attempt to get
+     * @param origFile           the local file to save to
+     * @param upstreamLastModified the last modification time reported by the remote repository for the local file,
+     *                           or <code>0</code> to use the modification time of the local file
+     * @throws ProxyException if there was a problem moving the downloaded file into place.
+     */
+    protected void transferSimpleFile( Wagon wagon, RemoteRepository remoteRepository, String remotePath,
+                                       Path origFile, Path destFile, long upstreamLastModified )
+            throws ProxyException {
         assert (remotePath != null);
 
         // Transfer the file.
@@ -263,8 +303,10 @@ protected void transferSimpleFile( Wagon wagon, RemoteRepository remoteRepositor
                 boolean success;
                 log.debug("Retrieving {} from {} if updated", remotePath, remoteRepository.getId());
                 try {
+                    long timestamp = upstreamLastModified > 0 ? upstreamLastModified
+                            : Files.getLastModifiedTime(origFile).toMillis();
                     success = wagon.getIfNewer(addParameters(remotePath, remoteRepository), destFile.toFile(),
-                            Files.getLastModifiedTime(origFile).toMillis());
+                            timestamp);
                 } catch (IOException e) {
                     throw new ProxyException("Failed to the modification time of " + origFile.toAbsolutePath());
                 }
@@ -293,6 +335,40 @@ protected void transferSimpleFile( Wagon wagon, RemoteRepository remoteRepositor
         }
     }
 
+    /**
+     * Records the modification time the remote repository sent for the transferred resource.
+     */
+    private static class LastModifiedListener implements TransferListener {
+        long lastModified = 0;
+
+        @Override
+        public void transferInitiated(TransferEvent transferEvent) {
+        }
+
+        @Override
+        public void transferStarted(TransferEvent transferEvent) {
+        }
+
+        @Override
+        public void transferProgress(TransferEvent transferEvent, byte[] bytes, int length) {
+        }
+
+        @Override
+        public void transferCompleted(TransferEvent transferEvent) {
+            if (transferEvent.getRequestType() == TransferEvent.REQUEST_GET) {
+                lastModified = transferEvent.getResource().getLastModified();
+            }
+        }
+
+        @Override
+        public void transferError(TransferEvent transferEvent) {
+        }
+
+        @Override
+        public void debug(String message) {
+        }
+    }
+
     /**
      * Using wagon, connect to the remote repository.
      *
@@ -18,10 +18,13 @@
  * under the License.
  */
 
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.apache.archiva.policies.CachedFailuresPolicy;
 import org.apache.archiva.policies.ChecksumPolicy;
 import org.apache.archiva.policies.ReleasesPolicy;
 import org.apache.archiva.policies.SnapshotsPolicy;
+import org.apache.archiva.proxy.base.DefaultRepositoryProxyHandler;
+import org.apache.archiva.proxy.base.UpstreamValidators;
 import org.apache.archiva.repository.content.BaseRepositoryContentLayout;
 import org.apache.archiva.repository.content.Artifact;
 import org.apache.archiva.repository.storage.StorageAsset;
@@ -102,6 +105,44 @@ public void testGetDefaultLayoutNotPresent()
         assertNoTempFiles( expectedFile );
     }
 
+    @Test
+    public void testGetDefaultLayoutNotPresentRecordsMetrics()
+        throws Exception
+    {
+        String path = "org/apache/maven/test/get-default-layout/1.0/get-default-layout-1.0.jar";
+        setupTestableManagedRepository( path );
+
+        Path expectedFile = managedDefaultDir.resolve(path);
+
+        BaseRepositoryContentLayout layout = managedDefaultRepository.getLayout( BaseRepositoryContentLayout.class );
+
+        Artifact artifact = layout.getArtifact( path );
+
+        assertNotExistsInManagedDefaultRepo( expectedFile );
+
+        saveConnector( ID_DEFAULT_MANAGED, ID_PROXIED1, ChecksumPolicy.FIX, ReleasesPolicy.ONCE, SnapshotsPolicy.ONCE,
+                       CachedFailuresPolicy.NO, false );
+
+        DefaultRepositoryProxyHandler handler = (DefaultRepositoryProxyHandler) proxyHandler;
+        MetricsRegistry metricsRegistry = new MetricsRegistry( );
+        handler.setMetricsRegistry( metricsRegistry );
+        try
+        {
+            StorageAsset downloadedFile = proxyHandler.fetchFromProxies( managedDefaultRepository.getRepository(), artifact );
+            assertNotNull( downloadedFile );
+
+            assertEquals( 1, metricsRegistry.counter( "archiva_proxy_requests_total", "remote", ID_PROXIED1, "result", "downloaded" ).getCount( ) );
+            assertEquals( 0, metricsRegistry.counter( "archiva_proxy_requests_total", "remote", ID_PROXIED1, "result", "error" ).getCount( ) );
+            assertEquals( 1, metricsRegistry.timer( "archiva_proxy_upstream_seconds", "remote", ID_PROXIED1 ).getCount( ) );
+            assertTrue( metricsRegistry.toText( ).contains(
+                "archiva_proxy_requests_total{remote=\"" + ID_PROXIED1 + "\",result=\"downloaded\"} 1\n" ) );
+        }
+        finally
+        {
+            handler.setMetricsRegistry( MetricsRegistry.getDefault( ) );
+        }
+    }
+
     @Test
     public void testGetDefaultLayoutNotPresentPassthrough()
         throws Exception
@@ -294,6 +335,42 @@ public void testGetDefaultLayoutAlreadyPresentOlderThanRemotePolicyIgnored()
         assertNoTempFiles( expectedFile );
     }
 
+    /**
+     * The managed file is newer than the remote file, but the validators stored with the last download are older, so
+     * the conditional request is based on them and the file is transferred. The new validators are stored.
+     */
+    @Test
+    public void testGetDefaultLayoutAlreadyPresentUsesUpstreamValidators()
+        throws Exception
+    {
+        String path = "org/apache/maven/test/get-default-layout-present/1.0/get-default-layout-present-1.0.jar";
+        setupTestableManagedRepository( path );
+
+        Path expectedFile = managedDefaultDir.resolve(path);
+        Path remoteFile = Paths.get(REPOPATH_PROXIED1, path);
+
+        setManagedNewerThanRemote( expectedFile, remoteFile );
+        long remoteModificationTime = Files.getLastModifiedTime( remoteFile ).toMillis();
+        new UpstreamValidators( remoteModificationTime - 86400000L ).write( expectedFile );
+        Files.setLastModifiedTime( expectedFile.resolveSibling( UpstreamValidators.getFileName( expectedFile.getFileName().toString() ) ),
+            Files.getLastModifiedTime( expectedFile ) );
+
+        BaseRepositoryContentLayout layout = managedDefaultRepository.getLayout( BaseRepositoryContentLayout.class );
+
+        Artifact artifact = layout.getArtifact( path );
+
+        saveConnector( ID_DEFAULT_MANAGED, ID_PROXIED1, ChecksumPolicy.FIX, ReleasesPolicy.ALWAYS,
+                       SnapshotsPolicy.ALWAYS, CachedFailuresPolicy.NO, false );
+
+        StorageAsset downloadedFile = proxyHandler.fetchFromProxies( managedDefaultRepository.getRepository(), artifact );
+
+        assertFileEquals( expectedFile, downloadedFile.getFilePath(), remoteFile );
+        assertNoTempFiles( expectedFile );
+        UpstreamValidators validators = UpstreamValidators.read( expectedFile );
+        assertNotNull( validators );
+        assertEquals( remoteModificationTime, validators.getLastModified() );
+    }
+
     /**
      * The attempt here should result in file being transferred.
      * <p/>
@@ -28,6 +28,8 @@
 import org.apache.archiva.policies.ChecksumPolicy;
 import org.apache.archiva.policies.ReleasesPolicy;
 import org.apache.archiva.policies.SnapshotsPolicy;
+import org.apache.archiva.proxy.base.DefaultRepositoryProxyHandler;
+import org.apache.archiva.proxy.model.ProxyFetchResult;
 import org.apache.archiva.repository.content.BaseRepositoryContentLayout;
 import org.apache.archiva.repository.content.ContentItem;
 import org.apache.archiva.repository.content.DataItem;
@@ -53,6 +55,7 @@
 import java.io.StringWriter;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 
@@ -385,6 +388,55 @@ public void testGetProjectMetadataProxiedOnLocalOnRemote()
         assertRepoProjectMetadata( ID_PROXIED1, requestedResource, new String[]{ "1.0.22", "2.0" } );
     }
 
+    @Test
+    public void testGetProjectMetadataProxiedOnLocalOnRemoteStaleWhileRevalidate()
+        throws Exception
+    {
+        String requestedResource = "org/apache/maven/test/get-on-local-on-remote/maven-metadata.xml";
+        setupTestableManagedRepository( requestedResource );
+
+        saveConnector( ID_DEFAULT_MANAGED, ID_PROXIED1, ChecksumPolicy.FIX, ReleasesPolicy.ALWAYS,
+                       SnapshotsPolicy.ALWAYS, CachedFailuresPolicy.NO, false );
+
+        Path expectedFile = managedDefaultDir.resolve( requestedResource );
+        Files.setLastModifiedTime( expectedFile, FileTime.fromMillis( System.currentTimeMillis() ) );
+
+        DefaultRepositoryProxyHandler handler = proxyHandler.getHandler( DefaultRepositoryProxyHandler.class );
+        handler.setMetadataMaxStaleness( 60000 );
+        try
+        {
+            // the local copy is returned at once, the remote repository is asked in the background
+            ProxyFetchResult result =
+                proxyHandler.fetchMetadataFromProxies( managedDefaultRepository.getRepository(), requestedResource );
+            assertNotNull( result.getFile() );
+            assertFalse( result.isModified() );
+
+            long timeout = System.currentTimeMillis() + 10000;
+            while ( true )
+            {
+                try
+                {
+                    assertProjectMetadataContents( requestedResource, new String[]{ "1.0.8", "1.0.22", "2.0" }, "2.0",
+                                                   "2.0" );
+                    break;
+                }
+                catch ( AssertionError e )
+                {
+                    if ( System.currentTimeMillis() > timeout )
+                    {
+                        throw e;
+                    }
+                    Thread.sleep( 100 );
+                }
+            }
+            assertRepoProjectMetadata( ID_PROXIED1, requestedResource, new String[]{ "1.0.22", "2.0" } );
+        }
+        finally
+        {
+            handler.setMetadataMaxStaleness( 0 );
+        }
+    }
+
     /**
      * A request for a release maven-metadata.xml file that does not exist locally, and the managed
      * repository has no proxied repositories set up.
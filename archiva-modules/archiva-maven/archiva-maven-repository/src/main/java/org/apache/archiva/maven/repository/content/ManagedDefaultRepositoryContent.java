@@ -22,6 +22,8 @@
 import org.apache.archiva.common.utils.FileUtils;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.configuration.provider.FileTypes;
+import org.apache.archiva.event.Event;
+import org.apache.archiva.event.EventHandler;
 import org.apache.archiva.maven.metadata.MavenMetadataReader;
 import org.apache.archiva.repository.EditableManagedRepository;
 import org.apache.archiva.repository.ItemDeleteStatus;
@@ -46,11 +48,12 @@
 import org.apache.archiva.repository.content.base.ArchivaNamespace;
 import org.apache.archiva.repository.content.base.ArchivaProject;
 import org.apache.archiva.repository.content.base.ArchivaVersion;
+import org.apache.archiva.repository.content.base.ContentItemCache;
 import org.apache.archiva.repository.content.base.builder.ArtifactOptBuilder;
+import org.apache.archiva.repository.event.RepositoryContentEvent;
 import org.apache.archiva.repository.storage.RepositoryStorage;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.repository.storage.util.StorageUtil;
-import org.apache.commons.collections4.map.ReferenceMap;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.inject.Inject;
@@ -113,12 +116,14 @@ public void setFileTypes( FileTypes fileTypes )
     private static final List<Class<? extends ManagedRepositoryContentLayout>> LAYOUTS = Arrays.asList( BaseRepositoryContentLayout.class );
 
     /**
-     * We are caching content items in a weak reference map. To avoid always recreating the
-     * the hierarchical structure.
-     * TODO: Better use a object cache? E.g. our spring cache implementation?
+     * We are caching content items by their asset path, to avoid always recreating the
+     * the hierarchical structure. The caches are shared by all request threads and are invalidated
+     * by the {@link RepositoryContentEvent}s of the repository.
      */
-    private ReferenceMap<StorageAsset, ContentItem> itemMap = new ReferenceMap<>( );
-    private ReferenceMap<StorageAsset, DataItem> dataItemMap = new ReferenceMap<>( );
+    private final ContentItemCache<ContentItem> itemMap = new ContentItemCache<>( );
+    private final ContentItemCache<DataItem> dataItemMap = new ContentItemCache<>( );
+
+    private final EventHandler<RepositoryContentEvent> contentEventHandler = this::handleContentEvent;
 
     public ManagedDefaultRepositoryContent( )
     {
@@ -285,6 +290,8 @@ public void deleteItem( ContentItem item ) throws ItemNotFoundException, Content
             log.error( "Could not delete item from path {}: {}", itemPath, e.getMessage( ), e );
             throw new ContentAccessException( "Error occured while deleting item " + item + ": " + e.getMessage( ), e );
         }
+        invalidateItems( item.getAsset( ).getPath( ) );
+        RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_REMOVED, this, repository, item.getAsset( ).getPath( ) );
     }
 
     @Override
@@ -573,6 +580,8 @@ private Artifact createArtifactFromPath( final StorageAsset artifactPath ) throw
         if (artifactPath==null) {
             throw new LayoutRuntimeException( "Path null is not valid for artifact" );
         }
+        // the cached item outlives the traversal, that listed the asset
+        artifactPath.refresh( );
         final Version version;
         try
         {
@@ -611,12 +620,14 @@ private String getContentType(StorageAsset artifactPath) {
     private DataItem getDataItemFromPath( final StorageAsset artifactPath )
     {
         final String contentType = getContentType( artifactPath );
-        return dataItemMap.computeIfAbsent( artifactPath, myArtifactPath ->
-            org.apache.archiva.repository.content.base.ArchivaDataItem.withAsset( artifactPath )
+        return dataItemMap.computeIfAbsent( artifactPath, myArtifactPath -> {
+            // the cached item outlives the traversal, that listed the asset
+            artifactPath.refresh( );
+            return org.apache.archiva.repository.content.base.ArchivaDataItem.withAsset( artifactPath )
                 .withId( artifactPath.getName( ) )
                 .withContentType( contentType )
-                .build( )
-        );
+                .build( );
+        } );
 
     }
 
@@ -624,15 +635,17 @@ private ContentItem getItemFromPath( final StorageAsset itemPath )
     {
         if ( itemPath.isLeaf( ) )
         {
-            if (dataItemMap.containsKey( itemPath )) {
-                return dataItemMap.get( itemPath );
+            DataItem item = dataItemMap.get( itemPath );
+            if (item != null) {
+                return item;
             }
             return getDataItemFromPath( itemPath );
         }
         else
         {
-            if (itemMap.containsKey( itemPath )) {
-                return itemMap.get( itemPath );
+            ContentItem item = itemMap.get( itemPath );
+            if (item != null) {
+                return item;
             } else {
                 return ArchivaContentItem.withRepository( this ).withAsset( itemPath ).build();
             }
@@ -863,7 +876,7 @@ public Artifact getArtifact( String path ) throws LayoutException, ContentAccess
     @Override
     public List<? extends Project> getProjects( Namespace namespace )
     {
-        return namespace.getAsset( ).list( ).stream( )
+        return namespace.getAsset( ).listWithAttributes( ).stream( )
             .filter( StorageAsset::isContainer )
             .map( a -> {
                 try
@@ -896,7 +909,7 @@ public List<? extends Project> getProjects( ItemSelector selector ) throws Conte
     public List<? extends Version> getVersions( final Project project )
     {
         StorageAsset asset = getAsset( project.getNamespace( ).getId( ), project.getId( ) );
-        return asset.list( ).stream( ).filter( StorageAsset::isContainer )
+        return asset.listWithAttributes( ).stream( ).filter( StorageAsset::isContainer )
             .map( a -> ArchivaVersion.withAsset( a )
                 .withProject( project )
                 .withVersion( a.getName( ) ).build( ) )
@@ -1123,8 +1136,8 @@ public Stream<? extends Artifact> newArtifactStream( ItemSelector selector ) thr
         else if ( projectId != null )
         {
             final StorageAsset projDir = getAsset( selector.getNamespace( ), projectId );
-            return projDir.list( ).stream( )
-                .map( a -> a.isContainer( ) ? a.list( ) : Collections.singletonList( a ) )
+            return projDir.listWithAttributes( ).stream( )
+                .map( a -> a.isContainer( ) ? a.listWithAttributes( ) : Collections.singletonList( a ) )
                 .flatMap( List::stream )
                 .filter( filter )
                 .map( this::getOptionalArtifactFromPath )
@@ -1143,10 +1156,10 @@ else if ( projectId != null )
             else
             {
                 // We descend into 2 subdirectories (project and version)
-                return namespaceDir.list( ).stream( )
-                    .map( a -> a.isContainer( ) ? a.list( ) : Collections.singletonList( a ) )
+                return namespaceDir.listWithAttributes( ).stream( )
+                    .map( a -> a.isContainer( ) ? a.listWithAttributes( ) : Collections.singletonList( a ) )
                     .flatMap( List::stream )
-                    .map( a -> a.isContainer( ) ? a.list( ) : Collections.singletonList( a ) )
+                    .map( a -> a.isContainer( ) ? a.listWithAttributes( ) : Collections.singletonList( a ) )
                     .flatMap( List::stream )
                     .filter( filter )
                     .map( this::getOptionalArtifactFromPath )
@@ -1338,10 +1351,10 @@ private Stream<StorageAsset> getChildrenDF( StorageAsset a, int level )
         if ( a.isContainer( ) )
         {
             if (level>0) {
-                return Stream.concat( a.list().stream( ).flatMap( ch -> getChildrenDF( ch, level - 1 ) ), Stream.of( a ) );
+                return Stream.concat( a.listWithAttributes( ).stream( ).flatMap( ch -> getChildrenDF( ch, level - 1 ) ), Stream.of( a ) );
             } else
             {
-                return Stream.concat( a.list( ).stream( ), Stream.of( a ) );
+                return Stream.concat( a.listWithAttributes( ).stream( ), Stream.of( a ) );
             }
         }
         else
@@ -1377,7 +1390,7 @@ else if ( selector.hasProjectId( ) )
             if ( !selector.recurse( ) )
             {
                 // We descend into 2 subdirectories (project and version)
-                return startDir.list( ).stream( )
+                return startDir.listWithAttributes( ).stream( )
                     .flatMap( a -> getChildrenDF( a, 1 ) )
                     .map( this::getItemFromPath );
             }
@@ -1485,6 +1498,8 @@ public void addArtifact( Path sourceFile, Artifact destination ) throws IllegalA
             log.error( "Could not push data to asset source={} destination={}. {}", sourceFile, destination.getAsset( ).getFilePath( ), e.getMessage( ) );
             throw new ContentAccessException( e.getMessage( ), e );
         }
+        invalidateItems( destination.getAsset( ).getPath( ) );
+        RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this, repository, destination.getAsset( ).getPath( ) );
     }
 
     @Override
@@ -1568,16 +1583,64 @@ public ManagedRepository getRepository( )
     @Override
     public void setRepository( final ManagedRepository repo )
     {
+        if ( this.repository != null && this.repository != repo )
+        {
+            this.repository.unregisterEventHandler( RepositoryContentEvent.ANY, contentEventHandler );
+        }
         this.repository = repo;
+        itemMap.invalidateAll( );
+        dataItemMap.invalidateAll( );
         if ( repo != null )
         {
             if ( repository instanceof EditableManagedRepository )
             {
                 ( (EditableManagedRepository) repository ).setContent( this );
             }
+            repository.registerEventHandler( RepositoryContentEvent.ANY, contentEventHandler );
+        }
+    }
+
+    /**
+     * Drops the cached items of changed assets. Our own changes are already applied, when the
+     * event is fired.
+     */
+    private void handleContentEvent( RepositoryContentEvent event )
+    {
+        for ( Event<?> ev = event; ev != null; ev = ev.getPreviousEvent( ) )
+        {
+            if ( ev.getSource( ) == this )
+            {
+                return;
+            }
+        }
+        if ( event.getPath( ) != null )
+        {
+            invalidateItems( event.getPath( ) );
         }
     }
 
+    private void invalidateItems( String path )
+    {
+        itemMap.invalidate( path );
+        dataItemMap.invalidate( path );
+    }
+
+    /**
+     * @return the cache of the namespace, project, version and generic container items
+     */
+    public ContentItemCache<ContentItem> getItemCache( )
+    {
+        return itemMap;
+    }
+
+    /**
+     * @return the cache of the artifact and file items
+     */
+    public ContentItemCache<DataItem> getDataItemCache( )
+    {
+        return dataItemMap;
+    }
+
     private Path getRepoDir( )
     {
         return repository.getRoot().getFilePath( );
@@ -19,7 +19,6 @@
  */
 
 import org.apache.archiva.common.filelock.DefaultFileLockManager;
-import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.configuration.provider.ArchivaConfiguration;
 import org.apache.archiva.configuration.model.Configuration;
@@ -34,17 +33,21 @@
 import org.apache.archiva.metadata.repository.storage.RepositoryPathTranslator;
 import org.apache.archiva.model.ArchivaRepositoryMetadata;
 import org.apache.archiva.repository.RepositoryException;
+import org.apache.archiva.repository.RepositoryRegistry;
 import org.apache.archiva.repository.RepositoryType;
+import org.apache.archiva.repository.event.RepositoryContentEvent;
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
 import org.apache.archiva.repository.metadata.base.RepositoryMetadataWriter;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.repository.storage.fs.FilesystemAsset;
 import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeJournal;
 import org.apache.archiva.stagerepository.merge.RepositoryMerger;
 import org.apache.archiva.stagerepository.merge.RepositoryMergerException;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
@@ -58,7 +61,6 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
@@ -99,6 +101,12 @@
     @Inject
     private RepositorySessionFactory repositorySessionFactory;
 
+    @Autowired( required = false )
+    private RepositoryChangeJournal changeJournal;
+
+    @Autowired( required = false )
+    private RepositoryRegistry repositoryRegistry;
+
     @Inject
     public Maven2RepositoryMerger(
         @Named (value = "archivaConfiguration#default") ArchivaConfiguration archivaConfiguration,
@@ -298,9 +306,12 @@ private void createFolderStructure( String sourceRepoId, String targetRepoId, Ar
                     updateProjectMetadata( projectMetadataFileInTargetRepo, artifactMetadata, lastUpdatedTimestamp,
                                            timestamp );
                 }
+                recordChange( targetRepoId, relativePathToProjectMetadataFile );
             }
         }
 
+        // the version directory holds the artifact, the pom and the version metadata
+        recordChange( targetRepoId, artifactPath.substring( 0, lastIndex ) );
     }
 
     private String getRelativeAssetPath(final StorageAsset asset) {
@@ -311,6 +322,19 @@ private String getRelativeAssetPath(final StorageAsset asset) {
         return relPath;
     }
 
+    private void recordChange( String repositoryId, String path )
+    {
+        if ( changeJournal != null )
+        {
+            changeJournal.recordChange( repositoryId, path );
+        }
+        if ( repositoryRegistry != null )
+        {
+            RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this,
+                repositoryRegistry.getManagedRepository( repositoryId ), "/" + path );
+        }
+    }
+
     private void copyFile( Path sourceFile, Path targetFile )
         throws IOException
     {
@@ -330,10 +354,9 @@ private void updateProjectMetadata( Path projectMetaDataFileIntargetRepo, Artifa
 
         if ( Files.exists(projectMetaDataFileIntargetRepo) )
         {
+            projectMetadata.sortAvailableVersions();
             availableVersions = (ArrayList<String>) projectMetadata.getAvailableVersions();
 
-            Collections.sort( availableVersions, VersionComparator.getInstance() );
-
             if ( !availableVersions.contains( artifactMetadata.getVersion() ) )
             {
                 availableVersions.add( artifactMetadata.getVersion() );
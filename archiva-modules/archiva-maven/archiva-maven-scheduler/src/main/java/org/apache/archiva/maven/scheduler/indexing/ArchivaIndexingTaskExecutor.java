@@ -18,6 +18,9 @@
  * under the License.
  */
 
+import org.apache.archiva.common.metrics.Counter;
+import org.apache.archiva.common.metrics.MetricsRegistry;
+import org.apache.archiva.common.metrics.Timer;
 import org.apache.archiva.indexer.ArchivaIndexingContext;
 import org.apache.archiva.indexer.UnsupportedBaseContextException;
 import org.apache.archiva.components.taskqueue.Task;
@@ -50,6 +53,10 @@
 import javax.inject.Inject;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ArchivaIndexingTaskExecutor Executes all indexing tasks. Adding, updating and removing artifacts from the index are
@@ -77,6 +84,20 @@
     @Inject
     IndexerEngine indexerEngine;
 
+    private final Map<ArtifactIndexingTask.Action, Counter> taskCounters =
+        new EnumMap<>( ArtifactIndexingTask.Action.class );
+
+    private Timer scanTimer;
+
+    private Timer commitTimer;
+
+    private Timer finishTimer;
+
+    public ArchivaIndexingTaskExecutor( )
+    {
+        setMetricsRegistry( MetricsRegistry.getDefault( ) );
+    }
+
     /**
      * depending on current {@link Task} you have.
      * If {@link org.apache.archiva.scheduler.indexing.ArtifactIndexingTask.Action#FINISH} &amp;&amp; isExecuteOnEntireRepo:
@@ -90,6 +111,7 @@ public void executeTask( Task task )
         throws TaskExecutionException
     {
         ArtifactIndexingTask indexingTask = (ArtifactIndexingTask) task;
+        taskCounters.get( indexingTask.getAction( ) ).increment( );
 
         ManagedRepository repository = indexingTask.getRepository( );
         ArchivaIndexingContext archivaContext = indexingTask.getContext( );
@@ -126,6 +148,7 @@ public void executeTask( Task task )
                 log.error( "Error during context scan {}: {}", context.getId( ), context.getIndexDirectory( ) );
             }
             long end = System.currentTimeMillis( );
+            scanTimer.record( end - start, TimeUnit.MILLISECONDS );
             log.info( "indexed maven repository: {}, onlyUpdate: {}, time {} ms", repository.getId( ),
                 indexingTask.isOnlyUpdate( ), ( end - start ) );
             log.debug( "Finishing indexing task on repo: {}", repository.getId( ) );
@@ -215,8 +238,10 @@ public void executeTask( Task task )
                                 indexerEngine.update( context, ac );
                             }
 
+                            long commitStart = System.nanoTime( );
                             context.updateTimestamp( );
                             context.commit( );
+                            commitTimer.record( System.nanoTime( ) - commitStart );
 
 
                         }
@@ -251,6 +276,7 @@ private void finishIndexingTask( ArtifactIndexingTask indexingTask, ManagedRepos
                                      IndexingContext context )
         throws TaskExecutionException
     {
+        long start = System.nanoTime( );
         try
         {
 
@@ -290,6 +316,27 @@ private void finishIndexingTask( ArtifactIndexingTask indexingTask, ManagedRepos
             throw new TaskExecutionException( "Error occurred while executing indexing task '" + indexingTask + "'",
                 e );
         }
+        finally
+        {
+            finishTimer.record( System.nanoTime( ) - start );
+        }
+    }
+
+    /**
+     * Sets the registry, that records the number of tasks per action and the time to scan, commit and finish an index.
+     *
+     * @param metricsRegistry the registry
+     */
+    public void setMetricsRegistry( MetricsRegistry metricsRegistry )
+    {
+        for ( ArtifactIndexingTask.Action action : ArtifactIndexingTask.Action.values( ) )
+        {
+            taskCounters.put( action, metricsRegistry.counter( "archiva_indexer_tasks_total", "action",
+                action.name( ).toLowerCase( Locale.ROOT ) ) );
+        }
+        this.scanTimer = metricsRegistry.timer( "archiva_indexer_scan_seconds" );
+        this.commitTimer = metricsRegistry.timer( "archiva_indexer_commit_seconds" );
+        this.finishTimer = metricsRegistry.timer( "archiva_indexer_finish_seconds" );
     }
 
     public void setIndexPacker( IndexPacker indexPacker )
@@ -18,6 +18,7 @@
  */
 
 import org.apache.archiva.maven.common.proxy.WagonFactory;
+import org.apache.archiva.maven.common.proxy.WagonFactoryException;
 import org.apache.archiva.maven.common.proxy.WagonFactoryRequest;
 import org.apache.archiva.proxy.model.NetworkProxy;
 import org.apache.archiva.repository.base.PasswordCredentials;
@@ -30,12 +31,12 @@
 import org.apache.maven.index.updater.IndexUpdateRequest;
 import org.apache.maven.index.updater.IndexUpdateResult;
 import org.apache.maven.index.updater.IndexUpdater;
-import org.apache.maven.index.updater.ResourceFetcher;
 import org.apache.maven.index_shaded.lucene.index.IndexNotFoundException;
+import org.apache.maven.wagon.ConnectionException;
 import org.apache.maven.wagon.ResourceDoesNotExistException;
 import org.apache.maven.wagon.StreamWagon;
 import org.apache.maven.wagon.TransferFailedException;
-import org.apache.maven.wagon.Wagon;
+import org.apache.maven.wagon.authentication.AuthenticationException;
 import org.apache.maven.wagon.authentication.AuthenticationInfo;
 import org.apache.maven.wagon.authorization.AuthorizationException;
 import org.apache.maven.wagon.events.TransferEvent;
@@ -50,7 +51,7 @@
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -74,6 +75,8 @@
 
     private boolean fullDownload;
 
+    private static final int DOWNLOAD_CONNECTIONS = Integer.getInteger( "archiva.index.downloadConnections", 4 );
+
     private List<String> runningRemoteDownloadIds;
 
     private IndexUpdater indexUpdater;
@@ -107,6 +110,7 @@ public void run()
             this.runningRemoteDownloadIds.add( this.remoteRepository.getId() );
         }
         Path tempIndexDirectory = null;
+        PipelinedResourceFetcher resourceFetcher = null;
         StopWatch stopWatch = new StopWatch();
         stopWatch.start();
         try
@@ -123,60 +127,12 @@ public void run()
             }
             RemoteIndexFeature rif = this.remoteRepository.getFeature( RemoteIndexFeature.class );
             IndexingContext indexingContext = this.remoteRepository.getIndexingContext().getBaseContext(IndexingContext.class);
-            // create a temp directory to download files
+            // create a temp directory to download files, chunks of an interrupted download are kept and reused
             tempIndexDirectory = Paths.get(indexingContext.getIndexDirectoryFile().getParent(), ".tmpIndex" );
             Path indexCacheDirectory = Paths.get( indexingContext.getIndexDirectoryFile().getParent(), ".indexCache" );
             Files.createDirectories( indexCacheDirectory );
-            if ( Files.exists(tempIndexDirectory) )
-            {
-                org.apache.archiva.common.utils.FileUtils.deleteDirectory( tempIndexDirectory );
-            }
             Files.createDirectories( tempIndexDirectory );
-            tempIndexDirectory.toFile().deleteOnExit();
-            String baseIndexUrl = indexingContext.getIndexUpdateUrl();
-
-            String wagonProtocol = this.remoteRepository.getLocation().getScheme();
-
-            final StreamWagon wagon = (StreamWagon) wagonFactory.getWagon(
-                new WagonFactoryRequest( wagonProtocol, this.remoteRepository.getExtraHeaders() ).networkProxy(
-                    this.networkProxy )
-            );
-            // FIXME olamy having 2 config values
-            wagon.setReadTimeout( (int)rif.getDownloadTimeout().toMillis());
-            wagon.setTimeout( (int)remoteRepository.getTimeout().toMillis());
-
-            if ( wagon instanceof AbstractHttpClientWagon )
-            {
-                HttpConfiguration httpConfiguration = new HttpConfiguration();
-                HttpMethodConfiguration httpMethodConfiguration = new HttpMethodConfiguration();
-                httpMethodConfiguration.setUsePreemptive( true );
-                httpMethodConfiguration.setReadTimeout( (int)rif.getDownloadTimeout().toMillis() );
-                httpConfiguration.setGet( httpMethodConfiguration );
-                AbstractHttpClientWagon.class.cast( wagon ).setHttpConfiguration( httpConfiguration );
-            }
-
-            wagon.addTransferListener( new DownloadListener() );
-            ProxyInfo proxyInfo = null;
-            if ( this.networkProxy != null )
-            {
-                proxyInfo = new ProxyInfo();
-                proxyInfo.setType( this.networkProxy.getProtocol() );
-                proxyInfo.setHost( this.networkProxy.getHost() );
-                proxyInfo.setPort( this.networkProxy.getPort() );
-                proxyInfo.setUserName( this.networkProxy.getUsername() );
-                proxyInfo.setPassword( new String(this.networkProxy.getPassword()) );
-            }
-            AuthenticationInfo authenticationInfo = null;
-            if ( this.remoteRepository.getLoginCredentials()!=null && this.remoteRepository.getLoginCredentials() instanceof PasswordCredentials )
-            {
-                PasswordCredentials creds = (PasswordCredentials) this.remoteRepository.getLoginCredentials();
-                authenticationInfo = new AuthenticationInfo();
-                authenticationInfo.setUserName( creds.getUsername());
-                authenticationInfo.setPassword( new String(creds.getPassword()) );
-            }
-            log.debug("Connection to {}, authInfo={}", this.remoteRepository.getId(), authenticationInfo);
-            wagon.connect( new Repository( this.remoteRepository.getId(), baseIndexUrl ), authenticationInfo,
-                           proxyInfo );
+            final String baseIndexUrl = indexingContext.getIndexUpdateUrl();
 
             Path indexDirectory = indexingContext.getIndexDirectoryFile().toPath();
             if ( !Files.exists(indexDirectory) )
@@ -186,8 +142,9 @@ public void run()
             log.debug("Downloading index file to {}", indexDirectory);
             log.debug("Index cache dir {}", indexCacheDirectory);
 
-            ResourceFetcher resourceFetcher =
-                new WagonResourceFetcher( log, tempIndexDirectory, wagon, remoteRepository );
+            resourceFetcher = new PipelinedResourceFetcher( tempIndexDirectory,
+                () -> new WagonConnection( createWagon( rif, baseIndexUrl ), remoteRepository ),
+                DOWNLOAD_CONNECTIONS );
             IndexUpdateRequest request = new IndexUpdateRequest( indexingContext, resourceFetcher );
             request.setForceFullUpdate( this.fullDownload );
             request.setLocalIndexCacheDir( indexCacheDirectory.toFile() );
@@ -203,6 +160,8 @@ public void run()
             //    new IndexPackingRequest( indexingContext, indexingContext.getIndexDirectoryFile() );
             //indexPacker.packIndex( indexPackingRequest );
             indexingContext.updateTimestamp( true );
+            // the index is complete, there is nothing to resume
+            deleteDirectoryQuiet( tempIndexDirectory );
 
         }
         catch ( Exception e )
@@ -212,7 +171,17 @@ public void run()
         }
         finally
         {
-            deleteDirectoryQuiet( tempIndexDirectory );
+            if ( resourceFetcher != null )
+            {
+                try
+                {
+                    resourceFetcher.disconnect();
+                }
+                catch ( IOException e )
+                {
+                    log.warn( "skip error disconnect {} : {}", this.remoteRepository.getId(), e.getMessage() );
+                }
+            }
             this.runningRemoteDownloadIds.remove( this.remoteRepository.getId() );
         }
         log.info( "end download remote index for remote repository {}", this.remoteRepository.getId() );
@@ -255,7 +224,7 @@ public void transferStarted( TransferEvent transferEvent )
         {
             this.totalLength = 0;
             resourceName = transferEvent.getResource().getName();
-            log.info("Transferring: {}, {}",  transferEvent.getResource().getContentLength(), transferEvent.getLocalFile().toString());
+            log.info("Transferring: {}, {}",  transferEvent.getResource().getContentLength(), transferEvent.getLocalFile());
             log.info( "start transfer of {}", transferEvent.getResource().getName() );
         }
 
@@ -289,53 +258,83 @@ public void debug( String message )
         }
     }
 
-    private static class WagonResourceFetcher
-        implements ResourceFetcher
+    /**
+     * Creates a new wagon that is connected to the index location of the remote repository.
+     */
+    private StreamWagon createWagon( RemoteIndexFeature rif, String baseIndexUrl )
+        throws IOException
     {
+        String wagonProtocol = this.remoteRepository.getLocation().getScheme();
+        try
+        {
+            final StreamWagon wagon = (StreamWagon) wagonFactory.getWagon(
+                new WagonFactoryRequest( wagonProtocol, this.remoteRepository.getExtraHeaders() ).networkProxy(
+                    this.networkProxy )
+            );
+            // FIXME olamy having 2 config values
+            wagon.setReadTimeout( (int)rif.getDownloadTimeout().toMillis());
+            wagon.setTimeout( (int)remoteRepository.getTimeout().toMillis());
 
-        Logger log;
+            if ( wagon instanceof AbstractHttpClientWagon )
+            {
+                HttpConfiguration httpConfiguration = new HttpConfiguration();
+                HttpMethodConfiguration httpMethodConfiguration = new HttpMethodConfiguration();
+                httpMethodConfiguration.setUsePreemptive( true );
+                httpMethodConfiguration.setReadTimeout( (int)rif.getDownloadTimeout().toMillis() );
+                httpConfiguration.setGet( httpMethodConfiguration );
+                AbstractHttpClientWagon.class.cast( wagon ).setHttpConfiguration( httpConfiguration );
+            }
 
-        Path tempIndexDirectory;
+            wagon.addTransferListener( new DownloadListener() );
+            ProxyInfo proxyInfo = null;
+            if ( this.networkProxy != null )
+            {
+                proxyInfo = new ProxyInfo();
+                proxyInfo.setType( this.networkProxy.getProtocol() );
+                proxyInfo.setHost( this.networkProxy.getHost() );
+                proxyInfo.setPort( this.networkProxy.getPort() );
+                proxyInfo.setUserName( this.networkProxy.getUsername() );
+                proxyInfo.setPassword( new String(this.networkProxy.getPassword()) );
+            }
+            AuthenticationInfo authenticationInfo = null;
+            if ( this.remoteRepository.getLoginCredentials()!=null && this.remoteRepository.getLoginCredentials() instanceof PasswordCredentials )
+            {
+                PasswordCredentials creds = (PasswordCredentials) this.remoteRepository.getLoginCredentials();
+                authenticationInfo = new AuthenticationInfo();
+                authenticationInfo.setUserName( creds.getUsername());
+                authenticationInfo.setPassword( new String(creds.getPassword()) );
+            }
+            log.debug("Connection to {}, authInfo={}", this.remoteRepository.getId(), authenticationInfo);
+            wagon.connect( new Repository( this.remoteRepository.getId(), baseIndexUrl ), authenticationInfo,
+                           proxyInfo );
+            return wagon;
+        }
+        catch ( WagonFactoryException | ConnectionException | AuthenticationException e )
+        {
+            throw new IOException( e.getMessage(), e );
+        }
+    }
 
-        Wagon wagon;
+    private static class WagonConnection
+        implements PipelinedResourceFetcher.Connection
+    {
+        private final StreamWagon wagon;
 
-        RemoteRepository remoteRepository;
+        private final RemoteRepository remoteRepository;
 
-        private WagonResourceFetcher( Logger log, Path tempIndexDirectory, Wagon wagon,
-                                      RemoteRepository remoteRepository )
+        private WagonConnection( StreamWagon wagon, RemoteRepository remoteRepository )
         {
-            this.log = log;
-            this.tempIndexDirectory = tempIndexDirectory;
             this.wagon = wagon;
             this.remoteRepository = remoteRepository;
         }
 
         @Override
-        public void connect( String id, String url )
+        public void download( String name, OutputStream out )
             throws IOException
-        {
-            //no op  
-        }
-
-        @Override
-        public void disconnect()
-            throws IOException
-        {
-            // no op
-        }
-
-        @Override
-        public InputStream retrieve( String name )
-            throws IOException, FileNotFoundException
         {
             try
             {
-                log.info( "index update retrieve file, name:{}", name );
-                Path file = tempIndexDirectory.resolve( name );
-                Files.deleteIfExists( file );
-                file.toFile().deleteOnExit();
-                wagon.get( addParameters( name, this.remoteRepository ), file.toFile() );
-                return Files.newInputStream( file );
+                wagon.getToStream( addParameters( name, this.remoteRepository ), out );
             }
             catch ( AuthorizationException | TransferFailedException e )
             {
@@ -349,6 +348,20 @@ public InputStream retrieve( String name )
             }
         }
 
+        @Override
+        public void close()
+            throws IOException
+        {
+            try
+            {
+                wagon.disconnect();
+            }
+            catch ( ConnectionException e )
+            {
+                throw new IOException( e.getMessage(), e );
+            }
+        }
+
         // FIXME remove crappy copy/paste
         protected String addParameters( String path, RemoteRepository remoteRepository )
         {
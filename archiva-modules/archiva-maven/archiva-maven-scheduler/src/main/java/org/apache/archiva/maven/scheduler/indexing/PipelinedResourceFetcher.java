@@ -0,0 +1,538 @@
+package org.apache.archiva.maven.scheduler.indexing;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.utils.FileUtils;
+import org.apache.maven.index.updater.ResourceFetcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Resource fetcher that streams the index chunks into the index updater while they are downloaded.
+ * <p>
+ * When the updater requests an incremental chunk, the following chunks are downloaded in the background over a pool
+ * of connections, so that the next chunk is usually available when the updater is done with the current one. The
+ * chunks are stored in a directory that is specific to the chain id and timestamp of the remote index. Completely
+ * downloaded chunks are marked and reused, if the update is interrupted and started again. A failed transfer is
+ * retried and resumes the stream at the position the reader has reached.
+ *
+ * @since 3.0
+ */
+public class PipelinedResourceFetcher
+    implements ResourceFetcher
+{
+    private static final Logger log = LoggerFactory.getLogger( PipelinedResourceFetcher.class );
+
+    static final String PROPERTIES_FILE = "nexus-maven-repository-index.properties";
+
+    private static final Pattern CHUNK_PATTERN = Pattern.compile( "nexus-maven-repository-index\\.(\\d+)\\.gz" );
+
+    private static final String COMPLETE_SUFFIX = ".complete";
+
+    private static final int RETRIES = 2;
+
+    /**
+     * A connection to the remote index. A connection is used by one download at a time.
+     */
+    public interface Connection
+        extends Closeable
+    {
+        /**
+         * Writes the remote resource to the given stream.
+         *
+         * @throws FileNotFoundException if the resource does not exist
+         */
+        void download( String name, OutputStream out )
+            throws IOException;
+    }
+
+    public interface ConnectionFactory
+    {
+        Connection connect( )
+            throws IOException;
+    }
+
+    private final Path downloadDirectory;
+
+    private final ConnectionFactory connectionFactory;
+
+    private final int parallelism;
+
+    private final BlockingQueue<Connection> idleConnections;
+
+    private final List<Connection> connections = new ArrayList<>( );
+
+    private final Map<String, Download> downloads = new ConcurrentHashMap<>( );
+
+    private final ExecutorService executor;
+
+    private volatile Path chunkDirectory;
+
+    private volatile int lastIncrement = -1;
+
+    /**
+     * @param downloadDirectory the directory, where the chunks are stored
+     * @param connectionFactory creates the connections to the remote index
+     * @param parallelism       the maximum number of connections and concurrent downloads
+     */
+    public PipelinedResourceFetcher( Path downloadDirectory, ConnectionFactory connectionFactory, int parallelism )
+    {
+        this.downloadDirectory = downloadDirectory;
+        this.chunkDirectory = downloadDirectory;
+        this.connectionFactory = connectionFactory;
+        this.parallelism = Math.max( 1, parallelism );
+        this.idleConnections = new ArrayBlockingQueue<>( this.parallelism );
+        AtomicInteger threadNumber = new AtomicInteger( );
+        this.executor = Executors.newFixedThreadPool( this.parallelism, runnable -> {
+            Thread thread = new Thread( runnable, "archiva-index-download-" + threadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    @Override
+    public void connect( String id, String url )
+        throws IOException
+    {
+        Files.createDirectories( downloadDirectory );
+    }
+
+    @Override
+    public void disconnect( )
+        throws IOException
+    {
+        executor.shutdownNow( );
+        synchronized ( connections )
+        {
+            for ( Connection connection : connections )
+            {
+                closeQuietly( connection );
+            }
+            connections.clear( );
+        }
+        idleConnections.clear( );
+    }
+
+    @Override
+    public InputStream retrieve( String name )
+        throws IOException, FileNotFoundException
+    {
+        log.info( "index update retrieve file, name:{}", name );
+        if ( PROPERTIES_FILE.equals( name ) )
+        {
+            return retrieveProperties( );
+        }
+        Download download = getDownload( name );
+        Matcher matcher = CHUNK_PATTERN.matcher( name );
+        if ( matcher.matches( ) )
+        {
+            int increment = Integer.parseInt( matcher.group( 1 ) );
+            for ( int next = increment + 1; next <= Math.min( increment + parallelism, lastIncrement ); next++ )
+            {
+                getDownload( "nexus-maven-repository-index." + next + ".gz" );
+            }
+        }
+        return new DownloadInputStream( download );
+    }
+
+    /**
+     * The properties are always downloaded again, they decide about the directory of the chunks.
+     */
+    private InputStream retrieveProperties( )
+        throws IOException
+    {
+        Download download = new Download( PROPERTIES_FILE, downloadDirectory.resolve( PROPERTIES_FILE ) );
+        download.run( );
+        download.awaitCompletion( );
+        Properties properties = new Properties( );
+        try ( InputStream is = Files.newInputStream( download.file ) )
+        {
+            properties.load( is );
+        }
+        String key = properties.getProperty( "nexus.index.chain-id", "unknown" ) + "-" + properties.getProperty(
+            "nexus.index.timestamp", "unknown" );
+        lastIncrement = Integer.parseInt( properties.getProperty( "nexus.index.last-incremental", "-1" ) );
+        chunkDirectory = downloadDirectory.resolve( key.replaceAll( "[^A-Za-z0-9._-]", "_" ) );
+        removeStaleDirectories( );
+        Files.createDirectories( chunkDirectory );
+        return Files.newInputStream( download.file );
+    }
+
+    /**
+     * Removes the chunks of other index versions, they cannot be reused.
+     */
+    private void removeStaleDirectories( )
+        throws IOException
+    {
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( downloadDirectory, Files::isDirectory ) )
+        {
+            for ( Path dir : stream )
+            {
+                if ( !dir.equals( chunkDirectory ) )
+                {
+                    FileUtils.deleteDirectory( dir );
+                }
+            }
+        }
+    }
+
+    private Download getDownload( String name )
+        throws IOException
+    {
+        Path file = chunkDirectory.resolve( name );
+        Download download = downloads.computeIfAbsent( name, n -> new Download( n, file ) );
+        if ( download.submitted.compareAndSet( 0, 1 ) )
+        {
+            if ( Files.exists( file ) && Files.exists( file.resolveSibling( name + COMPLETE_SUFFIX ) ) )
+            {
+                log.debug( "Reusing downloaded file {}", file );
+                download.complete( Files.size( file ) );
+            }
+            else
+            {
+                executor.execute( download );
+            }
+        }
+        return download;
+    }
+
+    private Connection borrowConnection( )
+        throws IOException, InterruptedException
+    {
+        Connection connection = idleConnections.poll( );
+        if ( connection != null )
+        {
+            return connection;
+        }
+        synchronized ( connections )
+        {
+            if ( connections.size( ) < parallelism )
+            {
+                connection = connectionFactory.connect( );
+                connections.add( connection );
+                return connection;
+            }
+        }
+        return idleConnections.take( );
+    }
+
+    private void releaseConnection( Connection connection, boolean reusable )
+    {
+        if ( reusable )
+        {
+            idleConnections.offer( connection );
+        }
+        else
+        {
+            synchronized ( connections )
+            {
+                connections.remove( connection );
+            }
+            closeQuietly( connection );
+        }
+    }
+
+    private static void closeQuietly( Closeable closeable )
+    {
+        try
+        {
+            closeable.close( );
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Could not close connection: {}", e.getMessage( ) );
+        }
+    }
+
+    /**
+     * A single file download. The written length is published to the readers of the file.
+     */
+    private class Download
+        implements Runnable
+    {
+        final String name;
+
+        final Path file;
+
+        final AtomicInteger submitted = new AtomicInteger( );
+
+        private long written = 0;
+
+        private boolean done = false;
+
+        private IOException failure;
+
+        Download( String name, Path file )
+        {
+            this.name = name;
+            this.file = file;
+        }
+
+        @Override
+        public void run( )
+        {
+            IOException lastFailure = null;
+            for ( int attempt = 0; attempt <= RETRIES; attempt++ )
+            {
+                Connection connection;
+                try
+                {
+                    connection = borrowConnection( );
+                }
+                catch ( IOException e )
+                {
+                    lastFailure = e;
+                    continue;
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    fail( new IOException( "Download of " + name + " interrupted" ) );
+                    return;
+                }
+                boolean reusable = false;
+                try
+                {
+                    transfer( connection );
+                    reusable = true;
+                    Files.deleteIfExists( file.resolveSibling( name + COMPLETE_SUFFIX ) );
+                    Files.createFile( file.resolveSibling( name + COMPLETE_SUFFIX ) );
+                    complete( getWritten( ) );
+                    return;
+                }
+                catch ( FileNotFoundException e )
+                {
+                    reusable = true;
+                    fail( e );
+                    return;
+                }
+                catch ( IOException e )
+                {
+                    log.warn( "Download of {} failed after {} bytes: {}", name, getWritten( ), e.getMessage( ) );
+                    lastFailure = e;
+                }
+                finally
+                {
+                    releaseConnection( connection, reusable );
+                }
+            }
+            fail( lastFailure );
+        }
+
+        /**
+         * Downloads the file. If a former attempt failed, the bytes that are already written are skipped, so readers
+         * can continue at their position.
+         */
+        private void transfer( Connection connection )
+            throws IOException
+        {
+            final long skip = getWritten( );
+            try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.CREATE, StandardOpenOption.WRITE ) )
+            {
+                channel.truncate( skip );
+                channel.position( skip );
+                connection.download( name, new OutputStream( )
+                {
+                    private long position = 0;
+
+                    @Override
+                    public void write( int b )
+                        throws IOException
+                    {
+                        write( new byte[]{(byte) b}, 0, 1 );
+                    }
+
+                    @Override
+                    public void write( byte[] b, int off, int len )
+                        throws IOException
+                    {
+                        long end = position + len;
+                        if ( end > skip )
+                        {
+                            int start = (int) Math.max( 0, skip - position );
+                            ByteBuffer buffer = ByteBuffer.wrap( b, off + start, len - start );
+                            while ( buffer.hasRemaining( ) )
+                            {
+                                channel.write( buffer );
+                            }
+                            written( end );
+                        }
+                        position = end;
+                    }
+                } );
+            }
+        }
+
+        synchronized long getWritten( )
+        {
+            return written;
+        }
+
+        synchronized void written( long length )
+        {
+            this.written = length;
+            notifyAll( );
+        }
+
+        synchronized void complete( long length )
+        {
+            this.written = length;
+            this.done = true;
+            notifyAll( );
+        }
+
+        synchronized void fail( IOException e )
+        {
+            this.failure = e == null ? new IOException( "Download of " + name + " failed" ) : e;
+            this.done = true;
+            notifyAll( );
+        }
+
+        /**
+         * Waits until more than the given number of bytes are available.
+         *
+         * @return the available length, or -1 if the download is complete and there are no more bytes
+         */
+        synchronized long awaitAvailable( long position )
+            throws IOException
+        {
+            while ( written <= position && !done )
+            {
+                try
+                {
+                    wait( );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread( ).interrupt( );
+                    throw new IOException( "Interrupted while waiting for " + name );
+                }
+            }
+            if ( failure != null )
+            {
+                if ( failure instanceof FileNotFoundException )
+                {
+                    throw (FileNotFoundException) new FileNotFoundException( failure.getMessage( ) ).initCause( failure );
+                }
+                throw new IOException( failure.getMessage( ), failure );
+            }
+            return written > position ? written : -1;
+        }
+
+        void awaitCompletion( )
+            throws IOException
+        {
+            long position = 0;
+            while ( ( position = awaitAvailable( position ) ) >= 0 )
+            {
+                // wait for the next block
+            }
+        }
+    }
+
+    /**
+     * Reads a file while it is downloaded.
+     */
+    private static class DownloadInputStream
+        extends InputStream
+    {
+        private final Download download;
+
+        private FileChannel channel;
+
+        private long position = 0;
+
+        DownloadInputStream( Download download )
+        {
+            this.download = download;
+        }
+
+        @Override
+        public int read( )
+            throws IOException
+        {
+            byte[] b = new byte[1];
+            int read;
+            while ( ( read = read( b, 0, 1 ) ) == 0 )
+            {
+                // retry
+            }
+            return read < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len )
+            throws IOException
+        {
+            if ( len == 0 )
+            {
+                return 0;
+            }
+            long available = download.awaitAvailable( position );
+            if ( available < 0 )
+            {
+                return -1;
+            }
+            if ( channel == null )
+            {
+                channel = FileChannel.open( download.file, StandardOpenOption.READ );
+            }
+            int length = (int) Math.min( len, available - position );
+            int read = channel.read( ByteBuffer.wrap( b, off, length ), position );
+            if ( read > 0 )
+            {
+                position += read;
+            }
+            return Math.max( read, 0 );
+        }
+
+        @Override
+        public void close( )
+            throws IOException
+        {
+            if ( channel != null )
+            {
+                channel.close( );
+            }
+        }
+    }
+}
@@ -19,6 +19,7 @@
  */
 
 import junit.framework.TestCase;
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.apache.archiva.indexer.ArchivaIndexingContext;
 import org.apache.archiva.indexer.UnsupportedBaseContextException;
 import org.apache.archiva.repository.ManagedRepository;
@@ -132,6 +133,37 @@ protected IndexingContext getIndexingContext() throws UnsupportedBaseContextExce
         return ctx.getBaseContext(IndexingContext.class);
     }
 
+    @Test
+    public void testMetrics()
+        throws Exception
+    {
+        MetricsRegistry metricsRegistry = new MetricsRegistry( );
+        indexingExecutor.setMetricsRegistry( metricsRegistry );
+        try
+        {
+            Path artifactFile = repo.getRoot( ).getFilePath( ).resolve(
+                "org/apache/archiva/archiva-index-methods-jar-test/1.0/archiva-index-methods-jar-test-1.0.jar" );
+
+            indexingExecutor.executeTask(
+                new ArtifactIndexingTask( repo, artifactFile, ArtifactIndexingTask.Action.ADD,
+                                          repo.getIndexingContext( ) ) );
+            indexingExecutor.executeTask(
+                new ArtifactIndexingTask( repo, null, ArtifactIndexingTask.Action.FINISH,
+                                          repo.getIndexingContext( ) ) );
+
+            assertEquals( 1, metricsRegistry.counter( "archiva_indexer_tasks_total", "action", "add" ).getCount( ) );
+            assertEquals( 0, metricsRegistry.counter( "archiva_indexer_tasks_total", "action", "delete" ).getCount( ) );
+            assertEquals( 1, metricsRegistry.counter( "archiva_indexer_tasks_total", "action", "finish" ).getCount( ) );
+            assertEquals( 1, metricsRegistry.timer( "archiva_indexer_commit_seconds" ).getCount( ) );
+            assertEquals( 1, metricsRegistry.timer( "archiva_indexer_scan_seconds" ).getCount( ) );
+            assertEquals( 1, metricsRegistry.timer( "archiva_indexer_finish_seconds" ).getCount( ) );
+        }
+        finally
+        {
+            indexingExecutor.setMetricsRegistry( MetricsRegistry.getDefault( ) );
+        }
+    }
+
     @Test
     public void testAddArtifactToIndex()
         throws Exception
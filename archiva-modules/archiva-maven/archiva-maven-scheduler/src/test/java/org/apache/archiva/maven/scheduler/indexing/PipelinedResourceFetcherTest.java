@@ -0,0 +1,268 @@
+package org.apache.archiva.maven.scheduler.indexing;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class PipelinedResourceFetcherTest
+{
+    private static final String PROPERTIES = "nexus.index.chain-id=1234\nnexus.index.timestamp=20200101\nnexus.index.last-incremental=6\n";
+
+    private Path directory;
+
+    private Map<String, byte[]> resources;
+
+    private List<String> downloaded;
+
+    private AtomicInteger running;
+
+    private AtomicInteger maxRunning;
+
+    private AtomicInteger connections;
+
+    private Map<String, Integer> failures;
+
+    @Before
+    public void setUp( )
+        throws IOException
+    {
+        directory = Files.createTempDirectory( "pipelined-fetcher" );
+        resources = new HashMap<>( );
+        resources.put( PipelinedResourceFetcher.PROPERTIES_FILE, PROPERTIES.getBytes( StandardCharsets.UTF_8 ) );
+        for ( int i = 1; i <= 6; i++ )
+        {
+            byte[] chunk = new byte[100000 + i];
+            for ( int j = 0; j < chunk.length; j++ )
+            {
+                chunk[j] = (byte) ( j * 31 + i );
+            }
+            resources.put( chunkName( i ), chunk );
+        }
+        downloaded = new CopyOnWriteArrayList<>( );
+        running = new AtomicInteger( );
+        maxRunning = new AtomicInteger( );
+        connections = new AtomicInteger( );
+        failures = new HashMap<>( );
+    }
+
+    @After
+    public void tearDown( )
+        throws IOException
+    {
+        org.apache.archiva.common.utils.FileUtils.deleteDirectory( directory );
+    }
+
+    private static String chunkName( int increment )
+    {
+        return "nexus-maven-repository-index." + increment + ".gz";
+    }
+
+    private PipelinedResourceFetcher createFetcher( int parallelism )
+    {
+        return new PipelinedResourceFetcher( directory, ( ) -> {
+            connections.incrementAndGet( );
+            return new TestConnection( );
+        }, parallelism );
+    }
+
+    private byte[] retrieve( PipelinedResourceFetcher fetcher, String name )
+        throws IOException
+    {
+        try ( InputStream is = fetcher.retrieve( name ) )
+        {
+            return IOUtils.toByteArray( is );
+        }
+    }
+
+    @Test
+    public void testRetrieveChunks( )
+        throws IOException
+    {
+        PipelinedResourceFetcher fetcher = createFetcher( 2 );
+        fetcher.connect( "test", "http://localhost/.index" );
+        try
+        {
+            retrieve( fetcher, PipelinedResourceFetcher.PROPERTIES_FILE );
+            for ( int i = 1; i <= 6; i++ )
+            {
+                assertArrayEquals( resources.get( chunkName( i ) ), retrieve( fetcher, chunkName( i ) ) );
+            }
+        }
+        finally
+        {
+            fetcher.disconnect( );
+        }
+        assertTrue( maxRunning.get( ) <= 2 );
+        assertTrue( connections.get( ) <= 2 );
+        // every chunk is downloaded exactly once
+        assertEquals( 7, downloaded.size( ) );
+    }
+
+    @Test
+    public void testMissingResource( )
+        throws IOException
+    {
+        PipelinedResourceFetcher fetcher = createFetcher( 2 );
+        try
+        {
+            retrieve( fetcher, "nexus-maven-repository-index.gz" );
+            fail( "FileNotFoundException expected" );
+        }
+        catch ( FileNotFoundException e )
+        {
+            // expected
+        }
+        finally
+        {
+            fetcher.disconnect( );
+        }
+    }
+
+    @Test
+    public void testRetryResumesStream( )
+        throws IOException
+    {
+        failures.put( chunkName( 1 ), 1 );
+        PipelinedResourceFetcher fetcher = createFetcher( 1 );
+        try
+        {
+            retrieve( fetcher, PipelinedResourceFetcher.PROPERTIES_FILE );
+            assertArrayEquals( resources.get( chunkName( 1 ) ), retrieve( fetcher, chunkName( 1 ) ) );
+        }
+        finally
+        {
+            fetcher.disconnect( );
+        }
+    }
+
+    @Test
+    public void testReuseCompletedChunks( )
+        throws IOException
+    {
+        // the third chunk fails permanently, the update is interrupted
+        failures.put( chunkName( 3 ), 10 );
+        PipelinedResourceFetcher fetcher = createFetcher( 1 );
+        try
+        {
+            retrieve( fetcher, PipelinedResourceFetcher.PROPERTIES_FILE );
+            retrieve( fetcher, chunkName( 1 ) );
+            retrieve( fetcher, chunkName( 2 ) );
+            try
+            {
+                retrieve( fetcher, chunkName( 3 ) );
+                fail( "IOException expected" );
+            }
+            catch ( IOException e )
+            {
+                // expected
+            }
+        }
+        finally
+        {
+            fetcher.disconnect( );
+        }
+
+        failures.clear( );
+        downloaded.clear( );
+        fetcher = createFetcher( 1 );
+        try
+        {
+            retrieve( fetcher, PipelinedResourceFetcher.PROPERTIES_FILE );
+            for ( int i = 1; i <= 6; i++ )
+            {
+                assertArrayEquals( resources.get( chunkName( i ) ), retrieve( fetcher, chunkName( i ) ) );
+            }
+        }
+        finally
+        {
+            fetcher.disconnect( );
+        }
+        assertFalse( downloaded.contains( chunkName( 1 ) ) );
+        assertFalse( downloaded.contains( chunkName( 2 ) ) );
+        assertTrue( downloaded.contains( chunkName( 3 ) ) );
+    }
+
+    private class TestConnection
+        implements PipelinedResourceFetcher.Connection
+    {
+        @Override
+        public void download( String name, OutputStream out )
+            throws IOException
+        {
+            byte[] content = resources.get( name );
+            if ( content == null )
+            {
+                throw new FileNotFoundException( name );
+            }
+            maxRunning.accumulateAndGet( running.incrementAndGet( ), Math::max );
+            try
+            {
+                boolean fail;
+                synchronized ( failures )
+                {
+                    Integer remaining = failures.get( name );
+                    fail = remaining != null && remaining > 0;
+                    if ( fail )
+                    {
+                        failures.put( name, remaining - 1 );
+                    }
+                }
+                for ( int off = 0; off < content.length; off += 4096 )
+                {
+                    if ( fail && off >= content.length / 2 )
+                    {
+                        throw new IOException( "Connection reset" );
+                    }
+                    out.write( content, off, Math.min( 4096, content.length - off ) );
+                }
+                downloaded.add( name );
+            }
+            finally
+            {
+                running.decrementAndGet( );
+            }
+        }
+
+        @Override
+        public void close( )
+        {
+            // nothing to close
+        }
+    }
+}
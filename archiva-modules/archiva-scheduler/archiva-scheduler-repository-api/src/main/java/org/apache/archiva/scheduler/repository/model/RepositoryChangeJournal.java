@@ -0,0 +1,106 @@
+package org.apache.archiva.scheduler.repository.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * Journal of the paths that have been changed in a managed repository. The journal is fed by the
+ * write paths of archiva (merge, failed single file tasks) and by a file system watcher and is persisted
+ * per repository. Incremental scans process only the journaled paths instead of walking the whole
+ * repository.
+ * <p>
+ * Paths that are processed already, e.g. by the task of a deployed file, or that are written by archiva
+ * itself, e.g. checksums, are marked as handled. They are not scanned again, but their creation and
+ * deletion is still counted for the repository statistics.
+ * <p>
+ * The journal may be incomplete, e.g. if it overflows, or if no full scan has been run since the
+ * server was started. In this case the returned change set is marked as incomplete and the scanner
+ * has to walk the repository.
+ *
+ * @since 3.0
+ */
+public interface RepositoryChangeJournal
+{
+    /**
+     * Records a change of the given path. If the path is a directory, the whole subtree is
+     * considered as changed.
+     *
+     * @param repositoryId the id of the managed repository
+     * @param path         the path relative to the repository root
+     */
+    void recordChange( String repositoryId, String path );
+
+    /**
+     * Records the creation of the given path.
+     *
+     * @param repositoryId the id of the managed repository
+     * @param path         the path relative to the repository root
+     */
+    void recordCreation( String repositoryId, String path );
+
+    /**
+     * Records the deletion of the given path.
+     *
+     * @param repositoryId the id of the managed repository
+     * @param path         the path relative to the repository root
+     */
+    void recordDeletion( String repositoryId, String path );
+
+    /**
+     * Marks the given path as handled. It is not returned for scanning, unless it is changed again later.
+     * Changes of the path, that are recorded shortly after this call, are considered as handled too, because
+     * the events of the file system watcher arrive asynchronously.
+     *
+     * @param repositoryId the id of the managed repository
+     * @param path         the path relative to the repository root
+     */
+    void markHandled( String repositoryId, String path );
+
+    /**
+     * Marks the journal of the given repository as incomplete. The next scan of the repository
+     * will walk the whole repository.
+     *
+     * @param repositoryId the id of the managed repository
+     */
+    void invalidate( String repositoryId );
+
+    /**
+     * Returns the changes recorded since the last call. Changes recorded after this call are kept
+     * for the next call. The changes stay in the journal until {@link #commit(RepositoryChangeSet, boolean)}
+     * is called, so they are returned again, if the scan fails.
+     *
+     * @param repositoryId the id of the managed repository
+     * @return the recorded changes
+     * @throws IOException if the journal could not be read
+     */
+    RepositoryChangeSet takeChanges( String repositoryId )
+        throws IOException;
+
+    /**
+     * Removes the given changes from the journal after they have been processed.
+     *
+     * @param changes  the changes returned by {@link #takeChanges(String)}
+     * @param fullScan <code>true</code>, if the repository has been walked completely
+     * @throws IOException if the journal could not be updated
+     */
+    void commit( RepositoryChangeSet changes, boolean fullScan )
+        throws IOException;
+}
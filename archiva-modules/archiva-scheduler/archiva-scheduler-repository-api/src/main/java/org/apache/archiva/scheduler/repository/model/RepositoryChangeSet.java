@@ -0,0 +1,118 @@
+package org.apache.archiva.scheduler.repository.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * The changes of a repository returned by the {@link RepositoryChangeJournal}.
+ *
+ * @since 3.0
+ */
+public class RepositoryChangeSet
+{
+    private final String repositoryId;
+
+    private final Set<String> paths;
+
+    private final Set<String> createdPaths;
+
+    private final Set<String> deletedPaths;
+
+    private final boolean complete;
+
+    private final long lastFullScan;
+
+    private final long creationTime;
+
+    public RepositoryChangeSet( String repositoryId, Set<String> paths, boolean complete, long lastFullScan,
+                                long creationTime )
+    {
+        this( repositoryId, paths, Collections.emptySet( ), Collections.emptySet( ), complete, lastFullScan,
+              creationTime );
+    }
+
+    public RepositoryChangeSet( String repositoryId, Set<String> paths, Set<String> createdPaths,
+                                Set<String> deletedPaths, boolean complete, long lastFullScan, long creationTime )
+    {
+        this.repositoryId = repositoryId;
+        this.paths = Collections.unmodifiableSet( paths );
+        this.createdPaths = Collections.unmodifiableSet( createdPaths );
+        this.deletedPaths = Collections.unmodifiableSet( deletedPaths );
+        this.complete = complete;
+        this.lastFullScan = lastFullScan;
+        this.creationTime = creationTime;
+    }
+
+    public String getRepositoryId( )
+    {
+        return repositoryId;
+    }
+
+    /**
+     * Returns the changed paths relative to the repository root, that have to be scanned.
+     */
+    public Set<String> getPaths( )
+    {
+        return paths;
+    }
+
+    /**
+     * Returns the paths, that did not exist before the changes and still exist. This includes the
+     * handled paths, that are not returned by {@link #getPaths()}.
+     */
+    public Set<String> getCreatedPaths( )
+    {
+        return createdPaths;
+    }
+
+    /**
+     * Returns the paths, that existed before the changes and have been deleted.
+     */
+    public Set<String> getDeletedPaths( )
+    {
+        return deletedPaths;
+    }
+
+    /**
+     * Returns <code>true</code>, if the paths contain all changes since the last full scan.
+     */
+    public boolean isComplete( )
+    {
+        return complete;
+    }
+
+    /**
+     * Returns the time of the last full scan in milliseconds, or 0, if no full scan has been recorded.
+     */
+    public long getLastFullScan( )
+    {
+        return lastFullScan;
+    }
+
+    /**
+     * Returns the time in milliseconds, when the changes have been taken from the journal.
+     */
+    public long getCreationTime( )
+    {
+        return creationTime;
+    }
+}
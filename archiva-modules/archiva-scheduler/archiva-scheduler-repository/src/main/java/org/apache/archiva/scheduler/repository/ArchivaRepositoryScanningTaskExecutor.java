@@ -34,15 +34,31 @@
 import org.apache.archiva.repository.scanner.RepositoryScanStatistics;
 import org.apache.archiva.repository.scanner.RepositoryScanner;
 import org.apache.archiva.repository.scanner.RepositoryScannerException;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeJournal;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeSet;
 import org.apache.archiva.scheduler.repository.model.RepositoryTask;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * ArchivaRepositoryScanningTaskExecutor
@@ -64,7 +80,11 @@
     @Inject
     private RepositoryContentConsumers consumers;
 
-    private Task task;
+    /**
+     * The tasks in execution by thread. The interactive and the bulk lane of the task queue run their tasks
+     * concurrently on this executor, so the task must not be kept in a shared field.
+     */
+    private final Map<Thread, RepositoryTask> tasksInExecution = new ConcurrentHashMap<>( );
 
     @Inject
     private RepositoryStatisticsManager repositoryStatisticsManager;
@@ -75,16 +95,54 @@
     @Inject
     private RepositorySessionFactory repositorySessionFactory;
 
+    @Autowired( required = false )
+    private RepositoryChangeJournal changeJournal;
+
+    @Autowired( required = false )
+    private RepositoryChangeWatcher changeWatcher;
+
+    @Autowired( required = false )
+    @Named( value = "taskQueue#repository-scanning" )
+    private RepositoryTaskQueue taskQueue;
+
+    /**
+     * The maximum time in milliseconds between two full scans of a repository. Incremental scans
+     * only process the paths of the change journal, the full scans reconcile changes that have not been
+     * journaled.
+     */
+    private long fullScanInterval = TimeUnit.HOURS.toMillis( 24 );
+
     @PostConstruct
     public void initialize()
     {
         log.info( "Initialized {}", this.getClass().getName() );
     }
 
-    @SuppressWarnings( "unchecked" )
     @Override
     public void executeTask( RepositoryTask task )
         throws TaskExecutionException
+    {
+        long start = System.currentTimeMillis();
+        Thread thread = Thread.currentThread( );
+        tasksInExecution.put( thread, task );
+        try
+        {
+            executeRepositoryTask( task );
+        }
+        finally
+        {
+            tasksInExecution.remove( thread );
+            if ( taskQueue != null )
+            {
+                // allows the next scan of the repository and updates the lane statistics
+                taskQueue.taskFinished( task, System.currentTimeMillis() - start );
+            }
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void executeRepositoryTask( RepositoryTask task )
+        throws TaskExecutionException
     {
         try
         {
@@ -93,10 +151,6 @@ public void executeTask( RepositoryTask task )
             // send events for each
             // - scan metadata for artifacts that have been removed and send events for each
             // - scan metadata for missing plugin data
-            // - store information so that it can restart upon failure (publish event on the server recovery
-            // queue, remove it on successful completion)
-
-            this.task = task;
 
             String repoId = task.getRepositoryId();
             if ( StringUtils.isBlank( repoId ) )
@@ -112,7 +166,19 @@ public void executeTask( RepositoryTask task )
                 log.debug( "Executing task from queue with job name: {}", task );
                 if (task.getResourceFile().isFileBased())
                 {
-                    consumers.executeConsumers( arepo, task.getResourceFile( ).getFilePath(), task.isUpdateRelatedArtifacts( ) );
+                    try
+                    {
+                        consumers.executeConsumers( arepo, task.getResourceFile( ).getFilePath(), task.isUpdateRelatedArtifacts( ) );
+                    }
+                    catch ( org.apache.archiva.consumers.ConsumerException | RuntimeException e )
+                    {
+                        // the file is marked as handled in the journal, the next incremental scan has to retry it
+                        if ( changeJournal != null )
+                        {
+                            changeJournal.recordChange( repoId, task.getResourceFile( ).getPath( ) );
+                        }
+                        throw e;
+                    }
                 }
             }
             else
@@ -126,8 +192,15 @@ public void executeTask( RepositoryTask task )
                         "Unable to execute RepositoryTask with invalid repository id: " + repoId );
                 }
 
+                if ( repoScanner.isPaused( repoId ) )
+                {
+                    log.info( "Skipping task {}, the scans of repository {} are paused", task, repoId );
+                    return;
+                }
+
                 long sinceWhen = RepositoryScanner.FRESH_SCAN;
                 long previousFileCount = 0;
+                boolean previouslyScanned = false;
 
                 RepositorySession repositorySession = repositorySessionFactory.createSession();
                 MetadataRepository metadataRepository = repositorySession.getRepository();
@@ -141,30 +214,76 @@ public void executeTask( RepositoryTask task )
                         {
                             sinceWhen = previousStats.getScanStartTime().getTime();
                             previousFileCount = previousStats.getTotalFileCount();
+                            previouslyScanned = true;
                         }
                     }
 
+                    RepositoryChangeSet changes = takeChanges( repoId );
+                    // an interrupted walk is resumed, before the journal is used again
+                    boolean journalScan = previouslyScanned && changes != null && changes.isComplete()
+                        && !repoScanner.hasCheckpoint( repoId )
+                        && System.currentTimeMillis() - changes.getLastFullScan() < fullScanInterval;
+
+                    if ( changeWatcher != null )
+                    {
+                        // watch before the walk, so that no change is lost between walk and next scan. After a
+                        // restart the journal is used without a walk, so the watch is started here too.
+                        changeWatcher.watch( arepo );
+                    }
+
                     RepositoryScanStatistics stats;
                     try
                     {
-                        stats = repoScanner.scan( arepo, sinceWhen );
+                        if ( journalScan )
+                        {
+                            log.info( "Scanning {} changed paths of repository {}", changes.getPaths().size(), repoId );
+                            stats = repoScanner.scan( arepo, changes.getPaths() );
+                        }
+                        else
+                        {
+                            stats = repoScanner.scan( arepo, sinceWhen );
+                        }
                     }
                     catch ( RepositoryScannerException e )
                     {
                         throw new TaskExecutionException( "Repository error when executing repository job.", e );
                     }
 
+                    if ( stats.isPaused() )
+                    {
+                        // the changes are returned again by the journal, when the scan is resumed
+                        log.info( "Paused scan of repository {} after {} files", repoId, stats.getTotalFileCount() );
+                        return;
+                    }
+
                     log.info( "Finished first scan: {}", stats.toDump( arepo ) );
 
+                    commitChanges( changes, !journalScan );
+
                     // further statistics will be populated by the following method
                     Date endTime = new Date( stats.getWhenGathered().getTime() + stats.getDuration() );
 
                     log.info( "Gathering repository statistics" );
 
-                    repositoryStatisticsManager.addStatisticsAfterScan( repoId,
-                                                                        stats.getWhenGathered(), endTime,
-                                                                        stats.getTotalFileCount(),
-                                                                        stats.getTotalFileCount() - previousFileCount );
+                    if ( journalScan )
+                    {
+                        // the journal scan only sees the changed files, the total is updated by the created and
+                        // deleted files. A deleted directory counts as one file, this is corrected by the next
+                        // full scan.
+                        long createdFiles = countFiles( arepo, changes.getCreatedPaths() );
+                        long totalFileCount =
+                            Math.max( 0, previousFileCount + createdFiles - changes.getDeletedPaths().size() );
+                        repositoryStatisticsManager.addStatisticsAfterScan( repoId,
+                                                                            stats.getWhenGathered(), endTime,
+                                                                            totalFileCount, createdFiles );
+                    }
+                    else
+                    {
+                        repositoryStatisticsManager.addStatisticsAfterScan( repoId,
+                                                                            stats.getWhenGathered(), endTime,
+                                                                            stats.getTotalFileCount(),
+                                                                            stats.getTotalFileCount() - previousFileCount );
+                    }
                     repositorySession.save();
                 }
                 catch ( MetadataRepositoryException e )
@@ -187,7 +306,6 @@ public void executeTask( RepositoryTask task )
 
                 log.info( "Finished repository task: {}", task );
 
-                this.task = null;
             }
         }
         catch ( MetadataRepositoryException e )
@@ -200,9 +318,116 @@ public void executeTask( RepositoryTask task )
         }
     }
 
+    /**
+     * Counts the regular files of the given paths. Directories are counted with the files they contain.
+     */
+    private long countFiles( ManagedRepository repository, Collection<String> paths )
+    {
+        if ( paths.isEmpty() || repository.getRoot() == null || !repository.getRoot().isFileBased() )
+        {
+            return 0;
+        }
+        Path root = repository.getRoot().getFilePath();
+        Set<Path> files = new HashSet<>();
+        for ( String path : paths )
+        {
+            Path file = root.resolve( path );
+            if ( Files.isRegularFile( file ) )
+            {
+                files.add( file );
+            }
+            else if ( Files.isDirectory( file ) )
+            {
+                try ( Stream<Path> stream = Files.walk( file ) )
+                {
+                    stream.filter( Files::isRegularFile ).forEach( files::add );
+                }
+                catch ( IOException | UncheckedIOException e )
+                {
+                    log.warn( "Could not count the files of {} in repository {}: {}", path, repository.getId(),
+                              e.getMessage() );
+                }
+            }
+        }
+        return files.size();
+    }
+
+    private RepositoryChangeSet takeChanges( String repositoryId )
+    {
+        if ( changeJournal == null )
+        {
+            return null;
+        }
+        try
+        {
+            return changeJournal.takeChanges( repositoryId );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not read the change journal of repository {}, walking the repository: {}", repositoryId,
+                      e.getMessage() );
+            return null;
+        }
+    }
+
+    private void commitChanges( RepositoryChangeSet changes, boolean fullScan )
+    {
+        if ( changeJournal == null || changes == null )
+        {
+            return;
+        }
+        try
+        {
+            changeJournal.commit( changes, fullScan );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not update the change journal of repository {}: {}", changes.getRepositoryId(),
+                      e.getMessage() );
+        }
+    }
+
+    /**
+     * Returns one of the tasks in execution. If tasks of both lanes are running, the task of the bulk lane is
+     * returned.
+     *
+     * @return the task in execution, or <code>null</code>, if no task is running
+     */
     public Task getCurrentTaskInExecution()
     {
-        return task;
+        RepositoryTask bulkTask = getCurrentTaskInExecution( RepositoryTaskQueue.Lane.BULK );
+        return bulkTask != null ? bulkTask : getCurrentTaskInExecution( RepositoryTaskQueue.Lane.INTERACTIVE );
+    }
+
+    /**
+     * Returns the task in execution for the given lane of the task queue.
+     *
+     * @param lane the lane of the task queue
+     * @return the task in execution, or <code>null</code>, if no task of the lane is running
+     */
+    public RepositoryTask getCurrentTaskInExecution( RepositoryTaskQueue.Lane lane )
+    {
+        return tasksInExecution.values( ).stream( )
+            .filter( task -> RepositoryTaskQueue.getLane( task ) == lane )
+            .findFirst( ).orElse( null );
+    }
+
+    /**
+     * @return the tasks of all lanes, that are currently in execution
+     */
+    public Collection<RepositoryTask> getCurrentTasksInExecution()
+    {
+        return new ArrayList<>( tasksInExecution.values( ) );
+    }
+
+    public RepositoryTaskQueue getTaskQueue()
+    {
+        return taskQueue;
+    }
+
+    public void setTaskQueue( RepositoryTaskQueue taskQueue )
+    {
+        this.taskQueue = taskQueue;
     }
 
     public RepositoryScanner getRepoScanner()
@@ -235,6 +460,36 @@ public void setRepositorySessionFactory( RepositorySessionFactory repositorySess
         this.repositorySessionFactory = repositorySessionFactory;
     }
 
+    public RepositoryChangeJournal getChangeJournal()
+    {
+        return changeJournal;
+    }
+
+    public void setChangeJournal( RepositoryChangeJournal changeJournal )
+    {
+        this.changeJournal = changeJournal;
+    }
+
+    public RepositoryChangeWatcher getChangeWatcher()
+    {
+        return changeWatcher;
+    }
+
+    public void setChangeWatcher( RepositoryChangeWatcher changeWatcher )
+    {
+        this.changeWatcher = changeWatcher;
+    }
+
+    public long getFullScanInterval()
+    {
+        return fullScanInterval;
+    }
+
+    public void setFullScanInterval( long fullScanInterval )
+    {
+        this.fullScanInterval = fullScanInterval;
+    }
+
     public RepositoryStatisticsManager getRepositoryStatisticsManager()
     {
         return repositoryStatisticsManager;
@@ -31,9 +31,10 @@
 import org.apache.archiva.metadata.repository.stats.model.RepositoryStatisticsManager;
 import org.apache.archiva.components.scheduler.CronExpressionValidator;
 import org.apache.archiva.components.scheduler.Scheduler;
-import org.apache.archiva.components.taskqueue.TaskQueue;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
+import org.apache.archiva.components.taskqueue.execution.TaskExecutor;
 import org.apache.archiva.scheduler.repository.model.RepositoryArchivaTaskScheduler;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeJournal;
 import org.apache.archiva.scheduler.repository.model.RepositoryTask;
 import org.apache.commons.lang3.time.StopWatch;
 import org.quartz.CronScheduleBuilder;
@@ -51,13 +52,23 @@
 import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Named;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Default implementation of a scheduling component for archiva.
+ * <p>
+ * The tasks are queued in a {@link RepositoryTaskQueue}, that takes tasks for single files before scans of
+ * whole repositories. Beside the queue executor, that works on both lanes, the scheduler starts dedicated
+ * workers for each lane. By default one worker for the interactive lane is started, so that freshly deployed
+ * or proxied files are processed while a long repository scan is running. The number of workers is set by the
+ * system properties <code>archiva.repository.scanning.interactiveWorkers</code> and
+ * <code>archiva.repository.scanning.bulkWorkers</code>.
  */
 @Service( "archivaTaskScheduler#repository" )
 public class DefaultRepositoryArchivaTaskScheduler
@@ -73,7 +84,11 @@
 
     @Inject
     @Named( value = "taskQueue#repository-scanning" )
-    private TaskQueue<RepositoryTask> repositoryScanningQueue;
+    private RepositoryTaskQueue repositoryScanningQueue;
+
+    @Inject
+    @Named( value = "taskExecutor#repository-scanning" )
+    private TaskExecutor<RepositoryTask> repositoryScanningExecutor;
 
     @Inject
     private ArchivaConfiguration archivaConfiguration;
@@ -88,6 +103,9 @@
     @Inject
     private RepositorySessionFactory repositorySessionFactory;
 
+    @Inject
+    private RepositoryChangeJournal changeJournal;
+
     private static final String REPOSITORY_SCAN_GROUP = "rg";
 
     private static final String REPOSITORY_JOB = "rj";
@@ -102,7 +120,15 @@
 
     private Set<String> jobs = new HashSet<>();
 
-    private List<String> queuedRepos = new ArrayList<>();
+    private Set<String> queuedRepos = new HashSet<>();
+
+    private int interactiveWorkers = Integer.getInteger( "archiva.repository.scanning.interactiveWorkers", 1 );
+
+    private int bulkWorkers = Integer.getInteger( "archiva.repository.scanning.bulkWorkers", 0 );
+
+    private ExecutorService laneWorkers;
+
+    private volatile boolean running;
 
     @PostConstruct
     public void startup()
@@ -114,6 +140,8 @@ public void startup()
 
         archivaConfiguration.addListener( this );
 
+        startLaneWorkers();
+
         List<ManagedRepositoryConfiguration> repositories =
             archivaConfiguration.getConfiguration().getManagedRepositories();
 
@@ -178,97 +206,153 @@ public void stop()
         jobs.clear();
         queuedRepos.clear();
 
+        running = false;
+        if ( laneWorkers != null )
+        {
+            laneWorkers.shutdownNow();
+            laneWorkers = null;
+        }
     }
 
-    @SuppressWarnings( "unchecked" )
-    @Override
-    public boolean isProcessingRepositoryTask( String repositoryId )
+    private void startLaneWorkers()
     {
-        synchronized ( repositoryScanningQueue )
+        int workers = interactiveWorkers + bulkWorkers;
+        if ( workers <= 0 )
+        {
+            return;
+        }
+        final AtomicInteger count = new AtomicInteger();
+        laneWorkers = Executors.newFixedThreadPool( workers, r -> {
+            Thread thread = new Thread( r, "archiva-repository-scanning-lane-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+        running = true;
+        for ( int i = 0; i < interactiveWorkers; i++ )
+        {
+            laneWorkers.execute( () -> runLane( RepositoryTaskQueue.Lane.INTERACTIVE ) );
+        }
+        for ( int i = 0; i < bulkWorkers; i++ )
         {
-            List<RepositoryTask> queue = null;
+            laneWorkers.execute( () -> runLane( RepositoryTaskQueue.Lane.BULK ) );
+        }
+        log.info( "Started {} interactive and {} bulk repository scanning workers", interactiveWorkers, bulkWorkers );
+    }
 
+    private void runLane( RepositoryTaskQueue.Lane lane )
+    {
+        while ( running )
+        {
+            RepositoryTask task;
             try
             {
-                queue = repositoryScanningQueue.getQueueSnapshot();
+                task = repositoryScanningQueue.poll( lane, 1, TimeUnit.SECONDS );
             }
-            catch ( TaskQueueException e )
+            catch ( InterruptedException e )
             {
-                // not possible with plexus-taskqueue implementation, ignore
+                Thread.currentThread().interrupt();
+                return;
             }
-
-            for ( RepositoryTask queuedTask : queue )
+            if ( task == null )
             {
-                if ( queuedTask.getRepositoryId().equals( repositoryId ) )
-                {
-                    return true;
-                }
+                continue;
             }
-            return false;
-        }
-    }
-
-    @Override
-    public boolean isProcessingRepositoryTask( RepositoryTask task )
-    {
-        synchronized ( repositoryScanningQueue )
-        {
-            List<RepositoryTask> queue = null;
-
             try
             {
-                queue = repositoryScanningQueue.getQueueSnapshot();
+                repositoryScanningExecutor.executeTask( task );
             }
-            catch ( TaskQueueException e )
+            catch ( Exception e )
             {
-                // not possible with plexus-taskqueue implementation, ignore
+                log.error( "Error executing task {}: {}", task, e.getMessage(), e );
             }
-
-            for ( RepositoryTask queuedTask : queue )
+            if ( log.isDebugEnabled() )
             {
-                if ( task.equals( queuedTask ) )
-                {
-                    return true;
-                }
+                log.debug( "Repository scanning lane {}: depth={}, {}", lane, repositoryScanningQueue.getDepth( lane ),
+                           repositoryScanningQueue.getStatistics( lane ) );
             }
-            return false;
         }
     }
 
+    @Override
+    public boolean isProcessingRepositoryTask( String repositoryId )
+    {
+        return repositoryScanningQueue.containsRepository( repositoryId );
+    }
+
+    @Override
+    public boolean isProcessingRepositoryTask( RepositoryTask task )
+    {
+        return repositoryScanningQueue.contains( task );
+    }
+
     @Override
     public void queueTask( RepositoryTask task )
         throws TaskQueueException
     {
-        synchronized ( repositoryScanningQueue )
+        if ( changeJournal != null && task.getResourceFile( ) != null )
         {
-            if ( isProcessingRepositoryTask( task ) )
+            if ( task.getResourceFile( ).isFileBased( ) )
             {
-                log.debug( "Repository task '{}' is already queued. Skipping task.", task );
+                // deployed, uploaded and proxied files are processed by the task, not by the next incremental scan
+                changeJournal.markHandled( task.getRepositoryId( ), task.getResourceFile( ).getPath( ) );
             }
             else
             {
-                // add check if the task is already queued if it is a file scan
-                repositoryScanningQueue.put( task );
+                changeJournal.recordChange( task.getRepositoryId( ), task.getResourceFile( ).getPath( ) );
             }
         }
+        if ( !repositoryScanningQueue.put( task ) )
+        {
+            log.debug( "Repository task '{}' is already queued. Skipping task.", task );
+        }
     }
 
     @Override
     public boolean unQueueTask( RepositoryTask task )
         throws TaskQueueException
     {
-        synchronized ( repositoryScanningQueue )
+        if ( !repositoryScanningQueue.remove( task ) )
         {
-            if ( !isProcessingRepositoryTask( task ) )
-            {
-                log.info( "cannot unqueue Repository task '{}' not already queued.", task );
-                return false;
-            }
-            else
-            {
-                return repositoryScanningQueue.remove( task );
-            }
+            log.info( "cannot unqueue Repository task '{}' not already queued.", task );
+            return false;
         }
+        return true;
+    }
+
+    /**
+     * Returns the queue of the repository tasks, that provides the depth and the statistics of the lanes.
+     */
+    public RepositoryTaskQueue getRepositoryScanningQueue()
+    {
+        return repositoryScanningQueue;
+    }
+
+    public int getInteractiveWorkers()
+    {
+        return interactiveWorkers;
+    }
+
+    /**
+     * Sets the number of workers, that only execute tasks for single files. Must be set before startup.
+     * The consumers of the tasks have to be thread safe, if more than one worker is used.
+     */
+    public void setInteractiveWorkers( int interactiveWorkers )
+    {
+        this.interactiveWorkers = interactiveWorkers;
+    }
+
+    public int getBulkWorkers()
+    {
+        return bulkWorkers;
+    }
+
+    /**
+     * Sets the number of additional workers, that scan whole repositories. The queue executor scans too, so
+     * additional workers are only needed to scan different repositories in parallel. Must be set before startup.
+     */
+    public void setBulkWorkers( int bulkWorkers )
+    {
+        this.bulkWorkers = bulkWorkers;
     }
 
     @Override
@@ -0,0 +1,529 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.configuration.provider.ArchivaConfiguration;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeJournal;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeSet;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Change journal that stores the changed paths of each repository in a file in the data directory.
+ * <p>
+ * Each repository has a journal file, where new changes are appended. When the changes are taken, the
+ * journal file is moved to a pending file, which is deleted after the changes have been processed.
+ * If the scan fails, the pending file is kept and its changes are returned again with the next changes.
+ * <p>
+ * The journal is bounded by {@link #setMaxEntries(int)}. If more changes are recorded, the journal is
+ * marked as incomplete and the next scan walks the whole repository. The time of the last full scan is
+ * persisted with the journal. Changes that are made while the server is not running are not journaled,
+ * they are found by the next periodic full scan.
+ */
+@Service( "repositoryChangeJournal#default" )
+public class DefaultRepositoryChangeJournal
+    implements RepositoryChangeJournal
+{
+    private static final Logger log = LoggerFactory.getLogger( DefaultRepositoryChangeJournal.class );
+
+    static final String JOURNAL_SUFFIX = ".journal";
+
+    static final String PENDING_SUFFIX = ".pending";
+
+    static final String FULL_SCAN_SUFFIX = ".fullscan";
+
+    private static final char CHANGED = 'C';
+
+    private static final char CREATED = 'A';
+
+    private static final char DELETED = 'D';
+
+    private static final char HANDLED = 'H';
+
+    private static final String INVALID_ENTRY = "I";
+
+    @Inject
+    private ArchivaConfiguration archivaConfiguration;
+
+    private Path journalDirectory;
+
+    private int maxEntries = 100000;
+
+    private long handledWindow = 10000;
+
+    private final Map<String, Journal> journals = new ConcurrentHashMap<>( );
+
+    public DefaultRepositoryChangeJournal( )
+    {
+        // no op
+    }
+
+    public DefaultRepositoryChangeJournal( Path journalDirectory )
+    {
+        this.journalDirectory = journalDirectory;
+    }
+
+    @PostConstruct
+    public void initialize( )
+        throws IOException
+    {
+        if ( journalDirectory == null )
+        {
+            journalDirectory = archivaConfiguration.getDataDirectory( ).resolve( "scanner-journal" );
+        }
+        Files.createDirectories( journalDirectory );
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        for ( Journal journal : journals.values( ) )
+        {
+            synchronized ( journal )
+            {
+                journal.close( );
+            }
+        }
+        journals.clear( );
+    }
+
+    @Override
+    public void recordChange( String repositoryId, String path )
+    {
+        record( repositoryId, path, CHANGED );
+    }
+
+    @Override
+    public void recordCreation( String repositoryId, String path )
+    {
+        record( repositoryId, path, CREATED );
+    }
+
+    @Override
+    public void recordDeletion( String repositoryId, String path )
+    {
+        record( repositoryId, path, DELETED );
+    }
+
+    @Override
+    public void markHandled( String repositoryId, String path )
+    {
+        record( repositoryId, path, HANDLED );
+    }
+
+    private void record( String repositoryId, String path, char kind )
+    {
+        String relativePath = normalize( path );
+        if ( StringUtils.isEmpty( repositoryId ) || StringUtils.isEmpty( relativePath ) )
+        {
+            return;
+        }
+        Journal journal = getJournal( repositoryId );
+        synchronized ( journal )
+        {
+            long now = System.currentTimeMillis( );
+            boolean handled;
+            if ( kind == HANDLED )
+            {
+                journal.handledUntil.values( ).removeIf( time -> time < now );
+                journal.handledUntil.put( relativePath, now + handledWindow );
+                handled = false;
+            }
+            else
+            {
+                Long handledUntil = journal.handledUntil.get( relativePath );
+                handled = handledUntil != null && handledUntil >= now;
+            }
+            if ( journal.invalid )
+            {
+                return;
+            }
+            try
+            {
+                if ( journal.entries >= maxEntries )
+                {
+                    log.info( "Change journal of repository {} is full, the next scan will walk the repository",
+                              repositoryId );
+                    journal.write( INVALID_ENTRY );
+                }
+                else
+                {
+                    journal.write( kind + " " + relativePath );
+                    if ( handled )
+                    {
+                        // the event of the watcher arrived after the path has been processed
+                        journal.write( HANDLED + " " + relativePath );
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Could not record change of {} in repository {}: {}", relativePath, repositoryId,
+                          e.getMessage( ) );
+                journal.invalid = true;
+            }
+        }
+    }
+
+    @Override
+    public void invalidate( String repositoryId )
+    {
+        Journal journal = getJournal( repositoryId );
+        synchronized ( journal )
+        {
+            if ( !journal.invalid )
+            {
+                try
+                {
+                    journal.write( INVALID_ENTRY );
+                }
+                catch ( IOException e )
+                {
+                    log.warn( "Could not invalidate change journal of repository {}: {}", repositoryId,
+                              e.getMessage( ) );
+                    journal.invalid = true;
+                }
+            }
+        }
+    }
+
+    @Override
+    public RepositoryChangeSet takeChanges( String repositoryId )
+        throws IOException
+    {
+        Journal journal = getJournal( repositoryId );
+        synchronized ( journal )
+        {
+            long creationTime = System.currentTimeMillis( );
+            // a failed write leaves the journal incomplete, even if the invalid entry could not be written
+            boolean complete = !journal.invalid;
+            journal.close( );
+            if ( Files.exists( journal.journalFile ) )
+            {
+                if ( Files.exists( journal.pendingFile ) )
+                {
+                    try ( OutputStream out = Files.newOutputStream( journal.pendingFile, StandardOpenOption.APPEND ) )
+                    {
+                        Files.copy( journal.journalFile, out );
+                    }
+                    Files.delete( journal.journalFile );
+                }
+                else
+                {
+                    Files.move( journal.journalFile, journal.pendingFile, StandardCopyOption.ATOMIC_MOVE );
+                }
+            }
+            journal.entries = 0;
+            journal.invalid = false;
+
+            // the entries are in the order of the changes, so the first and the last change of a path tell,
+            // whether it existed before and whether it exists now
+            Map<String, PathChanges> changedPaths = new LinkedHashMap<>( );
+            if ( Files.exists( journal.pendingFile ) )
+            {
+                try ( BufferedReader reader = Files.newBufferedReader( journal.pendingFile, StandardCharsets.UTF_8 ) )
+                {
+                    String line;
+                    while ( ( line = reader.readLine( ) ) != null )
+                    {
+                        if ( line.equals( INVALID_ENTRY ) )
+                        {
+                            complete = false;
+                        }
+                        else if ( line.length( ) > 2 && line.charAt( 1 ) == ' ' )
+                        {
+                            changedPaths.computeIfAbsent( line.substring( 2 ), k -> new PathChanges( ) )
+                                .add( line.charAt( 0 ) );
+                        }
+                    }
+                }
+            }
+            Set<String> paths = new LinkedHashSet<>( );
+            Set<String> createdPaths = new LinkedHashSet<>( );
+            Set<String> deletedPaths = new LinkedHashSet<>( );
+            for ( Map.Entry<String, PathChanges> entry : changedPaths.entrySet( ) )
+            {
+                PathChanges changes = entry.getValue( );
+                if ( !changes.handled )
+                {
+                    paths.add( entry.getKey( ) );
+                }
+                if ( changes.first == CREATED && changes.last != DELETED )
+                {
+                    createdPaths.add( entry.getKey( ) );
+                }
+                else if ( changes.first != CREATED && changes.last == DELETED )
+                {
+                    deletedPaths.add( entry.getKey( ) );
+                }
+            }
+            if ( journal.lastFullScan == 0 )
+            {
+                complete = false;
+            }
+            return new RepositoryChangeSet( repositoryId, paths, createdPaths, deletedPaths, complete,
+                                            journal.lastFullScan, creationTime );
+        }
+    }
+
+    @Override
+    public void commit( RepositoryChangeSet changes, boolean fullScan )
+        throws IOException
+    {
+        Journal journal = getJournal( changes.getRepositoryId( ) );
+        synchronized ( journal )
+        {
+            Files.deleteIfExists( journal.pendingFile );
+            if ( fullScan )
+            {
+                // changes recorded after the changes were taken are kept in the journal
+                journal.writeLastFullScan( changes.getCreationTime( ) );
+            }
+        }
+    }
+
+    private Journal getJournal( String repositoryId )
+    {
+        return journals.computeIfAbsent( repositoryId, id -> {
+            // repository ids are restricted to file name characters, but be safe
+            String fileName = id.replaceAll( "[^A-Za-z0-9._-]", "_" );
+            Journal journal = new Journal( journalDirectory.resolve( fileName + JOURNAL_SUFFIX ),
+                                           journalDirectory.resolve( fileName + PENDING_SUFFIX ),
+                                           journalDirectory.resolve( fileName + FULL_SCAN_SUFFIX ) );
+            journal.load( );
+            return journal;
+        } );
+    }
+
+    static String normalize( String path )
+    {
+        if ( path == null )
+        {
+            return null;
+        }
+        String relativePath = StringUtils.replaceChars( path.trim( ), '\\', '/' );
+        relativePath = StringUtils.stripStart( relativePath, "/" );
+        relativePath = StringUtils.stripEnd( relativePath, "/" );
+        // line breaks would corrupt the journal
+        return StringUtils.containsAny( relativePath, '\n', '\r' ) ? null : relativePath;
+    }
+
+    public int getMaxEntries( )
+    {
+        return maxEntries;
+    }
+
+    public void setMaxEntries( int maxEntries )
+    {
+        this.maxEntries = maxEntries;
+    }
+
+    public long getHandledWindow( )
+    {
+        return handledWindow;
+    }
+
+    /**
+     * Sets the time in milliseconds after {@link #markHandled(String, String)}, in which changes of the path are
+     * considered as handled.
+     */
+    public void setHandledWindow( long handledWindow )
+    {
+        this.handledWindow = handledWindow;
+    }
+
+    public Path getJournalDirectory( )
+    {
+        return journalDirectory;
+    }
+
+    public ArchivaConfiguration getArchivaConfiguration( )
+    {
+        return archivaConfiguration;
+    }
+
+    public void setArchivaConfiguration( ArchivaConfiguration archivaConfiguration )
+    {
+        this.archivaConfiguration = archivaConfiguration;
+    }
+
+    /**
+     * The first and the last change of a path in a change set.
+     */
+    private static class PathChanges
+    {
+        char first;
+
+        char last;
+
+        boolean handled;
+
+        void add( char kind )
+        {
+            if ( kind == HANDLED )
+            {
+                handled = true;
+            }
+            else
+            {
+                if ( first == 0 )
+                {
+                    first = kind;
+                }
+                last = kind;
+                handled = false;
+            }
+        }
+    }
+
+    /**
+     * The journal file of a single repository. Access is synchronized on the instance.
+     */
+    private static class Journal
+    {
+        final Path journalFile;
+
+        final Path pendingFile;
+
+        final Path fullScanFile;
+
+        final Map<String, Long> handledUntil = new HashMap<>( );
+
+        BufferedWriter writer;
+
+        int entries;
+
+        boolean invalid;
+
+        long lastFullScan;
+
+        Journal( Path journalFile, Path pendingFile, Path fullScanFile )
+        {
+            this.journalFile = journalFile;
+            this.pendingFile = pendingFile;
+            this.fullScanFile = fullScanFile;
+        }
+
+        void load( )
+        {
+            if ( Files.exists( fullScanFile ) )
+            {
+                try
+                {
+                    lastFullScan = Long.parseLong(
+                        new String( Files.readAllBytes( fullScanFile ), StandardCharsets.UTF_8 ).trim( ) );
+                }
+                catch ( IOException | NumberFormatException e )
+                {
+                    log.warn( "Could not read the time of the last full scan {}: {}", fullScanFile, e.getMessage( ) );
+                }
+            }
+            if ( !Files.exists( journalFile ) )
+            {
+                return;
+            }
+            try ( BufferedReader reader = Files.newBufferedReader( journalFile, StandardCharsets.UTF_8 ) )
+            {
+                String line;
+                while ( ( line = reader.readLine( ) ) != null )
+                {
+                    if ( line.equals( INVALID_ENTRY ) )
+                    {
+                        invalid = true;
+                    }
+                    else
+                    {
+                        entries++;
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Could not read change journal {}: {}", journalFile, e.getMessage( ) );
+                invalid = true;
+            }
+        }
+
+        void writeLastFullScan( long time )
+            throws IOException
+        {
+            Files.write( fullScanFile, Long.toString( time ).getBytes( StandardCharsets.UTF_8 ) );
+            lastFullScan = time;
+        }
+
+        void write( String entry )
+            throws IOException
+        {
+            if ( writer == null )
+            {
+                writer = Files.newBufferedWriter( journalFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                                                  StandardOpenOption.APPEND );
+            }
+            writer.write( entry );
+            writer.newLine( );
+            writer.flush( );
+            if ( entry.equals( INVALID_ENTRY ) )
+            {
+                invalid = true;
+            }
+            else
+            {
+                entries++;
+            }
+        }
+
+        void close( )
+        {
+            if ( writer != null )
+            {
+                try
+                {
+                    writer.close( );
+                }
+                catch ( IOException e )
+                {
+                    log.warn( "Could not close change journal {}: {}", journalFile, e.getMessage( ) );
+                }
+                writer = null;
+            }
+        }
+    }
+}
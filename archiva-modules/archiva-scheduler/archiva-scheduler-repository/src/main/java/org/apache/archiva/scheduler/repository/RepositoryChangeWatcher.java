@@ -0,0 +1,418 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.configuration.provider.ArchivaConfiguration;
+import org.apache.archiva.configuration.provider.ConfigurationEvent;
+import org.apache.archiva.configuration.provider.ConfigurationListener;
+import org.apache.archiva.repository.ManagedRepository;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeJournal;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * Watches the directories of managed repositories and records the changes in the {@link RepositoryChangeJournal}.
+ * This finds changes that are made to the repository directories outside of archiva.
+ * <p>
+ * A repository is watched after {@link #watch(ManagedRepository)} has been called, which is done before
+ * the repository is walked completely. Hidden directories, e.g. the index directories, are not watched.
+ * If the directories cannot be registered, e.g. because the limit of watches of the operating system is
+ * reached, the repository is not watched and changes made outside of archiva are only found by the
+ * periodic full scans. The registration is not tried again for each scan, but only after the repository
+ * was unwatched or the configuration has changed.
+ * <p>
+ * Checksums and <code>maven-metadata.xml</code> files are written by archiva itself, mostly by the consumers
+ * of the scans. Their modifications are ignored, their creation and deletion is recorded as handled, so that
+ * the statistics stay correct, but the files are not scanned again.
+ * <p>
+ * Watching can be disabled by setting the system property <code>archiva.repository.watchChanges</code>
+ * to <code>false</code>.
+ */
+@Service( "repositoryChangeWatcher#default" )
+public class RepositoryChangeWatcher
+    implements ConfigurationListener
+{
+    private static final Logger log = LoggerFactory.getLogger( RepositoryChangeWatcher.class );
+
+    private static final String[] CHECKSUM_SUFFIXES = { ".md5", ".sha1", ".sha256", ".sha512" };
+
+    private static final String METADATA_PREFIX = "maven-metadata";
+
+    @Inject
+    private RepositoryChangeJournal changeJournal;
+
+    @Inject
+    private ArchivaConfiguration archivaConfiguration;
+
+    private boolean enabled = Boolean.parseBoolean( System.getProperty( "archiva.repository.watchChanges", "true" ) );
+
+    private WatchService watchService;
+
+    private Thread watchThread;
+
+    private final Map<WatchKey, WatchedDirectory> watchedDirectories = new ConcurrentHashMap<>( );
+
+    private final Set<String> watchedRepositories = ConcurrentHashMap.newKeySet( );
+
+    private final Set<String> failedRepositories = ConcurrentHashMap.newKeySet( );
+
+    @PostConstruct
+    public void initialize( )
+    {
+        if ( archivaConfiguration != null )
+        {
+            archivaConfiguration.addListener( this );
+        }
+    }
+
+    /**
+     * Registration failures may be caused by the repository location, so all repositories are tried again.
+     */
+    @Override
+    public void configurationEvent( ConfigurationEvent event )
+    {
+        failedRepositories.clear( );
+    }
+
+    /**
+     * Starts to watch the directories of the given repository, if it is not already watched and the
+     * registration of its directories did not fail before.
+     *
+     * @param repository the managed repository
+     */
+    public synchronized void watch( ManagedRepository repository )
+    {
+        if ( !enabled || repository == null || watchedRepositories.contains( repository.getId( ) )
+            || failedRepositories.contains( repository.getId( ) ) )
+        {
+            return;
+        }
+        StorageAsset root = repository.getRoot( );
+        if ( root == null || !root.isFileBased( ) || !root.exists( ) )
+        {
+            return;
+        }
+        try
+        {
+            if ( watchService == null )
+            {
+                start( );
+            }
+            registerTree( repository.getId( ), root.getFilePath( ), root.getFilePath( ) );
+            watchedRepositories.add( repository.getId( ) );
+            log.info( "Watching repository {} for changes", repository.getId( ) );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not watch repository {}, external changes are only found by full scans: {}",
+                      repository.getId( ), e.getMessage( ) );
+            cancel( repository.getId( ) );
+            failedRepositories.add( repository.getId( ) );
+        }
+    }
+
+    /**
+     * Stops watching the directories of the given repository. A failed registration is tried again by the
+     * next {@link #watch(ManagedRepository)}.
+     *
+     * @param repositoryId the id of the managed repository
+     */
+    public synchronized void unwatch( String repositoryId )
+    {
+        cancel( repositoryId );
+        failedRepositories.remove( repositoryId );
+    }
+
+    private void cancel( String repositoryId )
+    {
+        watchedRepositories.remove( repositoryId );
+        watchedDirectories.entrySet( ).removeIf( entry -> {
+            if ( entry.getValue( ).repositoryId.equals( repositoryId ) )
+            {
+                entry.getKey( ).cancel( );
+                return true;
+            }
+            return false;
+        } );
+    }
+
+    public boolean isWatching( String repositoryId )
+    {
+        return watchedRepositories.contains( repositoryId );
+    }
+
+    /**
+     * @return <code>true</code>, if the directories of the repository could not be registered
+     */
+    public boolean isFailed( String repositoryId )
+    {
+        return failedRepositories.contains( repositoryId );
+    }
+
+    @PreDestroy
+    public synchronized void shutdown( )
+    {
+        if ( watchService != null )
+        {
+            try
+            {
+                watchService.close( );
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Could not close the watch service: {}", e.getMessage( ) );
+            }
+            watchService = null;
+        }
+        if ( watchThread != null )
+        {
+            try
+            {
+                watchThread.join( 5000 );
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread( ).interrupt( );
+            }
+            watchThread = null;
+        }
+        watchedDirectories.clear( );
+        watchedRepositories.clear( );
+        failedRepositories.clear( );
+    }
+
+    private void start( )
+        throws IOException
+    {
+        watchService = FileSystems.getDefault( ).newWatchService( );
+        final WatchService service = watchService;
+        watchThread = new Thread( ( ) -> processEvents( service ), "archiva-repository-change-watcher" );
+        watchThread.setDaemon( true );
+        watchThread.start( );
+    }
+
+    private void registerTree( final String repositoryId, final Path root, final Path directory )
+        throws IOException
+    {
+        Files.walkFileTree( directory, EnumSet.of( FileVisitOption.FOLLOW_LINKS ), Integer.MAX_VALUE,
+                            new SimpleFileVisitor<Path>( )
+                            {
+                                @Override
+                                public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                                    throws IOException
+                                {
+                                    if ( !dir.equals( root ) && isHidden( dir ) )
+                                    {
+                                        return FileVisitResult.SKIP_SUBTREE;
+                                    }
+                                    WatchKey key = dir.register( watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE );
+                                    watchedDirectories.put( key, new WatchedDirectory( repositoryId, root, dir ) );
+                                    return FileVisitResult.CONTINUE;
+                                }
+
+                                @Override
+                                public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+                                {
+                                    return FileVisitResult.CONTINUE;
+                                }
+                            } );
+    }
+
+    private static boolean isHidden( Path path )
+    {
+        Path name = path.getFileName( );
+        return name != null && name.toString( ).startsWith( "." );
+    }
+
+    /**
+     * Returns <code>true</code>, if the file is written by archiva and not by a client.
+     */
+    static boolean isGenerated( Path path )
+    {
+        Path name = path.getFileName( );
+        if ( name == null )
+        {
+            return false;
+        }
+        String fileName = name.toString( ).toLowerCase( Locale.ROOT );
+        return StringUtils.endsWithAny( fileName, CHECKSUM_SUFFIXES )
+            || ( fileName.startsWith( METADATA_PREFIX ) && fileName.endsWith( ".xml" ) );
+    }
+
+    private void processEvents( WatchService service )
+    {
+        while ( true )
+        {
+            WatchKey key;
+            try
+            {
+                key = service.take( );
+            }
+            catch ( ClosedWatchServiceException | InterruptedException e )
+            {
+                return;
+            }
+            WatchedDirectory directory = watchedDirectories.get( key );
+            if ( directory == null )
+            {
+                key.cancel( );
+                continue;
+            }
+            for ( WatchEvent<?> event : key.pollEvents( ) )
+            {
+                if ( event.kind( ) == OVERFLOW )
+                {
+                    log.debug( "Change events of repository {} have been lost", directory.repositoryId );
+                    changeJournal.invalidate( directory.repositoryId );
+                    continue;
+                }
+                Path changed = directory.path.resolve( (Path) event.context( ) );
+                if ( isHidden( changed ) )
+                {
+                    continue;
+                }
+                String relativePath = FilenameUtils.separatorsToUnix( directory.root.relativize( changed ).toString( ) );
+                boolean generated = isGenerated( changed );
+                if ( event.kind( ) == ENTRY_CREATE )
+                {
+                    changeJournal.recordCreation( directory.repositoryId, relativePath );
+                }
+                else if ( event.kind( ) == ENTRY_DELETE )
+                {
+                    changeJournal.recordDeletion( directory.repositoryId, relativePath );
+                }
+                else if ( !generated )
+                {
+                    changeJournal.recordChange( directory.repositoryId, relativePath );
+                }
+                if ( generated && event.kind( ) != ENTRY_MODIFY )
+                {
+                    changeJournal.markHandled( directory.repositoryId, relativePath );
+                }
+                if ( event.kind( ) == ENTRY_CREATE && Files.isDirectory( changed, LinkOption.NOFOLLOW_LINKS ) )
+                {
+                    // the directory is recorded as changed, so files created before the registration are scanned too
+                    registerCreatedDirectory( directory, changed );
+                }
+            }
+            if ( !key.reset( ) )
+            {
+                watchedDirectories.remove( key );
+            }
+        }
+    }
+
+    private synchronized void registerCreatedDirectory( WatchedDirectory parent, Path directory )
+    {
+        if ( !watchedRepositories.contains( parent.repositoryId ) || watchService == null )
+        {
+            return;
+        }
+        try
+        {
+            registerTree( parent.repositoryId, parent.root, directory );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not watch directory {}, external changes of repository {} are only found by full scans: {}",
+                      directory, parent.repositoryId, e.getMessage( ) );
+            cancel( parent.repositoryId );
+            failedRepositories.add( parent.repositoryId );
+            changeJournal.invalidate( parent.repositoryId );
+        }
+    }
+
+    public boolean isEnabled( )
+    {
+        return enabled;
+    }
+
+    public void setEnabled( boolean enabled )
+    {
+        this.enabled = enabled;
+    }
+
+    public RepositoryChangeJournal getChangeJournal( )
+    {
+        return changeJournal;
+    }
+
+    public void setChangeJournal( RepositoryChangeJournal changeJournal )
+    {
+        this.changeJournal = changeJournal;
+    }
+
+    public ArchivaConfiguration getArchivaConfiguration( )
+    {
+        return archivaConfiguration;
+    }
+
+    public void setArchivaConfiguration( ArchivaConfiguration archivaConfiguration )
+    {
+        this.archivaConfiguration = archivaConfiguration;
+    }
+
+    private static class WatchedDirectory
+    {
+        final String repositoryId;
+
+        final Path root;
+
+        final Path path;
+
+        WatchedDirectory( String repositoryId, Path root, Path path )
+        {
+            this.repositoryId = repositoryId;
+            this.root = root;
+            this.path = path;
+        }
+    }
+}
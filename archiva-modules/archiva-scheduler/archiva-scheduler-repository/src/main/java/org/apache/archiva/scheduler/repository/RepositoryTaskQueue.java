@@ -0,0 +1,481 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.components.taskqueue.TaskEntryEvaluator;
+import org.apache.archiva.components.taskqueue.TaskExitEvaluator;
+import org.apache.archiva.components.taskqueue.TaskQueue;
+import org.apache.archiva.components.taskqueue.TaskQueueException;
+import org.apache.archiva.components.taskqueue.TaskViabilityEvaluator;
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue for repository scanning tasks with separate lanes. Tasks for single files, that are queued
+ * after a deploy or a proxy fetch, are put into the interactive lane and are always taken before the
+ * tasks of the bulk lane, that scan whole repositories.
+ * <p>
+ * Each lane keeps its tasks in insertion order in a hash map, so that duplicate tasks are detected
+ * in constant time. A bulk task is not handed out, while another bulk task of the same repository
+ * is executed, because two walks of the same repository would only compete for the same files.
+ */
+public class RepositoryTaskQueue
+    implements TaskQueue<RepositoryTask>
+{
+    public enum Lane
+    {
+        INTERACTIVE, BULK
+    }
+
+    private final ReentrantLock lock = new ReentrantLock( );
+
+    private final Condition notEmpty = lock.newCondition( );
+
+    private final Map<Lane, LinkedHashMap<RepositoryTask, QueuedTask>> lanes = new EnumMap<>( Lane.class );
+
+    private final Map<Lane, LaneStatistics> statistics = new EnumMap<>( Lane.class );
+
+    private final Map<String, Integer> queuedRepositories = new HashMap<>( );
+
+    private final Set<String> runningBulkRepositories = new HashSet<>( );
+
+    public RepositoryTaskQueue( )
+    {
+        for ( Lane lane : Lane.values( ) )
+        {
+            lanes.put( lane, new LinkedHashMap<>( ) );
+            statistics.put( lane, new LaneStatistics( ) );
+        }
+    }
+
+    public static Lane getLane( RepositoryTask task )
+    {
+        return task.getResourceFile( ) != null ? Lane.INTERACTIVE : Lane.BULK;
+    }
+
+    /**
+     * Adds the task to its lane. If an equal task is queued already, the task is not added. A request
+     * for a full scan is kept, if it is merged into a queued scan of the same repository.
+     *
+     * @return <code>true</code>, if the task has been added
+     */
+    @Override
+    public boolean put( RepositoryTask task )
+        throws TaskQueueException
+    {
+        Lane lane = getLane( task );
+        lock.lock( );
+        try
+        {
+            QueuedTask queued = lanes.get( lane ).get( task );
+            if ( queued != null )
+            {
+                if ( task.isScanAll( ) )
+                {
+                    queued.task.setScanAll( true );
+                }
+                statistics.get( lane ).duplicates.incrementAndGet( );
+                return false;
+            }
+            lanes.get( lane ).put( task, new QueuedTask( task, System.nanoTime( ) ) );
+            queuedRepositories.merge( task.getRepositoryId( ), 1, Integer::sum );
+            statistics.get( lane ).queued.incrementAndGet( );
+            notEmpty.signalAll( );
+            return true;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    @Override
+    public RepositoryTask take( )
+        throws TaskQueueException
+    {
+        try
+        {
+            return poll( null, Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new TaskQueueException( "Interrupted while waiting for a repository task", e );
+        }
+    }
+
+    /**
+     * Takes the next task of any lane. Tasks of the interactive lane are returned first.
+     */
+    @Override
+    public RepositoryTask poll( int timeout, TimeUnit timeUnit )
+        throws InterruptedException
+    {
+        return poll( null, timeout, timeUnit );
+    }
+
+    /**
+     * Takes the next task of the given lane.
+     *
+     * @param lane     the lane, or <code>null</code> for all lanes in the order of priority
+     * @param timeout  the maximum time to wait for a task
+     * @param timeUnit the unit of the timeout
+     * @return the task, or <code>null</code>, if no task was available in the given time
+     * @throws InterruptedException if the thread was interrupted while waiting
+     */
+    public RepositoryTask poll( Lane lane, long timeout, TimeUnit timeUnit )
+        throws InterruptedException
+    {
+        long nanos = timeUnit.toNanos( timeout );
+        lock.lockInterruptibly( );
+        try
+        {
+            while ( true )
+            {
+                RepositoryTask task = lane == null ? next( Lane.INTERACTIVE ) : next( lane );
+                if ( task == null && lane == null )
+                {
+                    task = next( Lane.BULK );
+                }
+                if ( task != null )
+                {
+                    return task;
+                }
+                if ( nanos <= 0 )
+                {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos( nanos );
+            }
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    private RepositoryTask next( Lane lane )
+    {
+        Iterator<QueuedTask> it = lanes.get( lane ).values( ).iterator( );
+        while ( it.hasNext( ) )
+        {
+            QueuedTask queued = it.next( );
+            String repositoryId = queued.task.getRepositoryId( );
+            if ( lane == Lane.BULK && !runningBulkRepositories.add( repositoryId ) )
+            {
+                // the repository is scanned already
+                continue;
+            }
+            it.remove( );
+            decreaseQueued( repositoryId );
+            statistics.get( lane ).taken( System.nanoTime( ) - queued.queuedTime );
+            return queued.task;
+        }
+        return null;
+    }
+
+    /**
+     * Must be called after the execution of a task that was taken from this queue.
+     *
+     * @param task          the executed task
+     * @param executionTime the execution time in milliseconds
+     */
+    public void taskFinished( RepositoryTask task, long executionTime )
+    {
+        Lane lane = getLane( task );
+        lock.lock( );
+        try
+        {
+            if ( lane == Lane.BULK && runningBulkRepositories.remove( task.getRepositoryId( ) ) )
+            {
+                // further scans of the repository may be waiting
+                notEmpty.signalAll( );
+            }
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+        statistics.get( lane ).finished( executionTime );
+    }
+
+    @Override
+    public boolean remove( RepositoryTask task )
+        throws ArrayStoreException
+    {
+        lock.lock( );
+        try
+        {
+            if ( lanes.get( getLane( task ) ).remove( task ) != null )
+            {
+                decreaseQueued( task.getRepositoryId( ) );
+                return true;
+            }
+            return false;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    @Override
+    public boolean removeAll( List<RepositoryTask> tasks )
+        throws ArrayStoreException
+    {
+        boolean removed = false;
+        for ( RepositoryTask task : tasks )
+        {
+            removed |= remove( task );
+        }
+        return removed;
+    }
+
+    private void decreaseQueued( String repositoryId )
+    {
+        queuedRepositories.computeIfPresent( repositoryId, ( id, count ) -> count > 1 ? count - 1 : null );
+    }
+
+    /**
+     * Returns <code>true</code>, if an equal task is queued.
+     */
+    public boolean contains( RepositoryTask task )
+    {
+        lock.lock( );
+        try
+        {
+            return lanes.get( getLane( task ) ).containsKey( task );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns <code>true</code>, if any task of the repository is queued.
+     */
+    public boolean containsRepository( String repositoryId )
+    {
+        lock.lock( );
+        try
+        {
+            return queuedRepositories.containsKey( repositoryId );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns the tasks of all lanes in the order they are taken.
+     */
+    @Override
+    public List<RepositoryTask> getQueueSnapshot( )
+        throws TaskQueueException
+    {
+        lock.lock( );
+        try
+        {
+            List<RepositoryTask> snapshot = new ArrayList<>( size( ) );
+            for ( Lane lane : Lane.values( ) )
+            {
+                snapshot.addAll( lanes.get( lane ).keySet( ) );
+            }
+            return Collections.unmodifiableList( snapshot );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public int size( )
+    {
+        lock.lock( );
+        try
+        {
+            int size = 0;
+            for ( Lane lane : Lane.values( ) )
+            {
+                size += lanes.get( lane ).size( );
+            }
+            return size;
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    /**
+     * Returns the number of tasks, that are waiting in the given lane.
+     */
+    public int getDepth( Lane lane )
+    {
+        lock.lock( );
+        try
+        {
+            return lanes.get( lane ).size( );
+        }
+        finally
+        {
+            lock.unlock( );
+        }
+    }
+
+    public LaneStatistics getStatistics( Lane lane )
+    {
+        return statistics.get( lane );
+    }
+
+    public List<TaskEntryEvaluator<RepositoryTask>> getTaskEntryEvaluators( )
+    {
+        return Collections.emptyList( );
+    }
+
+    public List<TaskExitEvaluator<RepositoryTask>> getTaskExitEvaluators( )
+    {
+        return Collections.emptyList( );
+    }
+
+    public List<TaskViabilityEvaluator<RepositoryTask>> getTaskViabilityEvaluators( )
+    {
+        return Collections.emptyList( );
+    }
+
+    private static class QueuedTask
+    {
+        final RepositoryTask task;
+
+        final long queuedTime;
+
+        QueuedTask( RepositoryTask task, long queuedTime )
+        {
+            this.task = task;
+            this.queuedTime = queuedTime;
+        }
+    }
+
+    /**
+     * Counters of a lane. The wait time is the time between queueing and taking a task, all times are
+     * in milliseconds.
+     */
+    public static class LaneStatistics
+    {
+        private final AtomicLong queued = new AtomicLong( );
+
+        private final AtomicLong duplicates = new AtomicLong( );
+
+        private final AtomicLong taken = new AtomicLong( );
+
+        private final AtomicLong totalWaitTime = new AtomicLong( );
+
+        private final AtomicLong maxWaitTime = new AtomicLong( );
+
+        private final AtomicLong finished = new AtomicLong( );
+
+        private final AtomicLong totalExecutionTime = new AtomicLong( );
+
+        void taken( long waitNanos )
+        {
+            long waitTime = TimeUnit.NANOSECONDS.toMillis( waitNanos );
+            taken.incrementAndGet( );
+            totalWaitTime.addAndGet( waitTime );
+            maxWaitTime.accumulateAndGet( waitTime, Math::max );
+        }
+
+        void finished( long executionTime )
+        {
+            finished.incrementAndGet( );
+            totalExecutionTime.addAndGet( executionTime );
+        }
+
+        public long getQueuedCount( )
+        {
+            return queued.get( );
+        }
+
+        public long getDuplicateCount( )
+        {
+            return duplicates.get( );
+        }
+
+        public long getTakenCount( )
+        {
+            return taken.get( );
+        }
+
+        public long getFinishedCount( )
+        {
+            return finished.get( );
+        }
+
+        public long getTotalWaitTime( )
+        {
+            return totalWaitTime.get( );
+        }
+
+        public long getMaxWaitTime( )
+        {
+            return maxWaitTime.get( );
+        }
+
+        public long getAverageWaitTime( )
+        {
+            long count = taken.get( );
+            return count == 0 ? 0 : totalWaitTime.get( ) / count;
+        }
+
+        public long getTotalExecutionTime( )
+        {
+            return totalExecutionTime.get( );
+        }
+
+        public long getAverageExecutionTime( )
+        {
+            long count = finished.get( );
+            return count == 0 ? 0 : totalExecutionTime.get( ) / count;
+        }
+
+        @Override
+        public String toString( )
+        {
+            return "queued=" + getQueuedCount( ) + ", duplicates=" + getDuplicateCount( ) + ", taken=" + getTakenCount( )
+                + ", avgWait=" + getAverageWaitTime( ) + "ms, maxWait=" + getMaxWaitTime( ) + "ms, finished="
+                + getFinishedCount( ) + ", avgExecution=" + getAverageExecutionTime( ) + "ms";
+        }
+    }
+}
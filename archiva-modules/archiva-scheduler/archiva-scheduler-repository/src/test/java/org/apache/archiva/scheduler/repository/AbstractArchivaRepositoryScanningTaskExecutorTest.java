@@ -151,6 +151,11 @@ public void setUp()
         }
         repositoryRegistry.putRepository( repositoryConfiguration );
 
+        // the scans are timestamp based, the scans of journaled changes are tested separately
+        ArchivaRepositoryScanningTaskExecutor executor = (ArchivaRepositoryScanningTaskExecutor) taskExecutor;
+        executor.setChangeJournal( null );
+        executor.setChangeWatcher( null );
+
         metadataRepository = mock( MetadataRepository.class );
 
         factory.setRepository( metadataRepository );
@@ -0,0 +1,112 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.repository.stats.model.RepositoryStatistics;
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeJournal;
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import org.springframework.test.context.ContextConfiguration;
+
+import javax.inject.Inject;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Tests the incremental scans of the paths recorded in the change journal.
+ */
+@ContextConfiguration( locations = { "classpath*:/META-INF/spring-context.xml", "classpath:/spring-context.xml" } )
+public class ArchivaRepositoryScanningTaskExecutorJournalTest
+    extends AbstractArchivaRepositoryScanningTaskExecutorTest
+{
+    @Inject
+    private RepositoryChangeJournal changeJournal;
+
+    @Override
+    public void setUp( )
+        throws Exception
+    {
+        super.setUp( );
+        // the journal is fed explicitly, the events of the watcher are asynchronous
+        ( (ArchivaRepositoryScanningTaskExecutor) taskExecutor ).setChangeJournal( changeJournal );
+    }
+
+    @Test
+    public void testExecutorScanJournaledPaths( )
+        throws Exception
+    {
+        RepositoryTask repoTask = new RepositoryTask( );
+        repoTask.setRepositoryId( TEST_REPO_ID );
+        repoTask.setScanAll( false );
+
+        Date date = Calendar.getInstance( ).getTime( );
+        repositoryStatisticsManager.addStatisticsAfterScan( TEST_REPO_ID, new Date( date.getTime( ) - 1234567 ), date,
+                                                            31, 31 );
+
+        // the first scan walks the repository, if no full scan has been recorded
+        taskExecutor.executeTask( repoTask );
+        assertEquals( 0, testConsumer.getConsumed( ).size( ) );
+        assertEquals( 31, repositoryStatisticsManager.getLastStatistics( TEST_REPO_ID ).getTotalFileCount( ) );
+
+        // the copied files keep their old timestamps, a timestamp based scan would not find them
+        Path newArtifactGroup = repoDir.resolve( "org/apache/archiva" );
+        FileUtils.copyDirectory( Paths.get( "target/test-classes/test-repo/org/apache/archiva" ).toFile( ),
+                                 newArtifactGroup.toFile( ) );
+        assertTrue( Files.exists( newArtifactGroup ) );
+        changeJournal.recordCreation( TEST_REPO_ID, "org/apache/archiva" );
+
+        taskExecutor.executeTask( repoTask );
+
+        Collection<String> consumed = testConsumer.getConsumed( );
+        assertEquals( 1, consumed.size( ) );
+        RepositoryStatistics updatedStats = repositoryStatisticsManager.getLastStatistics( TEST_REPO_ID );
+        assertEquals( 2, updatedStats.getNewFileCount( ) );
+        assertEquals( 33, updatedStats.getTotalFileCount( ) );
+
+        // the processed changes have been removed from the journal
+        assertTrue( changeJournal.takeChanges( TEST_REPO_ID ).getPaths( ).isEmpty( ) );
+    }
+
+    @Test
+    public void testExecutorWalksRepositoryIfJournalIsIncomplete( )
+        throws Exception
+    {
+        RepositoryTask repoTask = new RepositoryTask( );
+        repoTask.setRepositoryId( TEST_REPO_ID );
+        repoTask.setScanAll( false );
+
+        taskExecutor.executeTask( repoTask );
+        assertEquals( 31, repositoryStatisticsManager.getLastStatistics( TEST_REPO_ID ).getTotalFileCount( ) );
+
+        // not journaled, only found by walking the repository
+        FileUtils.copyDirectory( Paths.get( "target/test-classes/test-repo/org/apache/archiva" ).toFile( ),
+                                 repoDir.resolve( "org/apache/archiva" ).toFile( ) );
+        changeJournal.invalidate( TEST_REPO_ID );
+
+        taskExecutor.executeTask( repoTask );
+
+        assertEquals( 33, repositoryStatisticsManager.getLastStatistics( TEST_REPO_ID ).getTotalFileCount( ) );
+    }
+}
@@ -0,0 +1,187 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.scheduler.repository.model.RepositoryChangeSet;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class DefaultRepositoryChangeJournalTest
+{
+    private static final String TEST_REPO_ID = "test-repo";
+
+    private Path journalDirectory;
+
+    private DefaultRepositoryChangeJournal journal;
+
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        journalDirectory = Files.createTempDirectory( "change-journal" );
+        journal = createJournal( );
+    }
+
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        journal.shutdown( );
+        try ( Stream<Path> files = Files.walk( journalDirectory ) )
+        {
+            files.sorted( Comparator.reverseOrder( ) ).forEach( p -> p.toFile( ).delete( ) );
+        }
+    }
+
+    private DefaultRepositoryChangeJournal createJournal( )
+        throws Exception
+    {
+        DefaultRepositoryChangeJournal newJournal = new DefaultRepositoryChangeJournal( journalDirectory );
+        newJournal.setMaxEntries( 10 );
+        newJournal.initialize( );
+        return newJournal;
+    }
+
+    @Test
+    public void testIncompleteWithoutFullScan( )
+        throws Exception
+    {
+        journal.recordChange( TEST_REPO_ID, "org/apache/test/1.0/test-1.0.jar" );
+        RepositoryChangeSet changes = journal.takeChanges( TEST_REPO_ID );
+        assertFalse( changes.isComplete( ) );
+        assertEquals( 0, changes.getLastFullScan( ) );
+        journal.commit( changes, true );
+
+        journal.recordChange( TEST_REPO_ID, "/org/apache/test/1.0/test-1.0.pom" );
+        journal.recordChange( TEST_REPO_ID, "org\\apache\\test\\1.0\\test-1.0.pom" );
+        journal.recordChange( TEST_REPO_ID, "org/apache/test/1.0/" );
+        changes = journal.takeChanges( TEST_REPO_ID );
+        assertTrue( changes.isComplete( ) );
+        assertTrue( changes.getLastFullScan( ) > 0 );
+        assertEquals( Arrays.asList( "org/apache/test/1.0/test-1.0.pom", "org/apache/test/1.0" ),
+                      Arrays.asList( changes.getPaths( ).toArray( ) ) );
+    }
+
+    @Test
+    public void testFailedScanKeepsChanges( )
+        throws Exception
+    {
+        journal.commit( journal.takeChanges( TEST_REPO_ID ), true );
+
+        journal.recordChange( TEST_REPO_ID, "a/1.0/a-1.0.jar" );
+        journal.takeChanges( TEST_REPO_ID );
+        // not committed, the scan failed
+        journal.recordChange( TEST_REPO_ID, "b/1.0/b-1.0.jar" );
+
+        RepositoryChangeSet changes = journal.takeChanges( TEST_REPO_ID );
+        assertEquals( 2, changes.getPaths( ).size( ) );
+        assertTrue( changes.getPaths( ).contains( "a/1.0/a-1.0.jar" ) );
+        assertTrue( changes.getPaths( ).contains( "b/1.0/b-1.0.jar" ) );
+        journal.commit( changes, false );
+
+        assertTrue( journal.takeChanges( TEST_REPO_ID ).getPaths( ).isEmpty( ) );
+    }
+
+    @Test
+    public void testChangesArePersisted( )
+        throws Exception
+    {
+        RepositoryChangeSet fullScan = journal.takeChanges( TEST_REPO_ID );
+        journal.commit( fullScan, true );
+        journal.recordChange( TEST_REPO_ID, "a/1.0/a-1.0.jar" );
+        journal.recordChange( "other-repo", "b/1.0/b-1.0.jar" );
+        journal.shutdown( );
+
+        journal = createJournal( );
+        RepositoryChangeSet changes = journal.takeChanges( TEST_REPO_ID );
+        assertEquals( 1, changes.getPaths( ).size( ) );
+        assertTrue( changes.getPaths( ).contains( "a/1.0/a-1.0.jar" ) );
+        // the time of the full scan is persisted
+        assertTrue( changes.isComplete( ) );
+        assertEquals( fullScan.getCreationTime( ), changes.getLastFullScan( ) );
+        RepositoryChangeSet otherChanges = journal.takeChanges( "other-repo" );
+        assertTrue( otherChanges.getPaths( ).contains( "b/1.0/b-1.0.jar" ) );
+        assertFalse( otherChanges.isComplete( ) );
+    }
+
+    @Test
+    public void testCreatedDeletedAndHandledPaths( )
+        throws Exception
+    {
+        journal.recordCreation( TEST_REPO_ID, "a/1.0/a-1.0.jar" );
+        journal.recordChange( TEST_REPO_ID, "a/1.0/a-1.0.jar" );
+        journal.recordDeletion( TEST_REPO_ID, "b/1.0/b-1.0.jar" );
+        journal.recordCreation( TEST_REPO_ID, "c/1.0/c-1.0.jar" );
+        journal.recordDeletion( TEST_REPO_ID, "c/1.0/c-1.0.jar" );
+        journal.recordDeletion( TEST_REPO_ID, "d/1.0/d-1.0.jar" );
+        journal.recordCreation( TEST_REPO_ID, "d/1.0/d-1.0.jar" );
+        journal.recordCreation( TEST_REPO_ID, "e/1.0/e-1.0.jar.sha1" );
+        journal.markHandled( TEST_REPO_ID, "e/1.0/e-1.0.jar.sha1" );
+
+        RepositoryChangeSet changes = journal.takeChanges( TEST_REPO_ID );
+        assertEquals( Arrays.asList( "a/1.0/a-1.0.jar", "b/1.0/b-1.0.jar", "c/1.0/c-1.0.jar", "d/1.0/d-1.0.jar" ),
+                      Arrays.asList( changes.getPaths( ).toArray( ) ) );
+        assertEquals( Arrays.asList( "a/1.0/a-1.0.jar", "e/1.0/e-1.0.jar.sha1" ),
+                      Arrays.asList( changes.getCreatedPaths( ).toArray( ) ) );
+        assertEquals( Arrays.asList( "b/1.0/b-1.0.jar" ), Arrays.asList( changes.getDeletedPaths( ).toArray( ) ) );
+        journal.commit( changes, false );
+
+        // the event of the watcher arrives after the task of the deployed file
+        journal.markHandled( TEST_REPO_ID, "f/1.0/f-1.0.jar" );
+        journal.recordCreation( TEST_REPO_ID, "f/1.0/f-1.0.jar" );
+        changes = journal.takeChanges( TEST_REPO_ID );
+        assertTrue( changes.getPaths( ).isEmpty( ) );
+        assertTrue( changes.getCreatedPaths( ).contains( "f/1.0/f-1.0.jar" ) );
+    }
+
+    @Test
+    public void testOverflowAndInvalidate( )
+        throws Exception
+    {
+        journal.commit( journal.takeChanges( TEST_REPO_ID ), true );
+
+        for ( int i = 0; i < 20; i++ )
+        {
+            journal.recordChange( TEST_REPO_ID, "a/" + i );
+        }
+        RepositoryChangeSet changes = journal.takeChanges( TEST_REPO_ID );
+        assertFalse( changes.isComplete( ) );
+        assertEquals( 10, changes.getPaths( ).size( ) );
+        journal.commit( changes, true );
+
+        journal.recordChange( TEST_REPO_ID, "a/1" );
+        assertTrue( journal.takeChanges( TEST_REPO_ID ).isComplete( ) );
+
+        journal.invalidate( TEST_REPO_ID );
+        assertFalse( journal.takeChanges( TEST_REPO_ID ).isComplete( ) );
+    }
+}
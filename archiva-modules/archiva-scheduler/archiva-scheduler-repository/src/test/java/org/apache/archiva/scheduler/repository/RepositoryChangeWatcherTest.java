@@ -0,0 +1,116 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.configuration.provider.ConfigurationEvent;
+import org.apache.archiva.repository.base.managed.BasicManagedRepository;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class RepositoryChangeWatcherTest
+{
+    private static final String TEST_REPO_ID = "test-repo";
+
+    private Path repositoryDirectory;
+
+    private Path loop;
+
+    private BasicManagedRepository repository;
+
+    private RepositoryChangeWatcher watcher;
+
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        repositoryDirectory = Files.createTempDirectory( "change-watcher" );
+        // the link back to the root lets the registration of the directory tree fail
+        Path directory = Files.createDirectories( repositoryDirectory.resolve( "org" ) );
+        loop = Files.createSymbolicLink( directory.resolve( "loop" ), repositoryDirectory );
+        repository = BasicManagedRepository.newFilesystemInstance( TEST_REPO_ID, "Test Repository", repositoryDirectory );
+        watcher = new RepositoryChangeWatcher( );
+        watcher.setEnabled( true );
+    }
+
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        watcher.shutdown( );
+        Files.deleteIfExists( loop );
+        try ( Stream<Path> files = Files.walk( repositoryDirectory ) )
+        {
+            files.sorted( Comparator.reverseOrder( ) ).forEach( p -> p.toFile( ).delete( ) );
+        }
+    }
+
+    @Test
+    public void testFailedRegistrationIsNotRetried( )
+        throws Exception
+    {
+        watcher.watch( repository );
+        assertFalse( watcher.isWatching( TEST_REPO_ID ) );
+        assertTrue( watcher.isFailed( TEST_REPO_ID ) );
+
+        Files.delete( loop );
+        watcher.watch( repository );
+        assertFalse( watcher.isWatching( TEST_REPO_ID ) );
+        assertTrue( watcher.isFailed( TEST_REPO_ID ) );
+    }
+
+    @Test
+    public void testUnwatchRetriesRegistration( )
+        throws Exception
+    {
+        watcher.watch( repository );
+        assertTrue( watcher.isFailed( TEST_REPO_ID ) );
+
+        Files.delete( loop );
+        watcher.unwatch( TEST_REPO_ID );
+        assertFalse( watcher.isFailed( TEST_REPO_ID ) );
+        watcher.watch( repository );
+        assertTrue( watcher.isWatching( TEST_REPO_ID ) );
+    }
+
+    @Test
+    public void testConfigurationChangeRetriesRegistration( )
+        throws Exception
+    {
+        watcher.watch( repository );
+        assertTrue( watcher.isFailed( TEST_REPO_ID ) );
+
+        Files.delete( loop );
+        watcher.configurationEvent( new ConfigurationEvent( ConfigurationEvent.SAVED ) );
+        assertFalse( watcher.isFailed( TEST_REPO_ID ) );
+        watcher.watch( repository );
+        assertTrue( watcher.isWatching( TEST_REPO_ID ) );
+    }
+}
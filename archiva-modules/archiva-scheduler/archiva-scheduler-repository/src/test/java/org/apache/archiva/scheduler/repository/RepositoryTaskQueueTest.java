@@ -0,0 +1,152 @@
+package org.apache.archiva.scheduler.repository;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class RepositoryTaskQueueTest
+{
+    private RepositoryTaskQueue queue = new RepositoryTaskQueue( );
+
+    private static RepositoryTask createFileTask( String repositoryId )
+    {
+        RepositoryTask task = new RepositoryTask( repositoryId );
+        task.setResourceFile( mock( StorageAsset.class ) );
+        return task;
+    }
+
+    @Test
+    public void testInteractiveTasksFirst( )
+        throws Exception
+    {
+        RepositoryTask scan = new RepositoryTask( "internal" );
+        RepositoryTask file1 = createFileTask( "internal" );
+        RepositoryTask file2 = createFileTask( "snapshots" );
+        queue.put( scan );
+        queue.put( file1 );
+        queue.put( file2 );
+
+        assertEquals( 1, queue.getDepth( RepositoryTaskQueue.Lane.BULK ) );
+        assertEquals( 2, queue.getDepth( RepositoryTaskQueue.Lane.INTERACTIVE ) );
+        assertEquals( Arrays.asList( file1, file2, scan ), queue.getQueueSnapshot( ) );
+
+        assertSame( file1, queue.poll( 0, TimeUnit.MILLISECONDS ) );
+        assertSame( file2, queue.take( ) );
+        assertSame( scan, queue.poll( 0, TimeUnit.MILLISECONDS ) );
+        assertNull( queue.poll( 0, TimeUnit.MILLISECONDS ) );
+        assertEquals( 2, queue.getStatistics( RepositoryTaskQueue.Lane.INTERACTIVE ).getTakenCount( ) );
+    }
+
+    @Test
+    public void testLanePoll( )
+        throws Exception
+    {
+        RepositoryTask scan = new RepositoryTask( "internal" );
+        RepositoryTask file = createFileTask( "internal" );
+        queue.put( scan );
+        queue.put( file );
+
+        assertSame( scan, queue.poll( RepositoryTaskQueue.Lane.BULK, 0, TimeUnit.MILLISECONDS ) );
+        assertNull( queue.poll( RepositoryTaskQueue.Lane.BULK, 0, TimeUnit.MILLISECONDS ) );
+        assertSame( file, queue.poll( RepositoryTaskQueue.Lane.INTERACTIVE, 0, TimeUnit.MILLISECONDS ) );
+    }
+
+    @Test
+    public void testDuplicates( )
+        throws Exception
+    {
+        RepositoryTask file = createFileTask( "internal" );
+        assertTrue( queue.put( new RepositoryTask( "internal" ) ) );
+        assertFalse( queue.put( new RepositoryTask( "internal", true ) ) );
+        assertTrue( queue.put( file ) );
+        assertFalse( queue.put( file ) );
+
+        assertEquals( 2, queue.size( ) );
+        assertTrue( queue.contains( new RepositoryTask( "internal" ) ) );
+        assertTrue( queue.containsRepository( "internal" ) );
+        assertFalse( queue.containsRepository( "snapshots" ) );
+        assertEquals( 1, queue.getStatistics( RepositoryTaskQueue.Lane.BULK ).getDuplicateCount( ) );
+        assertEquals( 1, queue.getStatistics( RepositoryTaskQueue.Lane.INTERACTIVE ).getDuplicateCount( ) );
+
+        // the request for a full scan is merged into the queued scan
+        RepositoryTask scan = queue.poll( RepositoryTaskQueue.Lane.BULK, 0, TimeUnit.MILLISECONDS );
+        assertTrue( scan.isScanAll( ) );
+
+        assertTrue( queue.remove( file ) );
+        assertFalse( queue.remove( file ) );
+        assertFalse( queue.containsRepository( "internal" ) );
+        assertEquals( 0, queue.size( ) );
+    }
+
+    @Test
+    public void testNoConcurrentScansOfRepository( )
+        throws Exception
+    {
+        queue.put( new RepositoryTask( "internal" ) );
+        queue.put( new RepositoryTask( "snapshots" ) );
+
+        RepositoryTask first = queue.poll( 0, TimeUnit.MILLISECONDS );
+        assertEquals( "internal", first.getRepositoryId( ) );
+        queue.put( new RepositoryTask( "internal" ) );
+
+        assertEquals( "snapshots", queue.poll( 0, TimeUnit.MILLISECONDS ).getRepositoryId( ) );
+        assertNull( queue.poll( 0, TimeUnit.MILLISECONDS ) );
+
+        queue.taskFinished( first, 10 );
+        assertEquals( "internal", queue.poll( 0, TimeUnit.MILLISECONDS ).getRepositoryId( ) );
+        RepositoryTaskQueue.LaneStatistics statistics = queue.getStatistics( RepositoryTaskQueue.Lane.BULK );
+        assertEquals( 3, statistics.getQueuedCount( ) );
+        assertEquals( 1, statistics.getFinishedCount( ) );
+        assertEquals( 10, statistics.getAverageExecutionTime( ) );
+    }
+
+    @Test
+    public void testWaitForTask( )
+        throws Exception
+    {
+        final RepositoryTask file = createFileTask( "internal" );
+        Thread producer = new Thread( ( ) -> {
+            try
+            {
+                Thread.sleep( 100 );
+                queue.put( file );
+            }
+            catch ( Exception e )
+            {
+                // ignore
+            }
+        } );
+        producer.start( );
+        assertSame( file, queue.poll( RepositoryTaskQueue.Lane.INTERACTIVE, 10, TimeUnit.SECONDS ) );
+        producer.join( );
+        assertTrue( queue.getStatistics( RepositoryTaskQueue.Lane.INTERACTIVE ).getMaxWaitTime( ) < 10000 );
+    }
+}
@@ -0,0 +1,76 @@
+package org.apache.archiva.rest.api.model;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Search request for the artifacts that match any of a list of checksums.
+ *
+ * @since 3.0
+ */
+public class ChecksumsSearch
+    implements Serializable
+{
+    private List<String> repositories;
+
+    private List<String> checksums;
+
+    public ChecksumsSearch()
+    {
+        // nope
+    }
+
+    public ChecksumsSearch( List<String> repositories, List<String> checksums )
+    {
+        this.repositories = repositories;
+        this.checksums = checksums;
+    }
+
+    public List<String> getRepositories()
+    {
+        return repositories;
+    }
+
+    public void setRepositories( List<String> repositories )
+    {
+        this.repositories = repositories;
+    }
+
+    public List<String> getChecksums()
+    {
+        return checksums;
+    }
+
+    public void setChecksums( List<String> checksums )
+    {
+        this.checksums = checksums;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ChecksumsSearch{" +
+            "repositories=" + repositories +
+            ", checksums=" + ( checksums == null ? null : checksums.size() ) +
+            '}';
+    }
+}
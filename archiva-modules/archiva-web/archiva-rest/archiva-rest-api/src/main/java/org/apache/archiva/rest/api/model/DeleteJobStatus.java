@@ -0,0 +1,176 @@
+package org.apache.archiva.rest.api.model;
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import javax.xml.bind.annotation.XmlRootElement;
+import java.io.Serializable;
+
+/**
+ * Status of a namespace or project deletion that runs in the background.
+ *
+ * @since 3.0
+ */
+@XmlRootElement( name = "deleteJobStatus" )
+public class DeleteJobStatus
+    implements Serializable
+{
+    private String jobId;
+
+    private String repositoryId;
+
+    private String groupId;
+
+    private String projectId;
+
+    private String state;
+
+    private long totalFiles;
+
+    private long deletedFiles;
+
+    private long totalMetadataItems;
+
+    private long removedMetadataItems;
+
+    private String message;
+
+    public DeleteJobStatus()
+    {
+        // no op
+    }
+
+    public String getJobId()
+    {
+        return jobId;
+    }
+
+    public void setJobId( String jobId )
+    {
+        this.jobId = jobId;
+    }
+
+    public String getRepositoryId()
+    {
+        return repositoryId;
+    }
+
+    public void setRepositoryId( String repositoryId )
+    {
+        this.repositoryId = repositoryId;
+    }
+
+    public String getGroupId()
+    {
+        return groupId;
+    }
+
+    public void setGroupId( String groupId )
+    {
+        this.groupId = groupId;
+    }
+
+    public String getProjectId()
+    {
+        return projectId;
+    }
+
+    public void setProjectId( String projectId )
+    {
+        this.projectId = projectId;
+    }
+
+    /**
+     * @return one of QUEUED, DELETING_CONTENT, DELETING_METADATA, REFRESHING, FINISHED, CANCELLED, FAILED
+     */
+    public String getState()
+    {
+        return state;
+    }
+
+    public void setState( String state )
+    {
+        this.state = state;
+    }
+
+    public long getTotalFiles()
+    {
+        return totalFiles;
+    }
+
+    public void setTotalFiles( long totalFiles )
+    {
+        this.totalFiles = totalFiles;
+    }
+
+    public long getDeletedFiles()
+    {
+        return deletedFiles;
+    }
+
+    public void setDeletedFiles( long deletedFiles )
+    {
+        this.deletedFiles = deletedFiles;
+    }
+
+    public long getTotalMetadataItems()
+    {
+        return totalMetadataItems;
+    }
+
+    public void setTotalMetadataItems( long totalMetadataItems )
+    {
+        this.totalMetadataItems = totalMetadataItems;
+    }
+
+    public long getRemovedMetadataItems()
+    {
+        return removedMetadataItems;
+    }
+
+    public void setRemovedMetadataItems( long removedMetadataItems )
+    {
+        this.removedMetadataItems = removedMetadataItems;
+    }
+
+    public String getMessage()
+    {
+        return message;
+    }
+
+    public void setMessage( String message )
+    {
+        this.message = message;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder sb = new StringBuilder();
+        sb.append( "DeleteJobStatus" );
+        sb.append( "{jobId='" ).append( jobId ).append( '\'' );
+        sb.append( ", repositoryId='" ).append( repositoryId ).append( '\'' );
+        sb.append( ", groupId='" ).append( groupId ).append( '\'' );
+        sb.append( ", projectId='" ).append( projectId ).append( '\'' );
+        sb.append( ", state='" ).append( state ).append( '\'' );
+        sb.append( ", deletedFiles=" ).append( deletedFiles ).append( '/' ).append( totalFiles );
+        sb.append( '}' );
+        return sb.toString();
+    }
+}
@@ -25,6 +25,7 @@
 import org.apache.archiva.repository.scanner.RepositoryScanStatistics;
 import org.apache.archiva.rest.api.model.ActionStatus;
 import org.apache.archiva.rest.api.model.ArtifactTransferRequest;
+import org.apache.archiva.rest.api.model.DeleteJobStatus;
 import org.apache.archiva.rest.api.model.PermissionStatus;
 import org.apache.archiva.rest.api.model.ScanStatus;
 import org.apache.archiva.rest.api.model.StringList;
@@ -195,4 +196,53 @@ ActionStatus deleteProject( @PathParam ("groupId") String groupId, @PathParam ("
     @RedbackAuthorization (noPermission = true)
     StringList getRunningRemoteDownloadIds();
 
+    /**
+     * Starts the deletion of the groupId in the background. The progress can be retrieved by the returned job id.
+     * <b>permissions are checked in impl</b>
+     * @since 3.0
+     */
+    @Path ("deleteJobs/{repositoryId}/{groupId}")
+    @POST
+    @Produces ({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @RedbackAuthorization (noPermission = true)
+    DeleteJobStatus startDeleteGroupId( @PathParam ("groupId") String groupId,
+                                        @PathParam ("repositoryId") String repositoryId )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Starts the deletion of the project in the background. The progress can be retrieved by the returned job id.
+     * <b>permissions are checked in impl</b>
+     * @since 3.0
+     */
+    @Path ("deleteJobs/{repositoryId}/{groupId}/{projectId}")
+    @POST
+    @Produces ({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @RedbackAuthorization (noPermission = true)
+    DeleteJobStatus startDeleteProject( @PathParam ("groupId") String groupId, @PathParam ("projectId") String projectId,
+                                        @PathParam ("repositoryId") String repositoryId )
+        throws ArchivaRestServiceException;
+
+    /**
+     * <b>permissions are checked in impl</b>
+     * @since 3.0
+     */
+    @Path ("deleteJob/{jobId}")
+    @GET
+    @Produces ({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @RedbackAuthorization (noPermission = true)
+    DeleteJobStatus getDeleteJobStatus( @PathParam ("jobId") String jobId )
+        throws ArchivaRestServiceException;
+
+    /**
+     * Cancels the delete job. Files and metadata that are already removed are not restored.
+     * <b>permissions are checked in impl</b>
+     * @since 3.0
+     */
+    @Path ("deleteJob/{jobId}")
+    @DELETE
+    @Produces ({ MediaType.APPLICATION_JSON, MediaType.APPLICATION_XML })
+    @RedbackAuthorization (noPermission = true)
+    DeleteJobStatus cancelDeleteJob( @PathParam ("jobId") String jobId )
+        throws ArchivaRestServiceException;
+
 }
@@ -24,6 +24,7 @@
 import org.apache.archiva.maven.model.Artifact;
 import org.apache.archiva.redback.authorization.RedbackAuthorization;
 import org.apache.archiva.rest.api.model.ChecksumSearch;
+import org.apache.archiva.rest.api.model.ChecksumsSearch;
 import org.apache.archiva.rest.api.model.GroupIdList;
 import org.apache.archiva.rest.api.model.SearchRequest;
 import org.apache.archiva.rest.api.model.StringList;
@@ -41,6 +42,11 @@
 @Tag( name="Search", description = "Searching repositories")
 public interface SearchService
 {
+    /**
+     * Media type of responses that contain one JSON object per line.
+     */
+    String NDJSON = "application/x-ndjson";
+
     /*
     * quick/general text search which returns a list of artifacts
     * query for an artifact based on a checksum
@@ -147,5 +153,20 @@ Response redirectToArtifactFile( @QueryParam( "r" ) String repositoryId, //
     List<Artifact> getArtifactByChecksum( ChecksumSearch checksumSearch )
         throws ArchivaRestServiceException;
 
+    /**
+     * Searches the artifacts that match any of the given checksums. The repositories are queried in parallel and the
+     * matches of each repository are written as soon as they are found, as one JSON object per line with the fields
+     * <code>repositoryId</code>, <code>checksum</code> and <code>artifact</code>.
+     * <b>if no repositories, the search will be apply on all repositories the current user has karma</b>
+     *
+     * @since 3.0
+     */
+    @Path( "artifactsByChecksums" )
+    @POST
+    @Produces( { NDJSON } )
+    @RedbackAuthorization( noPermission = true, noRestriction = true )
+    Response getArtifactsByChecksums( ChecksumsSearch checksumsSearch )
+        throws ArchivaRestServiceException;
+
 
 }
@@ -91,4 +91,16 @@ ActionStatus clearAllCaches()
     List<RepositoryScannerStatistics> getRepositoryScannerStatistics()
         throws ArchivaRestServiceException;
 
+    /**
+     * Returns the counters, timers and gauges of the Archiva components in the Prometheus text exposition format.
+     *
+     * @since 3.0
+     */
+    @Path( "metrics" )
+    @GET
+    @Produces( MediaType.TEXT_PLAIN )
+    @RedbackAuthorization( permissions = ArchivaRoleConstants.OPERATION_MANAGE_CONFIGURATION )
+    String getMetrics()
+        throws ArchivaRestServiceException;
+
 }
@@ -32,6 +32,7 @@
 public class ScanStatus implements Serializable, RestModel
 {
     private boolean scanRunning = false;
+    private boolean scanPaused = false;
     private int scanQueued = 0;
     private boolean indexRunning = false;
     private int indexQueued = 0;
@@ -67,6 +68,17 @@ public void setScanRunning( boolean scanRunning )
         this.scanRunning = scanRunning;
     }
 
+    @Schema( name = "scan_paused", description = "True, if the scans of the repository are paused" )
+    public boolean isScanPaused( )
+    {
+        return scanPaused;
+    }
+
+    public void setScanPaused( boolean scanPaused )
+    {
+        this.scanPaused = scanPaused;
+    }
+
     @Schema(name ="scan_queued", description = "Number of scans in the task queue")
     public int getScanQueued( )
     {
@@ -216,6 +216,54 @@ ScanStatus getScanStatus( @PathParam ("id") String repositoryId )
     Response removeScanningTaskFromQueue( @PathParam ("id") String repositoryId )
         throws ArchivaRestServiceException;
 
+    @Path ("managed/{id}/scan/pause")
+    @POST
+    @Produces ({ APPLICATION_JSON })
+    @Consumes({ APPLICATION_JSON })
+    @RedbackAuthorization (permissions = ArchivaRoleConstants.OPERATION_RUN_INDEXER)
+    @Operation( summary = "Pauses the scans of the given repository. A running scan stops at the next file and can be resumed later.",
+        security = {
+            @SecurityRequirement(
+                name = ArchivaRoleConstants.OPERATION_RUN_INDEXER
+            )
+        },
+        responses = {
+            @ApiResponse( responseCode = "200",
+                description = "If the scans were paused"
+            ),
+            @ApiResponse( responseCode = "403", description = "Authenticated user is not permitted to pause the scans",
+                content = @Content( mediaType = APPLICATION_JSON, schema = @Schema( implementation = ArchivaRestError.class ) ) ),
+            @ApiResponse( responseCode = "404", description = "The repository does not exist",
+                content = @Content( mediaType = APPLICATION_JSON, schema = @Schema( implementation = ArchivaRestError.class ) ) )
+        }
+    )
+    Response pauseRepositoryScan( @PathParam ("id") String repositoryId )
+        throws ArchivaRestServiceException;
+
+    @Path ("managed/{id}/scan/resume")
+    @POST
+    @Produces ({ APPLICATION_JSON })
+    @Consumes({ APPLICATION_JSON })
+    @RedbackAuthorization (permissions = ArchivaRoleConstants.OPERATION_RUN_INDEXER)
+    @Operation( summary = "Resumes the paused scans of the given repository. The paused scan continues where it stopped.",
+        security = {
+            @SecurityRequirement(
+                name = ArchivaRoleConstants.OPERATION_RUN_INDEXER
+            )
+        },
+        responses = {
+            @ApiResponse( responseCode = "200",
+                description = "If the scans were resumed"
+            ),
+            @ApiResponse( responseCode = "403", description = "Authenticated user is not permitted to resume the scans",
+                content = @Content( mediaType = APPLICATION_JSON, schema = @Schema( implementation = ArchivaRestError.class ) ) ),
+            @ApiResponse( responseCode = "404", description = "The repository does not exist",
+                content = @Content( mediaType = APPLICATION_JSON, schema = @Schema( implementation = ArchivaRestError.class ) ) )
+        }
+    )
+    Response resumeRepositoryScan( @PathParam ("id") String repositoryId )
+        throws ArchivaRestServiceException;
+
 
 
     @Path ("remote/{id}/index/download/start")
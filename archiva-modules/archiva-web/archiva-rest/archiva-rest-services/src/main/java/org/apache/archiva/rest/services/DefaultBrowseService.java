@@ -19,7 +19,7 @@
  */
 
 import org.apache.archiva.admin.model.beans.ManagedRepository;
-import org.apache.archiva.common.utils.VersionComparator;
+import org.apache.archiva.common.utils.VersionKey;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.repository.ManagedRepositoryContent;
 import org.apache.archiva.repository.content.base.ArchivaItemSelector;
@@ -269,7 +269,7 @@ private Collection<String> getVersions( List<String> selectedRepos, String group
 
             List<String> sortedVersions = new ArrayList<>( versions );
 
-            Collections.sort( sortedVersions, VersionComparator.getInstance() );
+            VersionKey.sort( sortedVersions );
 
             return sortedVersions;
         }
@@ -23,7 +23,6 @@
 import org.apache.archiva.admin.model.admin.ArchivaAdministration;
 import org.apache.archiva.checksum.ChecksumAlgorithm;
 import org.apache.archiva.checksum.ChecksummedFile;
-import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.components.cache.Cache;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
@@ -74,11 +73,14 @@
 import org.apache.archiva.repository.storage.fs.FsStorageUtil;
 import org.apache.archiva.rest.api.model.ActionStatus;
 import org.apache.archiva.rest.api.model.ArtifactTransferRequest;
+import org.apache.archiva.rest.api.model.DeleteJobStatus;
 import org.apache.archiva.rest.api.model.PermissionStatus;
 import org.apache.archiva.rest.api.model.ScanStatus;
 import org.apache.archiva.rest.api.model.StringList;
 import org.apache.archiva.rest.api.services.ArchivaRestServiceException;
 import org.apache.archiva.rest.api.services.RepositoriesService;
+import org.apache.archiva.rest.services.delete.BulkDeleteJob;
+import org.apache.archiva.rest.services.delete.BulkDeleteManager;
 import org.apache.archiva.scheduler.ArchivaTaskScheduler;
 import org.apache.archiva.scheduler.indexing.ArtifactIndexingTask;
 import org.apache.archiva.scheduler.indexing.DownloadRemoteIndexException;
@@ -154,6 +156,10 @@
     @Inject
     private RepositoryScanner repoScanner;
 
+    @Inject
+    @Named(value = "bulkDeleteManager#default")
+    private BulkDeleteManager bulkDeleteManager;
+
     /**
      * Cache used for namespaces
      */
@@ -573,10 +579,9 @@ private void updateProjectMetadata( RepositoryType repositoryType, RepositorySto
 
         if ( projectMetadataFile.exists() )
         {
+            projectMetadata.sortAvailableVersions();
             availableVersions = projectMetadata.getAvailableVersions();
 
-            Collections.sort( availableVersions, VersionComparator.getInstance() );
-
             if ( !availableVersions.contains( artifactTransferRequest.getVersion() ) )
             {
                 availableVersions.add( artifactTransferRequest.getVersion() );
@@ -1197,7 +1202,7 @@ private void updateMetadata( ArchivaRepositoryMetadata metadata, StorageAsset me
 
                 if ( availableVersions.size() > 0 )
                 {
-                    Collections.sort( availableVersions, VersionComparator.getInstance() );
+                    metadata.sortAvailableVersions();
 
                     if ( availableVersions.contains( artifact.getVersion() ) )
                     {
@@ -1248,6 +1253,92 @@ public StringList getRunningRemoteDownloadIds()
         return new StringList( downloadRemoteIndexScheduler.getRunningRemoteDownloadIds() );
     }
 
+    @Override
+    public DeleteJobStatus startDeleteGroupId( String groupId, String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        checkDeletePermission( repositoryId );
+        if ( StringUtils.isEmpty( groupId ) )
+        {
+            throw new ArchivaRestServiceException( "groupId cannot be null", 400, null );
+        }
+        return toDeleteJobStatus( bulkDeleteManager.deleteNamespace( repositoryId, groupId ) );
+    }
+
+    @Override
+    public DeleteJobStatus startDeleteProject( String groupId, String projectId, String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        checkDeletePermission( repositoryId );
+        if ( StringUtils.isEmpty( groupId ) )
+        {
+            throw new ArchivaRestServiceException( "groupId cannot be null", 400, null );
+        }
+        if ( StringUtils.isEmpty( projectId ) )
+        {
+            throw new ArchivaRestServiceException( "artifactId cannot be null", 400, null );
+        }
+        return toDeleteJobStatus( bulkDeleteManager.deleteProject( repositoryId, groupId, projectId ) );
+    }
+
+    @Override
+    public DeleteJobStatus getDeleteJobStatus( String jobId )
+        throws ArchivaRestServiceException
+    {
+        return toDeleteJobStatus( getDeleteJob( jobId ) );
+    }
+
+    @Override
+    public DeleteJobStatus cancelDeleteJob( String jobId )
+        throws ArchivaRestServiceException
+    {
+        BulkDeleteJob job = getDeleteJob( jobId );
+        job.cancel();
+        return toDeleteJobStatus( job );
+    }
+
+    private BulkDeleteJob getDeleteJob( String jobId )
+        throws ArchivaRestServiceException
+    {
+        BulkDeleteJob job = bulkDeleteManager.getJob( jobId );
+        if ( job == null )
+        {
+            throw new ArchivaRestServiceException( "delete job not found: " + jobId, 404, null );
+        }
+        checkDeletePermission( job.getRepositoryId() );
+        return job;
+    }
+
+    private void checkDeletePermission( String repositoryId )
+        throws ArchivaRestServiceException
+    {
+        if ( StringUtils.isEmpty( repositoryId ) )
+        {
+            throw new ArchivaRestServiceException( "repositoryId cannot be null", 400, null );
+        }
+
+        if ( !getPermissionStatus( repositoryId ).isAuthorizedToDeleteArtifacts() )
+        {
+            throw new ArchivaRestServiceException( "not authorized to delete artifacts", 403, null );
+        }
+    }
+
+    private static DeleteJobStatus toDeleteJobStatus( BulkDeleteJob job )
+    {
+        DeleteJobStatus status = new DeleteJobStatus();
+        status.setJobId( job.getId() );
+        status.setRepositoryId( job.getRepositoryId() );
+        status.setGroupId( job.getNamespace() );
+        status.setProjectId( job.getProjectId() );
+        status.setState( job.getState().name() );
+        status.setTotalFiles( job.getTotalFiles() );
+        status.setDeletedFiles( job.getDeletedFiles() );
+        status.setTotalMetadataItems( job.getTotalMetadataItems() );
+        status.setRemovedMetadataItems( job.getRemovedMetadataItems() );
+        status.setMessage( job.getMessage() );
+        return status;
+    }
+
     public RepositorySessionFactory getRepositorySessionFactory()
     {
         return repositorySessionFactory;
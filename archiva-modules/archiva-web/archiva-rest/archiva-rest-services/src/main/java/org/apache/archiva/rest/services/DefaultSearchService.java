@@ -19,6 +19,8 @@
  * under the License.
  */
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.indexer.search.RepositorySearch;
 import org.apache.archiva.indexer.search.RepositorySearchException;
@@ -33,6 +35,7 @@
 import org.apache.archiva.metadata.repository.RepositorySession;
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.apache.archiva.rest.api.model.ChecksumSearch;
+import org.apache.archiva.rest.api.model.ChecksumsSearch;
 import org.apache.archiva.rest.api.model.GroupIdList;
 import org.apache.archiva.rest.api.model.SearchRequest;
 import org.apache.archiva.rest.api.model.StringList;
@@ -42,17 +45,33 @@
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
+import javax.inject.Named;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author Olivier Lamy
@@ -68,9 +87,20 @@
     @Inject
     private RepositorySearch repositorySearch;
 
+    /**
+     * The number of repositories that are searched in parallel by {@link #getArtifactsByChecksums(ChecksumsSearch)}.
+     */
+    private static final int CHECKSUM_SEARCH_THREADS = Integer.getInteger( "archiva.search.checksumThreads", 4 );
+
     @Inject
     private RepositorySessionFactory repositorySessionFactory;
 
+    @Inject
+    @Named( value = "redbackJacksonJsonMapper" )
+    private ObjectMapper objectMapper;
+
+    private ExecutorService checksumSearchExecutor;
+
     @Override
     public List<Artifact> quickSearch( String queryString )
         throws ArchivaRestServiceException
@@ -254,6 +284,119 @@ public List<Artifact> getArtifactByChecksum( ChecksumSearch checksumSearch )
 
     }
 
+    @Override
+    public Response getArtifactsByChecksums( ChecksumsSearch checksumsSearch )
+        throws ArchivaRestServiceException
+    {
+        List<String> observableRepos = getObservableRepos();
+        List<String> repositories = checksumsSearch.getRepositories();
+        if ( repositories == null || repositories.isEmpty() )
+        {
+            repositories = observableRepos;
+        }
+        else
+        {
+            repositories = ListUtils.intersection( repositories, observableRepos );
+        }
+        Set<String> checksums = checksumsSearch.getChecksums() == null ? Collections.<String>emptySet()
+            : new HashSet<>( checksumsSearch.getChecksums() );
+
+        // each repository is queried with its own session, the results are written in the order they complete
+        CompletionService<ChecksumsResult> completionService = new ExecutorCompletionService<>( checksumSearchExecutor );
+        List<Future<ChecksumsResult>> futures = new ArrayList<>( repositories.size() );
+        if ( !checksums.isEmpty() )
+        {
+            for ( String repoId : repositories )
+            {
+                futures.add( completionService.submit( () -> {
+                    try ( RepositorySession repositorySession = repositorySessionFactory.createSession() )
+                    {
+                        return new ChecksumsResult( repoId, repositorySession.getRepository()
+                            .getArtifactsByChecksums( repositorySession, repoId, checksums ) );
+                    }
+                } ) );
+            }
+        }
+
+        StreamingOutput output = os -> {
+            Writer writer = new BufferedWriter( new OutputStreamWriter( os, StandardCharsets.UTF_8 ) );
+            try
+            {
+                for ( int i = 0; i < futures.size(); i++ )
+                {
+                    ChecksumsResult result;
+                    try
+                    {
+                        result = completionService.take().get();
+                    }
+                    catch ( ExecutionException e )
+                    {
+                        log.error( "Checksum search failed: {}", e.getCause().getMessage(), e.getCause() );
+                        continue;
+                    }
+                    for ( Map.Entry<String, List<ArtifactMetadata>> entry : result.artifacts.entrySet() )
+                    {
+                        for ( Artifact artifact : buildArtifacts( entry.getValue(), result.repositoryId ) )
+                        {
+                            ObjectNode line = objectMapper.createObjectNode();
+                            line.put( "repositoryId", result.repositoryId );
+                            line.put( "checksum", entry.getKey() );
+                            line.set( "artifact", objectMapper.valueToTree( artifact ) );
+                            writer.write( objectMapper.writeValueAsString( line ) );
+                            writer.write( '\n' );
+                        }
+                    }
+                    // the client gets the results of each repository as soon as they are available
+                    writer.flush();
+                }
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+            catch ( ArchivaRestServiceException e )
+            {
+                log.error( e.getMessage(), e );
+            }
+            finally
+            {
+                futures.forEach( future -> future.cancel( true ) );
+                writer.flush();
+            }
+        };
+        return Response.ok( output, NDJSON ).build();
+    }
+
+    @PostConstruct
+    public void initialize()
+    {
+        AtomicInteger threadNumber = new AtomicInteger( );
+        checksumSearchExecutor = Executors.newFixedThreadPool( CHECKSUM_SEARCH_THREADS, runnable -> {
+            Thread thread = new Thread( runnable, "archiva-checksum-search-" + threadNumber.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        } );
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        checksumSearchExecutor.shutdownNow();
+    }
+
+    private static class ChecksumsResult
+    {
+        final String repositoryId;
+
+        final Map<String, List<ArtifactMetadata>> artifacts;
+
+        ChecksumsResult( String repositoryId, Map<String, List<ArtifactMetadata>> artifacts )
+        {
+            this.repositoryId = repositoryId;
+            this.artifacts = artifacts;
+        }
+    }
+
     @Override
     public StringList getObservablesRepoIds()
         throws ArchivaRestServiceException
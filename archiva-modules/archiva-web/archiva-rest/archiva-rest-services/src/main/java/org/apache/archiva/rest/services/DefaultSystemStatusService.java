@@ -20,10 +20,13 @@
 
 import org.apache.archiva.admin.model.RepositoryAdminException;
 import org.apache.archiva.admin.model.managed.ManagedRepositoryAdmin;
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.apache.archiva.components.cache.Cache;
 import org.apache.archiva.components.cache.CacheStatistics;
 import org.apache.archiva.components.taskqueue.TaskQueue;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
+import org.apache.archiva.policies.urlcache.NotFoundCache;
+import org.apache.archiva.repository.metadata.base.MetadataUpdateScheduler;
 import org.apache.archiva.repository.scanner.RepositoryScanner;
 import org.apache.archiva.repository.scanner.RepositoryScannerInstance;
 import org.apache.archiva.rest.api.model.ActionStatus;
@@ -83,6 +86,51 @@ public DefaultSystemStatusService( ApplicationContext applicationContext, Reposi
         caches = getBeansOfType( applicationContext, Cache.class );
 
         managedRepositoryAdmin = applicationContext.getBean( ManagedRepositoryAdmin.class );
+
+        registerGauges( applicationContext, MetricsRegistry.getDefault() );
+    }
+
+    /**
+     * Registers the statistics, the caches and queues already collect, as gauges. They are read only when the
+     * metrics are requested.
+     */
+    private void registerGauges( ApplicationContext applicationContext, MetricsRegistry metricsRegistry )
+    {
+        Runtime runtime = Runtime.getRuntime();
+        metricsRegistry.gauge( "archiva_jvm_memory_used_bytes", () -> runtime.totalMemory() - runtime.freeMemory() );
+        metricsRegistry.gauge( "archiva_jvm_memory_max_bytes", runtime::maxMemory );
+
+        for ( Map.Entry<String, Cache> entry : caches.entrySet() )
+        {
+            Cache cache = entry.getValue();
+            metricsRegistry.gauge( "archiva_cache_size", () -> cache.getStatistics().getSize(), "cache",
+                                   entry.getKey() );
+            metricsRegistry.gauge( "archiva_cache_hits", () -> cache.getStatistics().getCacheHits(), "cache",
+                                   entry.getKey() );
+            metricsRegistry.gauge( "archiva_cache_misses", () -> cache.getStatistics().getCacheMiss(), "cache",
+                                   entry.getKey() );
+        }
+
+        for ( Map.Entry<String, NotFoundCache> entry : getBeansOfType( applicationContext,
+                                                                       NotFoundCache.class ).entrySet() )
+        {
+            NotFoundCache cache = entry.getValue();
+            metricsRegistry.gauge( "archiva_proxy_not_found_cache_size", cache::getSize, "cache", entry.getKey() );
+            metricsRegistry.gauge( "archiva_proxy_not_found_cache_hits", cache::getHits, "cache", entry.getKey() );
+            metricsRegistry.gauge( "archiva_proxy_not_found_cache_misses", cache::getMisses, "cache",
+                                   entry.getKey() );
+        }
+
+        for ( Map.Entry<String, MetadataUpdateScheduler> entry : getBeansOfType( applicationContext,
+                                                                                 MetadataUpdateScheduler.class ).entrySet() )
+        {
+            MetadataUpdateScheduler scheduler = entry.getValue();
+            metricsRegistry.gauge( "archiva_metadata_update_requests", scheduler::getRequests, "scheduler",
+                                   entry.getKey() );
+            metricsRegistry.gauge( "archiva_metadata_updates", scheduler::getUpdates, "scheduler", entry.getKey() );
+            metricsRegistry.gauge( "archiva_metadata_updates_pending", scheduler::getPendingUpdates, "scheduler",
+                                   entry.getKey() );
+        }
     }
 
     @Override
@@ -224,6 +272,13 @@ public List<RepositoryScannerStatistics> getRepositoryScannerStatistics()
         return repositoryScannerStatisticsList;
     }
 
+    @Override
+    public String getMetrics()
+        throws ArchivaRestServiceException
+    {
+        return MetricsRegistry.getDefault().toText();
+    }
+
     private List<ConsumerScanningStatistics> mapConsumerScanningStatistics( RepositoryScannerInstance instance )
     {
         DecimalFormat decimalFormat = new DecimalFormat( "###.##" );
@@ -0,0 +1,201 @@
+package org.apache.archiva.rest.services.delete;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A namespace or project deletion that runs in the background. The job keeps the progress of the deletion and can be
+ * cancelled at any time. A cancelled job stops after the batches that are currently running.
+ *
+ * @since 3.0
+ */
+public class BulkDeleteJob
+{
+    public enum State
+    {
+        QUEUED, DELETING_CONTENT, DELETING_METADATA, REFRESHING, FINISHED, CANCELLED, FAILED
+    }
+
+    private final String id = UUID.randomUUID( ).toString( );
+
+    private final String repositoryId;
+
+    private final String namespace;
+
+    private final String projectId;
+
+    private final long creationTime = System.currentTimeMillis( );
+
+    private final AtomicLong totalFiles = new AtomicLong( );
+
+    private final AtomicLong deletedFiles = new AtomicLong( );
+
+    private final AtomicLong totalMetadataItems = new AtomicLong( );
+
+    private final AtomicLong removedMetadataItems = new AtomicLong( );
+
+    private volatile State state = State.QUEUED;
+
+    private volatile boolean cancelled = false;
+
+    private volatile String message;
+
+    private volatile long endTime = 0;
+
+    BulkDeleteJob( String repositoryId, String namespace, String projectId )
+    {
+        this.repositoryId = repositoryId;
+        this.namespace = namespace;
+        this.projectId = projectId;
+    }
+
+    public String getId( )
+    {
+        return id;
+    }
+
+    public String getRepositoryId( )
+    {
+        return repositoryId;
+    }
+
+    public String getNamespace( )
+    {
+        return namespace;
+    }
+
+    /**
+     * @return the project id, or <code>null</code>, if the whole namespace is deleted
+     */
+    public String getProjectId( )
+    {
+        return projectId;
+    }
+
+    public long getCreationTime( )
+    {
+        return creationTime;
+    }
+
+    /**
+     * @return the time the job ended in ms, or 0, if it is still queued or running
+     */
+    public long getEndTime( )
+    {
+        return endTime;
+    }
+
+    public State getState( )
+    {
+        return state;
+    }
+
+    void setState( State state )
+    {
+        this.state = state;
+        if ( isDone( ) )
+        {
+            this.endTime = System.currentTimeMillis( );
+        }
+    }
+
+    public boolean isDone( )
+    {
+        return state == State.FINISHED || state == State.CANCELLED || state == State.FAILED;
+    }
+
+    public String getMessage( )
+    {
+        return message;
+    }
+
+    void setMessage( String message )
+    {
+        this.message = message;
+    }
+
+    public long getTotalFiles( )
+    {
+        return totalFiles.get( );
+    }
+
+    void setTotalFiles( long totalFiles )
+    {
+        this.totalFiles.set( totalFiles );
+    }
+
+    public long getDeletedFiles( )
+    {
+        return deletedFiles.get( );
+    }
+
+    void fileDeleted( )
+    {
+        deletedFiles.incrementAndGet( );
+    }
+
+    public long getTotalMetadataItems( )
+    {
+        return totalMetadataItems.get( );
+    }
+
+    void setTotalMetadataItems( long totalMetadataItems )
+    {
+        this.totalMetadataItems.set( totalMetadataItems );
+    }
+
+    public long getRemovedMetadataItems( )
+    {
+        return removedMetadataItems.get( );
+    }
+
+    void metadataItemRemoved( )
+    {
+        removedMetadataItems.incrementAndGet( );
+    }
+
+    /**
+     * Requests the cancellation of the job. The job stops at the next batch boundary.
+     */
+    public void cancel( )
+    {
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled( )
+    {
+        return cancelled;
+    }
+
+    @Override
+    public String toString( )
+    {
+        final StringBuilder sb = new StringBuilder( "BulkDeleteJob{" );
+        sb.append( "id='" ).append( id ).append( '\'' );
+        sb.append( ", repositoryId='" ).append( repositoryId ).append( '\'' );
+        sb.append( ", namespace='" ).append( namespace ).append( '\'' );
+        sb.append( ", projectId='" ).append( projectId ).append( '\'' );
+        sb.append( ", state=" ).append( state );
+        sb.append( '}' );
+        return sb.toString( );
+    }
+}
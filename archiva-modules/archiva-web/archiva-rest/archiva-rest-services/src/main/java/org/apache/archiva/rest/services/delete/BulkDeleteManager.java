@@ -0,0 +1,441 @@
+package org.apache.archiva.rest.services.delete;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.components.cache.Cache;
+import org.apache.archiva.components.taskqueue.execution.TaskExecutionException;
+import org.apache.archiva.maven.scheduler.indexing.ArchivaIndexingTaskExecutor;
+import org.apache.archiva.metadata.repository.MetadataRepository;
+import org.apache.archiva.metadata.repository.MetadataRepositoryException;
+import org.apache.archiva.metadata.repository.MetadataResolutionException;
+import org.apache.archiva.metadata.repository.MetadataSessionException;
+import org.apache.archiva.metadata.repository.RepositorySession;
+import org.apache.archiva.metadata.repository.RepositorySessionFactory;
+import org.apache.archiva.repository.ManagedRepository;
+import org.apache.archiva.repository.ManagedRepositoryContent;
+import org.apache.archiva.repository.RepositoryRegistry;
+import org.apache.archiva.repository.content.ContentItem;
+import org.apache.archiva.repository.content.ItemNotFoundException;
+import org.apache.archiva.repository.content.base.ArchivaItemSelector;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.scheduler.indexing.ArtifactIndexingTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the deletion of namespaces and projects in the background.
+ * <p>
+ * The files are deleted in batches by a pool of threads, the metadata is removed project by project and saved
+ * after each batch of projects. The repository index is refreshed once, after content and metadata are removed.
+ * Finished jobs are kept for an hour, so that clients can retrieve the final status.
+ *
+ * @since 3.0
+ */
+@Service( "bulkDeleteManager#default" )
+public class BulkDeleteManager
+{
+    private static final Logger log = LoggerFactory.getLogger( BulkDeleteManager.class );
+
+    /**
+     * Number of files deleted by a single task, and number of metadata items removed in a single transaction.
+     */
+    static final int BATCH_SIZE = Integer.getInteger( "archiva.delete.batchSize", 256 );
+
+    /**
+     * Number of threads that delete files in parallel.
+     */
+    private static final int DELETE_THREADS = Integer.getInteger( "archiva.delete.threads", 4 );
+
+    private static final long FINISHED_JOB_TTL = TimeUnit.HOURS.toMillis( 1 );
+
+    @Inject
+    private RepositoryRegistry repositoryRegistry;
+
+    @Inject
+    @Named( value = "repositorySessionFactory" )
+    private RepositorySessionFactory repositorySessionFactory;
+
+    @Inject
+    @Named( value = "taskExecutor#indexing" )
+    private ArchivaIndexingTaskExecutor indexingTaskExecutor;
+
+    @Inject
+    @Named( value = "cache#namespaces" )
+    private Cache<String, List<String>> namespacesCache;
+
+    private final Map<String, BulkDeleteJob> jobs = new ConcurrentHashMap<>( );
+
+    private ExecutorService jobExecutor;
+
+    private ExecutorService deleteExecutor;
+
+    @PostConstruct
+    public void initialize( )
+    {
+        jobExecutor = Executors.newSingleThreadExecutor( createThreadFactory( "archiva-bulk-delete-job-" ) );
+        deleteExecutor = Executors.newFixedThreadPool( DELETE_THREADS, createThreadFactory( "archiva-bulk-delete-" ) );
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        jobs.values( ).forEach( BulkDeleteJob::cancel );
+        jobExecutor.shutdownNow( );
+        deleteExecutor.shutdownNow( );
+    }
+
+    private static ThreadFactory createThreadFactory( String prefix )
+    {
+        AtomicInteger threadNumber = new AtomicInteger( );
+        return runnable -> {
+            Thread thread = new Thread( runnable, prefix + threadNumber.incrementAndGet( ) );
+            thread.setDaemon( true );
+            return thread;
+        };
+    }
+
+    /**
+     * Starts the deletion of the namespace and all its projects and sub namespaces.
+     *
+     * @param repositoryId the managed repository
+     * @param namespace    the namespace to delete
+     * @return the queued job
+     */
+    public BulkDeleteJob deleteNamespace( String repositoryId, String namespace )
+    {
+        return submit( new BulkDeleteJob( repositoryId, namespace, null ) );
+    }
+
+    /**
+     * Starts the deletion of the project and all its versions.
+     *
+     * @param repositoryId the managed repository
+     * @param namespace    the namespace of the project
+     * @param projectId    the project to delete
+     * @return the queued job
+     */
+    public BulkDeleteJob deleteProject( String repositoryId, String namespace, String projectId )
+    {
+        return submit( new BulkDeleteJob( repositoryId, namespace, projectId ) );
+    }
+
+    /**
+     * @param jobId the job id
+     * @return the job or <code>null</code>, if there is no job with the given id
+     */
+    public BulkDeleteJob getJob( String jobId )
+    {
+        removeExpiredJobs( );
+        return jobId == null ? null : jobs.get( jobId );
+    }
+
+    public Collection<BulkDeleteJob> getJobs( )
+    {
+        removeExpiredJobs( );
+        return new ArrayList<>( jobs.values( ) );
+    }
+
+    private BulkDeleteJob submit( BulkDeleteJob job )
+    {
+        removeExpiredJobs( );
+        jobs.put( job.getId( ), job );
+        jobExecutor.execute( ( ) -> run( job ) );
+        return job;
+    }
+
+    private void removeExpiredJobs( )
+    {
+        long expiry = System.currentTimeMillis( ) - FINISHED_JOB_TTL;
+        jobs.values( ).removeIf( job -> job.isDone( ) && job.getEndTime( ) < expiry );
+    }
+
+    void run( BulkDeleteJob job )
+    {
+        if ( job.isCancelled( ) )
+        {
+            job.setState( BulkDeleteJob.State.CANCELLED );
+            return;
+        }
+        log.info( "Starting bulk delete {}", job );
+        ManagedRepository repository = repositoryRegistry.getManagedRepository( job.getRepositoryId( ) );
+        if ( repository == null )
+        {
+            job.setMessage( "Repository not found " + job.getRepositoryId( ) );
+            job.setState( BulkDeleteJob.State.FAILED );
+            return;
+        }
+        try
+        {
+            job.setState( BulkDeleteJob.State.DELETING_CONTENT );
+            deleteContent( job, repository.getContent( ) );
+            if ( !job.isCancelled( ) )
+            {
+                job.setState( BulkDeleteJob.State.DELETING_METADATA );
+                deleteMetadata( job );
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            job.cancel( );
+        }
+        catch ( Exception e )
+        {
+            log.error( "Bulk delete {} failed: {}", job, e.getMessage( ), e );
+            job.setMessage( e.getMessage( ) );
+            job.setState( BulkDeleteJob.State.FAILED );
+        }
+        finally
+        {
+            // partial deletions are refreshed too, so that the index does not point to deleted files
+            if ( job.getDeletedFiles( ) > 0 || job.getRemovedMetadataItems( ) > 0 )
+            {
+                refresh( job, repository );
+            }
+        }
+        if ( !job.isDone( ) )
+        {
+            job.setState( job.isCancelled( ) ? BulkDeleteJob.State.CANCELLED : BulkDeleteJob.State.FINISHED );
+        }
+        log.info( "Finished bulk delete {}: {} files, {} metadata items", job, job.getDeletedFiles( ),
+            job.getRemovedMetadataItems( ) );
+    }
+
+    private void deleteContent( BulkDeleteJob job, ManagedRepositoryContent content )
+        throws InterruptedException, IOException
+    {
+        ArchivaItemSelector.Builder selectorBuilder = ArchivaItemSelector.builder( ).withNamespace( job.getNamespace( ) );
+        if ( job.getProjectId( ) != null )
+        {
+            selectorBuilder.withProjectId( job.getProjectId( ) );
+        }
+        ContentItem item = content.getItem( selectorBuilder.build( ) );
+        if ( !item.getAsset( ).exists( ) )
+        {
+            return;
+        }
+
+        List<StorageAsset> files = new ArrayList<>( );
+        Deque<StorageAsset> directories = new ArrayDeque<>( );
+        directories.push( item.getAsset( ) );
+        while ( !directories.isEmpty( ) && !job.isCancelled( ) )
+        {
+            for ( StorageAsset child : directories.pop( ).listWithAttributes( ) )
+            {
+                if ( child.isContainer( ) )
+                {
+                    directories.push( child );
+                }
+                else
+                {
+                    files.add( child );
+                }
+            }
+        }
+        job.setTotalFiles( files.size( ) );
+
+        List<Future<?>> batches = new ArrayList<>( );
+        for ( int start = 0; start < files.size( ); start += BATCH_SIZE )
+        {
+            List<StorageAsset> batch = files.subList( start, Math.min( start + BATCH_SIZE, files.size( ) ) );
+            batches.add( deleteExecutor.submit( ( ) -> deleteFiles( job, batch ) ) );
+        }
+        try
+        {
+            for ( Future<?> batch : batches )
+            {
+                batch.get( );
+            }
+        }
+        catch ( ExecutionException e )
+        {
+            batches.forEach( batch -> batch.cancel( false ) );
+            Throwable cause = e.getCause( ) instanceof UncheckedIOException ? e.getCause( ).getCause( ) : e.getCause( );
+            throw new IOException( "Could not delete files: " + cause.getMessage( ), cause );
+        }
+
+        if ( !job.isCancelled( ) )
+        {
+            // removes the remaining directories and invalidates the cached content items
+            try
+            {
+                content.deleteItem( item );
+            }
+            catch ( ItemNotFoundException e )
+            {
+                log.debug( "Item {} was already removed", item );
+            }
+        }
+    }
+
+    private void deleteFiles( BulkDeleteJob job, List<StorageAsset> files )
+    {
+        for ( StorageAsset file : files )
+        {
+            if ( job.isCancelled( ) )
+            {
+                return;
+            }
+            try
+            {
+                file.getStorage( ).removeAsset( file );
+            }
+            catch ( NoSuchFileException e )
+            {
+                // deleted by someone else
+            }
+            catch ( IOException e )
+            {
+                throw new UncheckedIOException( e );
+            }
+            job.fileDeleted( );
+        }
+    }
+
+    private void deleteMetadata( BulkDeleteJob job )
+        throws MetadataRepositoryException, MetadataResolutionException, MetadataSessionException
+    {
+        String repositoryId = job.getRepositoryId( );
+        try ( RepositorySession session = repositorySessionFactory.createSession( ) )
+        {
+            MetadataRepository metadataRepository = session.getRepository( );
+            int pending = 0;
+            if ( job.getProjectId( ) != null )
+            {
+                List<String> versions = metadataRepository.getProjectVersions( session, repositoryId,
+                    job.getNamespace( ), job.getProjectId( ) );
+                job.setTotalMetadataItems( versions.size( ) + 1 );
+                for ( String version : versions )
+                {
+                    if ( job.isCancelled( ) )
+                    {
+                        break;
+                    }
+                    metadataRepository.removeProjectVersion( session, repositoryId, job.getNamespace( ),
+                        job.getProjectId( ), version );
+                    job.metadataItemRemoved( );
+                    pending = saveBatch( session, pending + 1 );
+                }
+                if ( !job.isCancelled( ) )
+                {
+                    metadataRepository.removeProject( session, repositoryId, job.getNamespace( ), job.getProjectId( ) );
+                    job.metadataItemRemoved( );
+                }
+            }
+            else
+            {
+                List<String[]> projects = new ArrayList<>( );
+                collectProjects( session, metadataRepository, repositoryId, job.getNamespace( ), projects );
+                job.setTotalMetadataItems( projects.size( ) + 1 );
+                for ( String[] project : projects )
+                {
+                    if ( job.isCancelled( ) )
+                    {
+                        break;
+                    }
+                    metadataRepository.removeProject( session, repositoryId, project[0], project[1] );
+                    job.metadataItemRemoved( );
+                    pending = saveBatch( session, pending + 1 );
+                }
+                if ( !job.isCancelled( ) )
+                {
+                    metadataRepository.removeNamespace( session, repositoryId, job.getNamespace( ) );
+                    job.metadataItemRemoved( );
+                }
+            }
+            session.save( );
+        }
+    }
+
+    private static int saveBatch( RepositorySession session, int pending )
+        throws MetadataSessionException
+    {
+        if ( pending >= BATCH_SIZE )
+        {
+            session.save( );
+            return 0;
+        }
+        return pending;
+    }
+
+    private static void collectProjects( RepositorySession session, MetadataRepository metadataRepository,
+                                         String repositoryId, String namespace, List<String[]> projects )
+        throws MetadataResolutionException
+    {
+        for ( String project : metadataRepository.getProjects( session, repositoryId, namespace ) )
+        {
+            projects.add( new String[]{namespace, project} );
+        }
+        for ( String child : metadataRepository.getChildNamespaces( session, repositoryId, namespace ) )
+        {
+            collectProjects( session, metadataRepository, repositoryId, namespace + "." + child, projects );
+        }
+    }
+
+    private void refresh( BulkDeleteJob job, ManagedRepository repository )
+    {
+        BulkDeleteJob.State finalState = job.getState( );
+        job.setState( BulkDeleteJob.State.REFRESHING );
+        namespacesCache.remove( repository.getId( ) );
+        namespacesCache.remove( repository.getId( ) + "-" + job.getNamespace( ) );
+        if ( repository.getIndexingContext( ) != null )
+        {
+            ArtifactIndexingTask task =
+                new ArtifactIndexingTask( repository, null, ArtifactIndexingTask.Action.FINISH, repository.getIndexingContext( ) );
+            task.setExecuteOnEntireRepo( true );
+            task.setOnlyUpdate( false );
+            try
+            {
+                indexingTaskExecutor.executeTask( task );
+            }
+            catch ( TaskExecutionException e )
+            {
+                log.error( "Could not refresh the index of {} after bulk delete: {}", repository.getId( ), e.getMessage( ), e );
+            }
+        }
+        if ( finalState == BulkDeleteJob.State.FAILED )
+        {
+            job.setState( finalState );
+        }
+    }
+}
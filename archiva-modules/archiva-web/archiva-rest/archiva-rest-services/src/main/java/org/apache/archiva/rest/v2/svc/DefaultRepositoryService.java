@@ -187,7 +187,9 @@ public ScanStatus getScanStatus( String repositoryId ) throws ArchivaRestService
     {
         try
         {
-            return ScanStatus.of( repositoryTaskAdministration.getCurrentScanStatus( ) );
+            ScanStatus status = ScanStatus.of( repositoryTaskAdministration.getCurrentScanStatus( ) );
+            status.setScanPaused( repoScanner.isPaused( repositoryId ) );
+            return status;
         }
         catch ( RepositoryAdminException e )
         {
@@ -211,6 +213,40 @@ public Response removeScanningTaskFromQueue( String repositoryId ) throws Archiv
         }
     }
 
+    @Override
+    public Response pauseRepositoryScan( String repositoryId ) throws ArchivaRestServiceException
+    {
+        if ( repositoryRegistry.getManagedRepository( repositoryId ) == null )
+        {
+            throw new ArchivaRestServiceException( ErrorMessage.of( ErrorKeys.REPOSITORY_MANAGED_NOT_FOUND, repositoryId ), 404 );
+        }
+        repoScanner.pauseScan( repositoryId );
+        return Response.ok( ).build( );
+    }
+
+    @Override
+    public Response resumeRepositoryScan( String repositoryId ) throws ArchivaRestServiceException
+    {
+        if ( repositoryRegistry.getManagedRepository( repositoryId ) == null )
+        {
+            throw new ArchivaRestServiceException( ErrorMessage.of( ErrorKeys.REPOSITORY_MANAGED_NOT_FOUND, repositoryId ), 404 );
+        }
+        try
+        {
+            if ( repoScanner.resumeScan( repositoryId ) )
+            {
+                // the scan continues at the checkpoint of the paused scan
+                repositoryTaskAdministration.scheduleMetadataUpdateScan( repositoryId );
+            }
+            return Response.ok( ).build( );
+        }
+        catch ( RepositoryAdminException e )
+        {
+            handleAdminException( e );
+            return Response.serverError( ).build( );
+        }
+    }
+
 
     @Override
     public Response scheduleDownloadRemoteIndex( String repositoryId, boolean immediately, boolean full,
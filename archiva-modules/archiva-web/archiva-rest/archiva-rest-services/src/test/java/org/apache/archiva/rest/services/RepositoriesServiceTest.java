@@ -24,6 +24,7 @@
 import org.apache.archiva.redback.rest.api.services.UserService;
 import org.apache.archiva.rest.api.model.BrowseResult;
 import org.apache.archiva.rest.api.model.BrowseResultEntry;
+import org.apache.archiva.rest.api.model.DeleteJobStatus;
 import org.apache.archiva.rest.api.model.VersionsList;
 import org.apache.archiva.rest.api.services.BrowseService;
 import org.apache.archiva.rest.api.services.ManagedRepositoriesService;
@@ -382,6 +383,51 @@ public void deleteGroupId()
         }
     }
 
+    @Test
+    public void startDeleteGroupId()
+        throws Exception
+    {
+        initSourceTargetRepo();
+        try
+        {
+            Path directory =
+                getAppserverBase().resolve("data/repositories/test-origin-repo/org/apache/karaf/features/org.apache.karaf.features.command" );
+
+            assertTrue( "directory not exists", Files.exists(directory) );
+
+            RepositoriesService repositoriesService = getRepositoriesService( authorizationHeader );
+            DeleteJobStatus status = repositoriesService.startDeleteGroupId( "org.apache.karaf", SOURCE_REPO_ID );
+            assertNotNull( status.getJobId() );
+
+            long timeout = System.currentTimeMillis() + 60000;
+            while ( !isDone( status ) && System.currentTimeMillis() < timeout )
+            {
+                Thread.sleep( 100 );
+                status = repositoriesService.getDeleteJobStatus( status.getJobId() );
+            }
+            log.info( "delete job status: {}", status );
+            assertEquals( "FINISHED", status.getState() );
+            assertTrue( status.getTotalFiles() > 0 );
+            assertEquals( status.getTotalFiles(), status.getDeletedFiles() );
+
+            assertFalse( "directory not exists", Files.exists(directory) );
+
+            BrowseService browseService = getBrowseService( authorizationHeader, false );
+            BrowseResult browseResult = browseService.browseGroupId( "org.apache.karaf", SOURCE_REPO_ID );
+            assertThat( browseResult.getBrowseResultEntries() ).isNotNull().isEmpty();
+        }
+        finally
+        {
+            cleanRepos();
+        }
+    }
+
+    private static boolean isDone( DeleteJobStatus status )
+    {
+        return "FINISHED".equals( status.getState() ) || "CANCELLED".equals( status.getState() )
+            || "FAILED".equals( status.getState() );
+    }
+
     @Test
     public void authorizedToDeleteArtifacts()
         throws Exception
@@ -21,6 +21,7 @@
 import io.restassured.response.Response;
 import org.apache.archiva.components.rest.model.PagedResult;
 import org.apache.archiva.rest.api.v2.model.Repository;
+import org.apache.archiva.rest.api.v2.svc.ArchivaRestError;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -154,6 +155,60 @@ void scanStatus() {
 
     }
 
+    @Test
+    void pauseAndResumeScan() {
+        String token = getAdminToken( );
+        try
+        {
+            given( ).spec( getRequestSpec( token ) ).contentType( JSON )
+                .when( )
+                .post( "managed/internal/scan/pause" )
+                .then( ).statusCode( 200 );
+            Response response = given( ).spec( getRequestSpec( token ) ).contentType( JSON )
+                .when( )
+                .get( "managed/internal/scan/status" )
+                .then( ).statusCode( 200 ).extract( ).response( );
+            assertNotNull( response );
+            assertTrue( response.getBody( ).jsonPath( ).getBoolean( "scan_paused" ) );
+        } finally
+        {
+            given( ).spec( getRequestSpec( token ) ).contentType( JSON )
+                .when( )
+                .post( "managed/internal/scan/resume" )
+                .then( ).statusCode( 200 );
+        }
+        Response response = given( ).spec( getRequestSpec( token ) ).contentType( JSON )
+            .when( )
+            .get( "managed/internal/scan/status" )
+            .then( ).statusCode( 200 ).extract( ).response( );
+        assertNotNull( response );
+        assertFalse( response.getBody( ).jsonPath( ).getBoolean( "scan_paused" ) );
+    }
+
+    @Test
+    void pauseScanOfUnknownRepository() {
+        String token = getAdminToken( );
+        Response response = given( ).spec( getRequestSpec( token ) ).contentType( JSON )
+            .when( )
+            .post( "managed/xxxx-unknown/scan/pause" )
+            .then( ).statusCode( 404 ).extract( ).response( );
+        assertNotNull( response );
+        ArchivaRestError error = response.getBody( ).jsonPath( ).getObject( "", ArchivaRestError.class );
+        assertNotNull( error );
+    }
+
+    @Test
+    void resumeScanOfUnknownRepository() {
+        String token = getAdminToken( );
+        Response response = given( ).spec( getRequestSpec( token ) ).contentType( JSON )
+            .when( )
+            .post( "managed/xxxx-unknown/scan/resume" )
+            .then( ).statusCode( 404 ).extract( ).response( );
+        assertNotNull( response );
+        ArchivaRestError error = response.getBody( ).jsonPath( ).getObject( "", ArchivaRestError.class );
+        assertNotNull( error );
+    }
+
     @Test
     void scheduleIndexDownload() {
         String token = getAdminToken( );
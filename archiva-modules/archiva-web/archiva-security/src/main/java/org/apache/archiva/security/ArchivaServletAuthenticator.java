@@ -34,6 +34,7 @@
 import org.apache.archiva.redback.users.UserNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
@@ -54,6 +55,9 @@
     @Inject
     private SecuritySystem securitySystem;
 
+    @Autowired( required = false )
+    private RepositoryAccessCache accessCache;
+
     @Override
     public boolean isAuthenticated( HttpServletRequest request, AuthenticationResult result )
         throws AuthenticationException, AccountLockedException, MustChangePasswordException
@@ -73,6 +77,12 @@ public boolean isAuthorized( HttpServletRequest request, SecuritySession securit
     {
         // TODO: also check for permission to proxy the resource when MRM-579 is implemented
 
+        String principal = getCachePrincipal( securitySession );
+        if ( accessCache != null && accessCache.isAuthorized( principal, repositoryId, permission ) )
+        {
+            return true;
+        }
+
         AuthorizationResult authzResult = securitySystem.authorize( securitySession, permission, repositoryId );
 
         if ( !authzResult.isAuthorized() )
@@ -87,6 +97,10 @@ public boolean isAuthorized( HttpServletRequest request, SecuritySession securit
             throw new UnauthorizedException( "User account is locked" );
         }
 
+        if ( accessCache != null )
+        {
+            accessCache.putAuthorized( principal, repositoryId, permission );
+        }
         return true;
     }
 
@@ -94,6 +108,10 @@ public boolean isAuthorized( HttpServletRequest request, SecuritySession securit
     public boolean isAuthorized( String principal, String repoId, String permission )
         throws UnauthorizedException
     {
+        if ( accessCache != null && accessCache.isAuthorized( principal, repoId, permission ) )
+        {
+            return true;
+        }
         try
         {
             User user = securitySystem.getUserManager().findUser( principal );
@@ -110,7 +128,12 @@ public boolean isAuthorized( String principal, String repoId, String permission
             AuthenticationResult authn = new AuthenticationResult( true, principal, null );
             SecuritySession securitySession = new DefaultSecuritySession( authn, user );
 
-            return securitySystem.isAuthorized( securitySession, permission, repoId );
+            boolean authorized = securitySystem.isAuthorized( securitySession, permission, repoId );
+            if ( authorized && accessCache != null )
+            {
+                accessCache.putAuthorized( principal, repoId, permission );
+            }
+            return authorized;
         }
         catch ( UserNotFoundException e )
         {
@@ -126,6 +149,14 @@ public boolean isAuthorized( String principal, String repoId, String permission
 
     }
 
+    private static String getCachePrincipal( SecuritySession securitySession )
+    {
+        if ( securitySession == null || !securitySession.isAuthenticated() || securitySession.getUser() == null )
+        {
+            return null;
+        }
+        return securitySession.getUser().getUsername();
+    }
 
     public SecuritySystem getSecuritySystem()
     {
@@ -136,4 +167,14 @@ public void setSecuritySystem( SecuritySystem securitySystem )
     {
         this.securitySystem = securitySystem;
     }
+
+    public RepositoryAccessCache getAccessCache()
+    {
+        return accessCache;
+    }
+
+    public void setAccessCache( RepositoryAccessCache accessCache )
+    {
+        this.accessCache = accessCache;
+    }
 }
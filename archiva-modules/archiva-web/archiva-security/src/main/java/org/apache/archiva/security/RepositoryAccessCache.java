@@ -0,0 +1,479 @@
+package org.apache.archiva.security;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.redback.rbac.Permission;
+import org.apache.archiva.redback.rbac.RBACManager;
+import org.apache.archiva.redback.rbac.RBACManagerListener;
+import org.apache.archiva.redback.rbac.Role;
+import org.apache.archiva.redback.rbac.UserAssignment;
+import org.apache.archiva.redback.system.SecuritySession;
+import org.apache.archiva.redback.system.SecuritySystem;
+import org.apache.archiva.redback.users.User;
+import org.apache.archiva.redback.users.UserManagerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Named;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short lived cache for the authentication and authorization of repository requests. Stateless clients
+ * that send HTTP Basic credentials with every request would otherwise pay a full password verification and
+ * a user lookup per request.
+ * <p>
+ * Successful authentications are stored by a salted digest of the credentials, so the cache never holds
+ * the password. Positive authorization decisions are stored per principal, repository and operation.
+ * Authentications expire after 60 seconds and authorizations after 30 seconds. The times are set in seconds by the
+ * system properties <code>archiva.security.authenticationCacheTtl</code> and
+ * <code>archiva.security.authorizationCacheTtl</code>. Entries are dropped earlier, if the user is changed or
+ * removed, or any role, permission or role assignment is changed.
+ */
+@Service( "repositoryAccessCache" )
+public class RepositoryAccessCache
+    implements UserManagerListener, RBACManagerListener
+{
+    private static final Logger log = LoggerFactory.getLogger( RepositoryAccessCache.class );
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    @Inject
+    private SecuritySystem securitySystem;
+
+    @Autowired( required = false )
+    @Named( value = "rbacManager#cached" )
+    private RBACManager rbacManager;
+
+    private final byte[] salt = new byte[32];
+
+    private long authenticationTimeToLive = Long.getLong( "archiva.security.authenticationCacheTtl", 60 ) * 1000;
+
+    private long authorizationTimeToLive = Long.getLong( "archiva.security.authorizationCacheTtl", 30 ) * 1000;
+
+    private int maxAuthentications = 1000;
+
+    private int maxAuthorizations = 10000;
+
+    private final Map<String, CachedAuthentication> authentications = new LinkedHashMap<String, CachedAuthentication>( 16, 0.75f, true )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, CachedAuthentication> eldest )
+        {
+            return size( ) > maxAuthentications;
+        }
+    };
+
+    private final Map<AuthorizationKey, Long> authorizations = new LinkedHashMap<AuthorizationKey, Long>( 16, 0.75f, true )
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<AuthorizationKey, Long> eldest )
+        {
+            return size( ) > maxAuthorizations;
+        }
+    };
+
+    private final AtomicLong authenticationHits = new AtomicLong( );
+
+    private final AtomicLong authenticationMisses = new AtomicLong( );
+
+    private final AtomicLong authorizationHits = new AtomicLong( );
+
+    private final AtomicLong authorizationMisses = new AtomicLong( );
+
+    private static class CachedAuthentication
+    {
+        final SecuritySession securitySession;
+
+        final long expires;
+
+        CachedAuthentication( SecuritySession securitySession, long expires )
+        {
+            this.securitySession = securitySession;
+            this.expires = expires;
+        }
+    }
+
+    private static final class AuthorizationKey
+    {
+        final String principal;
+
+        final String repositoryId;
+
+        final String permission;
+
+        AuthorizationKey( String principal, String repositoryId, String permission )
+        {
+            this.principal = principal;
+            this.repositoryId = repositoryId;
+            this.permission = permission;
+        }
+
+        @Override
+        public boolean equals( Object o )
+        {
+            if ( this == o )
+            {
+                return true;
+            }
+            if ( o == null || getClass( ) != o.getClass( ) )
+            {
+                return false;
+            }
+            AuthorizationKey that = (AuthorizationKey) o;
+            return principal.equals( that.principal ) && Objects.equals( repositoryId, that.repositoryId )
+                && Objects.equals( permission, that.permission );
+        }
+
+        @Override
+        public int hashCode( )
+        {
+            return Objects.hash( principal, repositoryId, permission );
+        }
+    }
+
+    public RepositoryAccessCache( )
+    {
+        new SecureRandom( ).nextBytes( salt );
+    }
+
+    @PostConstruct
+    public void initialize( )
+    {
+        if ( securitySystem != null && securitySystem.getUserManager( ) != null )
+        {
+            securitySystem.getUserManager( ).addUserManagerListener( this );
+        }
+        if ( rbacManager != null )
+        {
+            rbacManager.addListener( this );
+        }
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        if ( securitySystem != null && securitySystem.getUserManager( ) != null )
+        {
+            securitySystem.getUserManager( ).removeUserManagerListener( this );
+        }
+        if ( rbacManager != null )
+        {
+            rbacManager.removeListener( this );
+        }
+        invalidateAll( );
+    }
+
+    /**
+     * Returns the security session of a previous successful authentication with the same credentials.
+     *
+     * @param credentials the credentials as sent by the client, e.g. the value of the Authorization header
+     * @return the cached session, or <code>null</code>
+     */
+    public SecuritySession getAuthentication( String credentials )
+    {
+        if ( credentials == null || authenticationTimeToLive <= 0 )
+        {
+            return null;
+        }
+        String key = digest( credentials );
+        synchronized ( authentications )
+        {
+            CachedAuthentication cached = authentications.get( key );
+            if ( cached != null && cached.expires > System.currentTimeMillis( ) )
+            {
+                authenticationHits.incrementAndGet( );
+                return cached.securitySession;
+            }
+            if ( cached != null )
+            {
+                authentications.remove( key );
+            }
+        }
+        authenticationMisses.incrementAndGet( );
+        return null;
+    }
+
+    /**
+     * Stores a successful authentication. Sessions of locked users or users that have to change their
+     * password are not stored.
+     */
+    public void putAuthentication( String credentials, SecuritySession securitySession )
+    {
+        if ( credentials == null || securitySession == null || authenticationTimeToLive <= 0
+            || !securitySession.isAuthenticated( ) )
+        {
+            return;
+        }
+        User user = securitySession.getUser( );
+        if ( user == null || user.isLocked( ) || user.isPasswordChangeRequired( ) )
+        {
+            return;
+        }
+        String key = digest( credentials );
+        synchronized ( authentications )
+        {
+            authentications.put( key,
+                new CachedAuthentication( securitySession, System.currentTimeMillis( ) + authenticationTimeToLive ) );
+        }
+    }
+
+    /**
+     * @return <code>true</code>, if the principal was recently granted the permission on the repository
+     */
+    public boolean isAuthorized( String principal, String repositoryId, String permission )
+    {
+        if ( principal == null || authorizationTimeToLive <= 0 )
+        {
+            return false;
+        }
+        AuthorizationKey key = new AuthorizationKey( principal, repositoryId, permission );
+        synchronized ( authorizations )
+        {
+            Long expires = authorizations.get( key );
+            if ( expires != null && expires > System.currentTimeMillis( ) )
+            {
+                authorizationHits.incrementAndGet( );
+                return true;
+            }
+            if ( expires != null )
+            {
+                authorizations.remove( key );
+            }
+        }
+        authorizationMisses.incrementAndGet( );
+        return false;
+    }
+
+    /**
+     * Stores a positive authorization decision. Denials are not cached.
+     */
+    public void putAuthorized( String principal, String repositoryId, String permission )
+    {
+        if ( principal == null || authorizationTimeToLive <= 0 )
+        {
+            return;
+        }
+        synchronized ( authorizations )
+        {
+            authorizations.put( new AuthorizationKey( principal, repositoryId, permission ),
+                System.currentTimeMillis( ) + authorizationTimeToLive );
+        }
+    }
+
+    /**
+     * Removes all entries of the given user.
+     */
+    public void invalidateUser( String username )
+    {
+        if ( username == null )
+        {
+            return;
+        }
+        synchronized ( authentications )
+        {
+            authentications.values( ).removeIf( cached -> cached.securitySession.getUser( ) == null
+                || username.equals( cached.securitySession.getUser( ).getUsername( ) ) );
+        }
+        synchronized ( authorizations )
+        {
+            authorizations.keySet( ).removeIf( key -> username.equals( key.principal ) );
+        }
+        log.debug( "Removed cached access decisions of user {}", username );
+    }
+
+    public void invalidateAuthorizations( )
+    {
+        synchronized ( authorizations )
+        {
+            authorizations.clear( );
+        }
+    }
+
+    public void invalidateAll( )
+    {
+        synchronized ( authentications )
+        {
+            authentications.clear( );
+        }
+        invalidateAuthorizations( );
+    }
+
+    private String digest( String credentials )
+    {
+        try
+        {
+            MessageDigest digest = MessageDigest.getInstance( DIGEST_ALGORITHM );
+            digest.update( salt );
+            return Base64.getEncoder( ).encodeToString( digest.digest( credentials.getBytes( StandardCharsets.UTF_8 ) ) );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException( e.getMessage( ), e );
+        }
+    }
+
+    @Override
+    public void userManagerInit( boolean freshDatabase )
+    {
+        invalidateAll( );
+    }
+
+    @Override
+    public void userManagerUserAdded( User user )
+    {
+        // nothing cached for new users
+    }
+
+    @Override
+    public void userManagerUserRemoved( User user )
+    {
+        invalidateUser( user.getUsername( ) );
+    }
+
+    @Override
+    public void userManagerUserUpdated( User user )
+    {
+        invalidateUser( user.getUsername( ) );
+    }
+
+    @Override
+    public void rbacInit( boolean freshdb )
+    {
+        invalidateAuthorizations( );
+    }
+
+    @Override
+    public void rbacRoleSaved( Role role )
+    {
+        invalidateAuthorizations( );
+    }
+
+    @Override
+    public void rbacRoleRemoved( Role role )
+    {
+        invalidateAuthorizations( );
+    }
+
+    @Override
+    public void rbacPermissionSaved( Permission permission )
+    {
+        invalidateAuthorizations( );
+    }
+
+    @Override
+    public void rbacPermissionRemoved( Permission permission )
+    {
+        invalidateAuthorizations( );
+    }
+
+    @Override
+    public void rbacUserAssignmentSaved( UserAssignment userAssignment )
+    {
+        invalidateAuthorizations( );
+    }
+
+    @Override
+    public void rbacUserAssignmentRemoved( UserAssignment userAssignment )
+    {
+        invalidateAuthorizations( );
+    }
+
+    public long getAuthenticationHits( )
+    {
+        return authenticationHits.get( );
+    }
+
+    public long getAuthenticationMisses( )
+    {
+        return authenticationMisses.get( );
+    }
+
+    public long getAuthorizationHits( )
+    {
+        return authorizationHits.get( );
+    }
+
+    public long getAuthorizationMisses( )
+    {
+        return authorizationMisses.get( );
+    }
+
+    public long getAuthenticationTimeToLive( )
+    {
+        return authenticationTimeToLive;
+    }
+
+    /**
+     * @param authenticationTimeToLive the lifetime of cached authentications in ms, <code>0</code> disables the cache
+     */
+    public void setAuthenticationTimeToLive( long authenticationTimeToLive )
+    {
+        this.authenticationTimeToLive = authenticationTimeToLive;
+        invalidateAll( );
+    }
+
+    public long getAuthorizationTimeToLive( )
+    {
+        return authorizationTimeToLive;
+    }
+
+    /**
+     * @param authorizationTimeToLive the lifetime of cached decisions in ms, <code>0</code> disables the cache
+     */
+    public void setAuthorizationTimeToLive( long authorizationTimeToLive )
+    {
+        this.authorizationTimeToLive = authorizationTimeToLive;
+        invalidateAuthorizations( );
+    }
+
+    public void setMaxAuthentications( int maxAuthentications )
+    {
+        this.maxAuthentications = maxAuthentications;
+    }
+
+    public void setMaxAuthorizations( int maxAuthorizations )
+    {
+        this.maxAuthorizations = maxAuthorizations;
+    }
+
+    public void setSecuritySystem( SecuritySystem securitySystem )
+    {
+        this.securitySystem = securitySystem;
+    }
+
+    public void setRbacManager( RBACManager rbacManager )
+    {
+        this.rbacManager = rbacManager;
+    }
+}
@@ -0,0 +1,144 @@
+package org.apache.archiva.security;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.redback.authentication.AuthenticationResult;
+import org.apache.archiva.redback.rbac.UserAssignment;
+import org.apache.archiva.redback.system.DefaultSecuritySession;
+import org.apache.archiva.redback.system.SecuritySession;
+import org.apache.archiva.redback.users.User;
+import org.apache.archiva.security.common.ArchivaRoleConstants;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class RepositoryAccessCacheTest
+{
+    private static final String CREDENTIALS = "Basic YWxwYWNhOnNlY3JldA==";
+
+    private RepositoryAccessCache cache;
+
+    private User user;
+
+    @Before
+    public void setUp()
+    {
+        cache = new RepositoryAccessCache();
+        user = mock( User.class );
+        when( user.getUsername() ).thenReturn( "alpaca" );
+    }
+
+    private SecuritySession createSession( User user )
+    {
+        return new DefaultSecuritySession( new AuthenticationResult( true, user.getUsername(), null ), user );
+    }
+
+    @Test
+    public void testAuthenticationCached()
+    {
+        SecuritySession session = createSession( user );
+        assertNull( cache.getAuthentication( CREDENTIALS ) );
+        cache.putAuthentication( CREDENTIALS, session );
+
+        assertSame( session, cache.getAuthentication( CREDENTIALS ) );
+        assertNull( cache.getAuthentication( "Basic YWxwYWNhOndyb25n" ) );
+        assertEquals( 1, cache.getAuthenticationHits() );
+        assertEquals( 2, cache.getAuthenticationMisses() );
+    }
+
+    @Test
+    public void testLockedUserNotCached()
+    {
+        when( user.isLocked() ).thenReturn( true );
+        cache.putAuthentication( CREDENTIALS, createSession( user ) );
+        assertNull( cache.getAuthentication( CREDENTIALS ) );
+    }
+
+    @Test
+    public void testExpiry()
+        throws Exception
+    {
+        cache.setAuthenticationTimeToLive( 50 );
+        cache.setAuthorizationTimeToLive( 50 );
+        cache.putAuthentication( CREDENTIALS, createSession( user ) );
+        cache.putAuthorized( "alpaca", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY );
+        Thread.sleep( 100 );
+
+        assertNull( cache.getAuthentication( CREDENTIALS ) );
+        assertFalse( cache.isAuthorized( "alpaca", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+    }
+
+    @Test
+    public void testAuthorizationCached()
+    {
+        cache.putAuthorized( "alpaca", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY );
+
+        assertTrue( cache.isAuthorized( "alpaca", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+        assertFalse( cache.isAuthorized( "alpaca", "internal", ArchivaRoleConstants.OPERATION_ADD_ARTIFACT ) );
+        assertFalse( cache.isAuthorized( "alpaca", "snapshots", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+        assertFalse( cache.isAuthorized( "guest", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+        assertEquals( 1, cache.getAuthorizationHits() );
+    }
+
+    @Test
+    public void testInvalidation()
+    {
+        User other = mock( User.class );
+        when( other.getUsername() ).thenReturn( "guest" );
+        cache.putAuthentication( CREDENTIALS, createSession( user ) );
+        cache.putAuthorized( "alpaca", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY );
+        cache.putAuthorized( "guest", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY );
+
+        // a password change or lock of the user drops its entries
+        cache.userManagerUserUpdated( user );
+        assertNull( cache.getAuthentication( CREDENTIALS ) );
+        assertFalse( cache.isAuthorized( "alpaca", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+        assertTrue( cache.isAuthorized( "guest", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+
+        // role changes drop all decisions, but keep the authentications
+        cache.putAuthentication( CREDENTIALS, createSession( user ) );
+        cache.rbacUserAssignmentSaved( mock( UserAssignment.class ) );
+        assertFalse( cache.isAuthorized( "guest", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+        assertNotNull( cache.getAuthentication( CREDENTIALS ) );
+
+        cache.userManagerUserRemoved( other );
+        assertNotNull( cache.getAuthentication( CREDENTIALS ) );
+        cache.userManagerUserRemoved( user );
+        assertNull( cache.getAuthentication( CREDENTIALS ) );
+    }
+
+    @Test
+    public void testBounded()
+    {
+        cache.setMaxAuthorizations( 10 );
+        for ( int i = 0; i < 20; i++ )
+        {
+            cache.putAuthorized( "user" + i, "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY );
+        }
+        assertFalse( cache.isAuthorized( "user0", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+        assertTrue( cache.isAuthorized( "user19", "internal", ArchivaRoleConstants.OPERATION_READ_REPOSITORY ) );
+    }
+}
@@ -23,13 +23,13 @@
 import org.apache.archiva.checksum.ChecksumAlgorithm;
 import org.apache.archiva.checksum.ChecksumUtil;
 import org.apache.archiva.checksum.ChecksummedFile;
-import org.apache.archiva.common.utils.VersionComparator;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.components.taskqueue.TaskQueueException;
 import org.apache.archiva.configuration.provider.ArchivaConfiguration;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
 import org.apache.archiva.model.ArchivaRepositoryMetadata;
 import org.apache.archiva.model.SnapshotVersion;
+import org.apache.archiva.policies.urlcache.NotFoundCache;
 import org.apache.archiva.repository.ReleaseScheme;
 import org.apache.archiva.repository.Repository;
 import org.apache.archiva.repository.RepositoryException;
@@ -37,6 +37,7 @@
 import org.apache.archiva.repository.RepositoryType;
 import org.apache.archiva.repository.content.ItemSelector;
 import org.apache.archiva.repository.content.base.ArchivaItemSelector;
+import org.apache.archiva.repository.event.RepositoryContentEvent;
 import org.apache.archiva.repository.metadata.MetadataReader;
 import org.apache.archiva.repository.metadata.RepositoryMetadataException;
 import org.apache.archiva.repository.metadata.base.MetadataTools;
@@ -80,7 +81,6 @@
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
@@ -120,6 +120,9 @@
     @Inject
     private RepositoryRegistry repositoryRegistry;
 
+    @Inject
+    private NotFoundCache notFoundCache;
+
     private String getStringValue(MultipartBody multipartBody, String attachmentId)
             throws IOException {
         Attachment attachment = multipartBody.getAttachment(attachmentId);
@@ -371,6 +374,7 @@ protected void savePomFile(String repositoryId, FileMetadata fileMetadata, Strin
             pomFilename = FilenameUtils.removeExtension(pomFilename) + ".pom";
 
             copyFile(Paths.get(fileMetadata.getServerFileName()), targetPath, pomFilename, fixChecksums);
+            RepositoryContentEvent.fire(RepositoryContentEvent.ITEM_ADDED, this, repository, targetPath.getPath());
             triggerAuditEvent(repository.getId(), targetPath.resolve(pomFilename).toString(), AuditEvent.UPLOAD_FILE);
             queueRepositoryTask(repository.getId(), targetPath.resolve(pomFilename));
             log.debug("Finished Saving POM");
@@ -447,6 +451,7 @@ protected void saveFile(String repositoryId, FileMetadata fileMetadata, boolean
                             Response.Status.BAD_REQUEST.getStatusCode(), null);
                 } else {
                     copyFile(Paths.get(fileMetadata.getServerFileName()), targetPath, filename, fixChecksums);
+                    RepositoryContentEvent.fire(RepositoryContentEvent.ITEM_ADDED, this, repository, targetPath.getPath());
                     triggerAuditEvent(repository.getId(), artifactPath.toString(), AuditEvent.UPLOAD_FILE);
                     queueRepositoryTask(repository.getId(), targetFile);
                 }
@@ -467,6 +472,7 @@ protected void saveFile(String repositoryId, FileMetadata fileMetadata, boolean
                 try {
                     StorageAsset generatedPomFile =
                             createPom(targetPath, pomFilename, fileMetadata, groupId, artifactId, version, packaging);
+                    RepositoryContentEvent.fire(RepositoryContentEvent.ITEM_ADDED, this, repository, targetPath.getPath());
                     triggerAuditEvent(repository.getId(), targetPath.resolve(pomFilename).toString(), AuditEvent.UPLOAD_FILE);
                     if (fixChecksums) {
                         fixChecksums(generatedPomFile);
@@ -489,6 +495,8 @@ protected void saveFile(String repositoryId, FileMetadata fileMetadata, boolean
                             newBuildNumber, fixChecksums, fileMetadata, groupId, artifactId, version,
                             packaging);
                 }
+                // the project metadata and its checksums are stored in the project directory
+                RepositoryContentEvent.fire(RepositoryContentEvent.ITEM_ADDED, this, repository, targetPath.getParent().getPath());
             }
         }
         catch (RepositoryException rep) {
@@ -544,6 +552,8 @@ private void fixChecksums(StorageAsset file) {
     }
 
     private void queueRepositoryTask(String repositoryId, StorageAsset localFile) {
+        notFoundCache.invalidate(repositoryId, localFile.getPath());
+
         RepositoryTask task = new RepositoryTask();
         task.setRepositoryId(repositoryId);
         task.setResourceFile(localFile);
@@ -584,10 +594,9 @@ private void updateProjectMetadata(StorageAsset targetPath, Date lastUpdatedTime
         ArchivaRepositoryMetadata projectMetadata = getMetadata(projectMetadataFile);
 
         if (projectMetadataFile.exists()) {
+            projectMetadata.sortAvailableVersions();
             availableVersions = projectMetadata.getAvailableVersions();
 
-            Collections.sort(availableVersions, VersionComparator.getInstance());
-
             if (!availableVersions.contains(version)) {
                 availableVersions.add(version);
             }
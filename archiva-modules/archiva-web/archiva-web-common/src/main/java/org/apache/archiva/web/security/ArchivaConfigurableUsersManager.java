@@ -105,6 +105,7 @@ public User addUser( User user )
             usersCache.put( user.getUsername(), user );
         }
 
+        fireUserManagerUserAdded( user );
         return user;
     }
 
@@ -173,7 +174,9 @@ public void deleteUser( String username )
             {
                 if ( !userManager.isReadOnly() )
                 {
+                    User deleted = userManager.findUser( username );
                     userManager.deleteUser( username );
+                    user = deleted;
                     allFailed = false;
                 }
             }
@@ -186,6 +189,10 @@ public void deleteUser( String username )
         {
             throw new UserManagerException( lastException.getMessage(), lastException );
         }
+        if ( user != null )
+        {
+            fireUserManagerUserRemoved( user );
+        }
     }
 
     @Override
@@ -400,6 +407,7 @@ public User updateUser( User user )
             usersCache.put( user.getUsername(), user );
         }
 
+        fireUserManagerUserUpdated( user );
         return user;
     }
 
@@ -414,6 +422,7 @@ public User updateUser( User user, boolean passwordChangeRequired )
             usersCache.put( user.getUsername(), user );
         }
 
+        fireUserManagerUserUpdated( user );
         return user;
     }
 
@@ -196,6 +196,7 @@ public Role saveRole( Role role )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
         }
+        fireRbacRoleSaved( role );
         return role;
     }
 
@@ -224,6 +225,10 @@ public void saveRoles( Collection<Role> roles )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
         }
+        for ( Role role : roles )
+        {
+            fireRbacRoleSaved( role );
+        }
     }
 
     @Override
@@ -355,6 +360,7 @@ public void removeRole( Role role )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
         }
+        fireRbacRoleRemoved( role );
     }
 
     @Override
@@ -397,6 +403,7 @@ public Permission savePermission( Permission permission )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
         }
+        fireRbacPermissionSaved( permission );
 
         return permission;
     }
@@ -492,6 +499,7 @@ public void removePermission( Permission permission )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
         }
+        fireRbacPermissionRemoved( permission );
     }
 
     @Override
@@ -785,6 +793,7 @@ public UserAssignment saveUserAssignment( UserAssignment userAssignment )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
         }
+        fireRbacUserAssignmentSaved( userAssignment );
         return userAssignment;
     }
 
@@ -976,6 +985,7 @@ public void removeUserAssignment( UserAssignment userAssignment )
         {
             throw new RbacManagerException( lastException.getMessage(), lastException );
         }
+        fireRbacUserAssignmentRemoved( userAssignment );
     }
 
     @Override
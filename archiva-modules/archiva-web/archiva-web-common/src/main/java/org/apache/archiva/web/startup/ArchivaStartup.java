@@ -33,10 +33,12 @@
 import javax.servlet.ServletContextListener;
 import java.lang.reflect.Field;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 
 /**
- * ArchivaStartup - the startup of all archiva features in a deterministic order.
+ * ArchivaStartup - the startup of all archiva features. Independent startup phases run concurrently.
  */
 public class ArchivaStartup
     implements ServletContextListener
@@ -67,18 +69,47 @@ public void contextInitialized( ServletContextEvent contextEvent )
         tqeIndexing = wac.getBean( "taskQueueExecutor#indexing", ThreadedTaskQueueExecutor.class );
 
 
+        // the security synchronization and the scheduling of the repository tasks are independent
+        CompletableFuture<Void> securityStartup = runStartupPhase( "security-sync", securitySync::startup );
+        CompletableFuture<Void> schedulerStartup = runStartupPhase( "scheduler", repositoryTaskScheduler::startup );
         try
         {
-            securitySync.startup();
-            repositoryTaskScheduler.startup();
+            CompletableFuture.allOf( securityStartup, schedulerStartup ).join();
             Banner.display( (String) archivaRuntimeProperties.get( "archiva.version" ) );
         }
-        catch ( ArchivaException e )
+        catch ( CompletionException e )
         {
-            throw new RuntimeException( "Unable to properly startup archiva: " + e.getMessage(), e );
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException( "Unable to properly startup archiva: " + cause.getMessage(), cause );
         }
     }
 
+    @FunctionalInterface
+    private interface StartupPhase
+    {
+        void startup()
+            throws ArchivaException;
+    }
+
+    private CompletableFuture<Void> runStartupPhase( String name, StartupPhase phase )
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread thread = new Thread( () -> {
+            try
+            {
+                phase.startup();
+                result.complete( null );
+            }
+            catch ( Throwable e )
+            {
+                result.completeExceptionally( e );
+            }
+        }, "archiva-startup-" + name );
+        thread.setDaemon( true );
+        thread.start();
+        return result;
+    }
+
     @Override
     public void contextDestroyed( ServletContextEvent contextEvent )
     {
@@ -19,14 +19,19 @@
  * under the License.
  */
 
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.repository.Repository;
 import org.apache.archiva.repository.content.LayoutException;
+import org.apache.archiva.repository.event.RepositoryContentEvent;
 import org.apache.archiva.repository.storage.RepositoryStorage;
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.archiva.metadata.audit.AuditListener;
 import org.apache.archiva.scheduler.ArchivaTaskScheduler;
 import org.apache.archiva.scheduler.repository.model.RepositoryArchivaTaskScheduler;
 import org.apache.archiva.scheduler.repository.model.RepositoryTask;
+import org.apache.archiva.webdav.util.ByteRange;
+import org.apache.archiva.webdav.util.ContentSpooler;
 import org.apache.archiva.webdav.util.IndexWriter;
 import org.apache.archiva.webdav.util.MimeTypes;
 import org.apache.commons.io.IOUtils;
@@ -60,12 +65,14 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.time.format.DateTimeFormatter;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.stream.Collectors;
 
@@ -94,6 +101,8 @@
 
     private final RepositoryStorage repositoryStorage;
 
+    private final Repository repository;
+
     private final MimeTypes mimeTypes;
 
     private List<AuditListener> auditListeners;
@@ -108,6 +117,14 @@
 
     private StorageAsset asset;
 
+    private String etag;
+
+    private static final String SHA256_EXTENSION = ".sha256";
+
+    private static final String SHA1_EXTENSION = ".sha1";
+
+    private WebdavMetrics metrics = WebdavMetrics.getDefault();
+
     public ArchivaDavResource( StorageAsset localResource, String logicalResource, RepositoryStorage repositoryStorage,
                                DavSession session, ArchivaDavResourceLocator locator, DavResourceFactory factory,
                                MimeTypes mimeTypes, List<AuditListener> auditListeners,
@@ -122,6 +139,7 @@ public ArchivaDavResource( StorageAsset localResource, String logicalResource, R
 
         // TODO: push into locator as well as moving any references out of the resource factory
         this.repositoryStorage = repositoryStorage;
+        this.repository = repositoryStorage instanceof Repository ? (Repository) repositoryStorage : null;
 
         // TODO: these should be pushed into the repository layer, along with the physical file operations in this class
         this.mimeTypes = mimeTypes;
@@ -206,28 +224,43 @@ public void spool( OutputContext outputContext )
         {
             outputContext.setContentLength( asset.getSize());
             outputContext.setContentType( mimeTypes.getMimeType( asset.getName() ) );
+            outputContext.setETag( getETag() );
         }
 
         if ( !isCollection() && outputContext.hasStream() )
         {
-            repositoryStorage.consumeData( asset, is -> {copyStream(is, outputContext.getOutputStream());}, true );
+            long start = System.nanoTime();
+            ContentSpooler.spool( repositoryStorage, asset, outputContext.getOutputStream() );
+            recordSpool( asset.getSize(), start );
         }
         else if ( outputContext.hasStream() )
         {
-            IndexWriter writer = new IndexWriter( asset, logicalResource );
-            writer.write( outputContext );
+            createIndexWriter().write( outputContext );
+            metrics.forRepository( locator.getRepositoryId() ).listings.increment();
         }
     }
 
-    private void copyStream(InputStream is, OutputStream os) throws RuntimeException {
-        try
-        {
-            IOUtils.copy(is, os);
-        }
-        catch ( IOException e )
-        {
-            throw new RuntimeException( "Copy failed "+e.getMessage(), e );
-        }
+    /**
+     * Writes the listing of this collection in the given format.
+     *
+     * @param writer the writer returned by {@link #createIndexWriter()}
+     * @param os the response stream
+     * @param format the format of the listing
+     * @throws IOException if the listing could not be written
+     */
+    public void spoolListing( IndexWriter writer, OutputStream os, IndexWriter.Format format )
+        throws IOException
+    {
+        writer.write( os, format );
+        metrics.forRepository( locator.getRepositoryId() ).listings.increment();
+    }
+
+    /**
+     * @return the writer for the listing of this collection
+     */
+    public IndexWriter createIndexWriter()
+    {
+        return new IndexWriter( asset, logicalResource );
     }
 
     @Override
@@ -337,6 +370,8 @@ public void addMember( DavResource resource, InputContext inputContext )
                 StorageAsset member = repositoryStorage.addAsset( newPath, false );
                 member.create();
                 member.replaceDataFromFile( tempFile );
+                metrics.forRepository( locator.getRepositoryId() ).bytesUploaded.add( actualContentLength );
+                RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this, repository, member.getPath( ) );
             }
             catch ( IOException e )
             {
@@ -368,6 +403,7 @@ else if ( !inputContext.hasStream() && isCollection() ) // New directory
             {
                 StorageAsset member = repositoryStorage.addAsset( newPath, true );
                 member.create();
+                RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this, repository, member.getPath( ) );
             }
             catch ( IOException e )
             {
@@ -391,6 +427,108 @@ public StorageAsset getAsset() {
         return asset;
     }
 
+    public String getContentType()
+    {
+        return mimeTypes.getMimeType( asset.getName() );
+    }
+
+    /**
+     * Returns the entity tag of the resource. A strong tag is built from the <code>.sha256</code> or
+     * <code>.sha1</code> checksum file of the resource, if it is not older than the resource. Otherwise
+     * a weak tag is built from the size and modification time.
+     *
+     * @return the entity tag including the quotes, or <code>null</code> for collections and missing resources
+     */
+    public String getETag()
+    {
+        if ( etag == null && exists() && !isCollection() )
+        {
+            String checksum = readChecksum( SHA256_EXTENSION, 64 );
+            if ( checksum == null )
+            {
+                checksum = readChecksum( SHA1_EXTENSION, 40 );
+            }
+            etag = checksum != null
+                ? "\"" + checksum + "\""
+                : "W/\"" + Long.toHexString( asset.getSize() ) + "-"
+                    + Long.toHexString( asset.getModificationTime().toEpochMilli() ) + "\"";
+        }
+        return etag;
+    }
+
+    private String readChecksum( String extension, int length )
+    {
+        StorageAsset checksumAsset = repositoryStorage.getAsset( asset.getPath() + extension );
+        try
+        {
+            if ( !checksumAsset.exists() || checksumAsset.isContainer()
+                || checksumAsset.getModificationTime().isBefore( asset.getModificationTime() ) )
+            {
+                return null;
+            }
+            byte[] buffer = new byte[length];
+            int read;
+            try ( InputStream is = checksumAsset.getReadStream() )
+            {
+                read = IOUtils.read( is, buffer );
+            }
+            String checksum = new String( buffer, 0, read, StandardCharsets.US_ASCII ).toLowerCase( Locale.ROOT );
+            return read == length && checksum.chars().allMatch( c -> Character.digit( c, 16 ) >= 0 ) ? checksum : null;
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Could not read checksum file {}: {}", checksumAsset.getPath(), e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Writes a region of the resource content to the given stream.
+     */
+    public void spool( OutputStream os, ByteRange range )
+        throws IOException
+    {
+        long start = System.nanoTime();
+        ContentSpooler.spool( repositoryStorage, asset, os, range.getStart(), range.getLength() );
+        recordSpool( range.getLength(), start );
+    }
+
+    /**
+     * Writes the given regions of the resource content as <code>multipart/byteranges</code> body.
+     */
+    public void spool( OutputStream os, List<ByteRange> ranges, String boundary )
+        throws IOException
+    {
+        long start = System.nanoTime();
+        ContentSpooler.spool( repositoryStorage, asset, os, ranges, getContentType(), boundary );
+        long length = 0;
+        for ( ByteRange range : ranges )
+        {
+            length += range.getLength();
+        }
+        recordSpool( length, start );
+    }
+
+    private void recordSpool( long length, long start )
+    {
+        WebdavMetrics.Repository repositoryMetrics = metrics.forRepository( locator.getRepositoryId() );
+        repositoryMetrics.spoolTimer.record( System.nanoTime() - start );
+        repositoryMetrics.bytesServed.add( length );
+    }
+
+    /**
+     * Sets the registry, that records the served content and the uploads of this resource.
+     */
+    public void setMetricsRegistry( MetricsRegistry metricsRegistry )
+    {
+        this.metrics = new WebdavMetrics( metricsRegistry );
+    }
+
+    void setMetrics( WebdavMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
+
     @Override
     public DavResourceIterator getMembers()
     {
@@ -438,6 +576,7 @@ public void removeMember( DavResource member )
                     repositoryStorage.removeAsset( resource );
                     triggerAuditEvent( member, AuditEvent.REMOVE_FILE );
                 }
+                RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_REMOVED, this, repository, resource.getPath( ) );
 
                 log.debug( "{}{}' removed (current user '{}')", ( resource.isContainer() ? "Directory '" : "File '" ),
                            member.getDisplayName(), this.principal );
@@ -481,6 +620,7 @@ public void move( DavResource destination )
         try
         {
             ArchivaDavResource resource = checkDavResourceIsArchivaDavResource( destination );
+            final String sourcePath = asset.getPath( );
             if ( isCollection() )
             {
                 this.asset = repositoryStorage.moveAsset( asset, destination.getResourcePath() );
@@ -491,6 +631,8 @@ public void move( DavResource destination )
                 this.asset = repositoryStorage.moveAsset( asset, destination.getResourcePath() );
                 triggerAuditEvent( remoteAddr, locator.getRepositoryId(), logicalResource, AuditEvent.MOVE_FILE );
             }
+            RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_MOVED, this, repository, sourcePath );
+            RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this, repository, asset.getPath( ) );
 
             log.debug( "{}{}' moved to '{}' (current user '{}')", ( isCollection() ? "Directory '" : "File '" ),
                        asset.getPath(), destination, this.principal );
@@ -531,6 +673,7 @@ public void copy( DavResource destination, boolean shallow )
 
                 triggerAuditEvent( remoteAddr, locator.getRepositoryId(), logicalResource, AuditEvent.COPY_FILE );
             }
+            RepositoryContentEvent.fire( RepositoryContentEvent.ITEM_ADDED, this, repository, destination.getResourcePath( ) );
 
             log.debug( "{}{}' copied to '{}' (current user '{}')", ( isCollection() ? "Directory '" : "File '" ),
                        asset.getPath(), destination, this.principal );
@@ -688,6 +831,11 @@ protected DavPropertySet initProperties()
 
         properties.add( new DefaultDavProperty<>( DavPropertyName.GETCONTENTLENGTH, asset.getSize() ) );
 
+        if ( getETag() != null )
+        {
+            properties.add( new DefaultDavProperty<>( DavPropertyName.GETETAG, getETag() ) );
+        }
+
         this.properties = properties;
 
         return properties;
@@ -27,6 +27,7 @@
 import org.apache.archiva.checksum.StreamingChecksum;
 import org.apache.archiva.common.filelock.DefaultFileLockManager;
 import org.apache.archiva.common.filelock.FileLockManager;
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.apache.archiva.common.utils.PathUtil;
 import org.apache.archiva.common.utils.VersionUtil;
 import org.apache.archiva.configuration.provider.ArchivaConfiguration;
@@ -45,6 +46,7 @@
 import org.apache.archiva.metadata.repository.storage.RepositoryStorage;
 import org.apache.archiva.model.ArchivaRepositoryMetadata;
 import org.apache.archiva.policies.ProxyDownloadException;
+import org.apache.archiva.policies.urlcache.NotFoundCache;
 import org.apache.archiva.proxy.ProxyRegistry;
 import org.apache.archiva.proxy.model.RepositoryProxyHandler;
 import org.apache.archiva.redback.authentication.AuthenticationException;
@@ -132,6 +134,8 @@
 
     private static final String HTTP_PUT_METHOD = "PUT";
 
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
     private Logger log = LoggerFactory.getLogger( ArchivaDavResourceFactory.class );
 
     @Inject
@@ -183,8 +187,13 @@
     @Named( value = "fileLockManager#default" )
     private FileLockManager fileLockManager;
 
+    @Inject
+    private NotFoundCache notFoundCache;
+
     private ApplicationContext applicationContext;
 
+    private WebdavMetrics metrics = WebdavMetrics.getDefault();
+
 
     @Inject
     public ArchivaDavResourceFactory( ApplicationContext applicationContext, ArchivaConfiguration archivaConfiguration )
@@ -398,6 +407,10 @@ public DavResource createResource( final DavResourceLocator locator, final DavSe
             throw new BrowserRedirectException( resource.getHref() );
         }
         resource.addLockManager( lockManager );
+        if ( resource instanceof ArchivaDavResource )
+        {
+            ( (ArchivaDavResource) resource ).setMetrics( metrics );
+        }
         return resource;
     }
 
@@ -643,6 +656,11 @@ private DavResource processRepository( final DavServletRequest request, ArchivaD
             {
                 String resourcePath = logicalResource.getPath();
                 RepositoryRequestInfo repositoryRequestInfo = managedRepository.getRequestInfo();
+                // a deployed resource must not be reported as missing by the proxy any longer
+                if ( notFoundCache != null )
+                {
+                    notFoundCache.invalidate( managedRepositoryContent.getId(), resourcePath );
+                }
                 // check if target repo is enabled for releases
                 // we suppose that release-artifacts can be deployed only to repos enabled for releases
                 if ( managedRepositoryContent.getRepository().getActiveReleaseSchemes().contains( ReleaseScheme.RELEASE ) && !repositoryRequestInfo.isMetadata(
@@ -751,6 +769,10 @@ public DavResource createResource( final DavResourceLocator locator, final DavSe
         }
 
         resource.addLockManager( lockManager );
+        if ( resource instanceof ArchivaDavResource )
+        {
+            ( (ArchivaDavResource) resource ).setMetrics( metrics );
+        }
         return resource;
     }
 
@@ -890,8 +912,76 @@ else if ( group )
         {
             // We need to specify this so connecting wagons can work correctly
             response.setDateHeader( "Last-Modified", resource.getModificationTime() );
+            // [MRM-524] released files of repositories that block redeployments never change, other files are
+            // revalidated by the client with the ETag
+            if ( isImmutable( locator, resource ) )
+            {
+                response.setHeader( "Cache-Control", IMMUTABLE_CACHE_CONTROL );
+            }
+        }
+    }
+
+    private boolean isImmutable( DavResourceLocator locator, DavResource resource )
+    {
+        if ( !( resource instanceof ArchivaDavResource ) || !( locator instanceof ArchivaDavResourceLocator )
+            || !resource.exists() || resource.isCollection() )
+        {
+            return false;
+        }
+        ManagedRepository repository =
+            repositoryRegistry.getManagedRepository( ( (ArchivaDavResourceLocator) locator ).getRepositoryId() );
+        if ( repository == null || !repository.blocksRedeployments()
+            || !repository.getActiveReleaseSchemes().contains( ReleaseScheme.RELEASE ) )
+        {
+            return false;
+        }
+        StorageAsset asset = ( (ArchivaDavResource) resource ).getAsset();
+        String path = asset.getPath();
+        RepositoryRequestInfo requestInfo = repository.getRequestInfo();
+        return !StringUtils.contains( path, VersionUtil.SNAPSHOT ) && !requestInfo.isMetadata( path )
+            && !requestInfo.isMetadataSupportFile( path ) && !isHiddenPath( path ) && !isIndexPath( repository, asset );
+    }
+
+    /**
+     * Hidden directories like <code>.index</code> hold files that are rewritten by Archiva.
+     */
+    private boolean isHiddenPath( String path )
+    {
+        return path.startsWith( "." ) || path.contains( "/." );
+    }
+
+    /**
+     * The index files are replaced on every index update, even if the index is not stored in a hidden directory.
+     */
+    private boolean isIndexPath( ManagedRepository repository, StorageAsset asset )
+    {
+        if ( !repository.supportsFeature( IndexCreationFeature.class ) )
+        {
+            return false;
         }
-        // TODO: [MRM-524] determine http caching options for other types of files (artifacts, sha1, md5, snapshots)
+        IndexCreationFeature indexCreationFeature = repository.getFeature( IndexCreationFeature.class );
+        return isInDirectory( indexCreationFeature.getLocalIndexPath(), asset )
+            || isInDirectory( indexCreationFeature.getLocalPackedIndexPath(), asset );
+    }
+
+    private boolean isInDirectory( StorageAsset directory, StorageAsset asset )
+    {
+        if ( directory == null )
+        {
+            return false;
+        }
+        if ( directory.isFileBased() && asset.isFileBased() )
+        {
+            return asset.getFilePath().toAbsolutePath().normalize().startsWith(
+                directory.getFilePath().toAbsolutePath().normalize() );
+        }
+        // the index may be kept in another storage
+        if ( directory.getStorage() != asset.getStorage() )
+        {
+            return false;
+        }
+        String directoryPath = StringUtils.removeEnd( directory.getPath(), "/" );
+        return asset.getPath().equals( directoryPath ) || asset.getPath().startsWith( directoryPath + "/" );
     }
 
     private ArchivaDavResourceLocator checkLocatorIsInstanceOfRepositoryLocator( DavResourceLocator locator )
@@ -1440,6 +1530,14 @@ public void setArchivaConfiguration( ArchivaConfiguration archivaConfiguration )
         this.archivaConfiguration = archivaConfiguration;
     }
 
+    /**
+     * Sets the registry, that records the served content, uploads and listings of the created resources.
+     */
+    public void setMetricsRegistry( MetricsRegistry metricsRegistry )
+    {
+        this.metrics = new WebdavMetrics( metricsRegistry );
+    }
+
     public RemoteRepositoryAdmin getRemoteRepositoryAdmin()
     {
         return remoteRepositoryAdmin;
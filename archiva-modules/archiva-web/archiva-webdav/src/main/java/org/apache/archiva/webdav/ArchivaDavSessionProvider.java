@@ -25,15 +25,20 @@
 import org.apache.archiva.redback.integration.filter.authentication.HttpAuthenticator;
 import org.apache.archiva.redback.policy.AccountLockedException;
 import org.apache.archiva.redback.policy.MustChangePasswordException;
+import org.apache.archiva.redback.system.SecuritySession;
 import org.apache.archiva.redback.users.UserManager;
+import org.apache.archiva.security.RepositoryAccessCache;
 import org.apache.archiva.security.ServletAuthenticator;
 import org.apache.archiva.webdav.util.RepositoryPathUtil;
 import org.apache.archiva.webdav.util.WebdavMethodUtil;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavServletRequest;
 import org.apache.jackrabbit.webdav.DavSessionProvider;
 import org.apache.jackrabbit.webdav.WebdavRequest;
 
+import javax.servlet.http.HttpServletRequest;
+
 /**
  */
 public class ArchivaDavSessionProvider
@@ -43,10 +48,23 @@
 
     private HttpAuthenticator httpAuth;
 
+    private RepositoryAccessCache accessCache;
+
     public ArchivaDavSessionProvider( ServletAuthenticator servletAuth, HttpAuthenticator httpAuth )
+    {
+        this( servletAuth, httpAuth, null );
+    }
+
+    /**
+     * @param accessCache cache for the basic authentication of clients that do not keep the http session,
+     *                    may be <code>null</code>
+     */
+    public ArchivaDavSessionProvider( ServletAuthenticator servletAuth, HttpAuthenticator httpAuth,
+                                      RepositoryAccessCache accessCache )
     {
         this.servletAuth = servletAuth;
         this.httpAuth = httpAuth;
+        this.accessCache = accessCache;
     }
 
     @Override
@@ -57,7 +75,7 @@ public boolean attachSession( WebdavRequest request )
 
         try
         {
-            AuthenticationResult result = httpAuth.getAuthenticationResult( request, null );
+            AuthenticationResult result = getAuthenticationResult( request );
 
             //Create a dav session
             request.setDavSession( new ArchivaDavSession() );
@@ -96,6 +114,33 @@ public boolean attachSession( WebdavRequest request )
         }
     }
 
+    /**
+     * Authenticates the request. Maven and most other clients do not send the session cookie back and
+     * repeat the basic credentials with every request, so a successful authentication is kept in the
+     * access cache and restored into the new http session instead of verifying the password again.
+     */
+    private AuthenticationResult getAuthenticationResult( HttpServletRequest request )
+        throws AuthenticationException, AccountLockedException, MustChangePasswordException
+    {
+        String credentials = request.getHeader( "Authorization" );
+        if ( accessCache == null || !StringUtils.startsWithIgnoreCase( credentials, "Basic " ) )
+        {
+            return httpAuth.getAuthenticationResult( request, null );
+        }
+        SecuritySession securitySession = accessCache.getAuthentication( credentials );
+        if ( securitySession != null )
+        {
+            httpAuth.setSecuritySession( securitySession, request.getSession( true ) );
+            return securitySession.getAuthenticationResult();
+        }
+        AuthenticationResult result = httpAuth.getAuthenticationResult( request, null );
+        if ( result != null && result.isAuthenticated() )
+        {
+            accessCache.putAuthentication( credentials, httpAuth.getSecuritySession( request.getSession( true ) ) );
+        }
+        return result;
+    }
+
     @Override
     public void releaseSession( WebdavRequest request )
     {
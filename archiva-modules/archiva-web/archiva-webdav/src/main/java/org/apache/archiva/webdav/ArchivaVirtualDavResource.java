@@ -88,15 +88,22 @@ public ArchivaVirtualDavResource(List<StorageAsset> localResources, String logic
     public void spool( OutputContext outputContext ) {
         if ( outputContext.hasStream() )
         {
-            List<StorageAsset> localResourceFiles = localResources.stream().filter(Objects::nonNull)
-                    .filter(repoAsset -> repoAsset.exists())
-                    .sorted(Comparator.comparing(o -> o.getName())).collect(Collectors.toList());
-
-            IndexWriter writer = new IndexWriter(localResourceFiles, logicalResource );
-            writer.write( outputContext );
+            createIndexWriter().write( outputContext );
         }
     }
 
+    /**
+     * @return the writer for the merged listing of the repository directories
+     */
+    public IndexWriter createIndexWriter()
+    {
+        List<StorageAsset> localResourceFiles = localResources.stream().filter(Objects::nonNull)
+                .filter(repoAsset -> repoAsset.exists())
+                .sorted(Comparator.comparing(o -> o.getName())).collect(Collectors.toList());
+
+        return new IndexWriter(localResourceFiles, logicalResource );
+    }
+
     @Override
     public void addLockManager( LockManager arg0 )
     {
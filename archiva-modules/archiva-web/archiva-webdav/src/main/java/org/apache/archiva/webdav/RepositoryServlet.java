@@ -27,7 +27,12 @@
 import org.apache.archiva.repository.base.ArchivaRepositoryRegistry;
 import org.apache.archiva.repository.ManagedRepository;
 import org.apache.archiva.repository.RepositoryRegistry;
+import org.apache.archiva.security.RepositoryAccessCache;
 import org.apache.archiva.security.ServletAuthenticator;
+import org.apache.archiva.webdav.util.ByteRange;
+import org.apache.archiva.webdav.util.ContentSpooler;
+import org.apache.archiva.webdav.util.IndexWriter;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.webdav.DavException;
 import org.apache.jackrabbit.webdav.DavLocatorFactory;
 import org.apache.jackrabbit.webdav.DavMethods;
@@ -51,6 +56,8 @@
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -158,6 +165,215 @@ else if ( e.getCause() != null )
         }
     }
 
+    @Override
+    protected void doGet( WebdavRequest request, WebdavResponse response, DavResource resource )
+        throws IOException, DavException
+    {
+        if ( !spoolListing( request, response, resource, true ) && !spoolContent( request, response, resource, true ) )
+        {
+            super.doGet( request, response, resource );
+        }
+    }
+
+    @Override
+    protected void doHead( WebdavRequest request, WebdavResponse response, DavResource resource )
+        throws IOException, DavException
+    {
+        if ( !spoolListing( request, response, resource, false ) && !spoolContent( request, response, resource, false ) )
+        {
+            super.doHead( request, response, resource );
+        }
+    }
+
+    /**
+     * Answers conditional and range requests for repository files. Conditional requests are answered from the
+     * entity tag and modification time, without opening the file.
+     *
+     * @return <code>false</code>, if the whole content has to be sent
+     */
+    private boolean spoolContent( WebdavRequest request, WebdavResponse response, DavResource resource,
+                                  boolean sendContent )
+        throws IOException
+    {
+        if ( !( resource instanceof ArchivaDavResource ) || !resource.exists() || resource.isCollection() )
+        {
+            return false;
+        }
+        ArchivaDavResource davResource = (ArchivaDavResource) resource;
+        String etag = davResource.getETag();
+        long modificationTime = davResource.getModificationTime() / 1000 * 1000;
+        response.setHeader( "ETag", etag );
+        response.setHeader( "Accept-Ranges", "bytes" );
+
+        if ( isNotModified( request, etag, modificationTime ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return true;
+        }
+
+        String rangeHeader = request.getHeader( "Range" );
+        if ( !sendContent || rangeHeader == null || !isRangeApplicable( request, etag, modificationTime ) )
+        {
+            return false;
+        }
+        long size = davResource.getAsset().getSize();
+        List<ByteRange> ranges = ByteRange.parse( rangeHeader, size );
+        if ( ranges == null )
+        {
+            return false;
+        }
+        if ( ranges.isEmpty() )
+        {
+            response.setHeader( "Content-Range", "bytes */" + size );
+            response.sendError( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+            return true;
+        }
+
+        response.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+        if ( ranges.size() == 1 )
+        {
+            ByteRange range = ranges.get( 0 );
+            response.setHeader( "Content-Range", range.toContentRange( size ) );
+            response.setContentType( davResource.getContentType() );
+            response.setContentLengthLong( range.getLength() );
+            davResource.spool( response.getOutputStream(), range );
+        }
+        else
+        {
+            String boundary = "archiva_" + Long.toHexString( ThreadLocalRandom.current().nextLong() );
+            response.setContentType( "multipart/byteranges; boundary=" + boundary );
+            response.setContentLengthLong(
+                ContentSpooler.getMultipartLength( ranges, size, davResource.getContentType(), boundary ) );
+            davResource.spool( response.getOutputStream(), ranges, boundary );
+        }
+        return true;
+    }
+
+    /**
+     * Writes the listing of a collection. The format is selected by the <code>Accept</code> header, a
+     * unchanged listing is answered with <code>304</code>, if the client sends the entity tag.
+     *
+     * @return <code>false</code>, if the resource is no collection
+     */
+    private boolean spoolListing( WebdavRequest request, WebdavResponse response, DavResource resource,
+                                  boolean sendContent )
+        throws IOException
+    {
+        IndexWriter writer;
+        if ( resource instanceof ArchivaDavResource && resource.exists() && resource.isCollection() )
+        {
+            writer = ( (ArchivaDavResource) resource ).createIndexWriter();
+        }
+        else if ( resource instanceof ArchivaVirtualDavResource )
+        {
+            writer = ( (ArchivaVirtualDavResource) resource ).createIndexWriter();
+        }
+        else
+        {
+            return false;
+        }
+        IndexWriter.Format format = IndexWriter.Format.fromAccept( request.getHeader( "Accept" ) );
+        String etag = writer.getETag( format );
+        response.setHeader( "ETag", etag );
+        response.setHeader( "Vary", "Accept" );
+        String ifNoneMatch = request.getHeader( "If-None-Match" );
+        if ( ifNoneMatch != null && matchesETag( ifNoneMatch, etag, false ) )
+        {
+            response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+            return true;
+        }
+        response.setContentType( format.getContentType() );
+        response.setCharacterEncoding( "UTF-8" );
+        response.setDateHeader( "Last-Modified", writer.getModificationTime() );
+        if ( sendContent && resource instanceof ArchivaDavResource )
+        {
+            ( (ArchivaDavResource) resource ).spoolListing( writer, response.getOutputStream(), format );
+        }
+        else if ( sendContent )
+        {
+            writer.write( response.getOutputStream(), format );
+        }
+        return true;
+    }
+
+    private boolean isNotModified( WebdavRequest request, String etag, long modificationTime )
+    {
+        String ifNoneMatch = request.getHeader( "If-None-Match" );
+        if ( ifNoneMatch != null )
+        {
+            return matchesETag( ifNoneMatch, etag, false );
+        }
+        long modifiedSince = getDateHeader( request, "If-Modified-Since" );
+        return modifiedSince >= 0 && modificationTime <= modifiedSince;
+    }
+
+    private boolean isRangeApplicable( WebdavRequest request, String etag, long modificationTime )
+    {
+        String ifRange = request.getHeader( "If-Range" );
+        if ( ifRange == null )
+        {
+            return true;
+        }
+        if ( ifRange.startsWith( "\"" ) || ifRange.startsWith( "W/" ) )
+        {
+            return matchesETag( ifRange, etag, true );
+        }
+        return getDateHeader( request, "If-Range" ) == modificationTime;
+    }
+
+    /**
+     * Compares a list of entity tags from a request header with the tag of the resource.
+     *
+     * @param strong <code>true</code> for the strong comparison, that never matches weak tags
+     */
+    static boolean matchesETag( String header, String etag, boolean strong )
+    {
+        if ( etag == null )
+        {
+            return false;
+        }
+        if ( !strong && "*".equals( header.trim() ) )
+        {
+            return true;
+        }
+        boolean weak = etag.startsWith( "W/" );
+        if ( strong && weak )
+        {
+            return false;
+        }
+        String opaqueTag = weak ? etag.substring( 2 ) : etag;
+        for ( String tag : StringUtils.split( header, ',' ) )
+        {
+            tag = tag.trim();
+            if ( tag.startsWith( "W/" ) )
+            {
+                if ( strong )
+                {
+                    continue;
+                }
+                tag = tag.substring( 2 );
+            }
+            if ( tag.equals( opaqueTag ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private long getDateHeader( WebdavRequest request, String name )
+    {
+        try
+        {
+            return request.getDateHeader( name );
+        }
+        catch ( IllegalArgumentException e )
+        {
+            log.debug( "Ignoring invalid {} header: {}", name, request.getHeader( name ) );
+            return -1;
+        }
+    }
+
     public void initServers( ServletConfig servletConfig ) {
 
         long start = System.currentTimeMillis();
@@ -177,7 +393,8 @@ public void initServers( ServletConfig servletConfig ) {
             ServletAuthenticator servletAuth = wac.getBean(ServletAuthenticator.class);
             HttpAuthenticator httpAuth = wac.getBean("httpAuthenticator#basic", HttpAuthenticator.class);
 
-            sessionProvider = new ArchivaDavSessionProvider(servletAuth, httpAuth);
+            RepositoryAccessCache accessCache = wac.getBean(RepositoryAccessCache.class);
+            sessionProvider = new ArchivaDavSessionProvider(servletAuth, httpAuth, accessCache);
         } finally {
             rwLock.writeLock().unlock();
         }
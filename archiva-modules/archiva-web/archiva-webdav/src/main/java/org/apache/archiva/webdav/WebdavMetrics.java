@@ -0,0 +1,87 @@
+package org.apache.archiva.webdav;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.metrics.Counter;
+import org.apache.archiva.common.metrics.MetricsRegistry;
+import org.apache.archiva.common.metrics.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The webdav metrics of each repository. A {@link ArchivaDavResource} is created for each request, so the labeled
+ * counters and timers are kept here and looked up only once per repository.
+ */
+final class WebdavMetrics
+{
+    private static final WebdavMetrics DEFAULT = new WebdavMetrics( MetricsRegistry.getDefault( ) );
+
+    private final MetricsRegistry registry;
+
+    private final ConcurrentMap<String, Repository> repositories = new ConcurrentHashMap<>( );
+
+    static final class Repository
+    {
+        final Timer spoolTimer;
+
+        final Counter bytesServed;
+
+        final Counter bytesUploaded;
+
+        final Counter listings;
+
+        private Repository( MetricsRegistry registry, String repositoryId )
+        {
+            this.spoolTimer = registry.timer( "archiva_webdav_spool_seconds", "repository", repositoryId );
+            this.bytesServed = registry.counter( "archiva_webdav_bytes_served_total", "repository", repositoryId );
+            this.bytesUploaded = registry.counter( "archiva_webdav_bytes_uploaded_total", "repository", repositoryId );
+            this.listings = registry.counter( "archiva_webdav_listings_total", "repository", repositoryId );
+        }
+    }
+
+    WebdavMetrics( MetricsRegistry registry )
+    {
+        this.registry = registry;
+    }
+
+    /**
+     * @return the metrics that are recorded in the default registry
+     */
+    static WebdavMetrics getDefault( )
+    {
+        return DEFAULT;
+    }
+
+    /**
+     * @param repositoryId the id of the repository
+     * @return the metrics of the given repository
+     */
+    Repository forRepository( String repositoryId )
+    {
+        String key = repositoryId == null ? "" : repositoryId;
+        Repository metrics = repositories.get( key );
+        if ( metrics == null )
+        {
+            metrics = repositories.computeIfAbsent( key, id -> new Repository( registry, id ) );
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,178 @@
+package org.apache.archiva.webdav.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A single byte range of a HTTP <code>Range</code> header (RFC 7233), resolved against the size of the content.
+ */
+public class ByteRange
+{
+    private static final String BYTES_UNIT = "bytes=";
+
+    /**
+     * Requests with more ranges are answered with the whole content.
+     */
+    public static final int MAX_RANGES = 16;
+
+    private final long start;
+
+    private final long end;
+
+    public ByteRange( long start, long end )
+    {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Parses the value of a <code>Range</code> header.
+     *
+     * @param header the header value
+     * @param size the size of the content
+     * @return <code>null</code>, if the header should be ignored and the whole content sent, because it is not
+     * valid, has too many or overlapping ranges. An empty list, if none of the ranges is satisfiable.
+     */
+    public static List<ByteRange> parse( String header, long size )
+    {
+        if ( header == null || !StringUtils.startsWithIgnoreCase( header.trim( ), BYTES_UNIT ) )
+        {
+            return null;
+        }
+        String[] specs = StringUtils.split( header.trim( ).substring( BYTES_UNIT.length( ) ), ',' );
+        if ( specs.length == 0 || specs.length > MAX_RANGES )
+        {
+            return null;
+        }
+        List<ByteRange> ranges = new ArrayList<>( specs.length );
+        for ( String spec : specs )
+        {
+            spec = spec.trim( );
+            int dash = spec.indexOf( '-' );
+            if ( dash < 0 )
+            {
+                return null;
+            }
+            String first = spec.substring( 0, dash ).trim( );
+            String last = spec.substring( dash + 1 ).trim( );
+            if ( ( first.isEmpty( ) && last.isEmpty( ) ) || !( first.isEmpty( ) || StringUtils.isNumeric( first ) )
+                || !( last.isEmpty( ) || StringUtils.isNumeric( last ) ) )
+            {
+                return null;
+            }
+            try
+            {
+                if ( first.isEmpty( ) )
+                {
+                    // suffix range: the last n bytes
+                    long suffix = Long.parseLong( last );
+                    if ( suffix > 0 && size > 0 )
+                    {
+                        ranges.add( new ByteRange( Math.max( 0, size - suffix ), size - 1 ) );
+                    }
+                    continue;
+                }
+                long start = Long.parseLong( first );
+                long end = last.isEmpty( ) ? Long.MAX_VALUE : Long.parseLong( last );
+                if ( end < start )
+                {
+                    return null;
+                }
+                if ( start < size )
+                {
+                    ranges.add( new ByteRange( start, Math.min( end, size - 1 ) ) );
+                }
+            }
+            catch ( NumberFormatException e )
+            {
+                return null;
+            }
+        }
+        List<ByteRange> sorted = new ArrayList<>( ranges );
+        sorted.sort( Comparator.comparingLong( ByteRange::getStart ) );
+        for ( int i = 1; i < sorted.size( ); i++ )
+        {
+            if ( sorted.get( i ).getStart( ) <= sorted.get( i - 1 ).getEnd( ) )
+            {
+                return null;
+            }
+        }
+        return Collections.unmodifiableList( ranges );
+    }
+
+    public long getStart( )
+    {
+        return start;
+    }
+
+    /**
+     * @return the position of the last byte of the range (inclusive)
+     */
+    public long getEnd( )
+    {
+        return end;
+    }
+
+    public long getLength( )
+    {
+        return end - start + 1;
+    }
+
+    /**
+     * @return the value of the <code>Content-Range</code> header for this range
+     */
+    public String toContentRange( long size )
+    {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+        if ( o == null || getClass( ) != o.getClass( ) )
+        {
+            return false;
+        }
+        ByteRange byteRange = (ByteRange) o;
+        return start == byteRange.start && end == byteRange.end;
+    }
+
+    @Override
+    public int hashCode( )
+    {
+        return Long.hashCode( start ) * 31 + Long.hashCode( end );
+    }
+
+    @Override
+    public String toString( )
+    {
+        return start + "-" + end;
+    }
+}
@@ -0,0 +1,418 @@
+package org.apache.archiva.webdav.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.repository.storage.RepositoryStorage;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes the content of a storage asset to a response stream.
+ * <p>
+ * File based assets are sent without copying the data through the heap: if the servlet container
+ * accepts a whole buffer as response content (Jetty's <code>HttpOutput.sendContent(ByteBuffer)</code>)
+ * the file is memory mapped and handed to the container. If the response stream is a channel itself,
+ * the data is sent by {@link FileChannel#transferTo(long, long, WritableByteChannel)}, which uses sendfile
+ * if the target is a socket or file channel. If the stream accepts buffers (Jetty's
+ * <code>HttpOutput.write(ByteBuffer)</code>), the file is mapped and written window by window. In all other
+ * cases, and for small files and assets of other storage implementations, the data is streamed through a heap
+ * buffer.
+ * <p>
+ * Mapped buffers are only unmapped, when they are garbage collected. Therefore at most
+ * {@link #MAX_MAPPED_SIZE} bytes are mapped at once, larger regions are sent in several windows.
+ */
+public class ContentSpooler
+{
+    private static final Logger log = LoggerFactory.getLogger( ContentSpooler.class );
+
+    /**
+     * Files smaller than this are streamed, mapping them costs more than copying.
+     */
+    public static final long ZERO_COPY_THRESHOLD =
+        Long.getLong( "archiva.webdav.zeroCopyThreshold", 64 * 1024L );
+
+    /**
+     * The largest region of a file, that is memory mapped at once.
+     */
+    public static final long MAX_MAPPED_SIZE =
+        Long.getLong( "archiva.webdav.maxMappedSize", 16 * 1024 * 1024L );
+
+    private static final ClassValue<Method> SEND_CONTENT = new ClassValue<Method>( )
+    {
+        @Override
+        protected Method computeValue( Class<?> type )
+        {
+            try
+            {
+                Method method = type.getMethod( "sendContent", ByteBuffer.class );
+                method.setAccessible( true );
+                return method;
+            }
+            catch ( NoSuchMethodException | SecurityException e )
+            {
+                return null;
+            }
+        }
+    };
+
+    private static final ClassValue<Method> WRITE_BUFFER = new ClassValue<Method>( )
+    {
+        @Override
+        protected Method computeValue( Class<?> type )
+        {
+            try
+            {
+                Method method = type.getMethod( "write", ByteBuffer.class );
+                // a method with a result may write only a part of the buffer
+                if ( method.getReturnType( ) != void.class )
+                {
+                    return null;
+                }
+                method.setAccessible( true );
+                return method;
+            }
+            catch ( NoSuchMethodException | SecurityException e )
+            {
+                return null;
+            }
+        }
+    };
+
+    private ContentSpooler( )
+    {
+        // no op
+    }
+
+    /**
+     * Writes the content of the given asset to the output stream. The asset is read under a read lock.
+     *
+     * @param storage the storage the asset belongs to
+     * @param asset the asset to send
+     * @param os the response stream
+     * @throws IOException if the asset could not be read or the data could not be written
+     */
+    public static void spool( RepositoryStorage storage, StorageAsset asset, OutputStream os )
+        throws IOException
+    {
+        spool( storage, asset, os, 0, -1 );
+    }
+
+    /**
+     * Writes a region of the given asset to the output stream. The asset is read under a read lock.
+     *
+     * @param storage the storage the asset belongs to
+     * @param asset the asset to send
+     * @param os the response stream
+     * @param offset the position of the first byte to send
+     * @param length the number of bytes to send, or <code>-1</code> to send everything after offset
+     * @throws IOException if the asset could not be read or the data could not be written
+     */
+    public static void spool( RepositoryStorage storage, StorageAsset asset, OutputStream os, long offset,
+                              long length )
+        throws IOException
+    {
+        long count = length < 0 ? asset.getSize( ) - offset : length;
+        try
+        {
+            if ( asset.isFileBased( ) && count >= ZERO_COPY_THRESHOLD )
+            {
+                storage.consumeDataFromChannel( asset, channel -> {
+                    try
+                    {
+                        if ( channel instanceof FileChannel )
+                        {
+                            transfer( (FileChannel) channel, os, offset, count, true );
+                        }
+                        else
+                        {
+                            stream( channel, os, offset, count );
+                        }
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new UncheckedIOException( e );
+                    }
+                }, true );
+            }
+            else
+            {
+                storage.consumeData( asset, is -> {
+                    try
+                    {
+                        IOUtils.copyLarge( is, os, offset, count );
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new UncheckedIOException( e );
+                    }
+                }, true );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw unwrap( e );
+        }
+    }
+
+    /**
+     * Writes the given ranges of the asset as <code>multipart/byteranges</code> body. The asset is read
+     * under a read lock.
+     *
+     * @param storage the storage the asset belongs to
+     * @param asset the asset to send
+     * @param os the response stream
+     * @param ranges the ranges to send
+     * @param contentType the content type of the asset
+     * @param boundary the multipart boundary
+     * @throws IOException if the asset could not be read or the data could not be written
+     */
+    public static void spool( RepositoryStorage storage, StorageAsset asset, OutputStream os, List<ByteRange> ranges,
+                              String contentType, String boundary )
+        throws IOException
+    {
+        final long size = asset.getSize( );
+        if ( !asset.isFileBased( ) )
+        {
+            for ( ByteRange range : ranges )
+            {
+                os.write( getPartHeader( range, size, contentType, boundary ) );
+                spool( storage, asset, os, range.getStart( ), range.getLength( ) );
+            }
+            os.write( getMultipartEnd( boundary ) );
+            return;
+        }
+        try
+        {
+            storage.consumeDataFromChannel( asset, channel -> {
+                try
+                {
+                    long position = 0;
+                    for ( ByteRange range : ranges )
+                    {
+                        os.write( getPartHeader( range, size, contentType, boundary ) );
+                        if ( channel instanceof FileChannel )
+                        {
+                            transfer( (FileChannel) channel, os, range.getStart( ), range.getLength( ), false );
+                        }
+                        else
+                        {
+                            // a plain channel can only be read forward, the ranges are not overlapping
+                            stream( channel, os, range.getStart( ) - position, range.getLength( ) );
+                            position = range.getEnd( ) + 1;
+                        }
+                    }
+                    os.write( getMultipartEnd( boundary ) );
+                }
+                catch ( IOException e )
+                {
+                    throw new UncheckedIOException( e );
+                }
+            }, true );
+        }
+        catch ( IOException e )
+        {
+            throw unwrap( e );
+        }
+    }
+
+    /**
+     * Returns the original exception of the consumer functions. The storage implementations wrap the runtime
+     * exceptions of the consumer into an <code>IOException</code>.
+     */
+    private static IOException unwrap( IOException e )
+    {
+        for ( Throwable cause = e.getCause( ); cause != null; cause = cause.getCause( ) )
+        {
+            if ( cause instanceof UncheckedIOException )
+            {
+                return ( (UncheckedIOException) cause ).getCause( );
+            }
+        }
+        return e;
+    }
+
+    /**
+     * Returns the length of the <code>multipart/byteranges</code> body written by
+     * {@link #spool(RepositoryStorage, StorageAsset, OutputStream, List, String, String)}.
+     */
+    public static long getMultipartLength( List<ByteRange> ranges, long size, String contentType, String boundary )
+    {
+        long length = getMultipartEnd( boundary ).length;
+        for ( ByteRange range : ranges )
+        {
+            length += getPartHeader( range, size, contentType, boundary ).length + range.getLength( );
+        }
+        return length;
+    }
+
+    private static byte[] getPartHeader( ByteRange range, long size, String contentType, String boundary )
+    {
+        StringBuilder header = new StringBuilder( "\r\n--" ).append( boundary ).append( "\r\n" );
+        if ( contentType != null )
+        {
+            header.append( "Content-Type: " ).append( contentType ).append( "\r\n" );
+        }
+        header.append( "Content-Range: " ).append( range.toContentRange( size ) ).append( "\r\n\r\n" );
+        return header.toString( ).getBytes( StandardCharsets.US_ASCII );
+    }
+
+    private static byte[] getMultipartEnd( String boundary )
+    {
+        return ( "\r\n--" + boundary + "--\r\n" ).getBytes( StandardCharsets.US_ASCII );
+    }
+
+    /**
+     * Sends the file from its current position to the output stream. The data is only copied through a heap
+     * buffer, if the stream neither accepts a buffer as content nor is a channel.
+     *
+     * @return the number of bytes sent
+     */
+    public static long transfer( FileChannel source, OutputStream os )
+        throws IOException
+    {
+        return transfer( source, os, source.position( ), source.size( ) - source.position( ), true );
+    }
+
+    /**
+     * Sends a region of the file to the output stream. The data is only copied through a heap buffer, if the
+     * stream neither accepts a buffer nor is a channel.
+     *
+     * @param completes <code>true</code>, if nothing is written to the stream after this region. Only then
+     *                  the region may be handed to the container, which finishes the response.
+     * @return the number of bytes sent
+     */
+    private static long transfer( FileChannel source, OutputStream os, long position, long count, boolean completes )
+        throws IOException
+    {
+        long window = Math.min( MAX_MAPPED_SIZE, Integer.MAX_VALUE );
+        Method sendContent = completes ? SEND_CONTENT.get( os.getClass( ) ) : null;
+        if ( sendContent != null && count <= window
+            && send( sendContent, os, source.map( FileChannel.MapMode.READ_ONLY, position, count ) ) )
+        {
+            return count;
+        }
+        if ( os instanceof WritableByteChannel )
+        {
+            source.position( position );
+            return transfer( source, (WritableByteChannel) os, count );
+        }
+        long sent = 0;
+        Method writeBuffer = WRITE_BUFFER.get( os.getClass( ) );
+        if ( writeBuffer != null )
+        {
+            while ( sent < count )
+            {
+                long size = Math.min( window, count - sent );
+                if ( !send( writeBuffer, os, source.map( FileChannel.MapMode.READ_ONLY, position + sent, size ) ) )
+                {
+                    break;
+                }
+                sent += size;
+            }
+        }
+        if ( sent < count )
+        {
+            // transferTo into a wrapped stream would copy through a temporary buffer as well
+            source.position( position + sent );
+            sent += IOUtils.copyLarge( Channels.newInputStream( source ), os, 0, count - sent );
+        }
+        return sent;
+    }
+
+    /**
+     * Hands the buffer to the given method of the stream.
+     *
+     * @return <code>false</code>, if the method could not be called and nothing was written
+     */
+    private static boolean send( Method method, OutputStream os, ByteBuffer buffer )
+        throws IOException
+    {
+        try
+        {
+            method.invoke( os, buffer );
+            return true;
+        }
+        catch ( IllegalAccessException e )
+        {
+            log.debug( "Could not hand content to the container, falling back to streaming: {}", e.getMessage( ) );
+            return false;
+        }
+        catch ( InvocationTargetException e )
+        {
+            if ( e.getCause( ) instanceof IOException )
+            {
+                throw (IOException) e.getCause( );
+            }
+            throw new IOException( "Sending content failed: " + e.getCause( ), e.getCause( ) );
+        }
+    }
+
+    /**
+     * Sends the file from its current position to the target channel with {@link FileChannel#transferTo}.
+     *
+     * @return the number of bytes sent
+     */
+    public static long transfer( FileChannel source, WritableByteChannel target )
+        throws IOException
+    {
+        return transfer( source, target, Long.MAX_VALUE );
+    }
+
+    private static long transfer( FileChannel source, WritableByteChannel target, long count )
+        throws IOException
+    {
+        long position = source.position( );
+        long end = Math.min( source.size( ), count == Long.MAX_VALUE ? Long.MAX_VALUE : position + count );
+        long start = position;
+        while ( position < end )
+        {
+            long sent = source.transferTo( position, end - position, target );
+            if ( sent <= 0 && source.size( ) <= position )
+            {
+                // the file was truncated while sending
+                break;
+            }
+            position += sent;
+        }
+        source.position( position );
+        return position - start;
+    }
+
+    private static void stream( ReadableByteChannel source, OutputStream os, long skip, long count )
+        throws IOException
+    {
+        IOUtils.copyLarge( Channels.newInputStream( source ), os, skip, count );
+    }
+}
@@ -19,20 +19,27 @@
  * under the License.
  */
 
+
 import org.apache.archiva.repository.storage.StorageAsset;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.jackrabbit.webdav.io.OutputContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -40,12 +47,98 @@
 import java.util.TreeMap;
 
 /**
+ * Writes the listing of a collection as HTML page or as compact JSON document.
+ * <p>
+ * The children are listed once with their attributes. Listings up to a certain size are cached. The cache key
+ * contains the listed directories and the entry is only used, as long as the signature of the children did not
+ * change. The signature covers the name, size and modification time of each child, as they are part of the
+ * listing. The same values are used for the entity tag of the listing.
  */
 public class IndexWriter
 {
 
     private static final Logger log = LoggerFactory.getLogger( IndexWriter.class );
 
+    /**
+     * The formats of the listing.
+     */
+    public enum Format
+    {
+        HTML( "text/html" ), JSON( "application/json" );
+
+        private final String contentType;
+
+        Format( String contentType )
+        {
+            this.contentType = contentType;
+        }
+
+        public String getContentType( )
+        {
+            return contentType;
+        }
+
+        /**
+         * Selects the format from the value of a <code>Accept</code> header. JSON is only used, if the client
+         * prefers it to HTML.
+         */
+        public static Format fromAccept( String accept )
+        {
+            if ( StringUtils.isEmpty( accept ) )
+            {
+                return HTML;
+            }
+            float json = -1;
+            float html = -1;
+            for ( String range : StringUtils.split( accept, ',' ) )
+            {
+                String[] parts = StringUtils.split( range, ';' );
+                if ( parts.length == 0 )
+                {
+                    continue;
+                }
+                String type = parts[0].trim( ).toLowerCase( Locale.ROOT );
+                float quality = 1;
+                for ( int i = 1; i < parts.length; i++ )
+                {
+                    String param = parts[i].trim( );
+                    if ( param.startsWith( "q=" ) )
+                    {
+                        try
+                        {
+                            quality = Float.parseFloat( param.substring( 2 ) );
+                        }
+                        catch ( NumberFormatException e )
+                        {
+                            quality = 0;
+                        }
+                    }
+                }
+                if ( "application/json".equals( type ) )
+                {
+                    json = Math.max( json, quality );
+                }
+                else if ( "text/html".equals( type ) || "application/xhtml+xml".equals( type ) )
+                {
+                    html = Math.max( html, quality );
+                }
+            }
+            return json > 0 && json > html ? JSON : HTML;
+        }
+    }
+
+    private static final int MAX_CACHED_LENGTH = Integer.getInteger( "archiva.webdav.listingCacheMaxLength", 256 * 1024 );
+
+    private static final ListingCache CACHE = new ListingCache( Integer.getInteger( "archiva.webdav.listingCacheSize", 1000 ) );
+
+    private static final String STYLE = "ul{list-style:none;}\n"
+        + "a{color:#0088CC;text-decoration: none;padding-left:20px;}\n"
+        + ".collection tr:nth-child(odd){background-color:#fafafa;}\n"
+        + "tr td:nth-child(2){width:150px;color:#cc8800;text-align:right;}\n"
+        + "tr td:nth-child(3){width:150px;color:#0000cc;text-align:center;}\n"
+        + "th td:nth-child(2){width:150px;}\n"
+        + "th td:nth-child(3){width:150px;}\n";
+
     private final String logicalResource;
 
     private final List<StorageAsset> repositoryAssets;
@@ -53,6 +146,16 @@
 
     private final boolean isVirtual;
 
+    /**
+     * The children, their signature and latest modification time are read once per writer, so that the
+     * entity tag and the written listing refer to the same state.
+     */
+    private List<StorageAsset> children;
+
+    private String signature;
+
+    private long modificationTime;
+
     public IndexWriter( StorageAsset reference, String logicalResource )
     {
         this.repositoryAssets = new ArrayList<>(  );
@@ -70,58 +173,148 @@ public IndexWriter( List<StorageAsset> localResources, String logicalResource )
 
     public void write( OutputContext outputContext )
     {
-        outputContext.setModificationTime( new Date().getTime() );
-        outputContext.setContentType( "text/html" );
-        outputContext.setETag( "" ); // skygo ETag MRM-1127 seems to be fixed
+        outputContext.setModificationTime( getModificationTime( ) );
+        outputContext.setContentType( Format.HTML.getContentType( ) );
+        outputContext.setETag( getETag( Format.HTML ) );
         if ( outputContext.hasStream() )
         {
-            PrintWriter writer = new PrintWriter( outputContext.getOutputStream() );
-            writeDocumentStart( writer );
             try
             {
-                writeHyperlinks( writer );
+                write( outputContext.getOutputStream( ), Format.HTML );
             }
             catch ( IOException e )
             {
                 log.error("Could not write hyperlinks {}", e.getMessage(), e);
             }
+        }
+    }
+
+    /**
+     * Writes the listing in the given format. The content is encoded in UTF-8.
+     */
+    public void write( OutputStream outputStream, Format format )
+        throws IOException
+    {
+        String key = getCacheKey( format );
+        String signature = getSignature( );
+        byte[] cached = CACHE.get( key, signature );
+        if ( cached != null )
+        {
+            outputStream.write( cached );
+            outputStream.flush( );
+            return;
+        }
+        CachingOutputStream cachingStream = new CachingOutputStream( outputStream, MAX_CACHED_LENGTH );
+        Writer writer = new BufferedWriter( new OutputStreamWriter( cachingStream, StandardCharsets.UTF_8 ) );
+        if ( format == Format.JSON )
+        {
+            writeJson( writer );
+        }
+        else
+        {
+            writeDocumentStart( writer );
+            writeHyperlinks( writer );
             writeDocumentEnd( writer );
-            writer.flush();
-            writer.close();
         }
+        writer.flush( );
+        byte[] content = cachingStream.getCopy( );
+        if ( content != null )
+        {
+            CACHE.put( key, signature, content );
+        }
+    }
+
+    /**
+     * The tag changes, if a child is added to or removed from one of the listed directories, or if the size or
+     * modification time of a child changes.
+     */
+    public String getETag( Format format )
+    {
+        return "W/\"" + Integer.toHexString( getCacheKey( format ).hashCode( ) ) + "-" + Integer.toHexString(
+            getSignature( ).hashCode( ) ) + "-" + Long.toHexString( getModificationTime( ) ) + "\"";
+    }
+
+    /**
+     * @return the latest modification time of the listed directories and their children
+     */
+    public long getModificationTime( )
+    {
+        readChildren( );
+        return modificationTime;
     }
 
-    private void writeDocumentStart( PrintWriter writer )
+    private String getCacheKey( Format format )
+    {
+        StringBuilder key = new StringBuilder( format.name( ) ).append( '|' ).append( logicalResource );
+        for ( StorageAsset asset : repositoryAssets )
+        {
+            key.append( '|' ).append( asset.isFileBased( ) ? asset.getFilePath( ).toString( )
+                : asset.getStorage( ).getLocation( ) + asset.getPath( ) );
+        }
+        return key.toString( );
+    }
+
+    private String getSignature( )
+    {
+        readChildren( );
+        return signature;
+    }
+
+    /**
+     * Lists the children and computes the signature over the values shown in the listing.
+     */
+    private void readChildren( )
+    {
+        if ( children != null )
+        {
+            return;
+        }
+        long latest = 0;
+        long hash = 1125899906842597L;
+        for ( StorageAsset asset : repositoryAssets )
+        {
+            long time = asset.getModificationTime( ).toEpochMilli( );
+            latest = Math.max( latest, time );
+            hash = 31 * hash + time;
+        }
+        List<StorageAsset> list = getChildren( );
+        for ( StorageAsset asset : list )
+        {
+            hash = 31 * hash + asset.getName( ).hashCode( );
+            if ( asset.isContainer( ) )
+            {
+                hash = 31 * hash + 1;
+            }
+            else
+            {
+                long time = asset.getModificationTime( ).toEpochMilli( );
+                latest = Math.max( latest, time );
+                hash = 31 * ( 31 * hash + asset.getSize( ) ) + time;
+            }
+        }
+        this.signature = Long.toHexString( hash ) + "-" + list.size( );
+        this.modificationTime = latest;
+        this.children = list;
+    }
+
+    private void writeDocumentStart( Writer writer ) throws IOException
     {
-        writer.println("<!DOCTYPE html>");
-        writer.println( "<html>" );
-        writer.println( "<head>" );
-        writer.println( "<title>Collection: /" + logicalResource + "</title>" );
-        writer.println( "<style type=\"text/css\">" );
-        writer.println( "ul{list-style:none;}" ); 
-        
         StringBuilder relative = new StringBuilder("../../");
         if ( logicalResource != null && logicalResource.length() > 0 )
         {
             String tmpRelative = StringUtils.replace( logicalResource, "\\", "/" );
-            for (int i=0;i<tmpRelative.split("/").length;i++) 
+            for (int i=0;i<tmpRelative.split("/").length;i++)
             {
                 relative.append("../");
             }
         }
-        writer.println( ".file{background:url(" + relative.toString() + "images/package-x-generic.png) no-repeat scroll 0 0 transparent;}" );
-        writer.println( ".folder{background:url(" + relative.toString() + "images/folder.png) no-repeat scroll 0 0 transparent;}" );
-        writer.println( "a{color:#0088CC;text-decoration: none;padding-left:20px;}" );
-        writer.println( ".collection tr:nth-child(odd){background-color:#fafafa;}" );
-        writer.println( "tr td:nth-child(2){width:150px;color:#cc8800;text-align:right;}" );
-        writer.println( "tr td:nth-child(3){width:150px;color:#0000cc;text-align:center;}" );
-        writer.println( "th td:nth-child(2){width:150px;}" );
-        writer.println( "th td:nth-child(3){width:150px;}" );
-        writer.println( "</style>" );
-        writer.println( "<link rel=\"shortcut icon\" href=\"../../favicon.ico\"/>" );
-        writer.println( "</head>" );
-        writer.println( "<body>" );
-        writer.println( "<h3>Collection: /" + logicalResource + "</h3>" );
+        String title = escapeHtml( "Collection: /" + logicalResource );
+        writer.write( "<!DOCTYPE html>\n<html>\n<head>\n<title>" + title + "</title>\n<style type=\"text/css\">\n" );
+        writer.write( ".file{background:url(" + relative + "images/package-x-generic.png) no-repeat scroll 0 0 transparent;}\n" );
+        writer.write( ".folder{background:url(" + relative + "images/folder.png) no-repeat scroll 0 0 transparent;}\n" );
+        writer.write( STYLE );
+        writer.write( "</style>\n<link rel=\"shortcut icon\" href=\"../../favicon.ico\"/>\n</head>\n<body>\n" );
+        writer.write( "<h3>" + title + "</h3>\n" );
 
         //Check if not root
         if ( logicalResource != null && logicalResource.length() > 0 )
@@ -132,35 +325,73 @@ private void writeDocumentStart( PrintWriter writer )
             //convert to unix path in case archiva is hosted on windows
             parentName = StringUtils.replace( parentName, "\\", "/" );
 
-            writer.println( "<ul>" );
-            writer.println( "<li><a class=\"folder\" href=\"../\">" + parentName + "</a> <i><small>(Parent)</small></i></li>" );
-            writer.println( "</ul>" );
+            writer.write( "<ul>\n<li><a class=\"folder\" href=\"../\">" + escapeHtml( parentName )
+                + "</a> <i><small>(Parent)</small></i></li>\n</ul>\n" );
         }
 
-        writer.println( "<table class=\"collection\">" );
-        writer.println( "<tr><th>Name</th><th>Size (Bytes)</th><th>Last Modified</th></tr>" );
+        writer.write( "<table class=\"collection\">\n" );
+        writer.write( "<tr><th>Name</th><th>Size (Bytes)</th><th>Last Modified</th></tr>\n" );
+    }
+
+    private void writeDocumentEnd( Writer writer ) throws IOException
+    {
+        writer.write( "</table>\n</body>\n</html>\n" );
+    }
+
+    private void writeHyperlinks( Writer writer ) throws IOException
+    {
+        DateFormat dateFormatter = DateFormat.getDateTimeInstance( DateFormat.SHORT, DateFormat.SHORT, Locale.getDefault() );
+        readChildren( );
+        for ( StorageAsset asset : children )
+        {
+            writeHyperlink( writer, dateFormatter, asset );
+        }
     }
 
-    private void writeDocumentEnd( PrintWriter writer )
+    private void writeJson( Writer writer ) throws IOException
     {
-        writer.println( "</table>" );
-        writer.println( "</body>" );
-        writer.println( "</html>" );
+        writer.write( "{\"path\":\"/" );
+        writer.write( escapeJson( logicalResource == null ? "" : logicalResource ) );
+        writer.write( "\",\"entries\":[" );
+        boolean first = true;
+        readChildren( );
+        for ( StorageAsset asset : children )
+        {
+            if ( !first )
+            {
+                writer.write( ',' );
+            }
+            first = false;
+            writer.write( "{\"name\":\"" );
+            writer.write( escapeJson( asset.getName( ) ) );
+            if ( asset.isContainer( ) )
+            {
+                writer.write( "\",\"type\":\"dir\"}" );
+            }
+            else
+            {
+                writer.write( "\",\"type\":\"file\",\"size\":" + asset.getSize( ) + ",\"modified\":"
+                    + asset.getModificationTime( ).toEpochMilli( ) + "}" );
+            }
+        }
+        writer.write( "]}" );
     }
 
-    private void writeHyperlinks( PrintWriter writer ) throws IOException
+    /**
+     * Returns the children sorted by name. For virtual repositories the first entry with a name wins.
+     */
+    private List<StorageAsset> getChildren( )
     {
         if ( !isVirtual )
         {
+            List<StorageAsset> children = new ArrayList<>( );
             for ( StorageAsset localResource : repositoryAssets )
             {
-                localResource.list().stream().sorted(
-                    Comparator.comparing( StorageAsset::getName )
-                ).forEach( asset -> {
-                    writeHyperlink( writer, asset.getName(), asset.getModificationTime().toEpochMilli(), asset.getSize(),
-                        asset.isContainer() );
-                } );
+                List<? extends StorageAsset> files = new ArrayList<>( localResource.listWithAttributes( ) );
+                files.sort( Comparator.comparing( StorageAsset::getName ) );
+                children.addAll( files );
             }
+            return children;
         }
         else
         {
@@ -168,40 +399,194 @@ private void writeHyperlinks( PrintWriter writer ) throws IOException
             SortedMap<String, StorageAsset> uniqueChildFiles = new TreeMap<>();
             for ( StorageAsset resource : repositoryAssets )
             {
-                List<? extends StorageAsset> files = resource.list();
+                List<? extends StorageAsset> files = resource.listWithAttributes();
                 for ( StorageAsset file : files )
                 {
                     // the first entry wins
-                    if (!uniqueChildFiles.containsKey( file.getName() )) {
-                        uniqueChildFiles.put(file.getName(), file);
-                    }
+                    uniqueChildFiles.putIfAbsent( file.getName( ), file );
                 }
             }
-            for ( Map.Entry<String, StorageAsset> entry : uniqueChildFiles.entrySet())
+            return new ArrayList<>( uniqueChildFiles.values( ) );
+        }
+    }
+
+    private void writeHyperlink( Writer writer, DateFormat dateFormatter, StorageAsset asset ) throws IOException
+    {
+        String resourceName = escapeHtml( asset.getName( ) );
+        if ( asset.isContainer( ) )
+        {
+            writer.write( "<tr><td><a class=\"folder\" href=\"" + resourceName + "/\">" + resourceName + "</a></td><td>&nbsp;</td><td>&nbsp;</td></tr>\n" );
+        }
+        else
+        {
+            writer.write( "<tr><td><a class=\"file\" href=\"" + resourceName + "\">" + resourceName + "</a></td><td class=\"size\">" + asset.getSize( ) + "&nbsp;&nbsp;</td><td class=\"date\">" + dateFormatter.format( new Date( asset.getModificationTime( ).toEpochMilli( ) ) ) + "</td></tr>\n" );
+        }
+    }
+
+    private static String escapeHtml( String value )
+    {
+        if ( StringUtils.containsNone( value, '&', '<', '>', '"' ) )
+        {
+            return value;
+        }
+        StringBuilder result = new StringBuilder( value.length( ) + 16 );
+        for ( char c : value.toCharArray( ) )
+        {
+            switch ( c )
             {
-                final StorageAsset asset = entry.getValue();
-                 writeHyperlink( writer, asset.getName(), asset.getModificationTime().toEpochMilli(),
-                            asset.getSize(), asset.isContainer());
+                case '&':
+                    result.append( "&amp;" );
+                    break;
+                case '<':
+                    result.append( "&lt;" );
+                    break;
+                case '>':
+                    result.append( "&gt;" );
+                    break;
+                case '"':
+                    result.append( "&quot;" );
+                    break;
+                default:
+                    result.append( c );
             }
         }
+        return result.toString( );
     }
 
-    private static String fileDateFormat( long date ) 
+    private static String escapeJson( String value )
     {
-        DateFormat dateFormatter = DateFormat.getDateTimeInstance( DateFormat.SHORT, DateFormat.SHORT, Locale.getDefault() );
-        Date aDate = new Date( date );
-        return dateFormatter.format( aDate );
+        StringBuilder result = null;
+        for ( int i = 0; i < value.length( ); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '"' || c == '\\' || c < 0x20 )
+            {
+                if ( result == null )
+                {
+                    result = new StringBuilder( value.length( ) + 16 ).append( value, 0, i );
+                }
+                if ( c == '"' || c == '\\' )
+                {
+                    result.append( '\\' ).append( c );
+                }
+                else
+                {
+                    result.append( String.format( "\\u%04x", (int) c ) );
+                }
+            }
+            else if ( result != null )
+            {
+                result.append( c );
+            }
+        }
+        return result == null ? value : result.toString( );
     }
-    
-    private void writeHyperlink( PrintWriter writer, String resourceName, long lastModified, long fileSize, boolean directory )
+
+    /**
+     * Passes the content to the target stream and keeps a copy, as long as the content is not too big to be
+     * cached.
+     */
+    private static class CachingOutputStream
+        extends OutputStream
     {
-        if ( directory )
+        private final OutputStream target;
+
+        private final int maxLength;
+
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream( );
+
+        CachingOutputStream( OutputStream target, int maxLength )
         {
-            writer.println( "<tr><td><a class=\"folder\" href=\"" + resourceName + "/\">" + resourceName + "</a></td><td>&nbsp;</td><td>&nbsp;</td></tr>" );
+            this.target = target;
+            this.maxLength = maxLength;
         }
-        else
+
+        @Override
+        public void write( int b )
+            throws IOException
+        {
+            target.write( b );
+            if ( copy != null )
+            {
+                copy.write( b );
+                checkLength( );
+            }
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            target.write( b, off, len );
+            if ( copy != null )
+            {
+                copy.write( b, off, len );
+                checkLength( );
+            }
+        }
+
+        private void checkLength( )
+        {
+            if ( copy.size( ) > maxLength )
+            {
+                copy = null;
+            }
+        }
+
+        @Override
+        public void flush( )
+            throws IOException
+        {
+            target.flush( );
+        }
+
+        byte[] getCopy( )
+        {
+            return copy == null ? null : copy.toByteArray( );
+        }
+    }
+
+    /**
+     * Least recently used cache of rendered listings.
+     */
+    private static class ListingCache
+    {
+        private final Map<String, Entry> entries;
+
+        ListingCache( final int maxEntries )
+        {
+            this.entries = new LinkedHashMap<String, Entry>( 64, 0.75f, true )
+            {
+                @Override
+                protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest )
+                {
+                    return size( ) > maxEntries;
+                }
+            };
+        }
+
+        synchronized byte[] get( String key, String signature )
+        {
+            Entry entry = entries.get( key );
+            return entry != null && entry.signature.equals( signature ) ? entry.content : null;
+        }
+
+        synchronized void put( String key, String signature, byte[] content )
+        {
+            entries.put( key, new Entry( signature, content ) );
+        }
+    }
+
+    private static class Entry
+    {
+        private final String signature;
+
+        private final byte[] content;
+
+        Entry( String signature, byte[] content )
         {
-            writer.println( "<tr><td><a class=\"file\" href=\"" + resourceName + "\">" + resourceName + "</a></td><td class=\"size\">" + fileSize + "&nbsp;&nbsp;</td><td class=\"date\">" + fileDateFormat( lastModified ) + "</td></tr>" );
+            this.signature = signature;
+            this.content = content;
         }
     }
 }
@@ -636,6 +636,10 @@ protected WebResponse getWebResponse( WebRequest webRequest ) //, boolean follow
         MockHttpServletRequest request = new MockHttpServletRequest();
         request.setRequestURI( webRequest.getUrl().getPath() );
         request.addHeader( "User-Agent", "Apache Archiva unit test" );
+        for ( Map.Entry<String, String> header : webRequest.getAdditionalHeaders().entrySet() )
+        {
+            request.addHeader( header.getKey(), header.getValue() );
+        }
 
         request.setMethod( webRequest.getHttpMethod().name() );
 
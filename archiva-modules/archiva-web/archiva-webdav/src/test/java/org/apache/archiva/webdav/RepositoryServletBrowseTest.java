@@ -22,6 +22,7 @@
 
 import com.gargoylesoftware.htmlunit.WebRequest;
 import com.gargoylesoftware.htmlunit.WebResponse;
+import org.apache.archiva.common.metrics.MetricsRegistry;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
@@ -30,6 +31,7 @@
 import org.junit.Test;
 
 import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
@@ -75,6 +77,36 @@ public void testBrowse()
         assertLinks( expectedLinks, elements );
     }
 
+    @Test
+    public void testBrowseRecordsMetrics()
+        throws Exception
+    {
+        Files.write( repoRootInternal.resolve( "org/apache/archiva/archiva-1.0.pom" ),
+            "<project/>".getBytes( StandardCharsets.UTF_8 ) );
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        ArchivaDavResourceFactory resourceFactory =
+            (ArchivaDavResourceFactory) unauthenticatedRepositoryServlet.getResourceFactory();
+        resourceFactory.setMetricsRegistry( metricsRegistry );
+        try
+        {
+            WebResponse response = getServletUnitClient().getResponse(
+                new GetMethodWebRequest( "http://machine.com/repository/internal/org/" ) );
+            assertEquals( "Response", HttpServletResponse.SC_OK, response.getStatusCode() );
+            response = getServletUnitClient().getResponse(
+                new GetMethodWebRequest( "http://machine.com/repository/internal/org/apache/archiva/archiva-1.0.pom" ) );
+            assertEquals( "Response", HttpServletResponse.SC_OK, response.getStatusCode() );
+
+            String metrics = metricsRegistry.toText();
+            assertTrue( metrics, metrics.contains( "archiva_webdav_listings_total{repository=\"internal\"} 1\n" ) );
+            assertTrue( metrics, metrics.contains( "archiva_webdav_bytes_served_total{repository=\"internal\"} 10\n" ) );
+            assertTrue( metrics, metrics.contains( "archiva_webdav_spool_seconds_count{repository=\"internal\"} 1\n" ) );
+        }
+        finally
+        {
+            resourceFactory.setMetricsRegistry( MetricsRegistry.getDefault() );
+        }
+    }
+
     @Test
     public void testBrowseSubdirectory()
         throws Exception
@@ -91,6 +123,49 @@ public void testBrowseSubdirectory()
         assertLinks( expectedLinks, elements );
     }
 
+    @Test
+    public void testBrowseJson()
+        throws Exception
+    {
+        Files.createDirectories( repoRootInternal.resolve( "org/apache/archiva/artifactId/1.0" ) );
+        Files.write( repoRootInternal.resolve( "org/apache/archiva/artifactId/1.0/artifactId-1.0.pom" ),
+            "<project/>".getBytes( StandardCharsets.UTF_8 ) );
+
+        WebRequest request = new GetMethodWebRequest( "http://machine.com/repository/internal/org/apache/archiva/artifactId/1.0/" );
+        request.setAdditionalHeader( "Accept", "application/json, text/html;q=0.5" );
+        WebResponse response = getServletUnitClient().getResponse( request );
+        assertEquals( "Response", HttpServletResponse.SC_OK, response.getStatusCode() );
+        assertTrue( response.getResponseHeaderValue( "Content-Type" ).startsWith( "application/json" ) );
+        String content = response.getContentAsString();
+        assertTrue( content, content.startsWith( "{\"path\":\"/org/apache/archiva/artifactId/1.0" ) );
+        assertTrue( content, content.contains( "{\"name\":\"artifactId-1.0.pom\",\"type\":\"file\",\"size\":10," ) );
+    }
+
+    @Test
+    public void testBrowseNotModified()
+        throws Exception
+    {
+        WebRequest request = new GetMethodWebRequest( "http://machine.com/repository/internal/org/" );
+        WebResponse response = getServletUnitClient().getResponse( request );
+        assertEquals( "Response", HttpServletResponse.SC_OK, response.getStatusCode() );
+        String etag = response.getResponseHeaderValue( "ETag" );
+        assertNotNull( etag );
+
+        request = new GetMethodWebRequest( "http://machine.com/repository/internal/org/" );
+        request.setAdditionalHeader( "If-None-Match", etag );
+        response = getServletUnitClient().getResponse( request );
+        assertEquals( "Response", HttpServletResponse.SC_NOT_MODIFIED, response.getStatusCode() );
+
+        // a new child changes the listing
+        Thread.sleep( 10 );
+        Files.createDirectories( repoRootInternal.resolve( "org/sonatype" ) );
+        request = new GetMethodWebRequest( "http://machine.com/repository/internal/org/" );
+        request.setAdditionalHeader( "If-None-Match", etag );
+        response = getServletUnitClient().getResponse( request );
+        assertEquals( "Response", HttpServletResponse.SC_OK, response.getStatusCode() );
+        assertTrue( response.getContentAsString().contains( "sonatype/" ) );
+    }
+
     @Test
     public void testGetDirectoryWhichHasMatchingFile() //MRM-893
         throws Exception
@@ -23,17 +23,24 @@
 import com.gargoylesoftware.htmlunit.WebRequest;
 import com.gargoylesoftware.htmlunit.WebResponse;
 import org.apache.archiva.configuration.model.ProxyConnectorConfiguration;
+import org.apache.archiva.webdav.util.ContentSpooler;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Random;
 
 /**
  * RepositoryServletTest
@@ -75,6 +82,187 @@ public void testLastModifiedHeaderExists()
         assertNotNull( response.getResponseHeaderValue( "Last-Modified" ) );
     }
 
+    @Test
+    public void testETagFromChecksumAndNotModified()
+        throws Exception
+    {
+        String commonsLangJar = "commons-lang/commons-lang/2.1/commons-lang-2.1.jar";
+        String sha1 = "2b1a8a8a8d0cb32bb8a1c21e4a7c1d1b8ad4b5f2";
+
+        Path artifactFile = repoRootInternal.resolve( commonsLangJar );
+        Files.createDirectories( artifactFile.getParent() );
+        org.apache.archiva.common.utils.FileUtils.writeStringToFile( artifactFile, Charset.defaultCharset(), "dummy-commons-lang-artifact" );
+        org.apache.archiva.common.utils.FileUtils.writeStringToFile( repoRootInternal.resolve( commonsLangJar + ".sha1" ), Charset.defaultCharset(), sha1 + "  commons-lang-2.1.jar" );
+
+        WebResponse response = getWebResponse( "/repository/internal/" + commonsLangJar );
+        assertResponseOK( response );
+        assertEquals( "\"" + sha1 + "\"", response.getResponseHeaderValue( "ETag" ) );
+        assertEquals( "bytes", response.getResponseHeaderValue( "Accept-Ranges" ) );
+
+        WebRequest request = new GetMethodWebRequest( "http://localhost/repository/internal/" + commonsLangJar );
+        request.setAdditionalHeader( "If-None-Match", "\"other\", \"" + sha1 + "\"" );
+        response = getWebResponse( request );
+        assertEquals( HttpServletResponse.SC_NOT_MODIFIED, response.getStatusCode() );
+        assertEquals( "", response.getContentAsString() );
+
+        request = new GetMethodWebRequest( "http://localhost/repository/internal/" + commonsLangJar );
+        request.setAdditionalHeader( "If-None-Match", "\"other\"" );
+        response = getWebResponse( request );
+        assertResponseOK( response );
+    }
+
+    @Test
+    public void testRangeRequests()
+        throws Exception
+    {
+        String commonsLangJar = "commons-lang/commons-lang/2.1/commons-lang-2.1.jar";
+        String contents = "0123456789abcdefghij";
+
+        Path artifactFile = repoRootInternal.resolve( commonsLangJar );
+        Files.createDirectories( artifactFile.getParent() );
+        org.apache.archiva.common.utils.FileUtils.writeStringToFile( artifactFile, Charset.defaultCharset(), contents );
+
+        WebRequest request = new GetMethodWebRequest( "http://localhost/repository/internal/" + commonsLangJar );
+        request.setAdditionalHeader( "Range", "bytes=2-5" );
+        WebResponse response = getWebResponse( request );
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatusCode() );
+        assertEquals( "bytes 2-5/20", response.getResponseHeaderValue( "Content-Range" ) );
+        assertEquals( "2345", response.getContentAsString() );
+
+        request = new GetMethodWebRequest( "http://localhost/repository/internal/" + commonsLangJar );
+        request.setAdditionalHeader( "Range", "bytes=0-1,-3" );
+        response = getWebResponse( request );
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatusCode() );
+        assertTrue( response.getResponseHeaderValue( "Content-Type" ).startsWith( "multipart/byteranges; boundary=" ) );
+        String body = response.getContentAsString();
+        assertTrue( body.contains( "Content-Range: bytes 0-1/20\r\n\r\n01\r\n" ) );
+        assertTrue( body.contains( "Content-Range: bytes 17-19/20\r\n\r\nhij\r\n" ) );
+        assertEquals( response.getResponseHeaderValue( "Content-Length" ), Integer.toString( body.length() ) );
+
+        request = new GetMethodWebRequest( "http://localhost/repository/internal/" + commonsLangJar );
+        request.setAdditionalHeader( "Range", "bytes=20-" );
+        response = getWebResponse( request );
+        assertEquals( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode() );
+        assertEquals( "bytes */20", response.getResponseHeaderValue( "Content-Range" ) );
+
+        // the file has changed since the client got the first part
+        request = new GetMethodWebRequest( "http://localhost/repository/internal/" + commonsLangJar );
+        request.setAdditionalHeader( "Range", "bytes=2-5" );
+        request.setAdditionalHeader( "If-Range", "\"other\"" );
+        response = getWebResponse( request );
+        assertResponseOK( response );
+        assertEquals( contents, response.getContentAsString() );
+    }
+
+    @Test
+    public void testIndexFilesAreNotImmutable()
+        throws Exception
+    {
+        String commonsLangJar = "commons-lang/commons-lang/2.1/commons-lang-2.1.jar";
+        Path artifactFile = repoRootInternal.resolve( commonsLangJar );
+        Files.createDirectories( artifactFile.getParent() );
+        org.apache.archiva.common.utils.FileUtils.writeStringToFile( artifactFile, Charset.defaultCharset(), "dummy-commons-lang-artifact" );
+
+        // released files of a repository that blocks redeployments never change
+        WebResponse response = getWebResponse( "/repository/internal/" + commonsLangJar );
+        assertResponseOK( response );
+        assertEquals( "public, max-age=31536000, immutable", response.getResponseHeaderValue( "Cache-Control" ) );
+
+        // the index files are rewritten on every index update
+        Path indexDirectory = repoRootInternal.resolve( ".index" );
+        Files.createDirectories( indexDirectory );
+        for ( String indexFile : new String[]{ "nexus-maven-repository-index.properties",
+            "nexus-maven-repository-index.gz", "nexus-maven-repository-index.1.gz" } )
+        {
+            org.apache.archiva.common.utils.FileUtils.writeStringToFile( indexDirectory.resolve( indexFile ), Charset.defaultCharset(), "dummy-index" );
+            response = getWebResponse( "/repository/internal/.index/" + indexFile );
+            assertResponseOK( response );
+            String cacheControl = response.getResponseHeaderValue( "Cache-Control" );
+            assertTrue( indexFile + ": " + cacheControl, cacheControl == null || !cacheControl.contains( "immutable" ) );
+        }
+    }
+
+    /**
+     * Mimics the output stream of the container, that accepts buffers without copying them.
+     */
+    private static class BufferAcceptingServletOutputStream
+        extends ServletOutputStream
+    {
+        private final ByteArrayOutputStream content = new ByteArrayOutputStream();
+
+        private int bufferWrites = 0;
+
+        private int byteWrites = 0;
+
+        public void write( ByteBuffer buffer )
+        {
+            bufferWrites++;
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get( data );
+            content.write( data, 0, data.length );
+        }
+
+        @Override
+        public void write( int b )
+        {
+            byteWrites++;
+            content.write( b );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+        {
+            byteWrites++;
+            content.write( b, off, len );
+        }
+
+        @Override
+        public boolean isReady()
+        {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener( WriteListener writeListener )
+        {
+            // no op
+        }
+    }
+
+    @Test
+    public void testGetArtifactLargerThanMappedSize()
+        throws Exception
+    {
+        String commonsLangJar = "commons-lang/commons-lang/2.1/commons-lang-2.1.jar";
+
+        byte[] contents = new byte[(int) ContentSpooler.MAX_MAPPED_SIZE * 2 + 17];
+        new Random( 17 ).nextBytes( contents );
+        Path artifactFile = repoRootInternal.resolve( commonsLangJar );
+        Files.createDirectories( artifactFile.getParent() );
+        Files.write( artifactFile, contents );
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRequestURI( "/repository/internal/" + commonsLangJar );
+        request.addHeader( "User-Agent", "Apache Archiva unit test" );
+        request.setMethod( "GET" );
+        final BufferAcceptingServletOutputStream os = new BufferAcceptingServletOutputStream();
+        MockHttpServletResponse response = new MockHttpServletResponse()
+        {
+            @Override
+            public ServletOutputStream getOutputStream()
+            {
+                return os;
+            }
+        };
+        unauthenticatedRepositoryServlet.service( request, response );
+
+        assertEquals( HttpServletResponse.SC_OK, response.getStatus() );
+        Assert.assertArrayEquals( contents, os.content.toByteArray() );
+        // the file is sent in mapped windows and not copied through the heap
+        assertEquals( 3, os.bufferWrites );
+        assertEquals( 0, os.byteWrites );
+    }
+
     @Test
     public void testGetNoProxyChecksumDefaultLayout()
         throws Exception
@@ -0,0 +1,80 @@
+package org.apache.archiva.webdav.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class ByteRangeTest
+{
+    @Test
+    public void testSingleRanges( )
+    {
+        assertEquals( Collections.singletonList( new ByteRange( 0, 499 ) ), ByteRange.parse( "bytes=0-499", 1000 ) );
+        assertEquals( Collections.singletonList( new ByteRange( 500, 999 ) ), ByteRange.parse( "bytes=500-", 1000 ) );
+        assertEquals( Collections.singletonList( new ByteRange( 900, 999 ) ), ByteRange.parse( "bytes=-100", 1000 ) );
+        assertEquals( Collections.singletonList( new ByteRange( 0, 999 ) ), ByteRange.parse( "bytes=-2000", 1000 ) );
+        assertEquals( Collections.singletonList( new ByteRange( 990, 999 ) ), ByteRange.parse( "bytes=990-5000", 1000 ) );
+        assertEquals( "bytes 990-999/1000", ByteRange.parse( "bytes=990-", 1000 ).get( 0 ).toContentRange( 1000 ) );
+    }
+
+    @Test
+    public void testMultipleRanges( )
+    {
+        assertEquals( Arrays.asList( new ByteRange( 500, 599 ), new ByteRange( 0, 99 ) ),
+            ByteRange.parse( "bytes= 500-599 , 0-99", 1000 ) );
+        // the unsatisfiable range is dropped
+        assertEquals( Collections.singletonList( new ByteRange( 0, 9 ) ), ByteRange.parse( "bytes=0-9,2000-", 1000 ) );
+        // overlapping ranges are ignored
+        assertNull( ByteRange.parse( "bytes=0-100,50-150", 1000 ) );
+    }
+
+    @Test
+    public void testUnsatisfiable( )
+    {
+        assertTrue( ByteRange.parse( "bytes=1000-", 1000 ).isEmpty( ) );
+        assertTrue( ByteRange.parse( "bytes=-0", 1000 ).isEmpty( ) );
+        assertTrue( ByteRange.parse( "bytes=0-", 0 ).isEmpty( ) );
+    }
+
+    @Test
+    public void testInvalid( )
+    {
+        assertNull( ByteRange.parse( null, 1000 ) );
+        assertNull( ByteRange.parse( "items=0-10", 1000 ) );
+        assertNull( ByteRange.parse( "bytes=10-5", 1000 ) );
+        assertNull( ByteRange.parse( "bytes=a-b", 1000 ) );
+        assertNull( ByteRange.parse( "bytes=-", 1000 ) );
+        assertNull( ByteRange.parse( "bytes=5", 1000 ) );
+        StringBuilder header = new StringBuilder( "bytes=0-0" );
+        for ( int i = 1; i <= ByteRange.MAX_RANGES; i++ )
+        {
+            header.append( ',' ).append( i * 10 ).append( '-' ).append( i * 10 );
+        }
+        assertNull( ByteRange.parse( header.toString( ), 1000 ) );
+    }
+}
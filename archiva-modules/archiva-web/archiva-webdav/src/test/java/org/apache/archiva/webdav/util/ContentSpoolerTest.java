@@ -0,0 +1,239 @@
+package org.apache.archiva.webdav.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.StorageAsset;
+import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the content sent by {@link ContentSpooler}.
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class ContentSpoolerTest
+{
+    private Path baseDirectory;
+
+    private FilesystemStorage storage;
+
+    /**
+     * Mimics a container output stream that accepts the whole content or a part of it as one buffer.
+     */
+    public static class BufferAcceptingOutputStream
+        extends ByteArrayOutputStream
+    {
+        int sendContentCalls = 0;
+
+        int writeBufferCalls = 0;
+
+        public void sendContent( ByteBuffer content )
+        {
+            sendContentCalls++;
+            append( content );
+        }
+
+        public void write( ByteBuffer content )
+        {
+            writeBufferCalls++;
+            append( content );
+        }
+
+        private void append( ByteBuffer content )
+        {
+            byte[] data = new byte[content.remaining( )];
+            content.get( data );
+            write( data, 0, data.length );
+        }
+    }
+
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        baseDirectory = Files.createTempDirectory( "content-spooler" );
+        storage = new FilesystemStorage( baseDirectory, new DefaultFileLockManager( ) );
+    }
+
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        try ( Stream<Path> files = Files.walk( baseDirectory ) )
+        {
+            files.sorted( Comparator.reverseOrder( ) ).forEach( p -> p.toFile( ).delete( ) );
+        }
+    }
+
+    private byte[] createFile( String name, int size )
+        throws IOException
+    {
+        byte[] data = new byte[size];
+        new Random( size ).nextBytes( data );
+        Files.write( baseDirectory.resolve( name ), data );
+        return data;
+    }
+
+    @Test
+    public void testSpoolSmallFile( )
+        throws Exception
+    {
+        byte[] data = createFile( "small.jar", 1024 );
+        BufferAcceptingOutputStream os = new BufferAcceptingOutputStream( );
+        ContentSpooler.spool( storage, storage.getAsset( "small.jar" ), os );
+        assertArrayEquals( data, os.toByteArray( ) );
+        // small files are streamed
+        assertEquals( 0, os.sendContentCalls );
+    }
+
+    @Test
+    public void testSpoolToContainer( )
+        throws Exception
+    {
+        byte[] data = createFile( "large.jar", 1024 * 1024 + 17 );
+        BufferAcceptingOutputStream os = new BufferAcceptingOutputStream( );
+        ContentSpooler.spool( storage, storage.getAsset( "large.jar" ), os );
+        assertArrayEquals( data, os.toByteArray( ) );
+        assertEquals( 1, os.sendContentCalls );
+    }
+
+    @Test
+    public void testSpoolLargerThanMappedSize( )
+        throws Exception
+    {
+        byte[] data = createFile( "large.jar", (int) ContentSpooler.MAX_MAPPED_SIZE * 2 + 17 );
+        BufferAcceptingOutputStream os = new BufferAcceptingOutputStream( );
+        ContentSpooler.spool( storage, storage.getAsset( "large.jar" ), os );
+        assertArrayEquals( data, os.toByteArray( ) );
+        // sent in mapped windows, the content is not handed over at once
+        assertEquals( 0, os.sendContentCalls );
+        assertEquals( 3, os.writeBufferCalls );
+    }
+
+    @Test
+    public void testSpoolToPlainStream( )
+        throws Exception
+    {
+        byte[] data = createFile( "large.jar", 1024 * 1024 + 17 );
+        ByteArrayOutputStream os = new ByteArrayOutputStream( );
+        ContentSpooler.spool( storage, storage.getAsset( "large.jar" ), os );
+        assertArrayEquals( data, os.toByteArray( ) );
+    }
+
+    @Test
+    public void testSpoolRanges( )
+        throws Exception
+    {
+        byte[] data = createFile( "large.jar", 200000 );
+        StorageAsset asset = storage.getAsset( "large.jar" );
+
+        BufferAcceptingOutputStream os = new BufferAcceptingOutputStream( );
+        ContentSpooler.spool( storage, asset, os, 100, 150000 );
+        assertArrayEquals( Arrays.copyOfRange( data, 100, 150100 ), os.toByteArray( ) );
+
+        List<ByteRange> ranges = ByteRange.parse( "bytes=199990-,0-99999", data.length );
+        ByteArrayOutputStream multipart = new ByteArrayOutputStream( );
+        ContentSpooler.spool( storage, asset, multipart, ranges, "application/java-archive", "BOUNDARY" );
+        byte[] body = multipart.toByteArray( );
+        assertEquals( ContentSpooler.getMultipartLength( ranges, data.length, "application/java-archive", "BOUNDARY" ),
+            body.length );
+        String text = new String( body, StandardCharsets.ISO_8859_1 );
+        assertTrue( text.startsWith( "\r\n--BOUNDARY\r\nContent-Type: application/java-archive\r\n"
+            + "Content-Range: bytes 199990-199999/200000\r\n\r\n" ) );
+        assertTrue( text.endsWith( "\r\n--BOUNDARY--\r\n" ) );
+        int secondPart = text.indexOf( "Content-Range: bytes 0-99999/200000\r\n\r\n" );
+        assertTrue( secondPart > 0 );
+        int offset = secondPart + "Content-Range: bytes 0-99999/200000\r\n\r\n".length( );
+        assertArrayEquals( Arrays.copyOfRange( data, 0, 100000 ), Arrays.copyOfRange( body, offset, offset + 100000 ) );
+    }
+
+    @Test
+    public void testWriteErrorIsNotWrapped( )
+        throws Exception
+    {
+        createFile( "large.jar", 1024 * 1024 );
+        IOException failure = new IOException( "connection reset" );
+        OutputStream os = new OutputStream( )
+        {
+            @Override
+            public void write( int b )
+                throws IOException
+            {
+                throw failure;
+            }
+
+            @Override
+            public void write( byte[] b, int off, int len )
+                throws IOException
+            {
+                throw failure;
+            }
+        };
+        try
+        {
+            ContentSpooler.spool( storage, storage.getAsset( "large.jar" ), os );
+            fail( "The write error should be thrown" );
+        }
+        catch ( IOException e )
+        {
+            assertSame( failure, e );
+        }
+    }
+
+    @Test
+    public void testTransferFromPosition( )
+        throws Exception
+    {
+        byte[] data = createFile( "test.jar", 100000 );
+        ByteArrayOutputStream os = new ByteArrayOutputStream( );
+        try ( FileChannel channel = FileChannel.open( baseDirectory.resolve( "test.jar" ), StandardOpenOption.READ ) )
+        {
+            channel.position( 1000 );
+            assertEquals( 99000, ContentSpooler.transfer( channel, Channels.newChannel( os ) ) );
+            assertEquals( 100000, channel.position( ) );
+        }
+        byte[] result = os.toByteArray( );
+        assertEquals( 99000, result.length );
+        assertEquals( data[1000], result[0] );
+        assertEquals( data[99999], result[98999] );
+    }
+}
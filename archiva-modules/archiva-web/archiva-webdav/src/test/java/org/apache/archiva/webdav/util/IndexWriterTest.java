@@ -0,0 +1,112 @@
+package org.apache.archiva.webdav.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.common.filelock.DefaultFileLockManager;
+import org.apache.archiva.repository.storage.fs.FilesystemStorage;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that cached listings and entity tags follow the changes of the listed children.
+ */
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class IndexWriterTest
+{
+    private Path baseDirectory;
+
+    private FilesystemStorage storage;
+
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        baseDirectory = Files.createTempDirectory( "index-writer" );
+        storage = new FilesystemStorage( baseDirectory, new DefaultFileLockManager( ) );
+    }
+
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        try ( Stream<Path> files = Files.walk( baseDirectory ) )
+        {
+            files.sorted( Comparator.reverseOrder( ) ).forEach( p -> p.toFile( ).delete( ) );
+        }
+    }
+
+    private String write( IndexWriter.Format format )
+        throws Exception
+    {
+        ByteArrayOutputStream os = new ByteArrayOutputStream( );
+        new IndexWriter( storage.getAsset( "/org" ), "org" ).write( os, format );
+        return new String( os.toByteArray( ), StandardCharsets.UTF_8 );
+    }
+
+    @Test
+    public void testChangedChildIsListed( )
+        throws Exception
+    {
+        Path directory = Files.createDirectories( baseDirectory.resolve( "org" ) );
+        Path file = directory.resolve( "test.pom" );
+        Files.write( file, new byte[10] );
+        FileTime directoryTime = Files.getLastModifiedTime( directory );
+
+        String etag = new IndexWriter( storage.getAsset( "/org" ), "org" ).getETag( IndexWriter.Format.JSON );
+        assertTrue( write( IndexWriter.Format.JSON ).contains( "\"size\":10," ) );
+
+        // rewriting a file does not change the modification time of the directory
+        Files.write( file, new byte[20] );
+        Files.setLastModifiedTime( directory, directoryTime );
+
+        assertNotEquals( etag, new IndexWriter( storage.getAsset( "/org" ), "org" ).getETag( IndexWriter.Format.JSON ) );
+        assertTrue( write( IndexWriter.Format.JSON ).contains( "\"size\":20," ) );
+    }
+
+    @Test
+    public void testUnchangedListing( )
+        throws Exception
+    {
+        Path directory = Files.createDirectories( baseDirectory.resolve( "org" ) );
+        Files.write( directory.resolve( "test.pom" ), new byte[10] );
+        Files.createDirectories( directory.resolve( "apache" ) );
+
+        IndexWriter writer = new IndexWriter( storage.getAsset( "/org" ), "org" );
+        assertEquals( writer.getETag( IndexWriter.Format.HTML ),
+            new IndexWriter( storage.getAsset( "/org" ), "org" ).getETag( IndexWriter.Format.HTML ) );
+        assertNotEquals( writer.getETag( IndexWriter.Format.HTML ), writer.getETag( IndexWriter.Format.JSON ) );
+        assertEquals( write( IndexWriter.Format.HTML ), write( IndexWriter.Format.HTML ) );
+        assertEquals( Math.max( Files.getLastModifiedTime( directory ).toMillis( ),
+            Files.getLastModifiedTime( directory.resolve( "test.pom" ) ).toMillis( ) ), writer.getModificationTime( ) );
+    }
+}
@@ -124,6 +124,23 @@ public List<ArtifactMetadata> getArtifactsByChecksum(RepositorySession session,
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Map<String, List<ArtifactMetadata>> getArtifactsByChecksums( RepositorySession session, String repositoryId,
+                                                                        Set<String> checksums )
+        throws MetadataRepositoryException
+    {
+        Map<String, List<ArtifactMetadata>> result = new HashMap<>( );
+        for ( String checksum : checksums )
+        {
+            List<ArtifactMetadata> artifacts = getArtifactsByChecksum( session, repositoryId, checksum );
+            if ( !artifacts.isEmpty( ) )
+            {
+                result.put( checksum, artifacts );
+            }
+        }
+        return result;
+    }
+
     @Override
     public List<ArtifactMetadata> getArtifactsByProjectVersionFacet( RepositorySession session, String key, String value, String repositoryId )
         throws MetadataRepositoryException
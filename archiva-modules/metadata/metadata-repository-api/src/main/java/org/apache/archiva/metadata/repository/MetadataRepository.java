@@ -28,6 +28,8 @@
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Stream;
 
 /**
@@ -356,6 +358,23 @@ Stream<ArtifactMetadata> getArtifactByDateRangeStream( RepositorySession session
     List<ArtifactMetadata> getArtifactsByChecksum( RepositorySession session, String repositoryId, String checksum )
         throws MetadataRepositoryException;
 
+    /**
+     * Returns the artifacts that match any of the given checksums. All checksum types are searched. Implementations
+     * should resolve the whole set with as few backend queries as possible, so that large sets of checksums can be
+     * looked up without a round trip per checksum.
+     *
+     * @param session      The repository session
+     * @param repositoryId The repository id
+     * @param checksums    The checksums as strings of numbers
+     * @return A map with the checksum as key and the list of matching artifacts as value. Checksums without a match
+     * are not contained in the map.
+     * @throws MetadataRepositoryException if the artifact retrieval fails
+     * @since 3.0
+     */
+    Map<String, List<ArtifactMetadata>> getArtifactsByChecksums( RepositorySession session, String repositoryId,
+                                                                 Set<String> checksums )
+        throws MetadataRepositoryException;
+
     /**
      * Get artifacts with a project version metadata key that matches the passed value.
      *
@@ -55,6 +55,7 @@
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.TimeZone;
@@ -1775,6 +1776,38 @@ public void testGetArtifactsByChecksumNoResult( )
         }
     }
 
+    @Test
+    public void testGetArtifactsByChecksums( )
+        throws Exception
+    {
+        try ( RepositorySession session = getSessionFactory( ).createSession( ) )
+        {
+            ArtifactMetadata artifact1 = createArtifact( );
+            getRepository( ).updateArtifact( session, TEST_REPO_ID, TEST_NAMESPACE, TEST_PROJECT, TEST_PROJECT_VERSION, artifact1 );
+
+            String newProjectId = "another-project";
+            ArtifactMetadata artifact2 = createArtifact( );
+            artifact2.setProject( newProjectId );
+            artifact2.setChecksum( ChecksumAlgorithm.SHA256, TEST_SHA256 );
+            getRepository( ).updateArtifact( session, TEST_REPO_ID, TEST_NAMESPACE, newProjectId, TEST_PROJECT_VERSION, artifact2 );
+            session.save( );
+
+            tryAssert( ( ) -> {
+                Map<String, List<ArtifactMetadata>> artifacts = getRepository( ).getArtifactsByChecksums( session, TEST_REPO_ID,
+                    new HashSet<>( Arrays.asList( TEST_SHA1, TEST_SHA256, "not checksum" ) ) );
+                assertEquals( 2, artifacts.size( ) );
+                List<ArtifactMetadata> sha1Artifacts = new ArrayList<>( artifacts.get( TEST_SHA1 ) );
+                Collections.sort( sha1Artifacts, new ArtifactMetadataComparator( ) );
+                assertEquals( Arrays.asList( artifact2, artifact1 ), sha1Artifacts );
+                assertEquals( Collections.singletonList( artifact2 ), new ArrayList<>( artifacts.get( TEST_SHA256 ) ) );
+                assertFalse( artifacts.containsKey( "not checksum" ) );
+            } );
+
+            tryAssert( ( ) -> assertTrue(
+                getRepository( ).getArtifactsByChecksums( session, OTHER_REPO_ID, Collections.singleton( TEST_SHA1 ) ).isEmpty( ) ) );
+        }
+    }
+
     @Test
     public void testGetArtifactsByProjectVersionMetadata( )
         throws Exception
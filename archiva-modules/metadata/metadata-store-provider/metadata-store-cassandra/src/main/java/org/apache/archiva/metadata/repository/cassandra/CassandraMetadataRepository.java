@@ -21,6 +21,7 @@
 
 
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
 import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
@@ -29,6 +30,7 @@
 import com.datastax.oss.driver.api.querybuilder.insert.Insert;
 import com.datastax.oss.driver.api.querybuilder.insert.RegularInsert;
 import com.datastax.oss.driver.api.querybuilder.select.Select;
+import com.datastax.oss.driver.api.querybuilder.term.Term;
 import com.datastax.oss.driver.api.querybuilder.update.Update;
 import com.datastax.oss.driver.api.querybuilder.update.UpdateStart;
 import com.datastax.oss.driver.api.querybuilder.update.UpdateWithAssignments;
@@ -71,13 +73,17 @@
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
@@ -98,6 +104,11 @@
 {
 
     private static final String ARTIFACT_METADATA_MODEL_KEY = "\"artifactMetadataModel.key\"";
+
+    /**
+     * The number of queries that are sent at once by {@link #getArtifactsByChecksums}.
+     */
+    private static final int CHECKSUM_QUERY_BATCH_SIZE = 100;
     private Logger logger = LoggerFactory.getLogger( getClass( ) );
 
     private final CassandraArchivaManager cassandraArchivaManager;
@@ -1674,6 +1685,81 @@ public List<ArtifactMetadata> getArtifactsByChecksum( RepositorySession reposito
         }
     }
 
+    @Override
+    public Map<String, List<ArtifactMetadata>> getArtifactsByChecksums( RepositorySession repositorySession, final String repositoryId, final Set<String> checksums )
+        throws MetadataRepositoryException
+    {
+        CqlSession session = cassandraArchivaManager.getSession( );
+        // The checksum value is a secondary index, which does not allow IN restrictions. So the lookups are sent
+        // asynchronously in batches instead of waiting for the result of each single query.
+        Map<String, Set<String>> checksumsByKey = new HashMap<>( );
+        List<String> checksumList = new ArrayList<>( checksums );
+        try
+        {
+            for ( int start = 0; start < checksumList.size( ); start += CHECKSUM_QUERY_BATCH_SIZE )
+            {
+                List<String> batch = checksumList.subList( start, Math.min( start + CHECKSUM_QUERY_BATCH_SIZE, checksumList.size( ) ) );
+                List<CompletableFuture<AsyncResultSet>> results = new ArrayList<>( batch.size( ) );
+                for ( String checksum : batch )
+                {
+                    Select query = selectFrom( cassandraArchivaManager.getChecksumFamilyName( ) )
+                        .column( ARTIFACT_METADATA_MODEL_KEY )
+                        .whereColumn( REPOSITORY_NAME.toString( ) ).isEqualTo( literal( repositoryId ) )
+                        .whereColumn( CHECKSUM_VALUE.toString( ) ).isEqualTo( literal( checksum ) )
+                        .allowFiltering( );
+                    results.add( session.executeAsync( query.build( ) ).toCompletableFuture( ) );
+                }
+                for ( int i = 0; i < batch.size( ); i++ )
+                {
+                    AsyncResultSet result = results.get( i ).get( );
+                    while ( true )
+                    {
+                        for ( Row row : result.currentPage( ) )
+                        {
+                            checksumsByKey.computeIfAbsent( row.getString( ARTIFACT_METADATA_MODEL_KEY ), k -> new HashSet<>( ) )
+                                .add( batch.get( i ) );
+                        }
+                        if ( !result.hasMorePages( ) )
+                        {
+                            break;
+                        }
+                        result = result.fetchNextPage( ).toCompletableFuture( ).get( );
+                    }
+                }
+            }
+
+            // The artifacts are selected by their partition key, which can be restricted by IN
+            Map<String, List<ArtifactMetadata>> artifacts = new HashMap<>( );
+            List<String> keys = new ArrayList<>( checksumsByKey.keySet( ) );
+            for ( int start = 0; start < keys.size( ); start += CHECKSUM_QUERY_BATCH_SIZE )
+            {
+                Term[] batch = keys.subList( start, Math.min( start + CHECKSUM_QUERY_BATCH_SIZE, keys.size( ) ) ).stream( )
+                    .map( key -> literal( key ) ).toArray( Term[]::new );
+                Select query = selectFrom( cassandraArchivaManager.getArtifactMetadataFamilyName( ) )
+                    .all( )
+                    .whereColumn( DEFAULT_PRIMARY_KEY ).in( batch );
+                for ( Row row : session.execute( query.build( ) ) )
+                {
+                    ArtifactMetadata artifact = mapArtifactMetadata( row );
+                    for ( String checksum : checksumsByKey.get( row.getString( DEFAULT_PRIMARY_KEY ) ) )
+                    {
+                        artifacts.computeIfAbsent( checksum, k -> new ArrayList<>( ) ).add( artifact );
+                    }
+                }
+            }
+            return artifacts;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new MetadataRepositoryException( "Interrupted while querying checksums", e );
+        }
+        catch ( ExecutionException e )
+        {
+            throw new MetadataRepositoryException( e.getCause( ).getMessage( ), e.getCause( ) );
+        }
+    }
+
     /**
      * Project version and artifact level metadata are stored in the same place, no distinctions in Cassandra
      * implementation, just calls {@link MetadataRepository#getArtifactsByAttribute(RepositorySession, String, String, String)}
@@ -605,6 +605,28 @@ public List<ArtifactMetadata> getArtifactsByChecksum(RepositorySession session,
         }
     }
 
+    @Override
+    public Map<String, List<ArtifactMetadata>> getArtifactsByChecksums(RepositorySession session, String repositoryId, Set<String> checksums)
+            throws MetadataRepositoryException {
+        Map<String, List<ArtifactMetadata>> result = new HashMap<>();
+        if (checksums.isEmpty()) {
+            return result;
+        }
+        // A single pass over the repository is enough for all checksums
+        try (Stream<ArtifactMetadata> artifacts = getArtifactStream(session, repositoryId)) {
+            artifacts.forEach(a -> {
+                for (String value : new HashSet<>(a.getChecksums().values())) {
+                    if (checksums.contains(value)) {
+                        result.computeIfAbsent(value, k -> new ArrayList<>()).add(a);
+                    }
+                }
+            });
+        } catch (MetadataResolutionException e) {
+            throw new MetadataRepositoryException(e.getMessage(), e);
+        }
+        return result;
+    }
+
     @Override
     public void removeNamespace(RepositorySession session, String repositoryId, String project)
             throws MetadataRepositoryException {
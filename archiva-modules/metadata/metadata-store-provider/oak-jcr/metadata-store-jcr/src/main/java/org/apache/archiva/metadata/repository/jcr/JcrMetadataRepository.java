@@ -125,6 +125,11 @@
 
     private static final String QUERY_ARTIFACT_2 = "')";
 
+    /**
+     * The maximum number of checksums that are bound to a single query in {@link #getArtifactsByChecksums}.
+     */
+    private static final int CHECKSUM_QUERY_BATCH_SIZE = 200;
+
     private Logger log = LoggerFactory.getLogger(JcrMetadataRepository.class);
 
     private Repository repository;
@@ -816,6 +821,46 @@ public List<ArtifactMetadata> getArtifactsByChecksum(RepositorySession session,
         return artifacts;
     }
 
+    @Override
+    public Map<String, List<ArtifactMetadata>> getArtifactsByChecksums(RepositorySession session, String repositoryId, Set<String> checksums)
+            throws MetadataRepositoryException {
+        final Session jcrSession = getSession(session);
+        Map<String, List<ArtifactMetadata>> result = new HashMap<>();
+        List<String> checksumList = new ArrayList<>(checksums);
+        try {
+            QueryManager queryManager = jcrSession.getWorkspace().getQueryManager();
+            ValueFactory valueFactory = jcrSession.getValueFactory();
+            for (int start = 0; start < checksumList.size(); start += CHECKSUM_QUERY_BATCH_SIZE) {
+                List<String> batch = checksumList.subList(start, Math.min(start + CHECKSUM_QUERY_BATCH_SIZE, checksumList.size()));
+                StringBuilder q = getArtifactQuery(repositoryId).append(" AND (");
+                for (int i = 0; i < batch.size(); i++) {
+                    if (i > 0) {
+                        q.append(" OR ");
+                    }
+                    q.append("[artifact].[checksums/*/value] = $checksum").append(i);
+                }
+                q.append(")");
+
+                Query query = queryManager.createQuery(q.toString(), Query.JCR_SQL2);
+                for (int i = 0; i < batch.size(); i++) {
+                    query.bindValue("checksum" + i, valueFactory.createValue(batch.get(i)));
+                }
+                for (Node n : JcrUtils.getNodes(query.execute())) {
+                    ArtifactMetadata artifact = getArtifactFromNode(repositoryId, n);
+                    // The query does not tell which of the checksums matched
+                    for (String value : new HashSet<>(artifact.getChecksums().values())) {
+                        if (checksums.contains(value)) {
+                            result.computeIfAbsent(value, k -> new ArrayList<>()).add(artifact);
+                        }
+                    }
+                }
+            }
+        } catch (RepositoryException e) {
+            throw new MetadataRepositoryException(e.getMessage(), e);
+        }
+        return result;
+    }
+
     public List<ArtifactMetadata> runJcrQuery(Session jcrSession, String repositoryId, String q, Map<String, String> bindingParam)
             throws MetadataRepositoryException {
         return runJcrQuery(jcrSession, repositoryId, q, bindingParam, true);
@@ -19,6 +19,7 @@
  * under the License.
  */
 
+import org.apache.archiva.audit.store.AuditLogStore;
 import org.apache.archiva.metadata.model.facets.AuditEvent;
 import org.apache.archiva.metadata.repository.MetadataRepository;
 import org.apache.archiva.metadata.repository.MetadataRepositoryException;
@@ -26,9 +27,11 @@
 import org.apache.archiva.metadata.repository.RepositorySessionFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import javax.inject.Inject;
+import java.io.IOException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -40,7 +43,8 @@
 import java.util.TimeZone;
 
 /**
- *
+ * Audit manager that stores the events in the {@link AuditLogStore}. If no store is available, the events
+ * are stored as metadata facets of the repositories.
  */
 @Service("auditManager#default")
 public class DefaultAuditManager
@@ -55,13 +59,26 @@
     @Inject
     RepositorySessionFactory repositorySessionFactory;
 
+    @Autowired( required = false )
+    AuditLogStore auditLogStore;
+
     @Override
     public List<AuditEvent> getMostRecentAuditEvents( MetadataRepository metadataRepository,
                                                       List<String> repositoryIds )
         throws MetadataRepositoryException
     {
+        if ( auditLogStore != null )
+        {
+            try
+            {
+                return auditLogStore.getMostRecent( repositoryIds, NUM_RECENT_EVENTS );
+            }
+            catch ( IOException e )
+            {
+                throw new MetadataRepositoryException( "Could not read audit log: " + e.getMessage( ), e );
+            }
+        }
         try(RepositorySession session = repositorySessionFactory.createSession()) {
-            // TODO: consider a more efficient implementation that directly gets the last ten from the content repository
             List<AuditRecord> records = new ArrayList<>();
             for (String repositoryId : repositoryIds) {
                 List<String> names = metadataRepository.getMetadataFacets(session, repositoryId, AuditEvent.FACET_ID);
@@ -87,18 +104,44 @@ public List<AuditEvent> getMostRecentAuditEvents( MetadataRepository metadataRep
     public void addAuditEvent( MetadataRepository repository, AuditEvent event )
         throws MetadataRepositoryException
     {
-        try(RepositorySession session = repositorySessionFactory.createSession()) {
-            // ignore those with no repository - they will still be logged to the textual audit log
-            if (event.getRepositoryId() != null) {
-                repository.addMetadataFacet(session, event.getRepositoryId(), event);
+        // ignore those with no repository - they will still be logged to the textual audit log
+        if ( event.getRepositoryId( ) == null )
+        {
+            return;
+        }
+        if ( auditLogStore != null )
+        {
+            try
+            {
+                auditLogStore.append( event );
+                return;
+            }
+            catch ( IOException e )
+            {
+                throw new MetadataRepositoryException( "Could not write audit event: " + e.getMessage( ), e );
             }
         }
+        try(RepositorySession session = repositorySessionFactory.createSession()) {
+            repository.addMetadataFacet(session, event.getRepositoryId(), event);
+        }
     }
 
     @Override
     public void deleteAuditEvents( MetadataRepository metadataRepository, String repositoryId )
         throws MetadataRepositoryException
     {
+        if ( auditLogStore != null )
+        {
+            try
+            {
+                auditLogStore.deleteRepository( repositoryId );
+            }
+            catch ( IOException e )
+            {
+                throw new MetadataRepositoryException( "Could not delete audit events: " + e.getMessage( ), e );
+            }
+        }
+        // Events from older versions may still exist as metadata facets
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             metadataRepository.removeMetadataFacets(session, repositoryId, AuditEvent.FACET_ID);
         }
@@ -118,6 +161,17 @@ public List<AuditEvent> getAuditEventsInRange( MetadataRepository metadataReposi
                                                    Date endTime )
         throws MetadataRepositoryException
     {
+        if ( auditLogStore != null )
+        {
+            try
+            {
+                return auditLogStore.getInRange( repositoryIds, resource, startTime, endTime );
+            }
+            catch ( IOException e )
+            {
+                throw new MetadataRepositoryException( "Could not read audit log: " + e.getMessage( ), e );
+            }
+        }
         try(RepositorySession session = repositorySessionFactory.createSession()) {
             List<AuditEvent> results = new ArrayList<>();
             for (String repositoryId : repositoryIds) {
@@ -188,4 +242,14 @@ public void setRepositorySessionFactory( RepositorySessionFactory repositorySess
     {
         this.repositorySessionFactory = repositorySessionFactory;
     }
+
+    public AuditLogStore getAuditLogStore( )
+    {
+        return auditLogStore;
+    }
+
+    public void setAuditLogStore( AuditLogStore auditLogStore )
+    {
+        this.auditLogStore = auditLogStore;
+    }
 }
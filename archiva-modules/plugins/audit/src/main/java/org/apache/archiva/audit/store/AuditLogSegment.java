@@ -0,0 +1,675 @@
+package org.apache.archiva.audit.store;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A single file of the audit log. Each event is stored as one line of tab separated, escaped fields.
+ * The segment keeps a sparse index of blocks with the time range and file region of a fixed number
+ * of events. Sealed segments store the index in a sidecar file, the active segment rebuilds it
+ * when the store is opened.
+ * <p>
+ * Only the writer thread of the store modifies a segment. Readers get a consistent copy of the
+ * block list and only read the committed part of the file.
+ */
+final class AuditLogSegment
+{
+    static final String LOG_SUFFIX = ".log";
+
+    static final String INDEX_SUFFIX = ".idx";
+
+    private static final int INDEX_MAGIC = 0x41554458;
+
+    private static final char SEPARATOR = '\t';
+
+    private static final String NULL_VALUE = "\\0";
+
+    private final long id;
+
+    private final int generation;
+
+    private final Path file;
+
+    private final int blockSize;
+
+    private final List<Block> blocks = new ArrayList<>( );
+
+    private final Set<String> repositories = new HashSet<>( );
+
+    private Block currentBlock;
+
+    private volatile long committedLength;
+
+    private volatile long minTimestamp = Long.MAX_VALUE;
+
+    private volatile long maxTimestamp = Long.MIN_VALUE;
+
+    private volatile boolean sealed;
+
+    AuditLogSegment( Path directory, long id, int generation, int blockSize )
+    {
+        this.id = id;
+        this.generation = generation;
+        this.blockSize = blockSize;
+        this.file = directory.resolve( fileName( id, generation ) );
+    }
+
+    static String fileName( long id, int generation )
+    {
+        return String.format( "audit-%019d-%d%s", id, generation, LOG_SUFFIX );
+    }
+
+    /**
+     * Parses the segment id and generation from the file name.
+     *
+     * @return a array with id and generation, or <code>null</code>, if the file is not a segment
+     */
+    static long[] parseFileName( String name )
+    {
+        if ( !name.startsWith( "audit-" ) || !name.endsWith( LOG_SUFFIX ) )
+        {
+            return null;
+        }
+        String[] parts = name.substring( 6, name.length( ) - LOG_SUFFIX.length( ) ).split( "-" );
+        if ( parts.length != 2 )
+        {
+            return null;
+        }
+        try
+        {
+            return new long[]{Long.parseLong( parts[0] ), Integer.parseInt( parts[1] )};
+        }
+        catch ( NumberFormatException e )
+        {
+            return null;
+        }
+    }
+
+    long getId( )
+    {
+        return id;
+    }
+
+    int getGeneration( )
+    {
+        return generation;
+    }
+
+    Path getFile( )
+    {
+        return file;
+    }
+
+    Path getIndexFile( )
+    {
+        return file.resolveSibling( file.getFileName( ).toString( ) + INDEX_SUFFIX );
+    }
+
+    long getCommittedLength( )
+    {
+        return committedLength;
+    }
+
+    long getMinTimestamp( )
+    {
+        return minTimestamp;
+    }
+
+    long getMaxTimestamp( )
+    {
+        return maxTimestamp;
+    }
+
+    boolean isSealed( )
+    {
+        return sealed;
+    }
+
+    boolean isEmpty( )
+    {
+        return committedLength == 0;
+    }
+
+    synchronized boolean containsAny( Collection<String> repositoryIds )
+    {
+        if ( repositoryIds == null )
+        {
+            return true;
+        }
+        for ( String repositoryId : repositoryIds )
+        {
+            if ( repositories.contains( repositoryId ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a copy of the block index including the currently open block.
+     */
+    synchronized List<Block> getBlocks( )
+    {
+        List<Block> result = new ArrayList<>( blocks.size( ) + 1 );
+        result.addAll( blocks );
+        if ( currentBlock != null )
+        {
+            result.add( currentBlock.copy( ) );
+        }
+        return result;
+    }
+
+    /**
+     * Updates the index after the writer appended the given records. The records must have been written
+     * starting at the current committed length.
+     */
+    synchronized void committed( List<EncodedRecord> records )
+    {
+        long offset = committedLength;
+        for ( EncodedRecord record : records )
+        {
+            if ( currentBlock == null )
+            {
+                currentBlock = new Block( offset );
+            }
+            currentBlock.add( record.timestamp, record.data.length );
+            repositories.add( record.repositoryId );
+            offset += record.data.length;
+            if ( record.timestamp < minTimestamp )
+            {
+                minTimestamp = record.timestamp;
+            }
+            if ( record.timestamp > maxTimestamp )
+            {
+                maxTimestamp = record.timestamp;
+            }
+            if ( currentBlock.count >= blockSize )
+            {
+                blocks.add( currentBlock );
+                currentBlock = null;
+            }
+        }
+        committedLength = offset;
+    }
+
+    /**
+     * Closes the segment for writing and persists the index.
+     */
+    synchronized void seal( )
+        throws IOException
+    {
+        if ( currentBlock != null )
+        {
+            blocks.add( currentBlock );
+            currentBlock = null;
+        }
+        sealed = true;
+        writeIndex( );
+    }
+
+    private void writeIndex( )
+        throws IOException
+    {
+        Path indexFile = getIndexFile( );
+        Path tmpFile = indexFile.resolveSibling( indexFile.getFileName( ).toString( ) + ".tmp" );
+        try ( DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream( Files.newOutputStream( tmpFile ) ) ) )
+        {
+            out.writeInt( INDEX_MAGIC );
+            out.writeLong( committedLength );
+            out.writeInt( blocks.size( ) );
+            for ( Block block : blocks )
+            {
+                out.writeLong( block.offset );
+                out.writeLong( block.length );
+                out.writeInt( block.count );
+                out.writeLong( block.minTimestamp );
+                out.writeLong( block.maxTimestamp );
+            }
+            out.writeInt( repositories.size( ) );
+            for ( String repositoryId : repositories )
+            {
+                out.writeUTF( repositoryId );
+            }
+        }
+        Files.move( tmpFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Loads the index of a segment found on disk. If no valid index file exists, the index is rebuilt by
+     * reading the log file. An incomplete last line, e.g. after a crash, is cut off.
+     *
+     * @param sealed <code>true</code>, if the segment is not the last one and will not be written anymore
+     */
+    synchronized void load( boolean sealed )
+        throws IOException
+    {
+        if ( sealed && readIndex( ) )
+        {
+            this.sealed = true;
+            return;
+        }
+        rebuildIndex( );
+        if ( sealed )
+        {
+            seal( );
+        }
+    }
+
+    private boolean readIndex( )
+    {
+        Path indexFile = getIndexFile( );
+        if ( !Files.exists( indexFile ) )
+        {
+            return false;
+        }
+        try ( DataInputStream in = new DataInputStream(
+            new BufferedInputStream( Files.newInputStream( indexFile ) ) ) )
+        {
+            if ( in.readInt( ) != INDEX_MAGIC )
+            {
+                return false;
+            }
+            long length = in.readLong( );
+            if ( length != Files.size( file ) )
+            {
+                return false;
+            }
+            int numBlocks = in.readInt( );
+            List<Block> loaded = new ArrayList<>( numBlocks );
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for ( int i = 0; i < numBlocks; i++ )
+            {
+                Block block = new Block( in.readLong( ) );
+                block.length = in.readLong( );
+                block.count = in.readInt( );
+                block.minTimestamp = in.readLong( );
+                block.maxTimestamp = in.readLong( );
+                min = Math.min( min, block.minTimestamp );
+                max = Math.max( max, block.maxTimestamp );
+                loaded.add( block );
+            }
+            int numRepositories = in.readInt( );
+            Set<String> repos = new HashSet<>( );
+            for ( int i = 0; i < numRepositories; i++ )
+            {
+                repos.add( in.readUTF( ) );
+            }
+            blocks.clear( );
+            blocks.addAll( loaded );
+            repositories.clear( );
+            repositories.addAll( repos );
+            minTimestamp = min;
+            maxTimestamp = max;
+            committedLength = length;
+            return true;
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    private void rebuildIndex( )
+        throws IOException
+    {
+        blocks.clear( );
+        repositories.clear( );
+        currentBlock = null;
+        committedLength = 0;
+        minTimestamp = Long.MAX_VALUE;
+        maxTimestamp = Long.MIN_VALUE;
+        if ( !Files.exists( file ) )
+        {
+            return;
+        }
+        long validLength = 0;
+        try ( InputStream in = new BufferedInputStream( Files.newInputStream( file ) ) )
+        {
+            ByteArrayLine line = new ByteArrayLine( );
+            while ( line.readFrom( in ) )
+            {
+                byte[] data = line.toByteArray( );
+                AuditEvent event = decode( data, 0, data.length - 1 );
+                if ( event != null )
+                {
+                    committed( Collections.singletonList(
+                        new EncodedRecord( event.getRepositoryId( ), event.getTimestamp( ).getTime( ), data ) ) );
+                }
+                else
+                {
+                    // Invalid lines are skipped while reading, but must be part of a block to keep the offsets
+                    commitRaw( data.length );
+                }
+                validLength += data.length;
+            }
+        }
+        if ( validLength < Files.size( file ) )
+        {
+            try ( FileChannel channel = FileChannel.open( file, StandardOpenOption.WRITE ) )
+            {
+                channel.truncate( validLength );
+            }
+        }
+    }
+
+    private void commitRaw( int length )
+    {
+        if ( currentBlock == null )
+        {
+            currentBlock = new Block( committedLength );
+        }
+        currentBlock.length += length;
+        committedLength += length;
+    }
+
+    /**
+     * Reads all events of the given block.
+     */
+    List<AuditEvent> read( FileChannel channel, Block block )
+        throws IOException
+    {
+        if ( block.length == 0 )
+        {
+            return Collections.emptyList( );
+        }
+        ByteBuffer buffer = ByteBuffer.allocate( (int) block.length );
+        long position = block.offset;
+        while ( buffer.hasRemaining( ) )
+        {
+            int read = channel.read( buffer, position );
+            if ( read < 0 )
+            {
+                break;
+            }
+            position += read;
+        }
+        byte[] data = buffer.array( );
+        int limit = buffer.position( );
+        List<AuditEvent> events = new ArrayList<>( block.count );
+        int start = 0;
+        for ( int i = 0; i < limit; i++ )
+        {
+            if ( data[i] == '\n' )
+            {
+                AuditEvent event = decode( data, start, i );
+                if ( event != null )
+                {
+                    events.add( event );
+                }
+                start = i + 1;
+            }
+        }
+        return events;
+    }
+
+    FileChannel openForRead( )
+        throws IOException
+    {
+        return FileChannel.open( file, StandardOpenOption.READ );
+    }
+
+    /**
+     * Encodes the event as a single line.
+     */
+    static EncodedRecord encode( AuditEvent event )
+    {
+        long timestamp = event.getTimestamp( ) == null ? System.currentTimeMillis( ) : event.getTimestamp( ).getTime( );
+        StringBuilder sb = new StringBuilder( 128 );
+        sb.append( timestamp ).append( SEPARATOR );
+        appendEscaped( sb, event.getRepositoryId( ) );
+        sb.append( SEPARATOR );
+        appendEscaped( sb, event.getUserId( ) );
+        sb.append( SEPARATOR );
+        appendEscaped( sb, event.getRemoteIP( ) );
+        sb.append( SEPARATOR );
+        appendEscaped( sb, event.getAction( ) );
+        sb.append( SEPARATOR );
+        appendEscaped( sb, event.getResource( ) );
+        sb.append( '\n' );
+        return new EncodedRecord( event.getRepositoryId( ), timestamp, sb.toString( ).getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    private static void appendEscaped( StringBuilder sb, String value )
+    {
+        if ( value == null )
+        {
+            sb.append( NULL_VALUE );
+            return;
+        }
+        for ( int i = 0; i < value.length( ); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '\\':
+                    sb.append( "\\\\" );
+                    break;
+                case '\t':
+                    sb.append( "\\t" );
+                    break;
+                case '\n':
+                    sb.append( "\\n" );
+                    break;
+                case '\r':
+                    sb.append( "\\r" );
+                    break;
+                default:
+                    sb.append( c );
+            }
+        }
+    }
+
+    /**
+     * Decodes the line between start (inclusive) and end (exclusive, the position of the line feed).
+     *
+     * @return the event or <code>null</code>, if the line is not a valid record
+     */
+    static AuditEvent decode( byte[] data, int start, int end )
+    {
+        String line = new String( data, start, end - start, StandardCharsets.UTF_8 );
+        String[] fields = line.split( "\t", -1 );
+        if ( fields.length != 6 )
+        {
+            return null;
+        }
+        AuditEvent event = new AuditEvent( );
+        try
+        {
+            event.setTimestamp( new Date( Long.parseLong( fields[0] ) ) );
+        }
+        catch ( NumberFormatException e )
+        {
+            return null;
+        }
+        event.setRepositoryId( unescape( fields[1] ) );
+        event.setUserId( unescape( fields[2] ) );
+        event.setRemoteIP( unescape( fields[3] ) );
+        event.setAction( unescape( fields[4] ) );
+        event.setResource( unescape( fields[5] ) );
+        return event.getRepositoryId( ) == null ? null : event;
+    }
+
+    private static String unescape( String value )
+    {
+        if ( NULL_VALUE.equals( value ) )
+        {
+            return null;
+        }
+        if ( value.indexOf( '\\' ) < 0 )
+        {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder( value.length( ) );
+        for ( int i = 0; i < value.length( ); i++ )
+        {
+            char c = value.charAt( i );
+            if ( c == '\\' && i + 1 < value.length( ) )
+            {
+                char next = value.charAt( ++i );
+                switch ( next )
+                {
+                    case 't':
+                        sb.append( '\t' );
+                        break;
+                    case 'n':
+                        sb.append( '\n' );
+                        break;
+                    case 'r':
+                        sb.append( '\r' );
+                        break;
+                    default:
+                        sb.append( next );
+                }
+            }
+            else
+            {
+                sb.append( c );
+            }
+        }
+        return sb.toString( );
+    }
+
+    /**
+     * A encoded event that is ready to be written.
+     */
+    static final class EncodedRecord
+    {
+        final String repositoryId;
+
+        final long timestamp;
+
+        final byte[] data;
+
+        EncodedRecord( String repositoryId, long timestamp, byte[] data )
+        {
+            this.repositoryId = repositoryId;
+            this.timestamp = timestamp;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Index entry for a consecutive region of the segment file.
+     */
+    static final class Block
+    {
+        final long offset;
+
+        long length;
+
+        int count;
+
+        long minTimestamp = Long.MAX_VALUE;
+
+        long maxTimestamp = Long.MIN_VALUE;
+
+        Block( long offset )
+        {
+            this.offset = offset;
+        }
+
+        void add( long timestamp, int recordLength )
+        {
+            length += recordLength;
+            count++;
+            minTimestamp = Math.min( minTimestamp, timestamp );
+            maxTimestamp = Math.max( maxTimestamp, timestamp );
+        }
+
+        boolean overlaps( long start, long end )
+        {
+            return count > 0 && maxTimestamp >= start && minTimestamp <= end;
+        }
+
+        Block copy( )
+        {
+            Block block = new Block( offset );
+            block.length = length;
+            block.count = count;
+            block.minTimestamp = minTimestamp;
+            block.maxTimestamp = maxTimestamp;
+            return block;
+        }
+    }
+
+    /**
+     * Reads complete lines from a stream. A line without terminating line feed is not returned.
+     */
+    private static final class ByteArrayLine
+    {
+        private byte[] buffer = new byte[256];
+
+        private int length;
+
+        boolean readFrom( InputStream in )
+            throws IOException
+        {
+            length = 0;
+            int b;
+            while ( ( b = in.read( ) ) >= 0 )
+            {
+                if ( length == buffer.length )
+                {
+                    byte[] newBuffer = new byte[buffer.length * 2];
+                    System.arraycopy( buffer, 0, newBuffer, 0, length );
+                    buffer = newBuffer;
+                }
+                buffer[length++] = (byte) b;
+                if ( b == '\n' )
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        byte[] toByteArray( )
+        {
+            byte[] result = new byte[length];
+            System.arraycopy( buffer, 0, result, 0, length );
+            return result;
+        }
+    }
+}
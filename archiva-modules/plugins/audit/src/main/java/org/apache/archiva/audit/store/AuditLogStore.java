@@ -0,0 +1,91 @@
+package org.apache.archiva.audit.store;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Dedicated storage for audit events. Events are only appended, never updated. The store
+ * keeps an index by time, so that the most recent events and events of a time range can be
+ * retrieved without reading the whole log.
+ *
+ * @since 3.0
+ */
+public interface AuditLogStore
+{
+    /**
+     * Appends the event to the log. The method returns after the event has been written to the
+     * log. Events of concurrent callers may be committed together.
+     *
+     * @param event the event to add
+     * @throws IOException if the event could not be written
+     */
+    void append( AuditEvent event )
+        throws IOException;
+
+    /**
+     * Returns the most recent events, newest first.
+     *
+     * @param repositoryIds the repositories to return events for, or <code>null</code> for all repositories
+     * @param limit         the maximum number of events to return
+     * @return the list of events, newest first
+     * @throws IOException if the log could not be read
+     */
+    List<AuditEvent> getMostRecent( Collection<String> repositoryIds, int limit )
+        throws IOException;
+
+    /**
+     * Returns the events in the given time range, newest first.
+     *
+     * @param repositoryIds   the repositories to return events for, or <code>null</code> for all repositories
+     * @param resourcePrefix  if not <code>null</code>, only events whose resources start with this string are returned
+     * @param startTime       find events only after this time, or <code>null</code> for no lower bound
+     * @param endTime         find events only before this time, or <code>null</code> for no upper bound
+     * @return the list of events, newest first
+     * @throws IOException if the log could not be read
+     */
+    List<AuditEvent> getInRange( Collection<String> repositoryIds, String resourcePrefix, Date startTime,
+                                 Date endTime )
+        throws IOException;
+
+    /**
+     * Removes all events of the given repository from the log.
+     *
+     * @param repositoryId the repository id
+     * @throws IOException if the log could not be rewritten
+     */
+    void deleteRepository( String repositoryId )
+        throws IOException;
+
+    /**
+     * Removes all events that are older than the given time. Only whole segments are removed,
+     * so some older events may stay in the log until their segment expires completely.
+     *
+     * @param olderThan the time limit
+     * @throws IOException if the segments could not be removed
+     */
+    void expire( Date olderThan )
+        throws IOException;
+}
@@ -0,0 +1,739 @@
+package org.apache.archiva.audit.store;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.audit.store.AuditLogSegment.Block;
+import org.apache.archiva.audit.store.AuditLogSegment.EncodedRecord;
+import org.apache.archiva.configuration.provider.ArchivaConfiguration;
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Audit log store, that writes the events to segmented, append only files in the <code>audit</code>
+ * directory below the archiva data directory.
+ * <p>
+ * All modifications are done by a single writer thread. Events of concurrent callers are written
+ * in one batch with a single flush to the disk (group commit). If a segment reaches the maximum
+ * size, it is sealed and a new segment is started. Sealed segments are only rewritten, if the events
+ * of a repository are removed.
+ * <p>
+ * Readers use the time index of the segments and read only the blocks that may contain matching events.
+ * <p>
+ * The retention is set by the system property <code>archiva.audit.retentionDays</code>. The writer thread
+ * removes the expired segments periodically. By default, all events are kept.
+ *
+ * @since 3.0
+ */
+@Service( "auditLogStore#file" )
+public class FileAuditLogStore
+    implements AuditLogStore
+{
+    private static final Logger log = LoggerFactory.getLogger( FileAuditLogStore.class );
+
+    private static final Comparator<AuditEvent> NEWEST_FIRST =
+        ( o1, o2 ) -> o2.getTimestamp( ).compareTo( o1.getTimestamp( ) );
+
+    private static final long COMMIT_TIMEOUT_SECONDS = 60;
+
+    @Inject
+    private ArchivaConfiguration archivaConfiguration;
+
+    private Path baseDirectory;
+
+    private long maxSegmentSize = 16 * 1024 * 1024;
+
+    private int blockSize = 256;
+
+    private int maxBatchSize = 1024;
+
+    private int retentionDays = Integer.getInteger( "archiva.audit.retentionDays", 0 );
+
+    private long retentionCheckInterval = TimeUnit.HOURS.toMillis( 1 );
+
+    private long nextRetentionCheck = 0;
+
+    private boolean syncOnCommit = true;
+
+    private final BlockingQueue<WriteRequest> queue = new LinkedBlockingQueue<>( );
+
+    /**
+     * The current segments, oldest first. The last segment is the active one. The list is replaced
+     * by the writer thread, readers must not modify it.
+     */
+    private volatile List<AuditLogSegment> segments = Collections.emptyList( );
+
+    private FileChannel activeChannel;
+
+    private Thread writerThread;
+
+    private volatile boolean running;
+
+    public FileAuditLogStore( )
+    {
+    }
+
+    public FileAuditLogStore( Path baseDirectory )
+    {
+        this.baseDirectory = baseDirectory;
+    }
+
+    @PostConstruct
+    public void initialize( )
+        throws IOException
+    {
+        if ( baseDirectory == null )
+        {
+            baseDirectory = archivaConfiguration.getDataDirectory( ).resolve( "audit" );
+        }
+        Files.createDirectories( baseDirectory );
+        List<AuditLogSegment> found = new ArrayList<>( );
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( baseDirectory, "audit-*" + AuditLogSegment.LOG_SUFFIX ) )
+        {
+            for ( Path file : stream )
+            {
+                long[] idAndGeneration = AuditLogSegment.parseFileName( file.getFileName( ).toString( ) );
+                if ( idAndGeneration != null )
+                {
+                    found.add( new AuditLogSegment( baseDirectory, idAndGeneration[0], (int) idAndGeneration[1], blockSize ) );
+                }
+            }
+        }
+        found.sort( Comparator.comparingLong( AuditLogSegment::getId ).thenComparingInt( AuditLogSegment::getGeneration ) );
+        // A compaction may have been interrupted. The new generation is complete, if its index was written.
+        List<AuditLogSegment> current = new ArrayList<>( found.size( ) );
+        for ( AuditLogSegment segment : found )
+        {
+            if ( !current.isEmpty( ) && current.get( current.size( ) - 1 ).getId( ) == segment.getId( ) )
+            {
+                if ( Files.exists( segment.getIndexFile( ) ) )
+                {
+                    deleteSegmentFiles( current.remove( current.size( ) - 1 ) );
+                }
+                else
+                {
+                    deleteSegmentFiles( segment );
+                    continue;
+                }
+            }
+            current.add( segment );
+        }
+        for ( int i = 0; i < current.size( ); i++ )
+        {
+            current.get( i ).load( i < current.size( ) - 1 );
+        }
+        if ( current.isEmpty( ) )
+        {
+            current.add( new AuditLogSegment( baseDirectory, 0, 0, blockSize ) );
+        }
+        AuditLogSegment active = current.get( current.size( ) - 1 );
+        activeChannel = openForAppend( active );
+        segments = Collections.unmodifiableList( current );
+        log.info( "Audit log store opened at {} with {} segments", baseDirectory, current.size( ) );
+
+        running = true;
+        writerThread = new Thread( this::writeLoop, "archiva-audit-log-writer" );
+        writerThread.setDaemon( true );
+        writerThread.start( );
+    }
+
+    @PreDestroy
+    public void shutdown( )
+    {
+        if ( !running )
+        {
+            return;
+        }
+        running = false;
+        // Wakes up the writer, which processes the remaining requests and stops
+        queue.add( new WriteRequest( null, ( ) -> {
+        } ) );
+        try
+        {
+            writerThread.join( TimeUnit.SECONDS.toMillis( COMMIT_TIMEOUT_SECONDS ) );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+        }
+        try
+        {
+            activeChannel.close( );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not close audit log segment: {}", e.getMessage( ) );
+        }
+    }
+
+    @Override
+    public void append( AuditEvent event )
+        throws IOException
+    {
+        WriteRequest request = new WriteRequest( AuditLogSegment.encode( event ), null );
+        submit( request );
+    }
+
+    @Override
+    public List<AuditEvent> getMostRecent( Collection<String> repositoryIds, int limit )
+        throws IOException
+    {
+        if ( limit <= 0 )
+        {
+            return Collections.emptyList( );
+        }
+        PriorityQueue<AuditEvent> oldestFirst = new PriorityQueue<>( limit + 1, NEWEST_FIRST.reversed( ) );
+        List<AuditLogSegment> current = this.segments;
+        for ( int i = current.size( ) - 1; i >= 0; i-- )
+        {
+            AuditLogSegment segment = current.get( i );
+            if ( segment.isEmpty( ) || !segment.containsAny( repositoryIds ) || !canContainNewer( oldestFirst, limit, segment.getMaxTimestamp( ) ) )
+            {
+                continue;
+            }
+            List<Block> blocks = segment.getBlocks( );
+            try ( FileChannel channel = segment.openForRead( ) )
+            {
+                for ( int j = blocks.size( ) - 1; j >= 0; j-- )
+                {
+                    Block block = blocks.get( j );
+                    if ( block.count == 0 || !canContainNewer( oldestFirst, limit, block.maxTimestamp ) )
+                    {
+                        continue;
+                    }
+                    for ( AuditEvent event : segment.read( channel, block ) )
+                    {
+                        if ( matches( event, repositoryIds, null ) )
+                        {
+                            oldestFirst.add( event );
+                            if ( oldestFirst.size( ) > limit )
+                            {
+                                oldestFirst.poll( );
+                            }
+                        }
+                    }
+                }
+            }
+            catch ( NoSuchFileException e )
+            {
+                // The segment was removed by a compaction or expiry after we got the list
+                log.debug( "Audit log segment removed while reading: {}", segment.getFile( ) );
+            }
+        }
+        List<AuditEvent> result = new ArrayList<>( oldestFirst );
+        result.sort( NEWEST_FIRST );
+        return result;
+    }
+
+    private static boolean canContainNewer( PriorityQueue<AuditEvent> oldestFirst, int limit, long maxTimestamp )
+    {
+        return oldestFirst.size( ) < limit || maxTimestamp > oldestFirst.peek( ).getTimestamp( ).getTime( );
+    }
+
+    @Override
+    public List<AuditEvent> getInRange( Collection<String> repositoryIds, String resourcePrefix, Date startTime,
+                                        Date endTime )
+        throws IOException
+    {
+        long start = startTime == null ? Long.MIN_VALUE : startTime.getTime( );
+        long end = endTime == null ? Long.MAX_VALUE : endTime.getTime( );
+        List<AuditEvent> result = new ArrayList<>( );
+        for ( AuditLogSegment segment : this.segments )
+        {
+            if ( segment.isEmpty( ) || !segment.containsAny( repositoryIds )
+                || segment.getMaxTimestamp( ) < start || segment.getMinTimestamp( ) > end )
+            {
+                continue;
+            }
+            try ( FileChannel channel = segment.openForRead( ) )
+            {
+                for ( Block block : segment.getBlocks( ) )
+                {
+                    if ( !block.overlaps( start, end ) )
+                    {
+                        continue;
+                    }
+                    for ( AuditEvent event : segment.read( channel, block ) )
+                    {
+                        long timestamp = event.getTimestamp( ).getTime( );
+                        if ( timestamp >= start && timestamp <= end && matches( event, repositoryIds, resourcePrefix ) )
+                        {
+                            result.add( event );
+                        }
+                    }
+                }
+            }
+            catch ( NoSuchFileException e )
+            {
+                log.debug( "Audit log segment removed while reading: {}", segment.getFile( ) );
+            }
+        }
+        result.sort( NEWEST_FIRST );
+        return result;
+    }
+
+    private static boolean matches( AuditEvent event, Collection<String> repositoryIds, String resourcePrefix )
+    {
+        if ( repositoryIds != null && !repositoryIds.contains( event.getRepositoryId( ) ) )
+        {
+            return false;
+        }
+        return resourcePrefix == null || ( event.getResource( ) != null && event.getResource( ).startsWith( resourcePrefix ) );
+    }
+
+    @Override
+    public void deleteRepository( final String repositoryId )
+        throws IOException
+    {
+        submit( new WriteRequest( null, ( ) -> compact( repositoryId ) ) );
+    }
+
+    @Override
+    public void expire( final Date olderThan )
+        throws IOException
+    {
+        submit( new WriteRequest( null, ( ) -> removeSegmentsBefore( olderThan.getTime( ) ) ) );
+    }
+
+    /**
+     * Removes the events, that are older than the configured retention. This is done by the writer thread
+     * periodically, but may be triggered directly.
+     */
+    public void applyRetention( )
+        throws IOException
+    {
+        submit( new WriteRequest( null, this::removeExpiredSegments ) );
+    }
+
+    private void submit( WriteRequest request )
+        throws IOException
+    {
+        if ( !running )
+        {
+            throw new IOException( "The audit log store is not running" );
+        }
+        queue.add( request );
+        try
+        {
+            request.result.get( COMMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread( ).interrupt( );
+            throw new IOException( "Interrupted while waiting for audit log commit" );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause( ) instanceof IOException )
+            {
+                throw (IOException) e.getCause( );
+            }
+            throw new IOException( "Could not write to audit log: " + e.getCause( ).getMessage( ), e.getCause( ) );
+        }
+        catch ( TimeoutException e )
+        {
+            throw new IOException( "Timeout while waiting for audit log commit" );
+        }
+    }
+
+    private void writeLoop( )
+    {
+        List<WriteRequest> batch = new ArrayList<>( maxBatchSize );
+        while ( running || !queue.isEmpty( ) )
+        {
+            try
+            {
+                WriteRequest request = queue.poll( retentionCheckInterval, TimeUnit.MILLISECONDS );
+                if ( request != null )
+                {
+                    batch.add( request );
+                    queue.drainTo( batch, maxBatchSize - 1 );
+                    processBatch( batch );
+                }
+                if ( retentionDays > 0 && System.currentTimeMillis( ) >= nextRetentionCheck )
+                {
+                    removeExpiredSegments( );
+                }
+            }
+            catch ( IOException e )
+            {
+                log.error( "Could not remove expired audit log segments: {}", e.getMessage( ), e );
+            }
+            catch ( InterruptedException e )
+            {
+                log.warn( "Audit log writer interrupted" );
+                break;
+            }
+            finally
+            {
+                batch.clear( );
+            }
+        }
+    }
+
+    private void processBatch( List<WriteRequest> batch )
+    {
+        List<WriteRequest> appends = new ArrayList<>( batch.size( ) );
+        for ( WriteRequest request : batch )
+        {
+            if ( request.task == null )
+            {
+                appends.add( request );
+            }
+            else
+            {
+                // Maintenance tasks are executed in order, so the pending appends are written first
+                commitAppends( appends );
+                appends.clear( );
+                try
+                {
+                    request.task.run( );
+                    request.result.complete( null );
+                }
+                catch ( Exception e )
+                {
+                    log.error( "Audit log maintenance failed: {}", e.getMessage( ), e );
+                    request.result.completeExceptionally( e );
+                }
+            }
+        }
+        commitAppends( appends );
+    }
+
+    private void commitAppends( List<WriteRequest> appends )
+    {
+        if ( appends.isEmpty( ) )
+        {
+            return;
+        }
+        List<EncodedRecord> records = new ArrayList<>( appends.size( ) );
+        int size = 0;
+        for ( WriteRequest request : appends )
+        {
+            records.add( request.record );
+            size += request.record.data.length;
+        }
+        try
+        {
+            ByteBuffer buffer = ByteBuffer.allocate( size );
+            for ( EncodedRecord record : records )
+            {
+                buffer.put( record.data );
+            }
+            buffer.flip( );
+            AuditLogSegment active = segments.get( segments.size( ) - 1 );
+            long position = active.getCommittedLength( );
+            while ( buffer.hasRemaining( ) )
+            {
+                position += activeChannel.write( buffer, position );
+            }
+            if ( syncOnCommit )
+            {
+                activeChannel.force( false );
+            }
+            active.committed( records );
+            for ( WriteRequest request : appends )
+            {
+                request.result.complete( null );
+            }
+            if ( active.getCommittedLength( ) >= maxSegmentSize )
+            {
+                rollSegment( );
+            }
+        }
+        catch ( Exception e )
+        {
+            log.error( "Could not write audit events: {}", e.getMessage( ), e );
+            for ( WriteRequest request : appends )
+            {
+                request.result.completeExceptionally( e );
+            }
+        }
+    }
+
+    /**
+     * Seals the active segment and starts a new one. Expired segments are removed afterwards.
+     */
+    private void rollSegment( )
+        throws IOException
+    {
+        AuditLogSegment active = segments.get( segments.size( ) - 1 );
+        activeChannel.close( );
+        active.seal( );
+        AuditLogSegment next = new AuditLogSegment( baseDirectory, active.getId( ) + 1, 0, blockSize );
+        activeChannel = openForAppend( next );
+        List<AuditLogSegment> newSegments = new ArrayList<>( segments );
+        newSegments.add( next );
+        segments = Collections.unmodifiableList( newSegments );
+        if ( retentionDays > 0 )
+        {
+            removeSegmentsBefore( System.currentTimeMillis( ) - TimeUnit.DAYS.toMillis( retentionDays ) );
+        }
+    }
+
+    /**
+     * Removes the segments with events older than the retention. If the active segment contains expired events,
+     * it is sealed, so that it can be removed once all of its events are expired. Otherwise, the events
+     * of a repository with few deployments would never expire.
+     */
+    private void removeExpiredSegments( )
+        throws IOException
+    {
+        nextRetentionCheck = System.currentTimeMillis( ) + retentionCheckInterval;
+        if ( retentionDays <= 0 )
+        {
+            return;
+        }
+        long expiryTime = System.currentTimeMillis( ) - TimeUnit.DAYS.toMillis( retentionDays );
+        AuditLogSegment active = segments.get( segments.size( ) - 1 );
+        if ( !active.isEmpty( ) && active.getMinTimestamp( ) < expiryTime )
+        {
+            // removes the expired segments after sealing
+            rollSegment( );
+        }
+        else
+        {
+            removeSegmentsBefore( expiryTime );
+        }
+    }
+
+    private void removeSegmentsBefore( long time )
+        throws IOException
+    {
+        List<AuditLogSegment> current = segments;
+        List<AuditLogSegment> kept = new ArrayList<>( current.size( ) );
+        List<AuditLogSegment> removed = new ArrayList<>( );
+        for ( AuditLogSegment segment : current )
+        {
+            if ( segment.isSealed( ) && ( segment.isEmpty( ) || segment.getMaxTimestamp( ) < time ) )
+            {
+                removed.add( segment );
+            }
+            else
+            {
+                kept.add( segment );
+            }
+        }
+        if ( !removed.isEmpty( ) )
+        {
+            segments = Collections.unmodifiableList( kept );
+            for ( AuditLogSegment segment : removed )
+            {
+                deleteSegmentFiles( segment );
+            }
+            log.info( "Removed {} expired audit log segments", removed.size( ) );
+        }
+    }
+
+    /**
+     * Rewrites all segments that contain events of the given repository without these events.
+     * The active segment is sealed first, so only sealed segments are rewritten.
+     */
+    private void compact( String repositoryId )
+        throws IOException
+    {
+        Collection<String> repositoryIds = Collections.singletonList( repositoryId );
+        AuditLogSegment active = segments.get( segments.size( ) - 1 );
+        if ( active.containsAny( repositoryIds ) )
+        {
+            rollSegment( );
+        }
+        List<AuditLogSegment> newSegments = new ArrayList<>( segments );
+        for ( int i = 0; i < newSegments.size( ) - 1; i++ )
+        {
+            AuditLogSegment segment = newSegments.get( i );
+            if ( !segment.containsAny( repositoryIds ) )
+            {
+                continue;
+            }
+            AuditLogSegment rewritten =
+                new AuditLogSegment( baseDirectory, segment.getId( ), segment.getGeneration( ) + 1, blockSize );
+            try ( FileChannel in = segment.openForRead( );
+                  FileChannel out = openForAppend( rewritten ) )
+            {
+                for ( Block block : segment.getBlocks( ) )
+                {
+                    List<EncodedRecord> records = new ArrayList<>( block.count );
+                    for ( AuditEvent event : segment.read( in, block ) )
+                    {
+                        if ( !repositoryId.equals( event.getRepositoryId( ) ) )
+                        {
+                            records.add( AuditLogSegment.encode( event ) );
+                        }
+                    }
+                    long position = rewritten.getCommittedLength( );
+                    for ( EncodedRecord record : records )
+                    {
+                        ByteBuffer buffer = ByteBuffer.wrap( record.data );
+                        while ( buffer.hasRemaining( ) )
+                        {
+                            position += out.write( buffer, position );
+                        }
+                    }
+                    rewritten.committed( records );
+                }
+                out.force( true );
+            }
+            rewritten.seal( );
+            newSegments.set( i, rewritten );
+            segments = Collections.unmodifiableList( new ArrayList<>( newSegments ) );
+            deleteSegmentFiles( segment );
+        }
+        removeSegmentsBefore( Long.MIN_VALUE );
+    }
+
+    private FileChannel openForAppend( AuditLogSegment segment )
+        throws IOException
+    {
+        return FileChannel.open( segment.getFile( ), StandardOpenOption.CREATE, StandardOpenOption.WRITE );
+    }
+
+    private void deleteSegmentFiles( AuditLogSegment segment )
+        throws IOException
+    {
+        Files.deleteIfExists( segment.getIndexFile( ) );
+        Files.deleteIfExists( segment.getFile( ) );
+    }
+
+    public Path getBaseDirectory( )
+    {
+        return baseDirectory;
+    }
+
+    public void setBaseDirectory( Path baseDirectory )
+    {
+        this.baseDirectory = baseDirectory;
+    }
+
+    public long getMaxSegmentSize( )
+    {
+        return maxSegmentSize;
+    }
+
+    public void setMaxSegmentSize( long maxSegmentSize )
+    {
+        this.maxSegmentSize = maxSegmentSize;
+    }
+
+    public int getBlockSize( )
+    {
+        return blockSize;
+    }
+
+    public void setBlockSize( int blockSize )
+    {
+        this.blockSize = blockSize;
+    }
+
+    public int getRetentionDays( )
+    {
+        return retentionDays;
+    }
+
+    /**
+     * Sets the number of days, the events are kept. Older segments are removed periodically and when a new
+     * segment is started. A value of <code>0</code> keeps all events.
+     */
+    public void setRetentionDays( int retentionDays )
+    {
+        this.retentionDays = retentionDays;
+    }
+
+    public long getRetentionCheckInterval( )
+    {
+        return retentionCheckInterval;
+    }
+
+    /**
+     * Sets the interval in milliseconds, in which the writer thread removes expired segments.
+     */
+    public void setRetentionCheckInterval( long retentionCheckInterval )
+    {
+        this.retentionCheckInterval = retentionCheckInterval;
+    }
+
+    public boolean isSyncOnCommit( )
+    {
+        return syncOnCommit;
+    }
+
+    public void setSyncOnCommit( boolean syncOnCommit )
+    {
+        this.syncOnCommit = syncOnCommit;
+    }
+
+    public ArchivaConfiguration getArchivaConfiguration( )
+    {
+        return archivaConfiguration;
+    }
+
+    public void setArchivaConfiguration( ArchivaConfiguration archivaConfiguration )
+    {
+        this.archivaConfiguration = archivaConfiguration;
+    }
+
+    private static final class WriteRequest
+    {
+        final EncodedRecord record;
+
+        final MaintenanceTask task;
+
+        final CompletableFuture<Void> result = new CompletableFuture<>( );
+
+        WriteRequest( EncodedRecord record, MaintenanceTask task )
+        {
+            this.record = record;
+            this.task = task;
+        }
+    }
+
+    @FunctionalInterface
+    private interface MaintenanceTask
+    {
+        void run( )
+            throws IOException;
+    }
+}
@@ -0,0 +1,261 @@
+package org.apache.archiva.audit.store;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.archiva.metadata.model.facets.AuditEvent;
+import org.apache.archiva.test.utils.ArchivaBlockJUnit4ClassRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith( ArchivaBlockJUnit4ClassRunner.class )
+public class FileAuditLogStoreTest
+{
+    private static final String TEST_REPO_ID = "test-repo";
+
+    private static final String TEST_REPO_ID_2 = "repo2";
+
+    private static final long BASE_TIME = 1263817296000L;
+
+    private Path baseDirectory;
+
+    private FileAuditLogStore store;
+
+    @Before
+    public void setUp( )
+        throws Exception
+    {
+        baseDirectory = Files.createTempDirectory( "audit-store" );
+        store = createStore( );
+    }
+
+    @After
+    public void tearDown( )
+        throws Exception
+    {
+        store.shutdown( );
+        try ( Stream<Path> files = Files.walk( baseDirectory ) )
+        {
+            files.sorted( Comparator.reverseOrder( ) ).forEach( p -> p.toFile( ).delete( ) );
+        }
+    }
+
+    private FileAuditLogStore createStore( )
+        throws Exception
+    {
+        FileAuditLogStore newStore = new FileAuditLogStore( baseDirectory );
+        newStore.setBlockSize( 4 );
+        newStore.setMaxSegmentSize( 1024 );
+        newStore.setSyncOnCommit( false );
+        newStore.initialize( );
+        return newStore;
+    }
+
+    private static AuditEvent createEvent( String repositoryId, long time, String resource )
+    {
+        AuditEvent event = new AuditEvent( repositoryId, "test_user", resource, AuditEvent.UPLOAD_FILE );
+        event.setRemoteIP( "127.0.0.1" );
+        event.setTimestamp( new Date( time ) );
+        return event;
+    }
+
+    @Test
+    public void testMostRecentEvents( )
+        throws Exception
+    {
+        for ( int i = 0; i < 25; i++ )
+        {
+            store.append( createEvent( TEST_REPO_ID, BASE_TIME + i, "test/resource" + i ) );
+        }
+        List<AuditEvent> events = store.getMostRecent( Collections.singletonList( TEST_REPO_ID ), 10 );
+        assertEquals( 10, events.size( ) );
+        for ( int i = 0; i < 10; i++ )
+        {
+            assertEquals( BASE_TIME + 24 - i, events.get( i ).getTimestamp( ).getTime( ) );
+            assertEquals( "test/resource" + ( 24 - i ), events.get( i ).getResource( ) );
+        }
+        assertTrue( store.getMostRecent( Collections.singletonList( "unknown" ), 10 ).isEmpty( ) );
+    }
+
+    @Test
+    public void testEventFieldsAreEscaped( )
+        throws Exception
+    {
+        AuditEvent event = createEvent( TEST_REPO_ID, BASE_TIME, "with\ttab\nand\\backslash" );
+        event.setUserId( null );
+        store.append( event );
+        List<AuditEvent> events = store.getMostRecent( null, 10 );
+        assertEquals( 1, events.size( ) );
+        assertEquals( event, events.get( 0 ) );
+    }
+
+    @Test
+    public void testRangeAndResource( )
+        throws Exception
+    {
+        for ( int i = 0; i < 30; i++ )
+        {
+            String repositoryId = i % 2 == 0 ? TEST_REPO_ID : TEST_REPO_ID_2;
+            store.append( createEvent( repositoryId, BASE_TIME + i * 1000L, ( i % 3 == 0 ? "a/" : "b/" ) + i ) );
+        }
+        List<AuditEvent> events = store.getInRange( Arrays.asList( TEST_REPO_ID, TEST_REPO_ID_2 ), null,
+            new Date( BASE_TIME + 10000 ), new Date( BASE_TIME + 19000 ) );
+        assertEquals( 10, events.size( ) );
+        assertEquals( BASE_TIME + 19000, events.get( 0 ).getTimestamp( ).getTime( ) );
+        assertEquals( BASE_TIME + 10000, events.get( 9 ).getTimestamp( ).getTime( ) );
+
+        events = store.getInRange( Collections.singletonList( TEST_REPO_ID ), "a/", null, null );
+        // i % 2 == 0 and i % 3 == 0
+        assertEquals( 5, events.size( ) );
+        for ( AuditEvent event : events )
+        {
+            assertEquals( TEST_REPO_ID, event.getRepositoryId( ) );
+            assertTrue( event.getResource( ).startsWith( "a/" ) );
+        }
+
+        assertTrue( store.getInRange( null, null, new Date( BASE_TIME + 100000 ), null ).isEmpty( ) );
+    }
+
+    @Test
+    public void testReopenKeepsEvents( )
+        throws Exception
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            store.append( createEvent( TEST_REPO_ID, BASE_TIME + i, "test/resource" + i ) );
+        }
+        store.shutdown( );
+        try ( Stream<Path> files = Files.list( baseDirectory ) )
+        {
+            assertTrue( files.filter( p -> p.toString( ).endsWith( AuditLogSegment.LOG_SUFFIX ) ).count( ) > 1 );
+        }
+
+        store = createStore( );
+        assertEquals( 100, store.getInRange( null, null, null, null ).size( ) );
+        store.append( createEvent( TEST_REPO_ID, BASE_TIME + 100, "test/resource100" ) );
+        List<AuditEvent> events = store.getMostRecent( null, 2 );
+        assertEquals( "test/resource100", events.get( 0 ).getResource( ) );
+        assertEquals( "test/resource99", events.get( 1 ).getResource( ) );
+    }
+
+    @Test
+    public void testDeleteRepository( )
+        throws Exception
+    {
+        for ( int i = 0; i < 60; i++ )
+        {
+            String repositoryId = i % 2 == 0 ? TEST_REPO_ID : TEST_REPO_ID_2;
+            store.append( createEvent( repositoryId, BASE_TIME + i, "test/resource" + i ) );
+        }
+        store.deleteRepository( TEST_REPO_ID );
+        assertTrue( store.getInRange( Collections.singletonList( TEST_REPO_ID ), null, null, null ).isEmpty( ) );
+        assertEquals( 30, store.getInRange( null, null, null, null ).size( ) );
+
+        store.shutdown( );
+        store = createStore( );
+        assertTrue( store.getMostRecent( Collections.singletonList( TEST_REPO_ID ), 10 ).isEmpty( ) );
+        assertEquals( 30, store.getInRange( Collections.singletonList( TEST_REPO_ID_2 ), null, null, null ).size( ) );
+    }
+
+    @Test
+    public void testExpire( )
+        throws Exception
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            store.append( createEvent( TEST_REPO_ID, BASE_TIME + i * 1000L, "test/resource" + i ) );
+        }
+        store.expire( new Date( BASE_TIME + 50000 ) );
+        List<AuditEvent> events = store.getInRange( null, null, null, null );
+        assertFalse( events.isEmpty( ) );
+        assertTrue( events.size( ) < 100 );
+        // only complete segments are removed
+        assertTrue( events.stream( ).anyMatch( e -> e.getTimestamp( ).getTime( ) >= BASE_TIME + 50000 ) );
+        assertEquals( BASE_TIME + 99000, events.get( 0 ).getTimestamp( ).getTime( ) );
+    }
+
+    @Test
+    public void testRetention( )
+        throws Exception
+    {
+        store.setRetentionDays( 1 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            store.append( createEvent( TEST_REPO_ID, BASE_TIME + i * 1000L, "test/resource" + i ) );
+        }
+        store.applyRetention( );
+        assertTrue( store.getInRange( null, null, null, null ).isEmpty( ) );
+
+        long now = System.currentTimeMillis( );
+        store.append( createEvent( TEST_REPO_ID, now, "test/current" ) );
+        store.applyRetention( );
+        List<AuditEvent> events = store.getInRange( null, null, null, null );
+        assertEquals( 1, events.size( ) );
+        assertEquals( "test/current", events.get( 0 ).getResource( ) );
+    }
+
+    @Test
+    public void testConcurrentAppends( )
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try
+        {
+            List<Future<?>> futures = new ArrayList<>( );
+            for ( int t = 0; t < 8; t++ )
+            {
+                final int thread = t;
+                futures.add( executor.submit( ( ) -> {
+                    for ( int i = 0; i < 50; i++ )
+                    {
+                        store.append( createEvent( TEST_REPO_ID, BASE_TIME + thread * 1000 + i, "t" + thread + "/" + i ) );
+                    }
+                    return null;
+                } ) );
+            }
+            for ( Future<?> future : futures )
+            {
+                future.get( );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow( );
+        }
+        assertEquals( 400, store.getInRange( null, null, null, null ).size( ) );
+        assertEquals( BASE_TIME + 7049, store.getMostRecent( null, 1 ).get( 0 ).getTimestamp( ).getTime( ) );
+    }
+}